@@ -0,0 +1,107 @@
+import java.util.Random;
+
+/**
+ * Measures how fast an IntSet is built from a batch of random keys: one add at a time, with addAll, and
+ * with buildParallel on 1, 2, 4 and so on up to the given number of threads. Every build must give a set of
+ * the same size and capacity. The best of the rounds is printed for each, in million keys per second, with
+ * the speedup of each parallel build over buildParallel on one thread.
+ *
+ * Usage: java BuildBenchmark [log2 keys] [max threads] [rounds]
+ *
+ * @author Ryan Cesar Irizarry
+ */
+public class BuildBenchmark {
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args Command-line arguments: log2 of the number of keys, the most threads to try, and the
+     *             number of rounds.
+     */
+    public static void main(String[] args) {
+        int n = 1 << (args.length > 0 ? Integer.parseInt(args[0]) : 24);
+        int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+        Random random = new Random(42);
+        int[] keys = new int[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = random.nextInt();
+        }
+        IntSet reference = new IntSet(n, IntIntMap.DEFAULT_LOAD_FACTOR);
+        for (int key : keys) {
+            reference.add(key);
+        }
+        System.out.printf("%d keys, %d distinct, capacity %d, %d processors%n", n, reference.size(),
+                reference.capacity(), Runtime.getRuntime().availableProcessors());
+        System.out.printf("%-16s %10s %10s %8s%n", "build", "ms", "Mkeys/s", "speedup");
+
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < rounds; round++) {
+            long start = System.nanoTime();
+            IntSet set = new IntSet(n, IntIntMap.DEFAULT_LOAD_FACTOR);
+            for (int key : keys) {
+                set.add(key);
+            }
+            best = Math.min(best, System.nanoTime() - start);
+            check(set, reference);
+        }
+        report("add", best, n, 0);
+
+        best = Long.MAX_VALUE;
+        for (int round = 0; round < rounds; round++) {
+            long start = System.nanoTime();
+            IntSet set = new IntSet(n, IntIntMap.DEFAULT_LOAD_FACTOR);
+            set.addAll(keys);
+            best = Math.min(best, System.nanoTime() - start);
+            check(set, reference);
+        }
+        report("addAll", best, n, 0);
+
+        long oneThread = 0;
+        int threads = 1;
+        while (true) {
+            best = Long.MAX_VALUE;
+            for (int round = 0; round < rounds; round++) {
+                long start = System.nanoTime();
+                IntSet set = IntSet.buildParallel(keys, IntIntMap.DEFAULT_LOAD_FACTOR, threads);
+                best = Math.min(best, System.nanoTime() - start);
+                check(set, reference);
+            }
+            if (threads == 1) {
+                oneThread = best;
+            }
+            report("parallel x" + threads, best, n, (double) oneThread / best);
+            if (threads >= maxThreads) {
+                break;
+            }
+            threads = Math.min(threads * 2, maxThreads);
+        }
+    }
+
+    /**
+     * Checks that a built set matches the one built by single adds.
+     *
+     * @param set The built set.
+     * @param reference The set built by single adds.
+     * @throws IllegalStateException If the size or capacity differs.
+     */
+    private static void check(IntSet set, IntSet reference) {
+        if (set.size() != reference.size() || set.capacity() != reference.capacity()) {
+            throw new IllegalStateException("Built " + set.size() + " keys in " + set.capacity()
+                    + " slots, expected " + reference.size() + " in " + reference.capacity());
+        }
+    }
+
+    /**
+     * Prints the time of one way of building.
+     *
+     * @param name The name of the build.
+     * @param nanos The best time, in nanoseconds.
+     * @param n The number of keys.
+     * @param speedup The speedup over one thread, or 0 to leave it out.
+     */
+    private static void report(String name, long nanos, int n, double speedup) {
+        System.out.printf("%-16s %10.1f %10.1f %8s%n", name, nanos / 1e6, n * 1e3 / nanos,
+                speedup > 0 ? String.format("%.2fx", speedup) : "");
+    }
+}
@@ -0,0 +1,107 @@
+import java.util.Random;
+
+/**
+ * Compares the bulk operations of IntIntMap, putAll and getAll, with loops of single put and get calls on
+ * a table much larger than the last-level cache, where nearly every probe is a cache miss. Two maps are
+ * filled to half their capacity with the same batches of keys, one each way, then looked up with the same
+ * random mix of present and missing keys. Both ways must give the same values, and the time per key of
+ * each is printed for every round.
+ *
+ * The default tables have 2^26 slots, 512 MB of keys and values each. Larger tables need a larger heap,
+ * for example java -Xmx5g BulkBenchmark 27.
+ *
+ * Usage: java BulkBenchmark [log2 capacity] [rounds] [batch size]
+ *
+ * @author Ryan Cesar Irizarry
+ */
+public class BulkBenchmark {
+
+    //Collects lookup results so the JIT cannot drop the lookups.
+    private static long sink;
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args Command-line arguments: log2 of the capacity, the number of rounds and the batch size.
+     */
+    public static void main(String[] args) {
+        int capacity = 1 << (args.length > 0 ? Integer.parseInt(args[0]) : 26);
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        int batchSize = args.length > 2 ? Integer.parseInt(args[2]) : 65536;
+        int n = capacity / 2;
+        int[] keys = new int[batchSize];
+        int[] values = new int[batchSize];
+        int[] single = new int[batchSize];
+        int[] bulk = new int[batchSize];
+        Random random = new Random(42);
+        System.out.printf("Capacity %d (%d MB), %d keys, batches of %d%n", capacity,
+                (long) capacity * 8 >> 20, n, batchSize);
+        System.out.printf("%-6s %-8s %12s %12s %8s%n", "round", "op", "single ns", "bulk ns", "speedup");
+        for (int round = 1; round <= rounds; round++) {
+            IntIntMap singleMap = new IntIntMap(n, IntIntMap.DEFAULT_LOAD_FACTOR, -1);
+            IntIntMap bulkMap = new IntIntMap(n, IntIntMap.DEFAULT_LOAD_FACTOR, -1);
+            long singleTime = 0;
+            long bulkTime = 0;
+            for (int start = 0; start < n; start += batchSize) {
+                int count = Math.min(batchSize, n - start);
+                int[] batchKeys = count == batchSize ? keys : new int[count];
+                int[] batchValues = count == batchSize ? values : new int[count];
+                for (int i = 0; i < count; i++) {
+                    batchKeys[i] = IntIntMap.mix(2 * (start + i));
+                    batchValues[i] = start + i;
+                }
+                long t = System.nanoTime();
+                for (int i = 0; i < count; i++) {
+                    singleMap.put(batchKeys[i], batchValues[i]);
+                }
+                singleTime += System.nanoTime() - t;
+                t = System.nanoTime();
+                bulkMap.putAll(batchKeys, batchValues);
+                bulkTime += System.nanoTime() - t;
+            }
+            if (bulkMap.capacity() != capacity || bulkMap.size() != n || singleMap.capacity() != capacity) {
+                throw new IllegalStateException("The map has " + bulkMap.size() + " keys in "
+                        + bulkMap.capacity() + " slots");
+            }
+            report(round, "insert", singleTime, bulkTime, n);
+
+            singleTime = 0;
+            bulkTime = 0;
+            for (int start = 0; start < n; start += batchSize) {
+                for (int i = 0; i < batchSize; i++) {
+                    keys[i] = IntIntMap.mix(2 * random.nextInt(n) + random.nextInt(2));
+                }
+                long t = System.nanoTime();
+                for (int i = 0; i < batchSize; i++) {
+                    single[i] = singleMap.get(keys[i]);
+                }
+                singleTime += System.nanoTime() - t;
+                t = System.nanoTime();
+                bulkMap.getAll(keys, bulk);
+                bulkTime += System.nanoTime() - t;
+                for (int i = 0; i < batchSize; i++) {
+                    if (single[i] != bulk[i]) {
+                        throw new IllegalStateException("getAll disagrees with get for key " + keys[i]);
+                    }
+                    sink += bulk[i];
+                }
+            }
+            report(round, "lookup", singleTime, bulkTime, n);
+        }
+        System.out.println("(checksum " + sink + ")");
+    }
+
+    /**
+     * Prints the time per key of both ways of doing an operation.
+     *
+     * @param round The round number.
+     * @param op The name of the operation.
+     * @param singleTime The total time of the single calls, in nanoseconds.
+     * @param bulkTime The total time of the bulk calls, in nanoseconds.
+     * @param count The number of keys each way handled.
+     */
+    private static void report(int round, String op, long singleTime, long bulkTime, int count) {
+        System.out.printf("%-6d %-8s %12.1f %12.1f %7.2fx%n", round, op, (double) singleTime / count,
+                (double) bulkTime / count, (double) singleTime / bulkTime);
+    }
+}
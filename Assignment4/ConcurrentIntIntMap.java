@@ -0,0 +1,597 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free hash map from int keys to int values that many threads can read and update at once. It
+ * follows Cliff Click's non-blocking hash map: a linear probing table whose slots are only ever changed
+ * with compare-and-set, and a resize that every writer helps with instead of one thread copying the whole
+ * table while the others wait.
+ *
+ * A key slot is claimed once and keeps its key for the life of the table, so a key never moves inside a
+ * table and a lookup that reaches an empty key slot has a definite miss. Removal leaves the key and puts a
+ * tombstone in the value. Each value is a long: a live value is its int plus a LIVE bit, and the other
+ * states are NULL (never set), TOMBSTONE, and any of these with a PRIME bit, which means the slot is being
+ * copied to the next table and its current value must be read there.
+ *
+ * To resize, a thread links a larger table to the current one. From then on any thread that touches a slot
+ * copies it first: it primes the old value, puts it into the new table only if the new slot is still
+ * unset, and then marks the old slot TOMBPRIME, copied for good. Writers also copy a chunk of slots each,
+ * and the thread that finishes the last slot swaps the new table in. Every step is a single CAS, so a
+ * stalled thread never blocks the others.
+ *
+ * Key 0 marks a free key slot, so the value of key 0 is kept in a separate atomic field.
+ *
+ * @author Ryan Cesar Irizarry
+ */
+public class ConcurrentIntIntMap {
+
+    //The key that marks a free key slot.
+    private static final int FREE = 0;
+
+    //A value slot that has never been set.
+    private static final long NULL = 0L;
+
+    //Set on a value slot that holds a live int value in its low 32 bits.
+    private static final long LIVE = 1L << 32;
+
+    //A value slot whose key was removed.
+    private static final long TOMBSTONE = 1L << 33;
+
+    //Set on a value slot that is being copied to the next table.
+    private static final long PRIME = 1L << 34;
+
+    //A value slot that is fully copied to the next table.
+    private static final long TOMBPRIME = TOMBSTONE | PRIME;
+
+    //Passed as the expected value of putIfMatch to store the value whatever the slot holds.
+    private static final long NO_MATCH_OLD = -1L;
+
+    //The number of slots copied as one chunk of help with a resize.
+    private static final int COPY_CHUNK = 1024;
+
+    //The probe length after which a table counts as crowded.
+    private static final int REPROBE_LIMIT = 10;
+
+    //The smallest capacity of a table.
+    private static final int MIN_CAPACITY = 16;
+
+    //The largest capacity of a table.
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    //Atomic access to the elements of the key arrays.
+    private static final VarHandle KEYS = MethodHandles.arrayElementVarHandle(int[].class);
+
+    //Atomic access to the elements of the value arrays.
+    private static final VarHandle VALUES = MethodHandles.arrayElementVarHandle(long[].class);
+
+    //Atomic access to the current table of a map.
+    private static final VarHandle TABLE;
+
+    //Atomic access to the next table of a table.
+    private static final VarHandle NEXT;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            TABLE = lookup.findVarHandle(ConcurrentIntIntMap.class, "table", Table.class);
+            NEXT = lookup.findVarHandle(Table.class, "next", Table.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * One table of the map. While a resize is running, the table links to the larger table it is being
+     * copied into.
+     */
+    private static final class Table {
+
+        //The key of each slot, with FREE in unclaimed slots.
+        final int[] keys;
+
+        //The value of each slot, encoded as described on the map.
+        final long[] values;
+
+        //capacity - 1, used to wrap slot numbers.
+        final int mask;
+
+        //The number of key slots claimed so far, which never goes down.
+        final AtomicInteger slots = new AtomicInteger();
+
+        //The next slot to be handed out as a chunk of copy work.
+        final AtomicInteger copyIndex = new AtomicInteger();
+
+        //The number of slots fully copied to the next table.
+        final AtomicInteger copyDone = new AtomicInteger();
+
+        //The table this one is being copied into, or null if there is no resize.
+        volatile Table next;
+
+        /**
+         * Constructs an empty table.
+         *
+         * @param capacity The capacity, a power of two.
+         */
+        Table(int capacity) {
+            this.keys = new int[capacity];
+            this.values = new long[capacity];
+            this.mask = capacity - 1;
+        }
+
+        /**
+         * Returns the longest probe a lookup makes before moving on to the next table.
+         *
+         * @return The probe limit.
+         */
+        int reprobeLimit() {
+            return REPROBE_LIMIT + (keys.length >> 2);
+        }
+    }
+
+    //The current top-level table.
+    private volatile Table table;
+
+    //The value of key 0, encoded like a value slot.
+    private final AtomicLong zeroValue = new AtomicLong(NULL);
+
+    //The number of live keys.
+    private final LongAdder size = new LongAdder();
+
+    //The value returned by get and remove for missing keys.
+    private final int missingValue;
+
+    /**
+     * Constructs an empty map with room for 16 keys and 0 for missing keys.
+     */
+    public ConcurrentIntIntMap() {
+        this(16, 0);
+    }
+
+    /**
+     * Constructs an empty map.
+     *
+     * @param expectedSize The number of keys the map should hold without resizing.
+     * @param missingValue The value get and remove return for keys that are not in the map.
+     * @throws IllegalArgumentException If the size is negative or too large.
+     */
+    public ConcurrentIntIntMap(int expectedSize, int missingValue) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("The expected size cannot be negative");
+        }
+        this.missingValue = missingValue;
+        this.table = new Table(Math.max(MIN_CAPACITY, IntIntMap.capacityFor(expectedSize, 0.5f)));
+    }
+
+    /**
+     * Checks if an encoded value is a live int.
+     *
+     * @param value The encoded value.
+     * @return True if the value is live and not being copied.
+     */
+    private static boolean isLive(long value) {
+        return (value & (LIVE | PRIME)) == LIVE;
+    }
+
+    /**
+     * Checks if an encoded value is being copied or has been copied to the next table.
+     *
+     * @param value The encoded value.
+     * @return True if the PRIME bit is set.
+     */
+    private static boolean isPrime(long value) {
+        return (value & PRIME) != 0;
+    }
+
+    /**
+     * Decodes a value for a caller.
+     *
+     * @param value The encoded value.
+     * @return The int value, or the missing value if the value is not live.
+     */
+    private int decode(long value) {
+        return isLive(value) ? (int) value : missingValue;
+    }
+
+    /**
+     * Encodes an int as a live value.
+     *
+     * @param value The int value.
+     * @return The encoded value.
+     */
+    private static long encode(int value) {
+        return LIVE | (value & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Returns the value stored for a key.
+     *
+     * @param key The key.
+     * @return The value, or the missing value if the key is not in the map.
+     */
+    public int get(int key) {
+        return decode(key == FREE ? zeroValue.get() : getImpl(table, key));
+    }
+
+    /**
+     * Checks if a key is in the map.
+     *
+     * @param key The key.
+     * @return True if the key is in the map, false otherwise.
+     */
+    public boolean containsKey(int key) {
+        return isLive(key == FREE ? zeroValue.get() : getImpl(table, key));
+    }
+
+    /**
+     * Stores a value for a key, replacing any value it had.
+     *
+     * @param key The key.
+     * @param value The value.
+     * @return The previous value, or the missing value if the key was not in the map.
+     */
+    public int put(int key, int value) {
+        return decode(update(key, encode(value), NO_MATCH_OLD));
+    }
+
+    /**
+     * Stores a value for a key only if the key is not in the map.
+     *
+     * @param key The key.
+     * @param value The value.
+     * @return The value the key already had, or the missing value if the new value was stored.
+     */
+    public int putIfAbsent(int key, int value) {
+        return decode(update(key, encode(value), TOMBSTONE));
+    }
+
+    /**
+     * Removes a key.
+     *
+     * @param key The key.
+     * @return The value the key had, or the missing value if it was not in the map.
+     */
+    public int remove(int key) {
+        return decode(update(key, TOMBSTONE, NO_MATCH_OLD));
+    }
+
+    /**
+     * Returns the number of keys in the map. While other threads are updating the map the count is only
+     * an estimate.
+     *
+     * @return The size.
+     */
+    public int size() {
+        return (int) Math.max(0, size.sum());
+    }
+
+    /**
+     * Checks if the map is empty.
+     *
+     * @return True if there are no keys, false otherwise.
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Returns the number of slots in the current table.
+     *
+     * @return The capacity.
+     */
+    public int capacity() {
+        return table.keys.length;
+    }
+
+    /**
+     * Applies an update to key 0 or to the tables.
+     *
+     * @param key The key.
+     * @param newValue The encoded value to store, or TOMBSTONE to remove.
+     * @param expected NO_MATCH_OLD to always store, or TOMBSTONE to store only if the key is absent.
+     * @return The encoded value the key had, with TOMBSTONE for absent.
+     */
+    private long update(int key, long newValue, long expected) {
+        if (key != FREE) {
+            return putIfMatch(table, key, newValue, expected);
+        }
+        while (true) {
+            long old = zeroValue.get();
+            if (expected == TOMBSTONE && isLive(old)) {
+                return old;
+            }
+            if (zeroValue.compareAndSet(old, newValue)) {
+                countChange(old, newValue);
+                return old == NULL ? TOMBSTONE : old;
+            }
+        }
+    }
+
+    /**
+     * Updates the size after a value changed between absent and live.
+     *
+     * @param old The encoded value before.
+     * @param value The encoded value after.
+     */
+    private void countChange(long old, long value) {
+        if (!isLive(old) && isLive(value)) {
+            size.increment();
+        } else if (isLive(old) && !isLive(value)) {
+            size.decrement();
+        }
+    }
+
+    /**
+     * Looks a key up in a table and, through any resize in progress, in the tables after it.
+     *
+     * @param t The table to start in.
+     * @param key The key, not FREE.
+     * @return The encoded value, never primed.
+     */
+    private long getImpl(Table t, int key) {
+        while (true) {
+            int idx = IntIntMap.mix(key) & t.mask;
+            int reprobes = 0;
+            while (true) {
+                int k = (int) KEYS.getVolatile(t.keys, idx);
+                if (k == FREE) {
+                    return NULL;
+                }
+                if (k == key) {
+                    long value = (long) VALUES.getVolatile(t.values, idx);
+                    if (!isPrime(value)) {
+                        return value;
+                    }
+                    t = copySlotAndCheck(t, idx, false);
+                    break;
+                }
+                if (++reprobes >= t.reprobeLimit()) {
+                    Table next = t.next;
+                    if (next == null) {
+                        return NULL;
+                    }
+                    t = helpCopy(next);
+                    break;
+                }
+                idx = (idx + 1) & t.mask;
+            }
+        }
+    }
+
+    /**
+     * Stores a value in the slot of a key, claiming a slot if the key has none, and following any resize
+     * to the newest table.
+     *
+     * @param t The table to start in.
+     * @param key The key, not FREE.
+     * @param newValue The encoded value to store, or TOMBSTONE to remove.
+     * @param expected NO_MATCH_OLD to always store, TOMBSTONE to store only over an absent value, or NULL
+     *                 to store only over a slot that was never set, which is how copies are made.
+     * @return The encoded value the slot had. For updates, NULL is reported as TOMBSTONE.
+     */
+    private long putIfMatch(Table t, int key, long newValue, long expected) {
+        while (true) {
+            int idx = IntIntMap.mix(key) & t.mask;
+            int reprobes = 0;
+            Table redirect = null;
+            while (true) {
+                int k = (int) KEYS.getVolatile(t.keys, idx);
+                if (k == FREE) {
+                    if (newValue == TOMBSTONE) {
+                        return TOMBSTONE;
+                    }
+                    if (KEYS.compareAndSet(t.keys, idx, FREE, key)) {
+                        t.slots.incrementAndGet();
+                        break;
+                    }
+                    k = (int) KEYS.getVolatile(t.keys, idx);
+                }
+                if (k == key) {
+                    break;
+                }
+                if (++reprobes >= t.reprobeLimit()) {
+                    redirect = resize(t);
+                    if (expected != NULL) {
+                        helpCopy(redirect);
+                    }
+                    break;
+                }
+                idx = (idx + 1) & t.mask;
+            }
+            if (redirect != null) {
+                t = redirect;
+                continue;
+            }
+
+            long value = (long) VALUES.getVolatile(t.values, idx);
+            if (value == newValue) {
+                return value;
+            }
+            Table next = t.next;
+            if (next == null && ((value == NULL && isCrowded(t, reprobes)) || isPrime(value))) {
+                next = resize(t);
+            }
+            if (next != null) {
+                t = copySlotAndCheck(t, idx, expected != NULL);
+                continue;
+            }
+            while (true) {
+                if (expected != NO_MATCH_OLD && value != expected && !(value == NULL && expected == TOMBSTONE)) {
+                    return value;
+                }
+                if (VALUES.compareAndSet(t.values, idx, value, newValue)) {
+                    if (expected != NULL) {
+                        countChange(value, newValue);
+                    }
+                    return value == NULL && expected != NULL ? TOMBSTONE : value;
+                }
+                value = (long) VALUES.getVolatile(t.values, idx);
+                if (isPrime(value)) {
+                    break;
+                }
+            }
+            t = copySlotAndCheck(t, idx, expected != NULL);
+        }
+    }
+
+    /**
+     * Checks if a table has claimed so many key slots that a new key should start a resize.
+     *
+     * @param t The table.
+     * @param reprobes The probe length of the key being added.
+     * @return True if the table should be resized.
+     */
+    private static boolean isCrowded(Table t, int reprobes) {
+        int claimed = t.slots.get();
+        return claimed >= t.keys.length - (t.keys.length >> 2)
+                || (reprobes >= REPROBE_LIMIT && claimed >= t.reprobeLimit());
+    }
+
+    /**
+     * Links a new table to a table, unless another thread already has. The new table is sized from the
+     * number of live keys, so a table full of removed keys is rebuilt at the same size.
+     *
+     * @param t The table to resize.
+     * @return The table it is being copied into.
+     */
+    private Table resize(Table t) {
+        Table next = t.next;
+        if (next != null) {
+            return next;
+        }
+        int capacity = t.keys.length;
+        long live = size.sum();
+        if (live >= capacity >> 2) {
+            capacity <<= live >= capacity >> 1 ? 2 : 1;
+        }
+        if (capacity > MAX_CAPACITY) {
+            throw new IllegalStateException("ConcurrentIntIntMap cannot grow past " + MAX_CAPACITY + " slots");
+        }
+        next = t.next;
+        if (next != null) {
+            return next;
+        }
+        Table fresh = new Table(capacity);
+        return NEXT.compareAndSet(t, null, fresh) ? fresh : t.next;
+    }
+
+    /**
+     * Copies one slot to the next table and returns the next table, so the caller can retry there.
+     *
+     * @param t The table being copied.
+     * @param idx The slot.
+     * @param help True if the caller should also copy a chunk of the top-level table.
+     * @return The next table.
+     */
+    private Table copySlotAndCheck(Table t, int idx, boolean help) {
+        Table next = t.next;
+        if (copySlot(t, idx, next)) {
+            copyCheckAndPromote(t, next, 1);
+        }
+        return help ? helpCopy(next) : next;
+    }
+
+    /**
+     * Copies a chunk of the top-level table if it is being resized.
+     *
+     * @param result The table to hand back.
+     * @return The result.
+     */
+    private Table helpCopy(Table result) {
+        Table top = table;
+        if (top.next != null) {
+            copyChunk(top, false);
+        }
+        return result;
+    }
+
+    /**
+     * Copies chunks of a table into its next table. Chunks are handed out in order, and once all have been
+     * handed out a helper that finds the copy still unfinished goes over the whole table itself, since the
+     * thread holding the last chunk may have stalled.
+     *
+     * @param t The table being copied.
+     * @param all True to keep copying until the whole table is done.
+     */
+    private void copyChunk(Table t, boolean all) {
+        Table next = t.next;
+        int length = t.keys.length;
+        int chunk = Math.min(length, COPY_CHUNK);
+        boolean panic = false;
+        int start = -1;
+        while (t.copyDone.get() < length) {
+            if (!panic) {
+                start = t.copyIndex.get();
+                while (start < length << 1 && !t.copyIndex.compareAndSet(start, start + chunk)) {
+                    start = t.copyIndex.get();
+                }
+                if (start >= length << 1) {
+                    panic = true;
+                }
+            }
+            int copied = 0;
+            for (int i = 0; i < chunk; i++) {
+                if (copySlot(t, (start + i) & t.mask, next)) {
+                    copied++;
+                }
+            }
+            if (copied > 0) {
+                copyCheckAndPromote(t, next, copied);
+            }
+            start += chunk;
+            if (!all && !panic) {
+                return;
+            }
+        }
+        copyCheckAndPromote(t, next, 0);
+    }
+
+    /**
+     * Counts copied slots and, once every slot of the top-level table is copied, swaps in the next table.
+     *
+     * @param t The table being copied.
+     * @param next The table it is copied into.
+     * @param copied The number of slots just copied.
+     */
+    private void copyCheckAndPromote(Table t, Table next, int copied) {
+        int done = copied > 0 ? t.copyDone.addAndGet(copied) : t.copyDone.get();
+        if (done == t.keys.length && table == t) {
+            TABLE.compareAndSet(this, t, next);
+        }
+    }
+
+    /**
+     * Copies one slot into the next table. The old value is primed so writers go to the next table, put
+     * there only if that slot was never set, and then replaced with TOMBPRIME.
+     *
+     * @param t The table being copied.
+     * @param idx The slot.
+     * @param next The table it is copied into.
+     * @return True if this call finished the slot, so it should be counted.
+     */
+    private boolean copySlot(Table t, int idx, Table next) {
+        long value = (long) VALUES.getVolatile(t.values, idx);
+        while (!isPrime(value)) {
+            long primed = value == NULL || value == TOMBSTONE ? TOMBPRIME : value | PRIME;
+            if (VALUES.compareAndSet(t.values, idx, value, primed)) {
+                if (primed == TOMBPRIME) {
+                    return true;
+                }
+                value = primed;
+                break;
+            }
+            value = (long) VALUES.getVolatile(t.values, idx);
+        }
+        if (value == TOMBPRIME) {
+            return false;
+        }
+        int key = (int) KEYS.getVolatile(t.keys, idx);
+        boolean copied = putIfMatch(next, key, value & ~PRIME, NULL) == NULL;
+        while (!VALUES.compareAndSet(t.values, idx, value, TOMBPRIME)) {
+            value = (long) VALUES.getVolatile(t.values, idx);
+        }
+        return copied;
+    }
+}
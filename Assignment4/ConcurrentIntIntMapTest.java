@@ -0,0 +1,334 @@
+import org.junit.Test;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicReference;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for the ConcurrentIntIntMap class.
+ *
+ * @author Ryan Cesar Irizarry
+ */
+public class ConcurrentIntIntMapTest {
+
+    //The value the maps under test return for missing keys; stored values are never negative.
+    private static final int MISSING = -1;
+
+    //Operation codes of a recorded history.
+    private static final int GET = 0;
+    private static final int PUT = 1;
+    private static final int PUT_IF_ABSENT = 2;
+    private static final int REMOVE = 3;
+
+    /**
+     * One completed operation of a history, with the times it was invoked and returned.
+     */
+    private static final class Operation {
+
+        //The operation code.
+        final int kind;
+
+        //The key.
+        final int key;
+
+        //The value passed to a put.
+        final int argument;
+
+        //The value the map returned.
+        int result;
+
+        //When the operation was invoked.
+        long start;
+
+        //When the operation returned.
+        long end;
+
+        /**
+         * Constructs an operation that has not run yet.
+         *
+         * @param kind The operation code.
+         * @param key The key.
+         * @param argument The value passed to a put.
+         */
+        Operation(int kind, int key, int argument) {
+            this.kind = kind;
+            this.key = key;
+            this.argument = argument;
+        }
+    }
+
+    /**
+     * Runs a recorded operation on a map.
+     *
+     * @param map The map.
+     * @param op The operation.
+     * @return The value the map returned.
+     */
+    private static int apply(ConcurrentIntIntMap map, Operation op) {
+        switch (op.kind) {
+            case GET:
+                return map.get(op.key);
+            case PUT:
+                return map.put(op.key, op.argument);
+            case PUT_IF_ABSENT:
+                return map.putIfAbsent(op.key, op.argument);
+            default:
+                return map.remove(op.key);
+        }
+    }
+
+    /**
+     * Runs an operation on a sequential model, a map from key to value.
+     *
+     * @param model The model.
+     * @param op The operation.
+     * @return The value a sequential map returns.
+     */
+    private static int apply(Map<Integer, Integer> model, Operation op) {
+        Integer old = model.get(op.key);
+        switch (op.kind) {
+            case PUT:
+                model.put(op.key, op.argument);
+                break;
+            case PUT_IF_ABSENT:
+                if (old == null) {
+                    model.put(op.key, op.argument);
+                }
+                break;
+            case REMOVE:
+                model.remove(op.key);
+                break;
+            default:
+                break;
+        }
+        return old == null ? MISSING : old;
+    }
+
+    /**
+     * Checks that a history is linearizable: that the operations can be put in one order that respects
+     * real time, where each returns what a sequential map would. This is the Wing and Gong search, which
+     * tries every operation that no unfinished operation returned before.
+     *
+     * @param history The operations.
+     * @param done A bit for every operation already placed in the order.
+     * @param model The sequential map after the placed operations.
+     * @param failed The states already shown to be dead ends.
+     * @return True if the rest of the history can be ordered.
+     */
+    private static boolean linearizable(List<Operation> history, long done, Map<Integer, Integer> model,
+                                        Set<String> failed) {
+        if (done == (1L << history.size()) - 1) {
+            return true;
+        }
+        String state = done + " " + model;
+        if (failed.contains(state)) {
+            return false;
+        }
+        long firstEnd = Long.MAX_VALUE;
+        for (int i = 0; i < history.size(); i++) {
+            if ((done & (1L << i)) == 0) {
+                firstEnd = Math.min(firstEnd, history.get(i).end);
+            }
+        }
+        for (int i = 0; i < history.size(); i++) {
+            Operation op = history.get(i);
+            if ((done & (1L << i)) != 0 || op.start > firstEnd) {
+                continue;
+            }
+            Map<Integer, Integer> next = new HashMap<>(model);
+            if (apply(next, op) == op.result && linearizable(history, done | (1L << i), next, failed)) {
+                return true;
+            }
+        }
+        failed.add(state);
+        return false;
+    }
+
+    /**
+     * Runs the same random operations on the map and on a HashMap, including key 0, negative keys and
+     * enough keys to resize several times.
+     */
+    @Test
+    public void testMatchesHashMap() {
+        ConcurrentIntIntMap map = new ConcurrentIntIntMap(0, MISSING);
+        Map<Integer, Integer> model = new HashMap<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 200000; i++) {
+            Operation op = new Operation(random.nextInt(4), random.nextInt(4000) - 2000, random.nextInt(1000));
+            assertEquals(apply(model, op), apply(map, op));
+            assertEquals(model.size(), map.size());
+        }
+        assertEquals(model.containsKey(0), map.containsKey(0));
+        assertTrue(map.capacity() >= model.size());
+    }
+
+    /**
+     * Stress test: each thread owns the keys equal to its number modulo the thread count and checks every
+     * result against its own model while all threads force the table through many resizes.
+     *
+     * @throws Exception If a thread fails to finish.
+     */
+    @Test
+    public void testDisjointWriters() throws Exception {
+        int threads = 4;
+        ConcurrentIntIntMap map = new ConcurrentIntIntMap(0, MISSING);
+        List<Map<Integer, Integer>> models = new ArrayList<>();
+        AtomicReference<String> failure = new AtomicReference<>();
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int owner = t;
+            Map<Integer, Integer> model = new HashMap<>();
+            models.add(model);
+            workers.add(new Thread(() -> {
+                Random random = new Random(owner);
+                for (int i = 0; i < 300000 && failure.get() == null; i++) {
+                    int key = random.nextInt(200) * threads + owner;
+                    Operation op = new Operation(random.nextInt(4), key, random.nextInt(1000));
+                    int expected = apply(model, op);
+                    int actual = apply(map, op);
+                    if (expected != actual) {
+                        failure.compareAndSet(null, "thread " + owner + " key " + key + ": expected " + expected
+                                + " but got " + actual);
+                    }
+                }
+            }));
+        }
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        assertNull(failure.get());
+        int total = 0;
+        for (Map<Integer, Integer> model : models) {
+            total += model.size();
+            for (Map.Entry<Integer, Integer> entry : model.entrySet()) {
+                assertEquals((int) entry.getValue(), map.get(entry.getKey()));
+            }
+        }
+        assertEquals(total, map.size());
+    }
+
+    /**
+     * Tests that when threads race to putIfAbsent the same keys, exactly one wins each key and its value
+     * is the one that stays.
+     *
+     * @throws Exception If a thread fails to finish.
+     */
+    @Test
+    public void testPutIfAbsentHasOneWinner() throws Exception {
+        int threads = 4;
+        int keys = 20000;
+        ConcurrentIntIntMap map = new ConcurrentIntIntMap(0, MISSING);
+        int[][] won = new int[threads][keys];
+        CyclicBarrier barrier = new CyclicBarrier(threads);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int id = t;
+            workers.add(new Thread(() -> {
+                try {
+                    barrier.await();
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+                for (int k = 0; k < keys; k++) {
+                    if (map.putIfAbsent(k, id) == MISSING) {
+                        won[id][k] = 1;
+                    }
+                }
+            }));
+        }
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        for (int k = 0; k < keys; k++) {
+            int winners = 0;
+            for (int t = 0; t < threads; t++) {
+                if (won[t][k] == 1) {
+                    winners++;
+                    assertEquals(t, map.get(k));
+                }
+            }
+            assertEquals(1, winners);
+        }
+        assertEquals(keys, map.size());
+    }
+
+    /**
+     * Linearizability test: in many short rounds, threads run random operations on two shared keys of a
+     * new map and record when each was invoked and returned. Between operations they add keys of their
+     * own, which are left out of the history, so the shared keys are copied by resizes mid-round. Each
+     * round's history must be linearizable.
+     *
+     * @throws Exception If a thread fails to finish.
+     */
+    @Test
+    public void testLinearizable() throws Exception {
+        int threads = 3;
+        int opsPerThread = 5;
+        for (int round = 0; round < 300; round++) {
+            ConcurrentIntIntMap map = new ConcurrentIntIntMap(0, MISSING);
+            List<List<Operation>> perThread = new ArrayList<>();
+            CyclicBarrier barrier = new CyclicBarrier(threads);
+            List<Thread> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                Random random = new Random(round * threads + t);
+                List<Operation> ops = new ArrayList<>();
+                for (int i = 0; i < opsPerThread; i++) {
+                    ops.add(new Operation(random.nextInt(4), 1 + random.nextInt(2), t * 10 + i));
+                }
+                perThread.add(ops);
+                int filler = 1000 + t * 100000;
+                workers.add(new Thread(() -> {
+                    try {
+                        barrier.await();
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                    for (int i = 0; i < ops.size(); i++) {
+                        for (int f = 0; f < 8; f++) {
+                            map.put(filler + i * 8 + f, f);
+                        }
+                        Operation op = ops.get(i);
+                        op.start = System.nanoTime();
+                        op.result = apply(map, op);
+                        op.end = System.nanoTime();
+                    }
+                }));
+            }
+            for (Thread worker : workers) {
+                worker.start();
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            List<Operation> history = new ArrayList<>();
+            for (List<Operation> ops : perThread) {
+                history.addAll(ops);
+            }
+            assertTrue("round " + round + " is not linearizable",
+                    linearizable(history, 0, new HashMap<>(), new HashSet<>()));
+            assertEquals(threads * opsPerThread * 8, map.size() - countShared(map));
+        }
+    }
+
+    /**
+     * Counts the shared keys 1 and 2 that are in a map.
+     *
+     * @param map The map.
+     * @return The number of shared keys present.
+     */
+    private static int countShared(ConcurrentIntIntMap map) {
+        return (map.containsKey(1) ? 1 : 0) + (map.containsKey(2) ? 1 : 0);
+    }
+}
@@ -0,0 +1,284 @@
+/**
+ * A cuckoo filter: a cuckoo hash table that stores a 16-bit fingerprint of each key instead of the key.
+ * A key has two candidate buckets of four fingerprints, and the second bucket is found from the first and
+ * the fingerprint alone, so a stored fingerprint can be moved without knowing its key. Each bucket is one
+ * long, and checking it for a fingerprint takes a few long operations on all four lanes at once.
+ *
+ * Unlike a Bloom filter it can remove keys, by clearing one copy of the key's fingerprint. With 16-bit
+ * fingerprints and two buckets of four, the false positive rate is about 8 / 65536, or 0.012%.
+ *
+ * An insert into two full buckets evicts fingerprints along a random walk. If the walk runs too long, the
+ * last evicted fingerprint is kept aside as the victim, and the filter reports itself full from then on.
+ *
+ * @author Ryan Cesar Irizarry
+ */
+public class CuckooFilter implements IntFilter {
+
+    //The lowest bit of every 16-bit lane of a long.
+    private static final long LOW_BITS = 0x0001000100010001L;
+
+    //The highest bit of every 16-bit lane of a long.
+    private static final long HIGH_BITS = 0x8000800080008000L;
+
+    //The number of fingerprints in a bucket.
+    private static final int BUCKET = 4;
+
+    //The fill rate the filter is sized for.
+    private static final double TARGET_LOAD = 0.9;
+
+    //The most evictions one insert makes before giving up.
+    private static final int MAX_KICKS = 500;
+
+    //The largest number of buckets.
+    private static final int MAX_BUCKETS = 1 << 28;
+
+    //The lowest false positive rate 16-bit fingerprints can give.
+    public static final double MIN_FALSE_POSITIVE_RATE = 2.0 * BUCKET / 65536;
+
+    //The buckets, four 16-bit fingerprints each, with 0 for an empty lane.
+    private final long[] buckets;
+
+    //The number of buckets - 1, used to wrap bucket numbers.
+    private final int mask;
+
+    //The fingerprint that was evicted when the filter filled up, or 0 if there is none.
+    private int victim;
+
+    //The bucket the victim belongs to.
+    private int victimBucket;
+
+    //The state of the random number generator that picks lanes to evict.
+    private int random = 0x2545F491;
+
+    /**
+     * Constructs an empty filter sized for a number of keys.
+     *
+     * @param expectedKeys The number of keys that will be added.
+     * @param falsePositiveRate The wanted false positive rate, at least MIN_FALSE_POSITIVE_RATE.
+     * @throws IllegalArgumentException If the count is negative, the rate is out of range, or the filter
+     *                                  would be too large.
+     */
+    public CuckooFilter(int expectedKeys, double falsePositiveRate) {
+        if (expectedKeys < 0) {
+            throw new IllegalArgumentException("The expected key count cannot be negative");
+        }
+        if (!(falsePositiveRate >= MIN_FALSE_POSITIVE_RATE && falsePositiveRate < 1)) {
+            throw new IllegalArgumentException("A cuckoo filter with 16-bit fingerprints has a false positive rate "
+                    + "between " + MIN_FALSE_POSITIVE_RATE + " and 1");
+        }
+        long needed = (long) Math.ceil(Math.max(1, expectedKeys) / (BUCKET * TARGET_LOAD));
+        if (needed > MAX_BUCKETS) {
+            throw new IllegalArgumentException("Too many keys for a cuckoo filter: " + expectedKeys);
+        }
+        int count = Math.max(2, Integer.highestOneBit((int) Math.max(1, needed - 1)) << 1);
+        this.buckets = new long[count];
+        this.mask = count - 1;
+    }
+
+    /**
+     * Hashes a key to 64 bits: the high half picks the first bucket and the low half the fingerprint, so
+     * the two do not share bits however many buckets there are.
+     *
+     * @param key The key.
+     * @return The hash.
+     */
+    private static long hash(int key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+        h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+        return h ^ (h >>> 31);
+    }
+
+    /**
+     * Returns the fingerprint of a hash, never 0 since 0 marks an empty lane.
+     *
+     * @param hash The hash of the key.
+     * @return The fingerprint, from 1 to 65535.
+     */
+    private static int fingerprint(long hash) {
+        int fingerprint = (int) hash & 0xFFFF;
+        return fingerprint == 0 ? 1 : fingerprint;
+    }
+
+    /**
+     * Returns the other bucket of a fingerprint. Xoring with a hash of the fingerprint works in both
+     * directions, so it leads back to the first bucket too.
+     *
+     * @param bucket One bucket of the fingerprint.
+     * @param fingerprint The fingerprint.
+     * @return The other bucket.
+     */
+    private int otherBucket(int bucket, int fingerprint) {
+        return (bucket ^ IntIntMap.mix(fingerprint)) & mask;
+    }
+
+    /**
+     * Checks if a bucket holds a fingerprint, comparing all four lanes at once.
+     *
+     * @param bucket The bucket contents.
+     * @param fingerprint The fingerprint.
+     * @return True if a lane equals the fingerprint.
+     */
+    private static boolean holds(long bucket, int fingerprint) {
+        long x = bucket ^ (LOW_BITS * fingerprint);
+        return ((x - LOW_BITS) & ~x & HIGH_BITS) != 0;
+    }
+
+    /**
+     * Returns one lane of a bucket.
+     *
+     * @param bucket The bucket number.
+     * @param lane The lane, 0 to 3.
+     * @return The fingerprint in the lane, or 0 if it is empty.
+     */
+    private int lane(int bucket, int lane) {
+        return (int) (buckets[bucket] >>> (lane * 16)) & 0xFFFF;
+    }
+
+    /**
+     * Sets one lane of a bucket.
+     *
+     * @param bucket The bucket number.
+     * @param lane The lane, 0 to 3.
+     * @param fingerprint The fingerprint, or 0 to empty the lane.
+     */
+    private void setLane(int bucket, int lane, int fingerprint) {
+        int shift = lane * 16;
+        buckets[bucket] = (buckets[bucket] & ~(0xFFFFL << shift)) | ((long) fingerprint << shift);
+    }
+
+    /**
+     * Puts a fingerprint into an empty lane of a bucket.
+     *
+     * @param bucket The bucket number.
+     * @param fingerprint The fingerprint.
+     * @return True if the bucket had an empty lane.
+     */
+    private boolean insertInto(int bucket, int fingerprint) {
+        for (int lane = 0; lane < BUCKET; lane++) {
+            if (lane(bucket, lane) == 0) {
+                setLane(bucket, lane, fingerprint);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds a key. Adding a key twice stores its fingerprint twice, so it must also be removed twice.
+     *
+     * @param key The key.
+     * @return True if the key was added, false if the filter is full.
+     */
+    @Override
+    public boolean add(int key) {
+        if (victim != 0) {
+            return false;
+        }
+        long hash = hash(key);
+        int fingerprint = fingerprint(hash);
+        int bucket = (int) (hash >>> 32) & mask;
+        if (insertInto(bucket, fingerprint)) {
+            return true;
+        }
+        bucket = otherBucket(bucket, fingerprint);
+        if (insertInto(bucket, fingerprint)) {
+            return true;
+        }
+        for (int kick = 0; kick < MAX_KICKS; kick++) {
+            random ^= random << 13;
+            random ^= random >>> 17;
+            random ^= random << 5;
+            int lane = random & (BUCKET - 1);
+            int evicted = lane(bucket, lane);
+            setLane(bucket, lane, fingerprint);
+            fingerprint = evicted;
+            bucket = otherBucket(bucket, fingerprint);
+            if (insertInto(bucket, fingerprint)) {
+                return true;
+            }
+        }
+        victim = fingerprint;
+        victimBucket = bucket;
+        return true;
+    }
+
+    /**
+     * Checks the key's two buckets, and the victim, for its fingerprint.
+     *
+     * @param key The key.
+     * @return False if the key was certainly never added, true if it probably was.
+     */
+    @Override
+    public boolean mightContain(int key) {
+        long hash = hash(key);
+        int fingerprint = fingerprint(hash);
+        int bucket = (int) (hash >>> 32) & mask;
+        int other = otherBucket(bucket, fingerprint);
+        return holds(buckets[bucket], fingerprint) || holds(buckets[other], fingerprint)
+                || (victim == fingerprint && (victimBucket == bucket || victimBucket == other));
+    }
+
+    /**
+     * Removes one copy of a key's fingerprint. If the filter had a victim, it moves into the freed room
+     * when it can.
+     *
+     * @param key The key, which must have been added.
+     * @return True if the key was removed, false if it was not found.
+     */
+    @Override
+    public boolean remove(int key) {
+        long hash = hash(key);
+        int fingerprint = fingerprint(hash);
+        int bucket = (int) (hash >>> 32) & mask;
+        int other = otherBucket(bucket, fingerprint);
+        if (victim == fingerprint && (victimBucket == bucket || victimBucket == other)) {
+            victim = 0;
+            return true;
+        }
+        if (!removeFrom(bucket, fingerprint) && !removeFrom(other, fingerprint)) {
+            return false;
+        }
+        if (victim != 0 && (insertInto(victimBucket, victim)
+                || insertInto(otherBucket(victimBucket, victim), victim))) {
+            victim = 0;
+        }
+        return true;
+    }
+
+    /**
+     * Empties the first lane of a bucket holding a fingerprint.
+     *
+     * @param bucket The bucket number.
+     * @param fingerprint The fingerprint.
+     * @return True if a lane held it.
+     */
+    private boolean removeFrom(int bucket, int fingerprint) {
+        for (int lane = 0; lane < BUCKET; lane++) {
+            if (lane(bucket, lane) == fingerprint) {
+                setLane(bucket, lane, 0);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns true, since keys can be removed.
+     *
+     * @return True.
+     */
+    @Override
+    public boolean supportsRemove() {
+        return true;
+    }
+
+    /**
+     * Returns the number of fingerprints the filter has room for.
+     *
+     * @return The number of lanes.
+     */
+    public int capacity() {
+        return buckets.length * BUCKET;
+    }
+}
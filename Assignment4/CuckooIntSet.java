@@ -0,0 +1,383 @@
+/**
+ * A hash set of ints that uses bucketized cuckoo hashing. Every key has two candidate buckets of four
+ * slots each, picked by two hash functions, and is always in one of them or in a small stash. A lookup
+ * reads at most two buckets of 16 bytes, which each sit inside one cache line, plus the stash when it is
+ * not empty, so the worst case costs the same as the average.
+ *
+ * When both buckets of a new key are full, a breadth-first search looks for the shortest chain of keys that
+ * can each move to their other bucket so that a slot frees up, and the keys are moved from the end of the
+ * chain back. Short chains keep inserts cheap and let the table fill to about 95%. A key whose search
+ * fails goes into the stash, and the table doubles once the stash is full too.
+ *
+ * Key 0 marks an empty slot and is tracked in a separate flag.
+ *
+ * @author Ryan Cesar Irizarry
+ */
+public class CuckooIntSet implements IntHashTable {
+
+    //The key that marks an empty slot.
+    private static final int FREE = 0;
+
+    //The number of slots in a bucket.
+    private static final int BUCKET = 4;
+
+    //The number of keys the stash holds.
+    private static final int STASH = 4;
+
+    //The most buckets the eviction search visits before giving up.
+    private static final int MAX_SEARCH = 512;
+
+    //The largest number of buckets.
+    private static final int MAX_BUCKETS = 1 << 28;
+
+    //The keys, with bucket b in slots 4b to 4b + 3.
+    private int[] slots;
+
+    //The number of buckets - 1, used to wrap bucket numbers.
+    private int mask;
+
+    //The keys that found no bucket.
+    private final int[] stash = new int[STASH];
+
+    //The number of keys in the stash.
+    private int stashSize;
+
+    //The number of keys in the buckets and stash, not counting key 0.
+    private int size;
+
+    //The size at which the table doubles.
+    private int threshold;
+
+    //The fraction of slots that may be used before the table doubles.
+    private final float loadFactor;
+
+    //True if key 0 is in the set.
+    private boolean hasZeroKey;
+
+    //The bucket of each node of the eviction search.
+    private final int[] searchBucket = new int[MAX_SEARCH];
+
+    //The node each search node was reached from, or -1 for the two starting buckets.
+    private final int[] searchParent = new int[MAX_SEARCH];
+
+    //The slot of the parent bucket whose key would move into each search node's bucket.
+    private final int[] searchSlot = new int[MAX_SEARCH];
+
+    /**
+     * Constructs an empty set with room for 16 keys and a load factor of 0.95.
+     */
+    public CuckooIntSet() {
+        this(16, 0.95f);
+    }
+
+    /**
+     * Constructs an empty set.
+     *
+     * @param expectedSize The number of keys the set should hold without resizing.
+     * @param loadFactor The fraction of slots that may be used before the table doubles, above 0 and below 1.
+     * @throws IllegalArgumentException If the size is negative or the load factor is out of range.
+     */
+    public CuckooIntSet(int expectedSize, float loadFactor) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("The expected size cannot be negative");
+        }
+        if (!(loadFactor > 0 && loadFactor < 1)) {
+            throw new IllegalArgumentException("The load factor must be between 0 and 1");
+        }
+        this.loadFactor = loadFactor;
+        allocate(Math.max(2, IntIntMap.capacityFor(expectedSize, loadFactor) / BUCKET));
+    }
+
+    /**
+     * Returns the first bucket of a key.
+     *
+     * @param key The key.
+     * @return The bucket.
+     */
+    private int firstBucket(int key) {
+        return IntIntMap.mix(key) & mask;
+    }
+
+    /**
+     * Returns the other bucket of a key, given one of its two buckets. The second hash is xored in, and it
+     * is odd, so the two buckets always differ and each one leads back to the other.
+     *
+     * @param bucket One bucket of the key.
+     * @param key The key.
+     * @return The other bucket.
+     */
+    private int otherBucket(int bucket, int key) {
+        return (bucket ^ (((key * 0x85EBCA6B) >>> 15) | 1)) & mask;
+    }
+
+    /**
+     * Finds the slot of a key in a bucket.
+     *
+     * @param bucket The bucket.
+     * @param key The key.
+     * @return The slot, or -1 if the key is not in the bucket.
+     */
+    private int slotOf(int bucket, int key) {
+        int base = bucket * BUCKET;
+        for (int i = base; i < base + BUCKET; i++) {
+            if (slots[i] == key) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Checks if a key is in the set.
+     *
+     * @param key The key.
+     * @return True if the key is in the set, false otherwise.
+     */
+    @Override
+    public boolean contains(int key) {
+        if (key == FREE) {
+            return hasZeroKey;
+        }
+        int first = firstBucket(key);
+        if (slotOf(first, key) >= 0 || slotOf(otherBucket(first, key), key) >= 0) {
+            return true;
+        }
+        for (int i = 0; i < stashSize; i++) {
+            if (stash[i] == key) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds a key to the set.
+     *
+     * @param key The key.
+     * @return True if the key was added, false if it was already in the set.
+     */
+    @Override
+    public boolean add(int key) {
+        if (key == FREE) {
+            boolean added = !hasZeroKey;
+            hasZeroKey = true;
+            return added;
+        }
+        if (contains(key)) {
+            return false;
+        }
+        while (!place(key)) {
+            if (stashSize < STASH) {
+                stash[stashSize++] = key;
+                break;
+            }
+            //the key's buckets can still be full after doubling, with the stash full again
+            rehash(slots.length / BUCKET * 2);
+        }
+        if (++size > threshold) {
+            rehash(slots.length / BUCKET * 2);
+        }
+        return true;
+    }
+
+    /**
+     * Puts a key into one of its buckets, moving other keys along the shortest eviction chain if both are
+     * full.
+     *
+     * @param key The key, not in the set.
+     * @return True if the key was placed, false if no chain was found within the search limit.
+     */
+    private boolean place(int key) {
+        int first = firstBucket(key);
+        int second = otherBucket(first, key);
+        int free = slotOf(first, FREE);
+        if (free < 0) {
+            free = slotOf(second, FREE);
+        }
+        if (free >= 0) {
+            slots[free] = key;
+            return true;
+        }
+
+        searchBucket[0] = first;
+        searchBucket[1] = second;
+        searchParent[0] = -1;
+        searchParent[1] = -1;
+        int tail = 2;
+        for (int head = 0; head < tail; head++) {
+            int bucket = searchBucket[head];
+            free = slotOf(bucket, FREE);
+            if (free >= 0) {
+                int node = head;
+                while (searchParent[node] >= 0) {
+                    slots[free] = slots[searchSlot[node]];
+                    free = searchSlot[node];
+                    node = searchParent[node];
+                }
+                slots[free] = key;
+                return true;
+            }
+            for (int i = bucket * BUCKET; i < bucket * BUCKET + BUCKET && tail < MAX_SEARCH; i++) {
+                int next = otherBucket(bucket, slots[i]);
+                if (!visited(next, tail)) {
+                    searchBucket[tail] = next;
+                    searchParent[tail] = head;
+                    searchSlot[tail] = i;
+                    tail++;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks if the eviction search has already reached a bucket, so no chain passes a bucket twice.
+     *
+     * @param bucket The bucket.
+     * @param nodes The number of search nodes so far.
+     * @return True if a node has the bucket.
+     */
+    private boolean visited(int bucket, int nodes) {
+        for (int i = 0; i < nodes; i++) {
+            if (searchBucket[i] == bucket) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Removes a key. A freed slot is offered to the stash, so stashed keys move back into the buckets.
+     *
+     * @param key The key.
+     * @return True if the key was removed, false if it was not in the set.
+     */
+    public boolean remove(int key) {
+        if (key == FREE) {
+            boolean removed = hasZeroKey;
+            hasZeroKey = false;
+            return removed;
+        }
+        int first = firstBucket(key);
+        int slot = slotOf(first, key);
+        if (slot < 0) {
+            slot = slotOf(otherBucket(first, key), key);
+        }
+        if (slot >= 0) {
+            slots[slot] = FREE;
+            size--;
+            unstash();
+            return true;
+        }
+        for (int i = 0; i < stashSize; i++) {
+            if (stash[i] == key) {
+                stash[i] = stash[--stashSize];
+                size--;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Moves stashed keys whose buckets have a free slot back into the buckets.
+     */
+    private void unstash() {
+        for (int i = stashSize - 1; i >= 0; i--) {
+            int key = stash[i];
+            int first = firstBucket(key);
+            int free = slotOf(first, FREE);
+            if (free < 0) {
+                free = slotOf(otherBucket(first, key), FREE);
+            }
+            if (free >= 0) {
+                slots[free] = key;
+                stash[i] = stash[--stashSize];
+            }
+        }
+    }
+
+    /**
+     * Returns the number of keys in the stash.
+     *
+     * @return The stash size.
+     */
+    public int stashSize() {
+        return stashSize;
+    }
+
+    /**
+     * Returns the number of keys in the set.
+     *
+     * @return The size.
+     */
+    @Override
+    public int size() {
+        return size + (hasZeroKey ? 1 : 0);
+    }
+
+    /**
+     * Returns the number of slots in the buckets.
+     *
+     * @return The capacity.
+     */
+    @Override
+    public int capacity() {
+        return slots.length;
+    }
+
+    /**
+     * Allocates empty buckets.
+     *
+     * @param buckets The number of buckets, a power of two of at least 2.
+     */
+    private void allocate(int buckets) {
+        slots = new int[buckets * BUCKET];
+        mask = buckets - 1;
+        threshold = Math.min(slots.length - 1, (int) Math.ceil(slots.length * loadFactor));
+    }
+
+    /**
+     * Moves every key, stashed ones included, into a table with a new number of buckets, doubling again if
+     * the keys still do not fit.
+     *
+     * @param buckets The new number of buckets, a power of two.
+     * @throws IllegalStateException If the table cannot grow any further.
+     */
+    private void rehash(int buckets) {
+        int[] oldSlots = slots;
+        int[] oldStash = stash.clone();
+        int oldStashSize = stashSize;
+        while (true) {
+            if (buckets > MAX_BUCKETS) {
+                throw new IllegalStateException("CuckooIntSet cannot grow past " + MAX_BUCKETS + " buckets");
+            }
+            allocate(buckets);
+            stashSize = 0;
+            if (reinsert(oldSlots, oldSlots.length) && reinsert(oldStash, oldStashSize)) {
+                return;
+            }
+            buckets *= 2;
+        }
+    }
+
+    /**
+     * Places keys into the buckets, spilling into the stash.
+     *
+     * @param keys The keys, with FREE for empty slots.
+     * @param count The number of entries of keys to place.
+     * @return True if every key found room.
+     */
+    private boolean reinsert(int[] keys, int count) {
+        for (int i = 0; i < count; i++) {
+            int key = keys[i];
+            if (key != FREE && !place(key)) {
+                if (stashSize == STASH) {
+                    return false;
+                }
+                stash[stashSize++] = key;
+            }
+        }
+        return true;
+    }
+}
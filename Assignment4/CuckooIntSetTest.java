@@ -0,0 +1,157 @@
+import org.junit.Test;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for the CuckooIntSet class.
+ *
+ * @author Ryan Cesar Irizarry
+ */
+public class CuckooIntSetTest {
+
+    /**
+     * Finds keys that have the same two buckets in every table of up to a given number of buckets, so
+     * that only eight of them fit and the rest must go to the stash.
+     *
+     * @param buckets The largest number of buckets the keys collide in, a power of two.
+     * @param count The number of keys to find.
+     * @param from The smallest key to try, above 0.
+     * @return The keys.
+     */
+    private static int[] collidingKeys(int buckets, int count, int from) {
+        int mask = buckets - 1;
+        int[] found = new int[count];
+        int n = 0;
+        int bucket = -1;
+        int step = -1;
+        for (int key = from; n < count; key++) {
+            int first = IntIntMap.mix(key) & mask;
+            int second = (((key * 0x85EBCA6B) >>> 15) | 1) & mask;
+            if (n == 0) {
+                bucket = first;
+                step = second;
+            }
+            if (first == bucket && second == step) {
+                found[n++] = key;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Checks that a set holds exactly the keys of a reference set among a pool of keys.
+     *
+     * @param set The set.
+     * @param reference The reference set.
+     * @param pool The keys that may be in the set.
+     */
+    private static void assertSameKeys(CuckooIntSet set, Set<Integer> reference, int[] pool) {
+        assertEquals(reference.size(), set.size());
+        for (int key : pool) {
+            assertEquals("key " + key, reference.contains(key), set.contains(key));
+        }
+    }
+
+    /**
+     * Tests that keys beyond the eight slots of their two buckets go to the stash, that removing a key
+     * from the buckets pulls a stashed key back in, and that removing stashed keys works.
+     */
+    @Test
+    public void testStash() {
+        int[] keys = collidingKeys(64, 12, 1);
+        CuckooIntSet set = new CuckooIntSet(200, 0.95f);
+        assertEquals(256, set.capacity());
+        Set<Integer> reference = new HashSet<>();
+        for (int i = 0; i < keys.length; i++) {
+            assertTrue(set.add(keys[i]));
+            reference.add(keys[i]);
+            assertEquals(Math.max(0, i - 7), set.stashSize());
+            assertSameKeys(set, reference, keys);
+        }
+        assertEquals(256, set.capacity());
+
+        assertTrue(set.remove(keys[0]));
+        reference.remove(keys[0]);
+        assertEquals(3, set.stashSize());
+        assertSameKeys(set, reference, keys);
+        assertTrue(set.remove(keys[11]));
+        reference.remove(keys[11]);
+        assertTrue(set.remove(keys[10]));
+        reference.remove(keys[10]);
+        assertFalse(set.remove(keys[10]));
+        assertSameKeys(set, reference, keys);
+        assertEquals(1, set.stashSize());
+    }
+
+    /**
+     * Tests that a key arriving when the stash is full grows the table, even when its bucket pair is still
+     * overfull after doubling.
+     */
+    @Test
+    public void testFullStashGrows() {
+        int[] keys = collidingKeys(256, 14, 1);
+        CuckooIntSet set = new CuckooIntSet(200, 0.95f);
+        Set<Integer> reference = new HashSet<>();
+        for (int key : keys) {
+            assertTrue(set.add(key));
+            reference.add(key);
+            assertSameKeys(set, reference, keys);
+            assertTrue(set.stashSize() <= 4);
+        }
+        assertTrue(set.capacity() > 256 * 4);
+    }
+
+    /**
+     * Tests random adds, removes and lookups against a HashSet from the smallest table, with key 0 and
+     * groups of keys that share both buckets so that the stash fills and empties.
+     */
+    @Test
+    public void testRandomAgainstHashSet() {
+        for (int round = 0; round < 20; round++) {
+            Random random = new Random(round);
+            List<Integer> pool = new ArrayList<>();
+            for (int key : IntIntMapTest.keyPool(random)) {
+                pool.add(key);
+            }
+            for (int buckets = 2; buckets <= 64; buckets *= 4) {
+                for (int key : collidingKeys(buckets, 11, 1 + random.nextInt(100000))) {
+                    pool.add(key);
+                }
+            }
+            int[] keys = new int[pool.size()];
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = pool.get(i);
+            }
+            CuckooIntSet set = new CuckooIntSet(random.nextInt(4), 0.5f + random.nextFloat() * 0.49f);
+            Set<Integer> reference = new HashSet<>();
+            for (int step = 0; step < 5000; step++) {
+                int key = keys[random.nextInt(keys.length)];
+                int action = random.nextInt(4);
+                if (action < 2) {
+                    assertEquals(reference.add(key), set.add(key));
+                } else if (action == 2) {
+                    assertEquals(reference.remove(key), set.remove(key));
+                } else {
+                    assertEquals(reference.contains(key), set.contains(key));
+                }
+                if (step % 250 == 0) {
+                    assertSameKeys(set, reference, keys);
+                }
+            }
+            assertSameKeys(set, reference, keys);
+            List<Integer> remaining = new ArrayList<>(reference);
+            Collections.shuffle(remaining, random);
+            for (int key : remaining) {
+                assertTrue(set.remove(key));
+                reference.remove(key);
+            }
+            assertSameKeys(set, reference, keys);
+            assertEquals(0, set.stashSize());
+        }
+    }
+}
@@ -0,0 +1,184 @@
+/**
+ * A hash set of ints that resolves collisions with double hashing. HW4_rci11 steps by 7 - key % 7, which
+ * can share a factor with the table size and cycle through only part of the table. Here the capacity is a
+ * power of two and the step is always odd, so the two never share a factor and every probe sequence visits
+ * every slot.
+ *
+ * Removal is not offered, since a double hashing table cannot shift keys back and would need tombstones.
+ * Key 0 marks an empty slot and is tracked in a separate flag.
+ *
+ * @author Ryan Cesar Irizarry
+ */
+public class DoubleHashIntSet implements IntHashTable {
+
+    //The key that marks an empty slot.
+    private static final int FREE = 0;
+
+    //The largest power-of-two capacity an int array can have.
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    //The keys, with FREE in empty slots.
+    private int[] keys;
+
+    //capacity - 1, used to wrap slot numbers.
+    private int mask;
+
+    //The number of keys in the table, not counting key 0.
+    private int size;
+
+    //The size at which the table doubles.
+    private int threshold;
+
+    //The fraction of slots that may be used before the table doubles.
+    private final float loadFactor;
+
+    //True if key 0 is in the set.
+    private boolean hasZeroKey;
+
+    /**
+     * Constructs an empty set with room for 16 keys and the default load factor.
+     */
+    public DoubleHashIntSet() {
+        this(16, IntIntMap.DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Constructs an empty set.
+     *
+     * @param expectedSize The number of keys the set should hold without resizing.
+     * @param loadFactor The fraction of slots that may be used before the table doubles, above 0 and below 1.
+     * @throws IllegalArgumentException If the size is negative or the load factor is out of range.
+     */
+    public DoubleHashIntSet(int expectedSize, float loadFactor) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("The expected size cannot be negative");
+        }
+        if (!(loadFactor > 0 && loadFactor < 1)) {
+            throw new IllegalArgumentException("The load factor must be between 0 and 1");
+        }
+        this.loadFactor = loadFactor;
+        allocate(IntIntMap.capacityFor(expectedSize, loadFactor));
+    }
+
+    /**
+     * Returns the probe step of a key: an odd number taken from bits of the key that the first hash does
+     * not use much.
+     *
+     * @param key The key.
+     * @return The step.
+     */
+    private static int step(int key) {
+        return ((key * 0x85EBCA6B) >>> 15) | 1;
+    }
+
+    /**
+     * Checks if a key is in the set.
+     *
+     * @param key The key.
+     * @return True if the key is in the set, false otherwise.
+     */
+    @Override
+    public boolean contains(int key) {
+        if (key == FREE) {
+            return hasZeroKey;
+        }
+        int pos = IntIntMap.mix(key) & mask;
+        int step = step(key);
+        while (true) {
+            int k = keys[pos];
+            if (k == key) {
+                return true;
+            }
+            if (k == FREE) {
+                return false;
+            }
+            pos = (pos + step) & mask;
+        }
+    }
+
+    /**
+     * Adds a key to the set.
+     *
+     * @param key The key.
+     * @return True if the key was added, false if it was already in the set.
+     */
+    @Override
+    public boolean add(int key) {
+        if (key == FREE) {
+            boolean added = !hasZeroKey;
+            hasZeroKey = true;
+            return added;
+        }
+        int pos = IntIntMap.mix(key) & mask;
+        int step = step(key);
+        while (true) {
+            int k = keys[pos];
+            if (k == key) {
+                return false;
+            }
+            if (k == FREE) {
+                keys[pos] = key;
+                if (++size > threshold) {
+                    rehash(keys.length * 2);
+                }
+                return true;
+            }
+            pos = (pos + step) & mask;
+        }
+    }
+
+    /**
+     * Returns the number of keys in the set.
+     *
+     * @return The size.
+     */
+    @Override
+    public int size() {
+        return size + (hasZeroKey ? 1 : 0);
+    }
+
+    /**
+     * Returns the number of slots in the table.
+     *
+     * @return The capacity.
+     */
+    @Override
+    public int capacity() {
+        return keys.length;
+    }
+
+    /**
+     * Allocates an empty array of the given capacity.
+     *
+     * @param capacity The capacity, a power of two.
+     */
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        mask = capacity - 1;
+        threshold = Math.min(capacity - 1, (int) Math.ceil(capacity * loadFactor));
+    }
+
+    /**
+     * Moves every key into a table of a new capacity.
+     *
+     * @param capacity The new capacity, a power of two.
+     * @throws IllegalStateException If the table cannot grow any further.
+     */
+    private void rehash(int capacity) {
+        if (capacity > MAX_CAPACITY || capacity <= 0) {
+            throw new IllegalStateException("DoubleHashIntSet cannot grow past " + MAX_CAPACITY + " slots");
+        }
+        int[] oldKeys = keys;
+        allocate(capacity);
+        for (int key : oldKeys) {
+            if (key != FREE) {
+                int pos = IntIntMap.mix(key) & mask;
+                int step = step(key);
+                while (keys[pos] != FREE) {
+                    pos = (pos + step) & mask;
+                }
+                keys[pos] = key;
+            }
+        }
+    }
+}
@@ -0,0 +1,15 @@
+/**
+ * The approximate-membership filters FilteredIntIntMap can put in front of its table.
+ *
+ * @author Ryan Cesar Irizarry
+ */
+public enum FilterType {
+
+    //A blocked Bloom filter: every key sets its bits in one 64-byte block, so a check is one cache line.
+    //It cannot remove keys, so the map rebuilds it once enough keys have been removed.
+    BLOOM,
+
+    //A cuckoo filter of 16-bit fingerprints in two candidate buckets, which supports removal. A key that
+    //is missing has to be checked against both buckets, so a miss reads two cache lines.
+    CUCKOO
+}
@@ -0,0 +1,185 @@
+/**
+ * An IntIntMap with an approximate-membership filter in front of it. Lookups ask the filter first, and
+ * a key the filter has never seen is answered as missing without probing the table, after one cache line
+ * read with a Bloom filter or two with a cuckoo filter. Only the few keys the filter wrongly reports
+ * present, at the chosen false positive rate, and the keys that are really there reach the table.
+ *
+ * The filter is kept in step with the map: a new key is added to both, and a removed key is removed from
+ * a cuckoo filter. A Bloom filter cannot remove keys, so removed keys stay in it and only cost a wasted
+ * probe, until half as many keys as the filter was sized for have been removed and it is rebuilt from the
+ * map. The filter is also rebuilt, twice as large, when the map outgrows it.
+ *
+ * @author Ryan Cesar Irizarry
+ */
+public class FilteredIntIntMap {
+
+    //The smallest number of keys a filter is sized for.
+    private static final int MIN_FILTER_KEYS = 16;
+
+    //The map that holds the entries.
+    private final IntIntMap map;
+
+    //The kind of filter in front of the map.
+    private final FilterType type;
+
+    //The false positive rate the filter is sized for.
+    private final double falsePositiveRate;
+
+    //The value returned by get and remove for missing keys.
+    private final int missingValue;
+
+    //The filter, which has seen every key in the map.
+    private IntFilter filter;
+
+    //The number of keys the filter is sized for.
+    private int filterKeys;
+
+    //The number of removed keys still in a filter that cannot remove them.
+    private int staleKeys;
+
+    //The number of lookups the filter answered without probing the map.
+    private long filteredMisses;
+
+    /**
+     * Constructs an empty map.
+     *
+     * @param expectedSize The number of keys the map should hold without resizing.
+     * @param falsePositiveRate The fraction of missing keys the filter may let through to the map.
+     * @param type The kind of filter.
+     * @param missingValue The value get and remove return for keys that are not in the map.
+     * @throws IllegalArgumentException If the size is negative, or the rate is out of range for the filter.
+     */
+    public FilteredIntIntMap(int expectedSize, double falsePositiveRate, FilterType type, int missingValue) {
+        this.map = new IntIntMap(expectedSize, IntIntMap.DEFAULT_LOAD_FACTOR, missingValue);
+        this.type = type;
+        this.falsePositiveRate = falsePositiveRate;
+        this.missingValue = missingValue;
+        this.filterKeys = Math.max(MIN_FILTER_KEYS, expectedSize);
+        this.filter = newFilter(filterKeys);
+    }
+
+    /**
+     * Constructs an empty filter of this map's type.
+     *
+     * @param keys The number of keys to size it for.
+     * @return The filter.
+     */
+    private IntFilter newFilter(int keys) {
+        switch (type) {
+            case BLOOM:
+                return new BlockedBloomFilter(keys, falsePositiveRate);
+            case CUCKOO:
+                return new CuckooFilter(keys, falsePositiveRate);
+            default:
+                throw new IllegalArgumentException("Unknown filter type: " + type);
+        }
+    }
+
+    /**
+     * Returns the value stored for a key.
+     *
+     * @param key The key.
+     * @return The value, or the missing value if the key is not in the map.
+     */
+    public int get(int key) {
+        if (!filter.mightContain(key)) {
+            filteredMisses++;
+            return missingValue;
+        }
+        return map.get(key);
+    }
+
+    /**
+     * Checks if a key is in the map.
+     *
+     * @param key The key.
+     * @return True if the key is in the map, false otherwise.
+     */
+    public boolean containsKey(int key) {
+        if (!filter.mightContain(key)) {
+            filteredMisses++;
+            return false;
+        }
+        return map.containsKey(key);
+    }
+
+    /**
+     * Stores a value for a key, replacing any value it had. A new key is added to the filter too.
+     *
+     * @param key The key.
+     * @param value The value.
+     * @return The previous value, or the missing value if the key was not in the map.
+     */
+    public int put(int key, int value) {
+        int size = map.size();
+        int previous = map.put(key, value);
+        if (map.size() != size && (map.size() > filterKeys || !filter.add(key))) {
+            rebuild(Math.max(map.size(), filterKeys) * 2);
+        }
+        return previous;
+    }
+
+    /**
+     * Removes a key from the map and, if it can, from the filter.
+     *
+     * @param key The key.
+     * @return The value the key had, or the missing value if it was not in the map.
+     */
+    public int remove(int key) {
+        if (!filter.mightContain(key) || !map.containsKey(key)) {
+            return missingValue;
+        }
+        int previous = map.remove(key);
+        if (filter.supportsRemove()) {
+            filter.remove(key);
+        } else if (++staleKeys > filterKeys / 2) {
+            rebuild(filterKeys);
+        }
+        return previous;
+    }
+
+    /**
+     * Replaces the filter with one holding exactly the keys of the map, doubling its size until they fit.
+     *
+     * @param keys The number of keys to size the new filter for.
+     */
+    private void rebuild(int keys) {
+        boolean[] fits = new boolean[1];
+        do {
+            IntFilter next = newFilter(keys);
+            fits[0] = true;
+            map.forEach((key, value) -> fits[0] &= next.add(key));
+            filter = next;
+            filterKeys = keys;
+            keys *= 2;
+        } while (!fits[0]);
+        staleKeys = 0;
+    }
+
+    /**
+     * Returns the number of keys in the map.
+     *
+     * @return The size.
+     */
+    public int size() {
+        return map.size();
+    }
+
+    /**
+     * Returns the kind of filter in front of the map.
+     *
+     * @return The filter type.
+     */
+    public FilterType filterType() {
+        return type;
+    }
+
+    /**
+     * Returns the number of lookups the filter answered without probing the map.
+     *
+     * @return The count.
+     */
+    public long filteredMisses() {
+        return filteredMisses;
+    }
+}
@@ -0,0 +1,185 @@
+import org.junit.Test;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for the FilteredIntIntMap class, with both kinds of filter.
+ *
+ * @author Ryan Cesar Irizarry
+ */
+public class FilteredIntIntMapTest {
+
+    //The value the maps under test return for missing keys; stored values are never negative.
+    private static final int MISSING = -1;
+
+    /**
+     * Finds keys with different cuckoo filter fingerprints but the same two buckets in every filter of up
+     * to a given number of buckets, so that only eight of them fit in a filter that small and a key the
+     * filter drops is not hidden by another key's fingerprint.
+     *
+     * @param buckets The largest number of buckets the keys collide in, a power of two.
+     * @param count The number of keys to find.
+     * @return The keys.
+     */
+    private static int[] collidingKeys(int buckets, int count) {
+        int mask = buckets - 1;
+        int[] found = new int[count];
+        boolean[] fingerprints = new boolean[65536];
+        int n = 0;
+        int bucket = -1;
+        int step = -1;
+        for (int key = 1; n < count; key++) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+            h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+            h ^= h >>> 31;
+            int fingerprint = Math.max(1, (int) h & 0xFFFF);
+            int first = (int) (h >>> 32) & mask;
+            int second = IntIntMap.mix(fingerprint) & mask;
+            if (n == 0) {
+                bucket = first;
+                step = second;
+            }
+            if (first == bucket && second == step && !fingerprints[fingerprint]) {
+                fingerprints[fingerprint] = true;
+                found[n++] = key;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Checks that a map holds exactly the entries of a reference map among a pool of keys, so that no key
+     * in the map is ever turned away by the filter.
+     *
+     * @param map The map.
+     * @param reference The reference map.
+     * @param pool The keys that may be in the map.
+     */
+    private static void assertSameEntries(FilteredIntIntMap map, Map<Integer, Integer> reference, int[] pool) {
+        assertEquals(reference.size(), map.size());
+        for (int key : pool) {
+            assertEquals("key " + key, reference.getOrDefault(key, MISSING).intValue(), map.get(key));
+            assertEquals(reference.containsKey(key), map.containsKey(key));
+        }
+    }
+
+    /**
+     * Tests random puts, removes and lookups against a HashMap for both filters, starting from a small
+     * map so that the filter is rebuilt as it grows, and checks that the filter has no false negatives
+     * and turns away most missing keys.
+     */
+    @Test
+    public void testRandomAgainstHashMap() {
+        for (FilterType type : FilterType.values()) {
+            for (int round = 0; round < 10; round++) {
+                Random random = new Random(round);
+                int[] pool = IntIntMapTest.keyPool(random);
+                FilteredIntIntMap map = new FilteredIntIntMap(random.nextInt(20), 0.01, type, MISSING);
+                assertEquals(type, map.filterType());
+                Map<Integer, Integer> reference = new HashMap<>();
+                for (int step = 0; step < 5000; step++) {
+                    int key = pool[random.nextInt(pool.length)];
+                    switch (random.nextInt(4)) {
+                        case 0:
+                            int value = random.nextInt(1000);
+                            assertEquals(reference.getOrDefault(key, MISSING).intValue(), map.put(key, value));
+                            reference.put(key, value);
+                            break;
+                        case 1:
+                            assertEquals(reference.getOrDefault(key, MISSING).intValue(), map.remove(key));
+                            reference.remove(key);
+                            break;
+                        default:
+                            assertEquals(reference.getOrDefault(key, MISSING).intValue(), map.get(key));
+                            break;
+                    }
+                    if (step % 500 == 0) {
+                        assertSameEntries(map, reference, pool);
+                    }
+                }
+                assertSameEntries(map, reference, pool);
+                long before = map.filteredMisses();
+                int misses = 0;
+                for (int i = 0; i < 10000; i++) {
+                    int key = random.nextInt();
+                    if (!reference.containsKey(key)) {
+                        assertEquals(MISSING, map.get(key));
+                        misses++;
+                    }
+                }
+                assertTrue(type + ": " + (map.filteredMisses() - before) + " of " + misses + " filtered",
+                        map.filteredMisses() - before > misses * 0.9);
+            }
+        }
+    }
+
+    /**
+     * Tests that keys sharing both cuckoo filter buckets, which overfill the filter and make an
+     * insert fail, are all still found after the filter is rebuilt, even when the rebuilt filter has to
+     * double several times before they fit.
+     */
+    @Test
+    public void testFailedCuckooInsertRebuilds() {
+        int[] colliding = collidingKeys(64, 12);
+        Random random = new Random(23);
+        int[] pool = new int[colliding.length + 200];
+        System.arraycopy(colliding, 0, pool, 0, colliding.length);
+        for (int i = colliding.length; i < pool.length; i++) {
+            pool[i] = random.nextInt();
+        }
+        FilteredIntIntMap map = new FilteredIntIntMap(16, 0.01, FilterType.CUCKOO, MISSING);
+        Map<Integer, Integer> reference = new HashMap<>();
+        for (int key : colliding) {
+            map.put(key, key & 0xFFFF);
+            reference.put(key, key & 0xFFFF);
+            assertSameEntries(map, reference, pool);
+        }
+        for (int i = 0; i < colliding.length; i += 2) {
+            assertEquals(colliding[i] & 0xFFFF, map.remove(colliding[i]));
+            reference.remove(colliding[i]);
+            assertSameEntries(map, reference, pool);
+        }
+        for (int key : pool) {
+            map.put(key, 7);
+            reference.put(key, 7);
+        }
+        assertSameEntries(map, reference, pool);
+    }
+
+    /**
+     * Tests that a Bloom filter, which cannot remove keys, is rebuilt once more than half the keys it was
+     * sized for have been removed, so that the removed keys are turned away again.
+     */
+    @Test
+    public void testBloomRebuiltAfterRemovals() {
+        FilteredIntIntMap map = new FilteredIntIntMap(100, 0.01, FilterType.BLOOM, MISSING);
+        Map<Integer, Integer> reference = new HashMap<>();
+        int[] keys = new int[100];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = i * 7919 + 1;
+            map.put(keys[i], i);
+            reference.put(keys[i], i);
+        }
+        for (int i = 0; i < 50; i++) {
+            assertEquals(i, map.remove(keys[i]));
+            reference.remove(keys[i]);
+        }
+        long before = map.filteredMisses();
+        for (int i = 0; i < 50; i++) {
+            assertEquals(MISSING, map.get(keys[i]));
+        }
+        assertEquals(before, map.filteredMisses());
+
+        assertEquals(50, map.remove(keys[50]));
+        reference.remove(keys[50]);
+        before = map.filteredMisses();
+        for (int i = 0; i <= 50; i++) {
+            assertEquals(MISSING, map.get(keys[i]));
+        }
+        assertTrue(map.filteredMisses() - before >= 45);
+        assertSameEntries(map, reference, keys);
+    }
+}
@@ -13,6 +13,15 @@ public class HW4_rci11 {
   //Array to track whether a position in the table is occupied
   private boolean[] occupied;
 
+  //Number of occupied positions
+  private int count;
+
+  //Whether inserts print each collision and insert, as the demo in main does
+  private boolean verbose;
+
+  //Collects probe lengths of inserts when set, or null for no instrumentation
+  private ProbeStats stats;
+
   /**
    * Hash function for linear probing.
    *
@@ -20,7 +29,7 @@ public class HW4_rci11 {
    * @return The hash value.
    */
   private int hashFunc(int key) {
-      return key % size;
+      return Math.floorMod(key, size); //floorMod keeps negative keys inside the table
   }
 
   /**
@@ -30,7 +39,7 @@ public class HW4_rci11 {
    * @return The hash value.
    */
   private int hashFunc2(int key) {
-      return 7 - (key % 7);
+      return 7 - Math.floorMod(key, 7);
   }
 
   /**
@@ -55,48 +64,155 @@ public class HW4_rci11 {
   }
 
   /**
-   * Inserts a key into the hash table using linear probing.
+   * Checks that there is a free position left, since probing a full table would never stop.
+   * IntIntMap and IntSet grow instead of filling up.
    *
-   * @param key The key to be inserted.
+   * @param key The key about to be inserted.
+   * @throws IllegalStateException If every position is already occupied.
    */
-  public void linearProbingInsert(int key) {
-      int pos = hashFunc(key); //pos represents position which is synonymous with the index
-      while (isOccupied(pos)) {
-          pos = (pos + 1) % size;
-          if (pos != 0) {
-              System.out.println("Collision at position " + (pos - 1) + ". Attempt next position " + pos);
+  private void checkNotFull(int key) {
+      if (count == size) {
+          throw new IllegalStateException("Hash table is full, cannot insert key " + key);
+      }
+  }
+
+  /**
+   * Turns printing of each collision and insert on or off. Inserts are quiet by default, since printing
+   * costs far more than the insert itself.
+   *
+   * @param verbose True to print the probing steps, false for quiet inserts.
+   */
+  public void setVerbose(boolean verbose) {
+      this.verbose = verbose;
+  }
+
+  /**
+   * Starts or stops collecting probe statistics of inserts.
+   *
+   * @param stats The statistics to add to, or null to stop collecting.
+   */
+  public void setProbeStats(ProbeStats stats) {
+      this.stats = stats;
+  }
+
+  /**
+   * Returns the fraction of positions that are occupied.
+   *
+   * @return The load factor.
+   */
+  public double loadFactor() {
+      return (double) count / size;
+  }
+
+  /**
+   * Counts the clusters of the table: runs of consecutive occupied positions, wrapping around the end.
+   * Long clusters are what make linear probing slow.
+   *
+   * @return An array whose entry i is the number of clusters of length i.
+   */
+  public int[] clusterSizes() {
+      int[] clusters = new int[size + 1];
+      if (count == size) {
+          clusters[size] = 1;
+          return clusters;
+      }
+      int start = 0;
+      while (occupied[start]) {
+          start++;
+      }
+      int run = 0;
+      for (int i = 1; i <= size; i++) {
+          int pos = (start + i) % size;
+          if (occupied[pos]) {
+              run++;
           }
-          else {
-              System.out.println("Collision at position  9. Attempt next position " + pos);
+          else if (run > 0) {
+              clusters[run]++;
+              run = 0;
           }
       }
+      return clusters;
+  }
+
+  /**
+   * Prints a collision while probing, if verbose.
+   *
+   * @param from The occupied position.
+   * @param to The position tried next.
+   */
+  private void traceCollision(int from, int to) {
+      if (verbose) {
+          System.out.println("Collision at position " + from + ". Attempt next position " + to);
+      }
+  }
+
+  /**
+   * Stores a key at a free position and records the insert.
+   *
+   * @param key The key.
+   * @param pos The free position.
+   * @param collisions The number of occupied positions probed before it.
+   * @return The position.
+   */
+  private int place(int key, int pos, int collisions) {
       table[pos] = key;
       occupied[pos] = true; //current index slot is filled by an element
-      System.out.println("Key " + key + " inserted at position " + pos + "\n");
+      count++;
+      if (stats != null) {
+          stats.record(collisions);
+      }
+      if (verbose) {
+          System.out.println("Key " + key + " inserted at position " + pos + "\n");
+      }
+      return pos;
+  }
+
+  /**
+   * Inserts a key into the hash table using linear probing.
+   *
+   * @param key The key to be inserted.
+   * @return The position the key was inserted at.
+   * @throws IllegalStateException If every position is already occupied.
+   */
+  public int linearProbingInsert(int key) {
+      checkNotFull(key);
+      int pos = hashFunc(key); //pos represents position which is synonymous with the index
+      int collisions = 0;
+      while (isOccupied(pos)) {
+          int next = (pos + 1) % size;
+          traceCollision(pos, next);
+          pos = next;
+          collisions++;
+      }
+      return place(key, pos, collisions);
   }
 
   /**
-   * Inserts a key into the hash table using double hashing.
+   * Inserts a key into the hash table using double hashing. The step 7 - key % 7 can share a factor with
+   * the size and revisit the same positions, so after size attempts the probe falls back to linear probing,
+   * which always reaches a free position.
    *
    * @param key The key to be inserted.
+   * @return The position the key was inserted at.
+   * @throws IllegalStateException If every position is already occupied.
    */
-  public void doubleHashInsert(int key) {
+  public int doubleHashInsert(int key) {
+      checkNotFull(key);
       int pos = hashFunc(key);
       int i = 1;
       while (isOccupied(pos)) {
-          pos = (hashFunc(key) + i * hashFunc2(key)) % size;;
-          if (pos != 0) {
-              System.out.println("Collision at position " + (pos - 1) + ". Attempt next position " + pos);
+          int next;
+          if (i < size) {
+              next = (hashFunc(key) + i * hashFunc2(key)) % size;
           }
           else {
-              System.out.println("Collision at position  19. Attempt next position " + pos);
+              next = (pos + 1) % size;
           }
-
+          traceCollision(pos, next);
+          pos = next;
           i++;
       }
-      table[pos] = key;
-      occupied[pos] = true; //current index slot is filled by an element
-      System.out.println("Key " + key + " inserted at position " + pos + "\n");
+      return place(key, pos, i - 1);
   }
 
   /**
@@ -155,6 +271,7 @@ public class HW4_rci11 {
     public static void main(String[] args){
 
         HW4_rci11 hashTable1 = new HW4_rci11(10);
+        hashTable1.setVerbose(true);
 
         System.out.println("Linear Probing Steps:");
         hashTable1.linearProbingInsert(14);
@@ -196,6 +313,7 @@ public class HW4_rci11 {
         printArray(linearProbingFinal);
 
         HW4_rci11 hashTable2 = new HW4_rci11(20);
+        hashTable2.setVerbose(true);
 
         System.out.println("\nDouble Hashing Steps:");
         hashTable2.doubleHashInsert(2);
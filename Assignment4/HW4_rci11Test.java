@@ -0,0 +1,99 @@
+import org.junit.Test;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for the HW4_rci11 class.
+ *
+ * @author Ryan Cesar Irizarry
+ */
+public class HW4_rci11Test {
+
+    /**
+     * Runs some inserts and returns what they printed.
+     *
+     * @param table The table to insert into.
+     * @param keys The keys to insert with linear probing.
+     * @return The printed text.
+     */
+    private static String printedBy(HW4_rci11 table, int... keys) {
+        PrintStream out = System.out;
+        ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(captured, true));
+        try {
+            for (int key : keys) {
+                table.linearProbingInsert(key);
+            }
+        } finally {
+            System.setOut(out);
+        }
+        return captured.toString();
+    }
+
+    /**
+     * Tests the load factor as keys are inserted.
+     */
+    @Test
+    public void testLoadFactor() {
+        HW4_rci11 table = new HW4_rci11(8);
+        assertEquals(0, table.loadFactor(), 0);
+        table.linearProbingInsert(3);
+        table.doubleHashInsert(11);
+        assertEquals(0.25, table.loadFactor(), 1e-9);
+        for (int key = 20; key < 26; key++) {
+            table.linearProbingInsert(key);
+        }
+        assertEquals(1, table.loadFactor(), 1e-9);
+    }
+
+    /**
+     * Tests cluster counts on an empty table, on a table with a run that wraps around the end, and on a
+     * full table.
+     */
+    @Test
+    public void testClusterSizes() {
+        HW4_rci11 table = new HW4_rci11(8);
+        assertArrayEquals(new int[9], table.clusterSizes());
+        //6, 7, 0 and 1 form one run across the end of the table, and 3 stands alone
+        for (int key : new int[] {6, 7, 8, 9, 3}) {
+            table.linearProbingInsert(key);
+        }
+        int[] expected = new int[9];
+        expected[4] = 1;
+        expected[1] = 1;
+        assertArrayEquals(expected, table.clusterSizes());
+
+        table.linearProbingInsert(2);
+        expected = new int[9];
+        expected[6] = 1;
+        assertArrayEquals(expected, table.clusterSizes());
+
+        table.linearProbingInsert(4);
+        table.linearProbingInsert(5);
+        expected = new int[9];
+        expected[8] = 1;
+        assertArrayEquals(expected, table.clusterSizes());
+        try {
+            table.linearProbingInsert(40);
+            fail("A key was inserted into a full table");
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage().contains("40"));
+        }
+    }
+
+    /**
+     * Tests that inserts print nothing by default, and print their collisions once verbose.
+     */
+    @Test
+    public void testInsertsQuietUnlessVerbose() {
+        HW4_rci11 table = new HW4_rci11(7);
+        assertEquals("", printedBy(table, 0, 7, 14));
+        table.setVerbose(true);
+        String printed = printedBy(table, 21);
+        assertTrue(printed.contains("Collision at position 0. Attempt next position 1"));
+        assertTrue(printed.contains("Key 21 inserted at position 3"));
+        table.setVerbose(false);
+        assertEquals("", printedBy(table, 28));
+    }
+}
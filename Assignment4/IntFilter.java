@@ -0,0 +1,41 @@
+/**
+ * An approximate set of int keys: it may answer that a key is present when it is not, at a rate chosen
+ * when it is built, but never that an added key is absent. Put in front of a hash table, it answers most
+ * misses without probing the table.
+ *
+ * @author Ryan Cesar Irizarry
+ */
+public interface IntFilter {
+
+    /**
+     * Adds a key.
+     *
+     * @param key The key.
+     * @return True if the key was added, false if the filter is too full to take it.
+     */
+    boolean add(int key);
+
+    /**
+     * Checks if a key may have been added.
+     *
+     * @param key The key.
+     * @return False if the key was certainly never added, true if it probably was.
+     */
+    boolean mightContain(int key);
+
+    /**
+     * Removes a key that was added.
+     *
+     * @param key The key, which must have been added.
+     * @return True if the key was removed, false if it was not found.
+     * @throws UnsupportedOperationException If the filter cannot remove keys.
+     */
+    boolean remove(int key);
+
+    /**
+     * Checks if the filter can remove keys.
+     *
+     * @return True if remove is supported.
+     */
+    boolean supportsRemove();
+}
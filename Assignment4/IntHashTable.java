@@ -0,0 +1,38 @@
+/**
+ * A set of int keys kept in an open addressing hash table. The implementations differ only in how they
+ * resolve collisions, so they can be swapped and compared behind this interface.
+ *
+ * @author Ryan Cesar Irizarry
+ */
+public interface IntHashTable {
+
+    /**
+     * Adds a key to the table.
+     *
+     * @param key The key.
+     * @return True if the key was added, false if it was already in the table.
+     */
+    boolean add(int key);
+
+    /**
+     * Checks if a key is in the table.
+     *
+     * @param key The key.
+     * @return True if the key is in the table, false otherwise.
+     */
+    boolean contains(int key);
+
+    /**
+     * Returns the number of keys in the table.
+     *
+     * @return The size.
+     */
+    int size();
+
+    /**
+     * Returns the number of slots in the table.
+     *
+     * @return The capacity.
+     */
+    int capacity();
+}
@@ -0,0 +1,112 @@
+import org.junit.Test;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.IntPredicate;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for the RobinHoodIntSet, SwissIntSet and DoubleHashIntSet classes, each checked against a
+ * HashSet.
+ *
+ * @author Ryan Cesar Irizarry
+ */
+public class IntHashTableTest {
+
+    /**
+     * Checks that a table holds exactly the keys of a reference set, looking up every key of the pool.
+     *
+     * @param table The table.
+     * @param reference The reference set.
+     * @param pool The keys that may be in the table.
+     */
+    private static void assertSameKeys(IntHashTable table, Set<Integer> reference, int[] pool) {
+        assertEquals(reference.size(), table.size());
+        assertTrue(table.size() < table.capacity());
+        for (int key : pool) {
+            assertEquals("key " + key, reference.contains(key), table.contains(key));
+        }
+    }
+
+    /**
+     * Runs random adds, removes and lookups on a table and a HashSet and checks that they agree.
+     *
+     * @param table The table, empty.
+     * @param remove Removes a key from the table and tells if it was there, or null if the table cannot
+     *               remove keys.
+     * @param random The source of operations.
+     * @param steps The number of operations.
+     */
+    private static void runAgainstHashSet(IntHashTable table, IntPredicate remove, Random random, int steps) {
+        int[] pool = IntIntMapTest.keyPool(random);
+        Set<Integer> reference = new HashSet<>();
+        for (int step = 0; step < steps; step++) {
+            int key = pool[random.nextInt(pool.length)];
+            int action = random.nextInt(4);
+            if (action < 2) {
+                assertEquals(reference.add(key), table.add(key));
+            } else if (action == 2 && remove != null) {
+                assertEquals(reference.remove(key), remove.test(key));
+            } else {
+                assertEquals(reference.contains(key), table.contains(key));
+            }
+            if (step % 500 == 0) {
+                assertSameKeys(table, reference, pool);
+            }
+        }
+        assertSameKeys(table, reference, pool);
+        if (remove != null) {
+            List<Integer> keys = new ArrayList<>(reference);
+            Collections.shuffle(keys, random);
+            for (int key : keys) {
+                assertTrue(remove.test(key));
+                reference.remove(key);
+                assertFalse(remove.test(key));
+            }
+            assertSameKeys(table, reference, pool);
+        }
+    }
+
+    /**
+     * Tests RobinHoodIntSet against a HashSet from the smallest table, with key 0 and keys whose probe
+     * runs wrap around, and checks that removal leaves the probe distances consistent.
+     */
+    @Test
+    public void testRobinHoodAgainstHashSet() {
+        for (int round = 0; round < 20; round++) {
+            Random random = new Random(round);
+            RobinHoodIntSet set = new RobinHoodIntSet(random.nextInt(4), 0.5f + random.nextFloat() * 0.45f);
+            runAgainstHashSet(set, set::remove, random, 5000);
+            assertEquals(0, set.maxProbeDistance());
+        }
+    }
+
+    /**
+     * Tests SwissIntSet against a HashSet from the smallest table, with key 0 and enough removals that
+     * deleted slots pile up and are cleared by rehashing.
+     */
+    @Test
+    public void testSwissAgainstHashSet() {
+        for (int round = 0; round < 20; round++) {
+            Random random = new Random(round);
+            SwissIntSet set = new SwissIntSet(random.nextInt(4), 0.5f + random.nextFloat() * 0.35f);
+            runAgainstHashSet(set, set::remove, random, 5000);
+        }
+    }
+
+    /**
+     * Tests DoubleHashIntSet against a HashSet from the smallest table, with key 0 and keys that share a
+     * home slot.
+     */
+    @Test
+    public void testDoubleHashAgainstHashSet() {
+        for (int round = 0; round < 20; round++) {
+            Random random = new Random(round);
+            DoubleHashIntSet set = new DoubleHashIntSet(random.nextInt(4), 0.5f + random.nextFloat() * 0.45f);
+            runAgainstHashSet(set, null, random, 5000);
+        }
+    }
+}
@@ -0,0 +1,505 @@
+import java.util.Arrays;
+
+/**
+ * A hash map from int keys to int values that stores both in plain int arrays, so no Integer objects are
+ * created. It grows from the open addressing table of HW4_rci11 with these changes:
+ *
+ * The capacity is a power of two and keys are spread with a multiplicative mixing hash, so the slot is
+ * found with a mask instead of a remainder, and negative keys work. The table doubles when it passes the
+ * load factor, so it never fills up. Collisions use linear probing, and remove shifts later keys of the
+ * probe run back into the hole instead of leaving tombstones, so lookups never slow down after many
+ * removals. Key 0 marks an empty slot, and the map stores key 0 itself in a separate field.
+ *
+ * No operation allocates except a resize.
+ *
+ * putAll and getAll work through a batch of keys in groups of 64: every key of a group is hashed and its
+ * home slot read first, and only then is any key probed. The reads of the first pass do not depend on each
+ * other or on any branch, so the processor overlaps their cache misses instead of waiting for each in
+ * turn. On a table much larger than the cache this makes getAll about twice as fast as a loop of get
+ * calls, whose hard-to-predict hit or miss branches stop the processor from running ahead. A loop of puts
+ * into a sparse table is predictable and already overlaps its misses, so putAll gains little over it.
+ *
+ * @author Ryan Cesar Irizarry
+ */
+public class IntIntMap {
+
+    //The load factor used when none is given.
+    public static final float DEFAULT_LOAD_FACTOR = 0.75f;
+
+    //The key that marks an empty slot.
+    private static final int FREE = 0;
+
+    //The largest power-of-two capacity an int array can have.
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    //The number of keys a bulk operation hashes and loads before probing any of them.
+    static final int BATCH = 64;
+
+    //The keys, with FREE in empty slots.
+    private int[] keys;
+
+    //The value of each slot.
+    private int[] values;
+
+    //capacity - 1, used to wrap slot numbers.
+    private int mask;
+
+    //The number of keys in the table, not counting key 0.
+    private int size;
+
+    //The size at which the table doubles.
+    private int threshold;
+
+    //The fraction of slots that may be used before the table doubles.
+    private final float loadFactor;
+
+    //True if key 0 is in the map.
+    private boolean hasZeroKey;
+
+    //The value of key 0.
+    private int zeroValue;
+
+    //The value returned by get and remove for missing keys.
+    private final int missingValue;
+
+    //The home slot of each key of the current bulk batch.
+    private final int[] homeSlots = new int[BATCH];
+
+    //The key read from each home slot of the current bulk batch.
+    private final int[] homeKeys = new int[BATCH];
+
+    //The value read from each home slot of the current bulk batch.
+    private final int[] homeValues = new int[BATCH];
+
+    /**
+     * Constructs an empty map with room for 16 keys, the default load factor and 0 for missing keys.
+     */
+    public IntIntMap() {
+        this(16, DEFAULT_LOAD_FACTOR, 0);
+    }
+
+    /**
+     * Constructs an empty map.
+     *
+     * @param expectedSize The number of keys the map should hold without resizing.
+     * @param loadFactor The fraction of slots that may be used before the table doubles, above 0 and below 1.
+     * @param missingValue The value get and remove return for keys that are not in the map.
+     * @throws IllegalArgumentException If the size is negative or the load factor is out of range.
+     */
+    public IntIntMap(int expectedSize, float loadFactor, int missingValue) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("The expected size cannot be negative");
+        }
+        if (!(loadFactor > 0 && loadFactor < 1)) {
+            throw new IllegalArgumentException("The load factor must be between 0 and 1");
+        }
+        this.loadFactor = loadFactor;
+        this.missingValue = missingValue;
+        allocate(capacityFor(expectedSize, loadFactor));
+    }
+
+    /**
+     * Builds a map from a batch of keys and values on several threads, as described in ParallelBuild. The
+     * map has the capacity of new IntIntMap(keys.length, loadFactor, missingValue), and answers every lookup
+     * the same as that map after putting the entries one at a time, so a repeated key keeps its last value.
+     *
+     * @param newKeys The keys, which may repeat.
+     * @param newValues The value of each key.
+     * @param loadFactor The fraction of slots that may be used before the table doubles, above 0 and below 1.
+     * @param missingValue The value get and remove return for keys that are not in the map.
+     * @param threads The number of threads to use.
+     * @return The map.
+     * @throws IllegalArgumentException If the arrays differ in length, the load factor is out of range or
+     *                                  threads is less than 1.
+     */
+    public static IntIntMap buildParallel(int[] newKeys, int[] newValues, float loadFactor, int missingValue,
+                                          int threads) {
+        if (newKeys.length != newValues.length) {
+            throw new IllegalArgumentException("There must be one value per key");
+        }
+        IntIntMap map = new IntIntMap(newKeys.length, loadFactor, missingValue);
+        int inserted = ParallelBuild.fill(map.keys, map.values, newKeys, newValues, threads, map::put);
+        map.size += inserted; //after the leftover puts, which count themselves
+        return map;
+    }
+
+    /**
+     * Spreads the bits of a key so that keys that differ only in their high bits land in different slots.
+     *
+     * @param key The key.
+     * @return The mixed hash.
+     */
+    static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Returns the smallest power-of-two capacity that holds a number of keys under a load factor.
+     *
+     * @param expectedSize The number of keys.
+     * @param loadFactor The load factor.
+     * @return The capacity.
+     * @throws IllegalArgumentException If the capacity would be too large.
+     */
+    static int capacityFor(int expectedSize, float loadFactor) {
+        long needed = (long) Math.ceil(expectedSize / (double) loadFactor) + 1;
+        if (needed > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Too many keys: " + expectedSize);
+        }
+        return Math.max(4, Integer.highestOneBit((int) needed - 1) << 1);
+    }
+
+    /**
+     * Returns the value stored for a key.
+     *
+     * @param key The key.
+     * @return The value, or the missing value if the key is not in the map.
+     */
+    public int get(int key) {
+        return getOrDefault(key, missingValue);
+    }
+
+    /**
+     * Returns the value stored for a key, or a default.
+     *
+     * @param key The key.
+     * @param defaultValue The value to return if the key is not in the map.
+     * @return The value, or defaultValue.
+     */
+    public int getOrDefault(int key, int defaultValue) {
+        if (key == FREE) {
+            return hasZeroKey ? zeroValue : defaultValue;
+        }
+        int pos = mix(key) & mask;
+        while (true) {
+            int k = keys[pos];
+            if (k == key) {
+                return values[pos];
+            }
+            if (k == FREE) {
+                return defaultValue;
+            }
+            pos = (pos + 1) & mask;
+        }
+    }
+
+    /**
+     * Checks if a key is in the map.
+     *
+     * @param key The key.
+     * @return True if the key is in the map, false otherwise.
+     */
+    public boolean containsKey(int key) {
+        if (key == FREE) {
+            return hasZeroKey;
+        }
+        int pos = mix(key) & mask;
+        while (true) {
+            int k = keys[pos];
+            if (k == key) {
+                return true;
+            }
+            if (k == FREE) {
+                return false;
+            }
+            pos = (pos + 1) & mask;
+        }
+    }
+
+    /**
+     * Stores a value for a key, replacing any value it had.
+     *
+     * @param key The key.
+     * @param value The value.
+     * @return The previous value, or the missing value if the key was not in the map.
+     */
+    public int put(int key, int value) {
+        if (key == FREE) {
+            int previous = hasZeroKey ? zeroValue : missingValue;
+            hasZeroKey = true;
+            zeroValue = value;
+            return previous;
+        }
+        int pos = mix(key) & mask;
+        while (true) {
+            int k = keys[pos];
+            if (k == key) {
+                int previous = values[pos];
+                values[pos] = value;
+                return previous;
+            }
+            if (k == FREE) {
+                keys[pos] = key;
+                values[pos] = value;
+                if (++size > threshold) {
+                    rehash(keys.length * 2);
+                }
+                return missingValue;
+            }
+            pos = (pos + 1) & mask;
+        }
+    }
+
+    /**
+     * Stores a value for each of a batch of keys, with the same result as calling put for each in order.
+     * The table grows before each group of keys instead of during it, so it may double up to 64 keys
+     * earlier than single puts would.
+     *
+     * @param newKeys The keys.
+     * @param newValues The value of each key.
+     * @throws IllegalArgumentException If the arrays differ in length.
+     * @throws IllegalStateException If the table cannot grow any further.
+     */
+    public void putAll(int[] newKeys, int[] newValues) {
+        if (newKeys.length != newValues.length) {
+            throw new IllegalArgumentException("There must be one value per key");
+        }
+        for (int start = 0; start < newKeys.length; start += BATCH) {
+            int end = Math.min(start + BATCH, newKeys.length);
+            while (size + (end - start) > threshold) {
+                rehash(keys.length * 2);
+            }
+            loadHomes(newKeys, start, end);
+            for (int i = start; i < end; i++) {
+                int key = newKeys[i];
+                if (key == FREE) {
+                    hasZeroKey = true;
+                    zeroValue = newValues[i];
+                    continue;
+                }
+                int pos = homeSlots[i - start];
+                while (true) {
+                    int k = keys[pos]; //read again, an earlier key of the group may have taken the slot
+                    if (k == key) {
+                        values[pos] = newValues[i];
+                        break;
+                    }
+                    if (k == FREE) {
+                        keys[pos] = key;
+                        values[pos] = newValues[i];
+                        size++;
+                        break;
+                    }
+                    pos = (pos + 1) & mask;
+                }
+            }
+        }
+    }
+
+    /**
+     * Looks up a batch of keys.
+     *
+     * @param queries The keys.
+     * @param out Receives the value of each key, or the missing value for keys not in the map.
+     * @throws IllegalArgumentException If out is shorter than queries.
+     */
+    public void getAll(int[] queries, int[] out) {
+        if (out.length < queries.length) {
+            throw new IllegalArgumentException("The output array is shorter than the keys");
+        }
+        for (int start = 0; start < queries.length; start += BATCH) {
+            int end = Math.min(start + BATCH, queries.length);
+            loadHomes(queries, start, end);
+            for (int i = start; i < end; i++) {
+                int key = queries[i];
+                int k = homeKeys[i - start];
+                if (key == FREE) {
+                    out[i] = hasZeroKey ? zeroValue : missingValue;
+                }
+                else if (k == key) {
+                    out[i] = homeValues[i - start];
+                }
+                else if (k == FREE) {
+                    out[i] = missingValue;
+                }
+                else {
+                    out[i] = getOrDefault(key, missingValue);
+                }
+            }
+        }
+    }
+
+    /**
+     * Hashes a group of keys and reads the key and value at each home slot. Nothing here waits on an
+     * earlier read, so the cache misses of the whole group are in flight at once.
+     *
+     * @param batch The keys.
+     * @param start The first key of the group.
+     * @param end The end of the group, at most BATCH keys after start.
+     */
+    private void loadHomes(int[] batch, int start, int end) {
+        for (int i = start; i < end; i++) {
+            int pos = mix(batch[i]) & mask;
+            homeSlots[i - start] = pos;
+            homeKeys[i - start] = keys[pos];
+            homeValues[i - start] = values[pos];
+        }
+    }
+
+    /**
+     * Adds to the value stored for a key, treating a missing key as 0.
+     *
+     * @param key The key.
+     * @param delta The amount to add.
+     * @return The new value.
+     */
+    public int addTo(int key, int delta) {
+        int value = getOrDefault(key, 0) + delta;
+        put(key, value);
+        return value;
+    }
+
+    /**
+     * Removes a key. Later keys of its probe run are shifted back so no tombstone is left behind.
+     *
+     * @param key The key.
+     * @return The value the key had, or the missing value if it was not in the map.
+     */
+    public int remove(int key) {
+        if (key == FREE) {
+            if (!hasZeroKey) {
+                return missingValue;
+            }
+            hasZeroKey = false;
+            return zeroValue;
+        }
+        int pos = mix(key) & mask;
+        while (true) {
+            int k = keys[pos];
+            if (k == key) {
+                int previous = values[pos];
+                shiftBack(pos);
+                size--;
+                return previous;
+            }
+            if (k == FREE) {
+                return missingValue;
+            }
+            pos = (pos + 1) & mask;
+        }
+    }
+
+    /**
+     * Fills a hole left by a removed key by moving back each later key of the probe run that may sit there.
+     *
+     * @param hole The slot that was emptied.
+     */
+    private void shiftBack(int hole) {
+        int pos = (hole + 1) & mask;
+        while (keys[pos] != FREE) {
+            int home = mix(keys[pos]) & mask;
+            if (((pos - home) & mask) >= ((pos - hole) & mask)) {
+                keys[hole] = keys[pos];
+                values[hole] = values[pos];
+                hole = pos;
+            }
+            pos = (pos + 1) & mask;
+        }
+        keys[hole] = FREE;
+    }
+
+    /**
+     * Returns the number of keys in the map.
+     *
+     * @return The size.
+     */
+    public int size() {
+        return size + (hasZeroKey ? 1 : 0);
+    }
+
+    /**
+     * Checks if the map is empty.
+     *
+     * @return True if there are no keys, false otherwise.
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Returns the number of slots in the table.
+     *
+     * @return The capacity.
+     */
+    public int capacity() {
+        return keys.length;
+    }
+
+    /**
+     * Removes every key, keeping the current capacity.
+     */
+    public void clear() {
+        Arrays.fill(keys, FREE);
+        size = 0;
+        hasZeroKey = false;
+    }
+
+    /**
+     * Calls an action for every key and value, in table order with key 0 first.
+     *
+     * @param action The action.
+     */
+    public void forEach(IntIntConsumer action) {
+        if (hasZeroKey) {
+            action.accept(FREE, zeroValue);
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != FREE) {
+                action.accept(keys[i], values[i]);
+            }
+        }
+    }
+
+    /**
+     * Receives the entries of a map.
+     */
+    public interface IntIntConsumer {
+
+        /**
+         * Receives one entry.
+         *
+         * @param key The key.
+         * @param value The value.
+         */
+        void accept(int key, int value);
+    }
+
+    /**
+     * Allocates empty arrays of the given capacity.
+     *
+     * @param capacity The capacity, a power of two.
+     */
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        threshold = Math.min(capacity - 1, (int) Math.ceil(capacity * loadFactor));
+    }
+
+    /**
+     * Moves every key into a table of a new capacity.
+     *
+     * @param capacity The new capacity, a power of two.
+     * @throws IllegalStateException If the table cannot grow any further.
+     */
+    private void rehash(int capacity) {
+        if (capacity > MAX_CAPACITY || capacity <= 0) {
+            throw new IllegalStateException("IntIntMap cannot grow past " + MAX_CAPACITY + " slots");
+        }
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            int key = oldKeys[i];
+            if (key != FREE) {
+                int pos = mix(key) & mask;
+                while (keys[pos] != FREE) {
+                    pos = (pos + 1) & mask;
+                }
+                keys[pos] = key;
+                values[pos] = oldValues[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,347 @@
+import org.junit.Test;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for the IntIntMap class.
+ *
+ * @author Ryan Cesar Irizarry
+ */
+public class IntIntMapTest {
+
+    //The value the maps under test return for missing keys; stored values are never negative.
+    private static final int MISSING = -1;
+
+    /**
+     * Finds keys whose home slot in a table of the given capacity is a given slot.
+     *
+     * @param capacity The capacity, a power of two.
+     * @param slot The home slot.
+     * @param count The number of keys to find.
+     * @param from The smallest key to try, above 0.
+     * @return The keys.
+     */
+    static int[] keysHomedAt(int capacity, int slot, int count, int from) {
+        int[] found = new int[count];
+        int n = 0;
+        for (int key = from; n < count; key++) {
+            if ((IntIntMap.mix(key) & (capacity - 1)) == slot) {
+                found[n++] = key;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Builds a pool of keys for random operations: 0, small keys of both signs, and for every capacity the
+     * tables will pass through, keys homed at the last and first slots so that probe runs wrap around.
+     *
+     * @param random The source of random keys.
+     * @return The keys.
+     */
+    static int[] keyPool(Random random) {
+        List<Integer> pool = new ArrayList<>();
+        for (int key = -20; key <= 20; key++) {
+            pool.add(key);
+        }
+        for (int capacity = 4; capacity <= 512; capacity *= 2) {
+            for (int key : keysHomedAt(capacity, capacity - 1, 3, 1 + random.nextInt(1000))) {
+                pool.add(key);
+            }
+            for (int key : keysHomedAt(capacity, 0, 2, 1 + random.nextInt(1000))) {
+                pool.add(key);
+            }
+        }
+        for (int i = 0; i < 200; i++) {
+            pool.add(random.nextInt());
+        }
+        int[] keys = new int[pool.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = pool.get(i);
+        }
+        return keys;
+    }
+
+    /**
+     * Copies the entries of a map into a HashMap.
+     *
+     * @param map The map.
+     * @return The entries.
+     */
+    private static Map<Integer, Integer> entriesOf(IntIntMap map) {
+        Map<Integer, Integer> entries = new HashMap<>();
+        map.forEach(entries::put);
+        return entries;
+    }
+
+    /**
+     * Builds a batch of keys drawn from a pool, so that a batch repeats keys, with key 0 now and then.
+     *
+     * @param pool The keys to draw from.
+     * @param random The source of keys.
+     * @param length The length of the batch.
+     * @return The keys.
+     */
+    static int[] batchOf(int[] pool, Random random, int length) {
+        int[] batch = new int[length];
+        for (int i = 0; i < length; i++) {
+            batch[i] = random.nextInt(20) == 0 ? 0 : pool[random.nextInt(pool.length)];
+        }
+        return batch;
+    }
+
+    /**
+     * Checks that a map holds exactly the entries of a reference map.
+     *
+     * @param map The map.
+     * @param reference The reference map.
+     */
+    private static void assertSameEntries(IntIntMap map, Map<Integer, Integer> reference) {
+        assertEquals(reference.size(), map.size());
+        assertEquals(reference.isEmpty(), map.isEmpty());
+        Map<Integer, Integer> seen = new HashMap<>();
+        map.forEach((key, value) -> assertNull("key " + key + " visited twice", seen.put(key, value)));
+        assertEquals(reference, seen);
+        for (Map.Entry<Integer, Integer> entry : reference.entrySet()) {
+            assertEquals(entry.getValue().intValue(), map.get(entry.getKey()));
+        }
+    }
+
+    /**
+     * Tests random puts, gets, removes and additions against a HashMap, starting from the smallest table
+     * so that it resizes many times, with key 0 and keys whose probe runs wrap around the table.
+     */
+    @Test
+    public void testRandomAgainstHashMap() {
+        for (int round = 0; round < 20; round++) {
+            Random random = new Random(round);
+            int[] pool = keyPool(random);
+            IntIntMap map = new IntIntMap(random.nextInt(4), 0.5f + random.nextFloat() * 0.45f, MISSING);
+            Map<Integer, Integer> reference = new HashMap<>();
+            for (int step = 0; step < 5000; step++) {
+                int key = pool[random.nextInt(pool.length)];
+                int value = random.nextInt(1000);
+                switch (random.nextInt(6)) {
+                    case 0:
+                    case 1:
+                        assertEquals(reference.getOrDefault(key, MISSING).intValue(), map.put(key, value));
+                        reference.put(key, value);
+                        break;
+                    case 2:
+                        assertEquals(reference.getOrDefault(key, MISSING).intValue(), map.remove(key));
+                        reference.remove(key);
+                        break;
+                    case 3:
+                        assertEquals(reference.getOrDefault(key, 0) + value, map.addTo(key, value));
+                        reference.merge(key, value, Integer::sum);
+                        break;
+                    case 4:
+                        assertEquals(reference.containsKey(key), map.containsKey(key));
+                        assertEquals(reference.getOrDefault(key, 7).intValue(), map.getOrDefault(key, 7));
+                        break;
+                    default:
+                        assertEquals(reference.getOrDefault(key, MISSING).intValue(), map.get(key));
+                        break;
+                }
+                if (step % 500 == 0) {
+                    assertSameEntries(map, reference);
+                }
+            }
+            assertSameEntries(map, reference);
+            int capacity = map.capacity();
+            map.clear();
+            reference.clear();
+            assertSameEntries(map, reference);
+            assertEquals(capacity, map.capacity());
+        }
+    }
+
+    /**
+     * Tests that removing keys from a probe run that wraps from the last slot to the first shifts the
+     * rest back so that every remaining key is still found, in many removal orders.
+     */
+    @Test
+    public void testWrapAroundBackwardShift() {
+        Random random = new Random(17);
+        for (int round = 0; round < 200; round++) {
+            IntIntMap map = new IntIntMap(8, IntIntMap.DEFAULT_LOAD_FACTOR, MISSING);
+            int capacity = map.capacity();
+            List<Integer> keys = new ArrayList<>();
+            for (int key : keysHomedAt(capacity, capacity - 1, 3, 1 + random.nextInt(1000))) {
+                keys.add(key);
+            }
+            for (int key : keysHomedAt(capacity, 0, 2, 1 + random.nextInt(1000))) {
+                keys.add(key);
+            }
+            keys.add(keysHomedAt(capacity, 1, 1, 1 + random.nextInt(1000))[0]);
+            keys.add(keysHomedAt(capacity, capacity - 2, 1, 1 + random.nextInt(1000))[0]);
+            Collections.shuffle(keys, random);
+            Map<Integer, Integer> reference = new HashMap<>();
+            for (int key : keys) {
+                map.put(key, key & 0xFFFF);
+                reference.put(key, key & 0xFFFF);
+            }
+            assertEquals(capacity, map.capacity());
+            Collections.shuffle(keys, random);
+            for (int key : keys) {
+                assertEquals(key & 0xFFFF, map.remove(key));
+                reference.remove(key);
+                assertEquals(MISSING, map.remove(key));
+                assertSameEntries(map, reference);
+            }
+        }
+    }
+
+    /**
+     * Tests that key 0, which marks empty slots in the table, is stored, counted, visited and removed like
+     * any other key.
+     */
+    @Test
+    public void testKeyZero() {
+        IntIntMap map = new IntIntMap(0, IntIntMap.DEFAULT_LOAD_FACTOR, MISSING);
+        assertFalse(map.containsKey(0));
+        assertEquals(MISSING, map.get(0));
+        assertEquals(MISSING, map.put(0, 5));
+        assertEquals(5, map.put(0, 6));
+        assertTrue(map.containsKey(0));
+        assertEquals(1, map.size());
+        assertEquals(9, map.addTo(0, 3));
+        Map<Integer, Integer> reference = new HashMap<>();
+        reference.put(0, 9);
+        assertSameEntries(map, reference);
+        assertEquals(9, map.remove(0));
+        assertEquals(MISSING, map.remove(0));
+        assertTrue(map.isEmpty());
+    }
+
+    /**
+     * Tests that putAll and getAll give the same results as put and get one key at a time, for batches
+     * that repeat keys, hold key 0, and are long enough that the table grows partway through them.
+     */
+    @Test
+    public void testBatchesMatchSingleCalls() {
+        for (int round = 0; round < 20; round++) {
+            Random random = new Random(round);
+            int[] pool = keyPool(random);
+            float loadFactor = 0.5f + random.nextFloat() * 0.45f;
+            int expectedSize = random.nextInt(4);
+            IntIntMap batched = new IntIntMap(expectedSize, loadFactor, MISSING);
+            IntIntMap single = new IntIntMap(expectedSize, loadFactor, MISSING);
+            for (int batch = 0; batch < 20; batch++) {
+                int[] keys = batchOf(pool, random, random.nextInt(300));
+                int[] values = new int[keys.length];
+                for (int i = 0; i < keys.length; i++) {
+                    values[i] = random.nextInt(1000);
+                    single.put(keys[i], values[i]);
+                }
+                batched.putAll(keys, values);
+                assertSameEntries(batched, entriesOf(single));
+                if (random.nextInt(4) == 0) {
+                    for (int i = 0; i < keys.length; i += 3) {
+                        assertEquals(single.remove(keys[i]), batched.remove(keys[i]));
+                    }
+                }
+
+                int[] queries = batchOf(pool, random, random.nextInt(300));
+                for (int i = 0; i < queries.length; i += 5) {
+                    queries[i] = random.nextInt();
+                }
+                int[] out = new int[queries.length + 3];
+                Arrays.fill(out, 12345);
+                batched.getAll(queries, out);
+                for (int i = 0; i < queries.length; i++) {
+                    assertEquals("key " + queries[i], single.get(queries[i]), out[i]);
+                }
+                for (int i = queries.length; i < out.length; i++) {
+                    assertEquals(12345, out[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Tests that putAll rejects arrays of different lengths without changing the map, and that getAll
+     * rejects an output array shorter than the keys.
+     */
+    @Test
+    public void testBatchArgumentChecks() {
+        IntIntMap map = new IntIntMap(0, IntIntMap.DEFAULT_LOAD_FACTOR, MISSING);
+        map.put(3, 4);
+        try {
+            map.putAll(new int[] {1, 2}, new int[] {1});
+            fail("putAll took more keys than values");
+        } catch (IllegalArgumentException e) {
+            assertEquals(1, map.size());
+        }
+        try {
+            map.getAll(new int[] {1, 2, 3}, new int[2]);
+            fail("getAll took an output array shorter than the keys");
+        } catch (IllegalArgumentException e) {
+            assertEquals(4, map.get(3));
+        }
+        int[] out = new int[1];
+        map.getAll(new int[0], out);
+        assertEquals(0, out[0]);
+    }
+
+    /**
+     * Builds a batch of keys for a parallel build: mostly distinct keys from a wide range, with repeats,
+     * key 0 and keys from a pool whose probe runs wrap around the table.
+     *
+     * @param pool The keys to draw repeats from.
+     * @param random The source of keys.
+     * @param length The length of the batch.
+     * @return The keys.
+     */
+    static int[] buildInput(int[] pool, Random random, int length) {
+        int[] keys = batchOf(pool, random, length);
+        for (int i = 0; i < length; i++) {
+            if (random.nextBoolean()) {
+                keys[i] = i > 0 && random.nextInt(10) == 0 ? keys[random.nextInt(i)] : random.nextInt();
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Tests that buildParallel gives the map that putting the entries one at a time gives, with the same
+     * size, capacity and lookups, and the last value of a repeated key. Tiny inputs make tables where a
+     * region is a single slot, larger ones at a high load factor make probes run off their region, and
+     * the thread counts are not all powers of two.
+     */
+    @Test
+    public void testBuildParallelMatchesPuts() {
+        Random random = new Random(25);
+        for (int threads : new int[] {1, 2, 3, 5, 7}) {
+            for (int round = 0; round < 40; round++) {
+                int[] pool = keyPool(random);
+                int length = round < 20 ? random.nextInt(21) : random.nextInt(5000);
+                int[] keys = buildInput(pool, random, length);
+                int[] values = new int[length];
+                for (int i = 0; i < length; i++) {
+                    values[i] = random.nextInt(1000);
+                }
+                float loadFactor = 0.5f + random.nextFloat() * 0.45f;
+                IntIntMap single = new IntIntMap(length, loadFactor, MISSING);
+                for (int i = 0; i < length; i++) {
+                    single.put(keys[i], values[i]);
+                }
+                IntIntMap built = IntIntMap.buildParallel(keys, values, loadFactor, MISSING, threads);
+                assertEquals(single.capacity(), built.capacity());
+                assertSameEntries(built, entriesOf(single));
+                for (int key : pool) {
+                    assertEquals("key " + key, single.get(key), built.get(key));
+                }
+                built.put(1, 1);
+                single.put(1, 1);
+                assertSameEntries(built, entriesOf(single));
+            }
+        }
+    }
+}
@@ -0,0 +1,321 @@
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * A hash set of ints stored in a plain int array. It uses the same table as IntIntMap without the values:
+ * a power-of-two capacity with a mixing hash, linear probing, doubling at the load factor, and removal by
+ * shifting later keys back instead of leaving tombstones. Key 0 marks an empty slot and is tracked in a
+ * separate flag.
+ *
+ * No operation allocates except a resize.
+ *
+ * @author Ryan Cesar Irizarry
+ */
+public class IntSet implements IntHashTable {
+
+    //The key that marks an empty slot.
+    private static final int FREE = 0;
+
+    //The largest power-of-two capacity an int array can have.
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    //The keys, with FREE in empty slots.
+    private int[] keys;
+
+    //capacity - 1, used to wrap slot numbers.
+    private int mask;
+
+    //The number of keys in the table, not counting key 0.
+    private int size;
+
+    //The size at which the table doubles.
+    private int threshold;
+
+    //The fraction of slots that may be used before the table doubles.
+    private final float loadFactor;
+
+    //True if key 0 is in the set.
+    private boolean hasZeroKey;
+
+    //The home slot of each key of the current bulk batch.
+    private final int[] homeSlots = new int[IntIntMap.BATCH];
+
+    //The key read from each home slot of the current bulk batch.
+    private final int[] homeKeys = new int[IntIntMap.BATCH];
+
+    /**
+     * Constructs an empty set with room for 16 keys and the default load factor.
+     */
+    public IntSet() {
+        this(16, IntIntMap.DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Constructs an empty set.
+     *
+     * @param expectedSize The number of keys the set should hold without resizing.
+     * @param loadFactor The fraction of slots that may be used before the table doubles, above 0 and below 1.
+     * @throws IllegalArgumentException If the size is negative or the load factor is out of range.
+     */
+    public IntSet(int expectedSize, float loadFactor) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("The expected size cannot be negative");
+        }
+        if (!(loadFactor > 0 && loadFactor < 1)) {
+            throw new IllegalArgumentException("The load factor must be between 0 and 1");
+        }
+        this.loadFactor = loadFactor;
+        allocate(IntIntMap.capacityFor(expectedSize, loadFactor));
+    }
+
+    /**
+     * Builds a set from a batch of keys on several threads, as described in ParallelBuild. The set has the
+     * capacity of new IntSet(keys.length, loadFactor), and answers every lookup the same as that set after
+     * adding the keys one at a time.
+     *
+     * @param newKeys The keys, which may repeat.
+     * @param loadFactor The fraction of slots that may be used before the table doubles, above 0 and below 1.
+     * @param threads The number of threads to use.
+     * @return The set.
+     * @throws IllegalArgumentException If the load factor is out of range or threads is less than 1.
+     */
+    public static IntSet buildParallel(int[] newKeys, float loadFactor, int threads) {
+        IntSet set = new IntSet(newKeys.length, loadFactor);
+        int inserted = ParallelBuild.fill(set.keys, null, newKeys, null, threads, (key, value) -> set.add(key));
+        set.size += inserted; //after the leftover adds, which count themselves
+        return set;
+    }
+
+    /**
+     * Checks if a key is in the set.
+     *
+     * @param key The key.
+     * @return True if the key is in the set, false otherwise.
+     */
+    @Override
+    public boolean contains(int key) {
+        if (key == FREE) {
+            return hasZeroKey;
+        }
+        int pos = IntIntMap.mix(key) & mask;
+        while (true) {
+            int k = keys[pos];
+            if (k == key) {
+                return true;
+            }
+            if (k == FREE) {
+                return false;
+            }
+            pos = (pos + 1) & mask;
+        }
+    }
+
+    /**
+     * Adds a key to the set.
+     *
+     * @param key The key.
+     * @return True if the key was added, false if it was already in the set.
+     */
+    @Override
+    public boolean add(int key) {
+        if (key == FREE) {
+            boolean added = !hasZeroKey;
+            hasZeroKey = true;
+            return added;
+        }
+        int pos = IntIntMap.mix(key) & mask;
+        while (true) {
+            int k = keys[pos];
+            if (k == key) {
+                return false;
+            }
+            if (k == FREE) {
+                keys[pos] = key;
+                if (++size > threshold) {
+                    rehash(keys.length * 2);
+                }
+                return true;
+            }
+            pos = (pos + 1) & mask;
+        }
+    }
+
+    /**
+     * Adds a batch of keys, hashing and reading the home slots of each group of keys before probing any of
+     * them, as IntIntMap.putAll does.
+     *
+     * @param newKeys The keys.
+     * @return The number of keys that were not already in the set.
+     * @throws IllegalStateException If the table cannot grow any further.
+     */
+    public int addAll(int[] newKeys) {
+        int added = 0;
+        for (int start = 0; start < newKeys.length; start += IntIntMap.BATCH) {
+            int end = Math.min(start + IntIntMap.BATCH, newKeys.length);
+            while (size + (end - start) > threshold) {
+                rehash(keys.length * 2);
+            }
+            for (int i = start; i < end; i++) {
+                int pos = IntIntMap.mix(newKeys[i]) & mask;
+                homeSlots[i - start] = pos;
+                homeKeys[i - start] = keys[pos];
+            }
+            for (int i = start; i < end; i++) {
+                int key = newKeys[i];
+                if (key == FREE) {
+                    added += hasZeroKey ? 0 : 1;
+                    hasZeroKey = true;
+                    continue;
+                }
+                int pos = homeSlots[i - start];
+                while (true) {
+                    int k = keys[pos]; //read again, an earlier key of the group may have taken the slot
+                    if (k == key) {
+                        break;
+                    }
+                    if (k == FREE) {
+                        keys[pos] = key;
+                        size++;
+                        added++;
+                        break;
+                    }
+                    pos = (pos + 1) & mask;
+                }
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Removes a key. Later keys of its probe run are shifted back so no tombstone is left behind.
+     *
+     * @param key The key.
+     * @return True if the key was removed, false if it was not in the set.
+     */
+    public boolean remove(int key) {
+        if (key == FREE) {
+            boolean removed = hasZeroKey;
+            hasZeroKey = false;
+            return removed;
+        }
+        int pos = IntIntMap.mix(key) & mask;
+        while (true) {
+            int k = keys[pos];
+            if (k == key) {
+                shiftBack(pos);
+                size--;
+                return true;
+            }
+            if (k == FREE) {
+                return false;
+            }
+            pos = (pos + 1) & mask;
+        }
+    }
+
+    /**
+     * Fills a hole left by a removed key by moving back each later key of the probe run that may sit there.
+     *
+     * @param hole The slot that was emptied.
+     */
+    private void shiftBack(int hole) {
+        int pos = (hole + 1) & mask;
+        while (keys[pos] != FREE) {
+            int home = IntIntMap.mix(keys[pos]) & mask;
+            if (((pos - home) & mask) >= ((pos - hole) & mask)) {
+                keys[hole] = keys[pos];
+                hole = pos;
+            }
+            pos = (pos + 1) & mask;
+        }
+        keys[hole] = FREE;
+    }
+
+    /**
+     * Returns the number of keys in the set.
+     *
+     * @return The size.
+     */
+    @Override
+    public int size() {
+        return size + (hasZeroKey ? 1 : 0);
+    }
+
+    /**
+     * Checks if the set is empty.
+     *
+     * @return True if there are no keys, false otherwise.
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Returns the number of slots in the table.
+     *
+     * @return The capacity.
+     */
+    @Override
+    public int capacity() {
+        return keys.length;
+    }
+
+    /**
+     * Removes every key, keeping the current capacity.
+     */
+    public void clear() {
+        Arrays.fill(keys, FREE);
+        size = 0;
+        hasZeroKey = false;
+    }
+
+    /**
+     * Calls an action for every key, in table order with key 0 first.
+     *
+     * @param action The action.
+     */
+    public void forEach(IntConsumer action) {
+        if (hasZeroKey) {
+            action.accept(FREE);
+        }
+        for (int key : keys) {
+            if (key != FREE) {
+                action.accept(key);
+            }
+        }
+    }
+
+    /**
+     * Allocates an empty array of the given capacity.
+     *
+     * @param capacity The capacity, a power of two.
+     */
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        mask = capacity - 1;
+        threshold = Math.min(capacity - 1, (int) Math.ceil(capacity * loadFactor));
+    }
+
+    /**
+     * Moves every key into a table of a new capacity.
+     *
+     * @param capacity The new capacity, a power of two.
+     * @throws IllegalStateException If the table cannot grow any further.
+     */
+    private void rehash(int capacity) {
+        if (capacity > MAX_CAPACITY || capacity <= 0) {
+            throw new IllegalStateException("IntSet cannot grow past " + MAX_CAPACITY + " slots");
+        }
+        int[] oldKeys = keys;
+        allocate(capacity);
+        for (int key : oldKeys) {
+            if (key != FREE) {
+                int pos = IntIntMap.mix(key) & mask;
+                while (keys[pos] != FREE) {
+                    pos = (pos + 1) & mask;
+                }
+                keys[pos] = key;
+            }
+        }
+    }
+}
@@ -0,0 +1,194 @@
+import org.junit.Test;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for the IntSet class.
+ *
+ * @author Ryan Cesar Irizarry
+ */
+public class IntSetTest {
+
+    /**
+     * Checks that a set holds exactly the keys of a reference set.
+     *
+     * @param set The set.
+     * @param reference The reference set.
+     */
+    private static void assertSameKeys(IntSet set, Set<Integer> reference) {
+        assertEquals(reference.size(), set.size());
+        assertEquals(reference.isEmpty(), set.isEmpty());
+        Set<Integer> seen = new HashSet<>();
+        set.forEach(key -> assertTrue("key " + key + " visited twice", seen.add(key)));
+        assertEquals(reference, seen);
+        for (int key : reference) {
+            assertTrue(set.contains(key));
+        }
+    }
+
+    /**
+     * Tests random adds, removes and lookups against a HashSet, starting from the smallest table so that
+     * it resizes many times, with key 0 and keys whose probe runs wrap around the table.
+     */
+    @Test
+    public void testRandomAgainstHashSet() {
+        for (int round = 0; round < 20; round++) {
+            Random random = new Random(round);
+            int[] pool = IntIntMapTest.keyPool(random);
+            IntSet set = new IntSet(random.nextInt(4), 0.5f + random.nextFloat() * 0.45f);
+            Set<Integer> reference = new HashSet<>();
+            for (int step = 0; step < 5000; step++) {
+                int key = pool[random.nextInt(pool.length)];
+                switch (random.nextInt(4)) {
+                    case 0:
+                    case 1:
+                        assertEquals(reference.add(key), set.add(key));
+                        break;
+                    case 2:
+                        assertEquals(reference.remove(key), set.remove(key));
+                        break;
+                    default:
+                        assertEquals(reference.contains(key), set.contains(key));
+                        break;
+                }
+                if (step % 500 == 0) {
+                    assertSameKeys(set, reference);
+                }
+            }
+            assertSameKeys(set, reference);
+            set.clear();
+            reference.clear();
+            assertSameKeys(set, reference);
+        }
+    }
+
+    /**
+     * Tests that removing keys from a probe run that wraps from the last slot to the first shifts the
+     * rest back so that every remaining key is still found, in many removal orders.
+     */
+    @Test
+    public void testWrapAroundBackwardShift() {
+        Random random = new Random(17);
+        for (int round = 0; round < 200; round++) {
+            IntSet set = new IntSet(8, IntIntMap.DEFAULT_LOAD_FACTOR);
+            int capacity = set.capacity();
+            List<Integer> keys = new ArrayList<>();
+            for (int key : IntIntMapTest.keysHomedAt(capacity, capacity - 1, 3, 1 + random.nextInt(1000))) {
+                keys.add(key);
+            }
+            for (int key : IntIntMapTest.keysHomedAt(capacity, 0, 2, 1 + random.nextInt(1000))) {
+                keys.add(key);
+            }
+            keys.add(IntIntMapTest.keysHomedAt(capacity, 1, 1, 1 + random.nextInt(1000))[0]);
+            keys.add(IntIntMapTest.keysHomedAt(capacity, capacity - 2, 1, 1 + random.nextInt(1000))[0]);
+            Collections.shuffle(keys, random);
+            Set<Integer> reference = new HashSet<>(keys);
+            for (int key : keys) {
+                assertTrue(set.add(key));
+            }
+            assertEquals(capacity, set.capacity());
+            Collections.shuffle(keys, random);
+            for (int key : keys) {
+                assertTrue(set.remove(key));
+                reference.remove(key);
+                assertFalse(set.remove(key));
+                assertSameKeys(set, reference);
+            }
+        }
+    }
+
+    /**
+     * Tests that key 0, which marks empty slots in the table, is stored, counted, visited and removed like
+     * any other key.
+     */
+    @Test
+    public void testKeyZero() {
+        IntSet set = new IntSet(0, IntIntMap.DEFAULT_LOAD_FACTOR);
+        assertFalse(set.contains(0));
+        assertTrue(set.add(0));
+        assertFalse(set.add(0));
+        assertTrue(set.add(1));
+        Set<Integer> reference = new HashSet<>();
+        reference.add(0);
+        reference.add(1);
+        assertSameKeys(set, reference);
+        assertTrue(set.remove(0));
+        assertFalse(set.remove(0));
+        assertFalse(set.contains(0));
+        assertEquals(1, set.size());
+    }
+
+    /**
+     * Tests that addAll gives the same keys as add one key at a time and counts the keys that were new,
+     * for batches that repeat keys, hold key 0, and are long enough that the table grows partway through
+     * them.
+     */
+    @Test
+    public void testAddAllMatchesAdd() {
+        for (int round = 0; round < 20; round++) {
+            Random random = new Random(round);
+            int[] pool = IntIntMapTest.keyPool(random);
+            float loadFactor = 0.5f + random.nextFloat() * 0.45f;
+            int expectedSize = random.nextInt(4);
+            IntSet batched = new IntSet(expectedSize, loadFactor);
+            IntSet single = new IntSet(expectedSize, loadFactor);
+            Set<Integer> reference = new HashSet<>();
+            for (int batch = 0; batch < 20; batch++) {
+                int[] keys = IntIntMapTest.batchOf(pool, random, random.nextInt(300));
+                int added = 0;
+                for (int key : keys) {
+                    if (single.add(key)) {
+                        added++;
+                    }
+                    reference.add(key);
+                }
+                assertEquals(added, batched.addAll(keys));
+                assertSameKeys(batched, reference);
+                if (random.nextInt(4) == 0) {
+                    for (int i = 0; i < keys.length; i += 3) {
+                        assertEquals(single.remove(keys[i]), batched.remove(keys[i]));
+                        reference.remove(keys[i]);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Tests that buildParallel gives the set that adding the keys one at a time gives, with the same size,
+     * capacity and lookups. Tiny inputs make tables where a region is a single slot, larger ones at a high
+     * load factor make probes run off their region, and the thread counts are not all powers of two.
+     */
+    @Test
+    public void testBuildParallelMatchesAdds() {
+        Random random = new Random(25);
+        for (int threads : new int[] {1, 2, 3, 5, 7}) {
+            for (int round = 0; round < 40; round++) {
+                int[] pool = IntIntMapTest.keyPool(random);
+                int length = round < 20 ? random.nextInt(21) : random.nextInt(5000);
+                int[] keys = IntIntMapTest.buildInput(pool, random, length);
+                float loadFactor = 0.5f + random.nextFloat() * 0.45f;
+                IntSet single = new IntSet(length, loadFactor);
+                Set<Integer> reference = new HashSet<>();
+                for (int key : keys) {
+                    single.add(key);
+                    reference.add(key);
+                }
+                IntSet built = IntSet.buildParallel(keys, loadFactor, threads);
+                assertEquals(single.capacity(), built.capacity());
+                assertSameKeys(built, reference);
+                for (int key : pool) {
+                    assertEquals("key " + key, single.contains(key), built.contains(key));
+                }
+                assertEquals(single.add(1), built.add(1));
+                reference.add(1);
+                assertSameKeys(built, reference);
+            }
+        }
+    }
+}
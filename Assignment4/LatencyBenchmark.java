@@ -0,0 +1,97 @@
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Measures the lookup latency distribution of the collision strategies, where ProbingBenchmark measures
+ * their average cost. Each table is filled to a load factor without resizing, then every lookup of a
+ * random mix of present and missing keys is timed on its own, and the 50th, 99th and 99.9th percentiles
+ * and the maximum are reported. Each time includes the cost of reading the clock, printed first so it can
+ * be subtracted.
+ *
+ * Usage: java LatencyBenchmark [log2 capacity] [lookups]
+ *
+ * @author Ryan Cesar Irizarry
+ */
+public class LatencyBenchmark {
+
+    //The load factors to measure.
+    private static final float[] LOAD_FACTORS = {0.75f, 0.9f, 0.95f};
+
+    //The names of the IntHashTable implementations, in the order newTable numbers them.
+    private static final String[] NAMES = {"linear", "double hash", "robin hood", "swiss", "cuckoo"};
+
+    //Collects lookup results so the JIT cannot drop the lookups.
+    private static long sink;
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args Command-line arguments: log2 of the capacity and the number of timed lookups.
+     */
+    public static void main(String[] args) {
+        int capacity = 1 << (args.length > 0 ? Integer.parseInt(args[0]) : 20);
+        int lookups = args.length > 1 ? Integer.parseInt(args[1]) : 1000000;
+        Random random = new Random(42);
+        long[] times = new long[lookups];
+        System.out.println("Capacity " + capacity + ", " + lookups + " lookups, half of them misses");
+        System.out.printf("Clock overhead: %d ns%n", clockOverhead(times));
+        System.out.printf("%-14s %6s %8s %8s %8s %8s%n", "strategy", "load", "p50", "p99", "p99.9", "max");
+        for (float loadFactor : LOAD_FACTORS) {
+            int n = (int) (capacity * loadFactor);
+            int[] queries = new int[lookups];
+            for (int i = 0; i < lookups; i++) {
+                queries[i] = IntIntMap.mix(2 * random.nextInt(n) + random.nextInt(2));
+            }
+            for (int t = 0; t < NAMES.length; t++) {
+                IntHashTable table = ProbingBenchmark.newTable(t, capacity);
+                for (int i = 0; i < n; i++) {
+                    table.add(IntIntMap.mix(2 * i));
+                }
+                if (table.capacity() != capacity) {
+                    throw new IllegalStateException(NAMES[t] + " resized during the benchmark");
+                }
+                for (int round = 0; round < 3; round++) {
+                    for (int query : queries) {
+                        sink += table.contains(query) ? 1 : 0;
+                    }
+                }
+                for (int i = 0; i < lookups; i++) {
+                    long start = System.nanoTime();
+                    boolean found = table.contains(queries[i]);
+                    times[i] = System.nanoTime() - start;
+                    sink += found ? 1 : 0;
+                }
+                Arrays.sort(times);
+                System.out.printf("%-14s %6.2f %8d %8d %8d %8d%n", NAMES[t], loadFactor, percentile(times, 0.5),
+                        percentile(times, 0.99), percentile(times, 0.999), times[lookups - 1]);
+            }
+        }
+        System.out.println("(checksum " + sink + ")");
+    }
+
+    /**
+     * Measures the median time between two back-to-back clock reads.
+     *
+     * @param times Scratch space for the measurements.
+     * @return The overhead in nanoseconds.
+     */
+    private static long clockOverhead(long[] times) {
+        for (int i = 0; i < times.length; i++) {
+            long start = System.nanoTime();
+            times[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(times);
+        return percentile(times, 0.5);
+    }
+
+    /**
+     * Returns a percentile of sorted measurements.
+     *
+     * @param sorted The measurements, in ascending order.
+     * @param fraction The percentile as a fraction between 0 and 1.
+     * @return The measurement at that percentile.
+     */
+    private static long percentile(long[] sorted, double fraction) {
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(fraction * sorted.length) - 1)];
+    }
+}
@@ -0,0 +1,510 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A hash map from int keys to int values that lives in a memory-mapped file instead of on the heap. The
+ * table is the open addressing table of IntIntMap, with linear probing and backward-shift deletion, but
+ * its slots are read and written straight in the mapping. It takes no heap space however large it gets,
+ * and opening an existing file only maps it, so a restarted process can use the table at once.
+ *
+ * File layout, all big-endian: a 64-byte header (magic, version, capacity, size, missing value, load
+ * factor and a clean flag), then one 12-byte slot per position holding a state, the key and the value.
+ * Since a single mapping is limited to 2 GB, the slots are mapped in chunks of 2^26 slots.
+ *
+ * To grow, the table is rebuilt in a shadow file next to the original, flushed to disk, and then renamed
+ * over the original in one atomic step, after which the directory is flushed too so that the rename itself
+ * is on disk. A crash before the rename leaves the old file untouched and the shadow file is deleted on the
+ * next open; a crash after it leaves the complete new file. The size in the header is written on force and
+ * close, and a file that was not closed cleanly has its size recounted when it is opened.
+ *
+ * @author Ryan Cesar Irizarry
+ */
+public class OffHeapIntIntMap implements AutoCloseable {
+
+    //Marks the start of an off-heap map file.
+    private static final int MAGIC = 0x4F484D50;
+
+    //The version of the file layout.
+    private static final int VERSION = 1;
+
+    //The size of the header in bytes.
+    private static final int HEADER_BYTES = 64;
+
+    //The header offsets of the fields after the magic and version.
+    private static final int CAPACITY_AT = 8;
+    private static final int SIZE_AT = 16;
+    private static final int MISSING_AT = 24;
+    private static final int LOAD_FACTOR_AT = 28;
+    private static final int CLEAN_AT = 32;
+
+    //The size of a slot in bytes: state, key and value.
+    private static final int SLOT_BYTES = 12;
+
+    //The state of a slot holding no key.
+    private static final int FREE = 0;
+
+    //The state of a slot holding a key.
+    private static final int FULL = 1;
+
+    //The log2 of the number of slots mapped together in one chunk.
+    private static final int CHUNK_BITS = 26;
+
+    //The number of slots in a chunk - 1.
+    private static final long CHUNK_MASK = (1L << CHUNK_BITS) - 1;
+
+    //The smallest capacity of a table.
+    private static final long MIN_CAPACITY = 16;
+
+    //The largest capacity, since the mixing hash has 32 bits.
+    private static final long MAX_CAPACITY = 1L << 32;
+
+    //The file the table lives in.
+    private final Path file;
+
+    //The value returned by get and remove for missing keys.
+    private final int missingValue;
+
+    //The fraction of slots that may be used before the table grows.
+    private final float loadFactor;
+
+    //The mapped header.
+    private MappedByteBuffer header;
+
+    //The mapped slots, one buffer per chunk.
+    private MappedByteBuffer[] chunks;
+
+    //The number of slots.
+    private long capacity;
+
+    //capacity - 1, used to wrap slot numbers.
+    private long mask;
+
+    //The number of keys.
+    private long size;
+
+    //The size at which the table grows.
+    private long threshold;
+
+    //True if the file has changed since it was last marked clean.
+    private boolean dirty;
+
+    /**
+     * Constructs a map over a mapped file.
+     *
+     * @param file The file.
+     * @param header The mapped header.
+     * @param chunks The mapped slots.
+     */
+    private OffHeapIntIntMap(Path file, MappedByteBuffer header, MappedByteBuffer[] chunks) {
+        this.file = file;
+        this.missingValue = header.getInt(MISSING_AT);
+        this.loadFactor = header.getFloat(LOAD_FACTOR_AT);
+        adopt(header, chunks);
+    }
+
+    /**
+     * Switches the map to a mapping, reading its capacity and size from the header.
+     *
+     * @param header The mapped header.
+     * @param chunks The mapped slots.
+     */
+    private void adopt(MappedByteBuffer header, MappedByteBuffer[] chunks) {
+        this.header = header;
+        this.chunks = chunks;
+        this.capacity = header.getLong(CAPACITY_AT);
+        this.mask = capacity - 1;
+        this.size = header.getLong(SIZE_AT);
+        this.threshold = Math.min(capacity - 1, (long) Math.ceil(capacity * (double) loadFactor));
+        this.dirty = false;
+    }
+
+    /**
+     * Creates a map file, replacing any file already there.
+     *
+     * @param file The file to create.
+     * @param expectedSize The number of keys the map should hold without growing.
+     * @param loadFactor The fraction of slots that may be used before the table grows, above 0 and below 1.
+     * @param missingValue The value get and remove return for keys that are not in the map.
+     * @return The map.
+     * @throws IOException If the file cannot be created.
+     * @throws IllegalArgumentException If the size is negative or too large, or the load factor is out of
+     *                                  range.
+     */
+    public static OffHeapIntIntMap create(Path file, long expectedSize, float loadFactor, int missingValue)
+            throws IOException {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("The expected size cannot be negative");
+        }
+        if (!(loadFactor > 0 && loadFactor < 1)) {
+            throw new IllegalArgumentException("The load factor must be between 0 and 1");
+        }
+        long needed = (long) Math.ceil(expectedSize / (double) loadFactor) + 1;
+        if (needed > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Too many keys: " + expectedSize);
+        }
+        long capacity = Math.max(MIN_CAPACITY, Long.highestOneBit(needed - 1) << 1);
+        return createWithCapacity(file, capacity, loadFactor, missingValue);
+    }
+
+    /**
+     * Creates a map file with an exact capacity.
+     *
+     * @param file The file to create.
+     * @param capacity The capacity, a power of two.
+     * @param loadFactor The load factor.
+     * @param missingValue The missing value.
+     * @return The map.
+     * @throws IOException If the file cannot be created.
+     */
+    private static OffHeapIntIntMap createWithCapacity(Path file, long capacity, float loadFactor,
+                                                       int missingValue) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+            header.putInt(0, MAGIC).putInt(4, VERSION).putLong(CAPACITY_AT, capacity).putLong(SIZE_AT, 0)
+                    .putInt(MISSING_AT, missingValue).putFloat(LOAD_FACTOR_AT, loadFactor).putInt(CLEAN_AT, 1);
+            return new OffHeapIntIntMap(file, header, mapSlots(channel, capacity));
+        }
+    }
+
+    /**
+     * Opens a map file for reading and writing. A shadow file left by an interrupted resize is deleted,
+     * and if the file was not closed cleanly its size is recounted.
+     *
+     * @param file The file to open.
+     * @return The map.
+     * @throws IOException If the file cannot be read, is not an off-heap map file, or has a capacity, size
+     *                     or load factor out of range.
+     */
+    public static OffHeapIntIntMap open(Path file) throws IOException {
+        Files.deleteIfExists(shadowOf(file));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            if (channel.size() < HEADER_BYTES) {
+                throw new IOException("Not an off-heap map file: " + file);
+            }
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+            long capacity = header.getLong(CAPACITY_AT);
+            long size = header.getLong(SIZE_AT);
+            float loadFactor = header.getFloat(LOAD_FACTOR_AT);
+            //check the range before the slot count is used, so a corrupt capacity cannot overflow it
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION || capacity < MIN_CAPACITY
+                    || capacity > MAX_CAPACITY || Long.bitCount(capacity) != 1
+                    || channel.size() < HEADER_BYTES + capacity * SLOT_BYTES) {
+                throw new IOException("Not an off-heap map file: " + file);
+            }
+            if (!(loadFactor > 0 && loadFactor < 1) || size < 0 || size > capacity) {
+                throw new IOException("Corrupt off-heap map header: " + file);
+            }
+            OffHeapIntIntMap map = new OffHeapIntIntMap(file, header, mapSlots(channel, capacity));
+            if (header.getInt(CLEAN_AT) != 1) {
+                map.size = map.countKeys();
+            }
+            return map;
+        }
+    }
+
+    /**
+     * Maps the slots of a file in chunks, growing the file to fit them.
+     *
+     * @param channel The open file.
+     * @param capacity The number of slots.
+     * @return One buffer per chunk.
+     * @throws IOException If the file cannot be mapped.
+     */
+    private static MappedByteBuffer[] mapSlots(FileChannel channel, long capacity) throws IOException {
+        int count = (int) ((capacity + CHUNK_MASK) >>> CHUNK_BITS);
+        MappedByteBuffer[] chunks = new MappedByteBuffer[count];
+        for (int c = 0; c < count; c++) {
+            long first = (long) c << CHUNK_BITS;
+            long slots = Math.min(capacity - first, 1L << CHUNK_BITS);
+            chunks[c] = channel.map(FileChannel.MapMode.READ_WRITE, HEADER_BYTES + first * SLOT_BYTES,
+                    slots * SLOT_BYTES);
+        }
+        return chunks;
+    }
+
+    /**
+     * Returns the path of the shadow file used while resizing.
+     *
+     * @param file The map file.
+     * @return The shadow file.
+     */
+    private static Path shadowOf(Path file) {
+        return file.resolveSibling(file.getFileName() + ".resize");
+    }
+
+    /**
+     * Returns the home slot of a key.
+     *
+     * @param key The key.
+     * @return The slot.
+     */
+    private long home(int key) {
+        return (IntIntMap.mix(key) & 0xFFFFFFFFL) & mask;
+    }
+
+    /**
+     * Returns the chunk holding a slot.
+     *
+     * @param slot The slot.
+     * @return The chunk buffer.
+     */
+    private MappedByteBuffer chunk(long slot) {
+        return chunks[(int) (slot >>> CHUNK_BITS)];
+    }
+
+    /**
+     * Returns the byte offset of a slot inside its chunk.
+     *
+     * @param slot The slot.
+     * @return The offset.
+     */
+    private static int offset(long slot) {
+        return (int) (slot & CHUNK_MASK) * SLOT_BYTES;
+    }
+
+    /**
+     * Finds the slot of a key.
+     *
+     * @param key The key.
+     * @return The slot, or -1 if the key is not in the map.
+     */
+    private long find(int key) {
+        long slot = home(key);
+        while (true) {
+            MappedByteBuffer chunk = chunk(slot);
+            int at = offset(slot);
+            if (chunk.getInt(at) == FREE) {
+                return -1;
+            }
+            if (chunk.getInt(at + 4) == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Returns the value stored for a key.
+     *
+     * @param key The key.
+     * @return The value, or the missing value if the key is not in the map.
+     */
+    public int get(int key) {
+        long slot = find(key);
+        return slot < 0 ? missingValue : chunk(slot).getInt(offset(slot) + 8);
+    }
+
+    /**
+     * Checks if a key is in the map.
+     *
+     * @param key The key.
+     * @return True if the key is in the map, false otherwise.
+     */
+    public boolean containsKey(int key) {
+        return find(key) >= 0;
+    }
+
+    /**
+     * Stores a value for a key, replacing any value it had. The table grows through a shadow file when it
+     * passes the load factor.
+     *
+     * @param key The key.
+     * @param value The value.
+     * @return The previous value, or the missing value if the key was not in the map.
+     * @throws UncheckedIOException If the table needs to grow and the shadow file cannot be written.
+     */
+    public int put(int key, int value) {
+        markDirty();
+        long slot = home(key);
+        while (true) {
+            MappedByteBuffer chunk = chunk(slot);
+            int at = offset(slot);
+            if (chunk.getInt(at) == FREE) {
+                chunk.putInt(at + 4, key).putInt(at + 8, value).putInt(at, FULL);
+                if (++size > threshold) {
+                    try {
+                        resize(capacity * 2);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+                return missingValue;
+            }
+            if (chunk.getInt(at + 4) == key) {
+                int previous = chunk.getInt(at + 8);
+                chunk.putInt(at + 8, value);
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Removes a key. Later keys of its probe run are shifted back so no tombstone is left behind.
+     *
+     * @param key The key.
+     * @return The value the key had, or the missing value if it was not in the map.
+     */
+    public int remove(int key) {
+        long hole = find(key);
+        if (hole < 0) {
+            return missingValue;
+        }
+        markDirty();
+        int previous = chunk(hole).getInt(offset(hole) + 8);
+        long slot = (hole + 1) & mask;
+        while (chunk(slot).getInt(offset(slot)) == FULL) {
+            MappedByteBuffer chunk = chunk(slot);
+            int at = offset(slot);
+            int k = chunk.getInt(at + 4);
+            if (((slot - home(k)) & mask) >= ((slot - hole) & mask)) {
+                chunk(hole).putInt(offset(hole) + 4, k).putInt(offset(hole) + 8, chunk.getInt(at + 8));
+                hole = slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        chunk(hole).putInt(offset(hole), FREE);
+        size--;
+        return previous;
+    }
+
+    /**
+     * Returns the number of keys in the map.
+     *
+     * @return The size.
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of slots in the table.
+     *
+     * @return The capacity.
+     */
+    public long capacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the file the table lives in.
+     *
+     * @return The path.
+     */
+    public Path file() {
+        return file;
+    }
+
+    /**
+     * Marks the file as changed before the first write since it was last marked clean.
+     */
+    private void markDirty() {
+        if (!dirty) {
+            header.putInt(CLEAN_AT, 0);
+            dirty = true;
+        }
+    }
+
+    /**
+     * Counts the full slots, for a file that was not closed cleanly.
+     *
+     * @return The number of keys.
+     */
+    private long countKeys() {
+        long count = 0;
+        for (long slot = 0; slot < capacity; slot++) {
+            if (chunk(slot).getInt(offset(slot)) == FULL) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Writes every change to disk and marks the file clean.
+     */
+    public void force() {
+        for (MappedByteBuffer chunk : chunks) {
+            chunk.force();
+        }
+        header.putLong(SIZE_AT, size).putInt(CLEAN_AT, 1);
+        header.force();
+        dirty = false;
+    }
+
+    /**
+     * Writes every change to disk. The mapping is released once the map is garbage collected.
+     */
+    @Override
+    public void close() {
+        force();
+    }
+
+    /**
+     * Rebuilds the table at a new capacity in a shadow file, then renames it over the map file.
+     *
+     * @param newCapacity The new capacity, a power of two.
+     * @throws IOException If the shadow file cannot be written or renamed.
+     * @throws IllegalStateException If the table cannot grow any further.
+     */
+    private void resize(long newCapacity) throws IOException {
+        if (newCapacity > MAX_CAPACITY) {
+            throw new IllegalStateException("OffHeapIntIntMap cannot grow past " + MAX_CAPACITY + " slots");
+        }
+        Path shadow = shadowOf(file);
+        OffHeapIntIntMap bigger = createWithCapacity(shadow, newCapacity, loadFactor, missingValue);
+        bigger.markDirty();
+        for (long slot = 0; slot < capacity; slot++) {
+            MappedByteBuffer chunk = chunk(slot);
+            int at = offset(slot);
+            if (chunk.getInt(at) == FULL) {
+                bigger.insertNew(chunk.getInt(at + 4), chunk.getInt(at + 8));
+            }
+        }
+        bigger.force();
+        Files.move(shadow, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        forceDirectory(file.toAbsolutePath().getParent());
+        adopt(bigger.header, bigger.chunks);
+    }
+
+    /**
+     * Writes a directory's entries to disk, so that a rename inside it survives a crash. Platforms that
+     * cannot open a directory as a file, such as Windows, are left to order the rename themselves.
+     *
+     * @param directory The directory.
+     * @throws IOException If the directory was opened but could not be written to disk.
+     */
+    private static void forceDirectory(Path directory) throws IOException {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(directory, StandardOpenOption.READ);
+        } catch (IOException e) {
+            return;
+        }
+        try (channel) {
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Inserts a key known not to be in the map, without checking the load factor.
+     *
+     * @param key The key.
+     * @param value The value.
+     */
+    private void insertNew(int key, int value) {
+        long slot = home(key);
+        while (chunk(slot).getInt(offset(slot)) == FULL) {
+            slot = (slot + 1) & mask;
+        }
+        chunk(slot).putInt(offset(slot) + 4, key).putInt(offset(slot) + 8, value).putInt(offset(slot), FULL);
+        size++;
+    }
+}
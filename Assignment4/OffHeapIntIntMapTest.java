@@ -0,0 +1,224 @@
+import org.junit.Test;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for the OffHeapIntIntMap class.
+ *
+ * @author Ryan Cesar Irizarry
+ */
+public class OffHeapIntIntMapTest {
+
+    //The value the maps under test return for missing keys; stored values are never negative.
+    private static final int MISSING = -1;
+
+    /**
+     * Applies random puts and removes to a map and a reference map.
+     *
+     * @param map The map.
+     * @param reference The reference map.
+     * @param pool The keys to use.
+     * @param random The source of operations.
+     * @param steps The number of operations.
+     */
+    private static void mutate(OffHeapIntIntMap map, Map<Integer, Integer> reference, int[] pool, Random random,
+                               int steps) {
+        for (int step = 0; step < steps; step++) {
+            int key = pool[random.nextInt(pool.length)];
+            if (random.nextInt(3) == 0) {
+                assertEquals(reference.getOrDefault(key, MISSING).intValue(), map.remove(key));
+                reference.remove(key);
+            } else {
+                int value = random.nextInt(1000);
+                assertEquals(reference.getOrDefault(key, MISSING).intValue(), map.put(key, value));
+                reference.put(key, value);
+            }
+        }
+    }
+
+    /**
+     * Checks that a map holds exactly the entries of a reference map among a pool of keys.
+     *
+     * @param map The map.
+     * @param reference The reference map.
+     * @param pool The keys that may be in the map.
+     */
+    private static void assertSameEntries(OffHeapIntIntMap map, Map<Integer, Integer> reference, int[] pool) {
+        assertEquals(reference.size(), map.size());
+        for (int key : pool) {
+            assertEquals("key " + key, reference.getOrDefault(key, MISSING).intValue(), map.get(key));
+            assertEquals(reference.containsKey(key), map.containsKey(key));
+        }
+    }
+
+    /**
+     * Deletes a map file, its shadow file and the directory holding them.
+     *
+     * @param file The map file.
+     * @throws IOException If a file cannot be deleted.
+     */
+    private static void deleteAll(Path file) throws IOException {
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(file.resolveSibling(file.getFileName() + ".resize"));
+        Files.delete(file.getParent());
+    }
+
+    /**
+     * Checks that opening a file fails with an IOException.
+     *
+     * @param file The file.
+     */
+    private static void assertRejected(Path file) {
+        try {
+            OffHeapIntIntMap.open(file).close();
+            fail("A corrupt map file was opened");
+        } catch (IOException e) {
+            assertNotNull(e.getMessage());
+        }
+    }
+
+    /**
+     * Tests that a map created, grown through several resizes, closed and opened again has the same
+     * entries, capacity and missing value, and keeps working after the reopen.
+     *
+     * @throws IOException If the file cannot be written or read.
+     */
+    @Test
+    public void testCloseAndReopen() throws IOException {
+        Path file = Files.createTempDirectory("offheap").resolve("map.bin");
+        try {
+            Random random = new Random(21);
+            int[] pool = IntIntMapTest.keyPool(random);
+            Map<Integer, Integer> reference = new HashMap<>();
+            long capacity;
+            try (OffHeapIntIntMap map = OffHeapIntIntMap.create(file, 4, 0.75f, MISSING)) {
+                mutate(map, reference, pool, random, 3000);
+                assertSameEntries(map, reference, pool);
+                assertTrue(map.capacity() > 16);
+                capacity = map.capacity();
+            }
+            try (OffHeapIntIntMap map = OffHeapIntIntMap.open(file)) {
+                assertEquals(capacity, map.capacity());
+                assertSameEntries(map, reference, pool);
+                mutate(map, reference, pool, random, 3000);
+                assertSameEntries(map, reference, pool);
+            }
+            try (OffHeapIntIntMap map = OffHeapIntIntMap.open(file)) {
+                assertSameEntries(map, reference, pool);
+            }
+        } finally {
+            deleteAll(file);
+        }
+    }
+
+    /**
+     * Tests that a map changed after its last force and never closed has its size recounted when it is
+     * opened again, for both added and removed keys, and across a resize.
+     *
+     * @throws IOException If the file cannot be written or read.
+     */
+    @Test
+    public void testUncleanReopenRecountsSize() throws IOException {
+        Path file = Files.createTempDirectory("offheap").resolve("map.bin");
+        try {
+            Random random = new Random(22);
+            int[] pool = IntIntMapTest.keyPool(random);
+            Map<Integer, Integer> reference = new HashMap<>();
+            OffHeapIntIntMap abandoned = OffHeapIntIntMap.create(file, 16, 0.75f, MISSING);
+            mutate(abandoned, reference, pool, random, 50);
+            abandoned.force();
+            long capacity = abandoned.capacity();
+            for (int key = 1; abandoned.capacity() == capacity; key++) {
+                abandoned.put(key, key);
+                reference.put(key, key);
+            }
+            mutate(abandoned, reference, pool, random, 200);
+            OffHeapIntIntMap reopened = OffHeapIntIntMap.open(file);
+            assertSameEntries(reopened, reference, pool);
+            assertEquals(abandoned.capacity(), reopened.capacity());
+            reopened.close();
+
+            abandoned = OffHeapIntIntMap.open(file);
+            for (int key : reference.keySet().toArray(new Integer[0])) {
+                if (random.nextBoolean()) {
+                    assertEquals(reference.remove(key).intValue(), abandoned.remove(key));
+                }
+            }
+            reopened = OffHeapIntIntMap.open(file);
+            assertSameEntries(reopened, reference, pool);
+            reopened.close();
+        } finally {
+            deleteAll(file);
+        }
+    }
+
+    /**
+     * Tests that a shadow file left by a resize that never finished is deleted on open, and that the map
+     * still has the entries it had before.
+     *
+     * @throws IOException If a file cannot be written or read.
+     */
+    @Test
+    public void testLeftoverShadowFileDeleted() throws IOException {
+        Path file = Files.createTempDirectory("offheap").resolve("map.bin");
+        Path shadow = file.resolveSibling(file.getFileName() + ".resize");
+        try {
+            Random random = new Random(23);
+            int[] pool = IntIntMapTest.keyPool(random);
+            Map<Integer, Integer> reference = new HashMap<>();
+            try (OffHeapIntIntMap map = OffHeapIntIntMap.create(file, 100, 0.75f, MISSING)) {
+                mutate(map, reference, pool, random, 60);
+            }
+            Files.write(shadow, new byte[] {1, 2, 3, 4, 5});
+            try (OffHeapIntIntMap map = OffHeapIntIntMap.open(file)) {
+                assertFalse(Files.exists(shadow));
+                assertSameEntries(map, reference, pool);
+            }
+        } finally {
+            deleteAll(file);
+        }
+    }
+
+    /**
+     * Tests that a header with a capacity, size or load factor out of range is rejected with an
+     * IOException, including a capacity of 2^63 that passes a power-of-two check, and that the untouched
+     * file still opens.
+     *
+     * @throws IOException If the file cannot be written or read.
+     */
+    @Test
+    public void testCorruptHeaderRejected() throws IOException {
+        Path file = Files.createTempDirectory("offheap").resolve("map.bin");
+        try {
+            try (OffHeapIntIntMap map = OffHeapIntIntMap.create(file, 10, 0.75f, MISSING)) {
+                map.put(1, 2);
+            }
+            byte[] bytes = Files.readAllBytes(file);
+            long[][] patches = {{8, 1L << 63}, {8, 8}, {8, 1L << 33}, {16, -1}, {16, 1000}};
+            for (long[] patch : patches) {
+                byte[] corrupt = bytes.clone();
+                ByteBuffer.wrap(corrupt).putLong((int) patch[0], patch[1]);
+                Files.write(file, corrupt);
+                assertRejected(file);
+            }
+            for (float loadFactor : new float[] {0, 1, 1.5f, -0.5f, Float.NaN}) {
+                byte[] corrupt = bytes.clone();
+                ByteBuffer.wrap(corrupt).putFloat(28, loadFactor);
+                Files.write(file, corrupt);
+                assertRejected(file);
+            }
+            Files.write(file, bytes);
+            try (OffHeapIntIntMap map = OffHeapIntIntMap.open(file)) {
+                assertEquals(2, map.get(1));
+            }
+        } finally {
+            deleteAll(file);
+        }
+    }
+}
@@ -0,0 +1,207 @@
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+/**
+ * Fills the linear probing table of IntSet or IntIntMap from a batch of keys on several threads.
+ *
+ * The table is cut into a power-of-two number of equal regions, and a key belongs to the region its home
+ * slot is in, which is given by the high bits of the slot. First the keys are radix-partitioned by region:
+ * each thread counts the regions of its share of the input, the counts are summed into offsets, and each
+ * thread copies its keys and values to their place, keeping the input order within a region. Then the
+ * threads take regions one at a time and insert their keys with ordinary linear probing. No two threads
+ * ever write the same region, so the table needs no locks or atomic writes. A probe that runs off the end
+ * of its region stops, and the key is kept aside and inserted by the caller afterwards on one thread, along
+ * with key 0. Only keys in the last few slots of a region can run off, so these are a small fraction.
+ *
+ * Regions are sized to fit in the cache where the table is large enough, so the inserts into a region hit
+ * the cache instead of missing on every key, which makes the build faster than single inserts even on one
+ * thread.
+ *
+ * Linear probing finds a key as long as no free slot lies between its home slot and its slot, whatever
+ * the order of inserts, so the table answers every lookup the same as one filled by single inserts.
+ *
+ * @author Ryan Cesar Irizarry
+ */
+final class ParallelBuild {
+
+    //The key that marks an empty slot.
+    private static final int FREE = 0;
+
+    //The fewest regions per thread, so threads that finish early can take more.
+    private static final int REGIONS_PER_THREAD = 4;
+
+    //log2 of the number of slots a region should have, so a region being filled stays in the L2 cache.
+    private static final int REGION_SLOT_BITS = 16;
+
+    //log2 of the most regions, since copying keys to more places at once than this thrashes the TLB.
+    private static final int MAX_REGION_BITS = 12;
+
+    /**
+     * Not instantiable.
+     */
+    private ParallelBuild() {
+    }
+
+    /**
+     * Inserts keys into an empty table. Later copies of a key replace the value of earlier ones, as a
+     * series of puts would.
+     *
+     * @param slots The slots of the table, all free, with a power-of-two length.
+     * @param slotValues The value array of the table, or null if it has no values.
+     * @param keys The keys to insert.
+     * @param values The value of each key, or null if the table has no values.
+     * @param threads The number of threads to use.
+     * @param leftover Receives each key that was not inserted, key 0 and keys whose probe left their
+     *                 region, with its value or 0, in input order per region, once all threads are done.
+     * @return The number of keys inserted into the table, not counting repeats of a key.
+     * @throws IllegalArgumentException If threads is less than 1.
+     */
+    static int fill(int[] slots, int[] slotValues, int[] keys, int[] values, int threads,
+                    IntIntMap.IntIntConsumer leftover) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("At least one thread is needed");
+        }
+        int n = keys.length;
+        int mask = slots.length - 1;
+        int tableBits = Integer.numberOfTrailingZeros(slots.length);
+        int threadBits = 32 - Integer.numberOfLeadingZeros(threads * REGIONS_PER_THREAD - 1);
+        int cacheBits = Math.min(MAX_REGION_BITS, tableBits - REGION_SLOT_BITS);
+        int regionBits = Math.min(tableBits, Math.max(threadBits, cacheBits));
+        int regions = 1 << regionBits;
+        int shift = tableBits - regionBits;
+
+        int[] counts = new int[threads * regions];
+        run(threads, t -> {
+            for (int i = chunkStart(n, threads, t); i < chunkStart(n, threads, t + 1); i++) {
+                counts[t * regions + ((IntIntMap.mix(keys[i]) & mask) >>> shift)]++;
+            }
+        });
+        int[] regionStart = new int[regions + 1];
+        int offset = 0;
+        for (int r = 0; r < regions; r++) {
+            regionStart[r] = offset;
+            for (int t = 0; t < threads; t++) {
+                int count = counts[t * regions + r];
+                counts[t * regions + r] = offset;
+                offset += count;
+            }
+        }
+        regionStart[regions] = n;
+
+        int[] partKeys = new int[n];
+        int[] partValues = values == null ? null : new int[n];
+        run(threads, t -> {
+            for (int i = chunkStart(n, threads, t); i < chunkStart(n, threads, t + 1); i++) {
+                int j = counts[t * regions + ((IntIntMap.mix(keys[i]) & mask) >>> shift)]++;
+                partKeys[j] = keys[i];
+                if (values != null) {
+                    partValues[j] = values[i];
+                }
+            }
+        });
+
+        int[] inserted = new int[regions];
+        int[] skipped = new int[regions];
+        AtomicInteger nextRegion = new AtomicInteger();
+        run(threads, t -> {
+            for (int r = nextRegion.getAndIncrement(); r < regions; r = nextRegion.getAndIncrement()) {
+                int end = (r + 1) << shift;
+                int added = 0;
+                int kept = 0;
+                for (int j = regionStart[r]; j < regionStart[r + 1]; j++) {
+                    int key = partKeys[j];
+                    int pos = key == FREE ? end : IntIntMap.mix(key) & mask;
+                    while (pos < end) {
+                        int k = slots[pos];
+                        if (k == key || k == FREE) {
+                            if (k == FREE) {
+                                slots[pos] = key;
+                                added++;
+                            }
+                            if (values != null) {
+                                slotValues[pos] = partValues[j];
+                            }
+                            break;
+                        }
+                        pos++;
+                    }
+                    if (pos == end) {
+                        partKeys[regionStart[r] + kept] = key; //reuses the part of the region already read
+                        if (values != null) {
+                            partValues[regionStart[r] + kept] = partValues[j];
+                        }
+                        kept++;
+                    }
+                }
+                inserted[r] = added;
+                skipped[r] = kept;
+            }
+        });
+
+        int total = 0;
+        for (int r = 0; r < regions; r++) {
+            total += inserted[r];
+            for (int j = regionStart[r]; j < regionStart[r] + skipped[r]; j++) {
+                leftover.accept(partKeys[j], values == null ? 0 : partValues[j]);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Returns where a thread's share of the input starts.
+     *
+     * @param n The number of keys.
+     * @param threads The number of threads.
+     * @param t The thread number, or threads for the end of the input.
+     * @return The index of the first key of the share.
+     */
+    private static int chunkStart(int n, int threads, int t) {
+        return (int) ((long) n * t / threads);
+    }
+
+    /**
+     * Runs a task on several threads and waits for all of them. The current thread runs the first share
+     * itself.
+     *
+     * @param threads The number of threads.
+     * @param task The task, given the thread number.
+     * @throws IllegalStateException If the current thread is interrupted while waiting.
+     */
+    private static void run(int threads, IntConsumer task) {
+        Thread[] workers = new Thread[threads - 1];
+        Throwable[] failure = new Throwable[threads];
+        for (int t = 1; t < threads; t++) {
+            int id = t;
+            workers[t - 1] = new Thread(() -> {
+                try {
+                    task.accept(id);
+                } catch (Throwable e) {
+                    failure[id] = e;
+                }
+            });
+            workers[t - 1].start();
+        }
+        try {
+            task.accept(0);
+        } catch (Throwable e) {
+            failure[0] = e;
+        }
+        try {
+            for (Thread worker : workers) {
+                worker.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while building the table", e);
+        }
+        for (Throwable e : failure) {
+            if (e instanceof RuntimeException) {
+                throw (RuntimeException) e;
+            }
+            if (e instanceof Error) {
+                throw (Error) e;
+            }
+        }
+    }
+}
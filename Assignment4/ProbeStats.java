@@ -0,0 +1,116 @@
+import java.util.Arrays;
+
+/**
+ * Counts how far inserts had to probe, so a hash table can be tuned without printing every step. A table
+ * records one number per insert, the collisions it went through before finding its position, into plain
+ * counters. Nothing is allocated or printed per insert, and the summary is only built when asked for.
+ *
+ * @author Ryan Cesar Irizarry
+ */
+public class ProbeStats {
+
+    //Probe lengths at or above this share the last histogram bucket.
+    public static final int MAX_TRACKED = 64;
+
+    //The number of inserts with each probe length, the last bucket holding all longer ones.
+    private final long[] histogram = new long[MAX_TRACKED + 1];
+
+    //The number of inserts recorded.
+    private long inserts;
+
+    //The sum of all probe lengths.
+    private long totalProbes;
+
+    //The longest probe length recorded.
+    private int maxDisplacement;
+
+    /**
+     * Records one insert.
+     *
+     * @param collisions The number of occupied positions the insert probed before finding its own.
+     */
+    public void record(int collisions) {
+        histogram[Math.min(collisions, MAX_TRACKED)]++;
+        inserts++;
+        totalProbes += collisions;
+        if (collisions > maxDisplacement) {
+            maxDisplacement = collisions;
+        }
+    }
+
+    /**
+     * Returns the number of inserts recorded.
+     *
+     * @return The insert count.
+     */
+    public long inserts() {
+        return inserts;
+    }
+
+    /**
+     * Returns the average number of collisions per insert.
+     *
+     * @return The average probe length, or 0 if nothing was recorded.
+     */
+    public double averageProbeLength() {
+        return inserts == 0 ? 0 : (double) totalProbes / inserts;
+    }
+
+    /**
+     * Returns the longest probe any insert made.
+     *
+     * @return The maximum displacement.
+     */
+    public int maxDisplacement() {
+        return maxDisplacement;
+    }
+
+    /**
+     * Returns the probe length histogram.
+     *
+     * @return A copy of the histogram: entry i is the number of inserts with i collisions, and the last
+     *         entry counts every insert with MAX_TRACKED or more.
+     */
+    public long[] histogram() {
+        return histogram.clone();
+    }
+
+    /**
+     * Returns the smallest probe length that a given fraction of inserts did not exceed.
+     *
+     * @param fraction The fraction, between 0 and 1.
+     * @return The probe length, capped at MAX_TRACKED.
+     */
+    public int percentile(double fraction) {
+        long wanted = (long) Math.ceil(fraction * inserts);
+        long seen = 0;
+        for (int i = 0; i < histogram.length; i++) {
+            seen += histogram[i];
+            if (seen >= wanted) {
+                return i;
+            }
+        }
+        return MAX_TRACKED;
+    }
+
+    /**
+     * Clears every counter.
+     */
+    public void reset() {
+        Arrays.fill(histogram, 0);
+        inserts = 0;
+        totalProbes = 0;
+        maxDisplacement = 0;
+    }
+
+    /**
+     * Summarizes the counters.
+     *
+     * @return The insert count, average, 99th percentile and maximum probe length.
+     */
+    @Override
+    public String toString() {
+        return String.format("%d inserts, average probe %.2f, p99 %d, max %d", inserts, averageProbeLength(),
+                percentile(0.99), maxDisplacement);
+    }
+}
@@ -0,0 +1,81 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for the ProbeStats class, fed directly and through the inserts of HW4_rci11.
+ *
+ * @author Ryan Cesar Irizarry
+ */
+public class ProbeStatsTest {
+
+    /**
+     * Tests the histogram, maximum, average and percentiles of a known sequence of probe lengths,
+     * including one past MAX_TRACKED, and that reset clears them.
+     */
+    @Test
+    public void testKnownSequence() {
+        ProbeStats stats = new ProbeStats();
+        assertEquals(0, stats.averageProbeLength(), 0);
+        for (int collisions : new int[] {0, 0, 1, 3, 3, 3, 70}) {
+            stats.record(collisions);
+        }
+        assertEquals(7, stats.inserts());
+        assertEquals(70, stats.maxDisplacement());
+        assertEquals(80.0 / 7, stats.averageProbeLength(), 1e-9);
+        long[] histogram = stats.histogram();
+        assertEquals(ProbeStats.MAX_TRACKED + 1, histogram.length);
+        assertEquals(2, histogram[0]);
+        assertEquals(1, histogram[1]);
+        assertEquals(0, histogram[2]);
+        assertEquals(3, histogram[3]);
+        assertEquals(1, histogram[ProbeStats.MAX_TRACKED]);
+        histogram[0] = 100;
+        assertEquals(2, stats.histogram()[0]);
+
+        assertEquals(0, stats.percentile(0));
+        assertEquals(0, stats.percentile(0.25));
+        assertEquals(1, stats.percentile(3.0 / 7));
+        assertEquals(3, stats.percentile(0.5));
+        assertEquals(3, stats.percentile(6.0 / 7));
+        assertEquals(ProbeStats.MAX_TRACKED, stats.percentile(1));
+
+        stats.reset();
+        assertEquals(0, stats.inserts());
+        assertEquals(0, stats.maxDisplacement());
+        assertEquals(0, stats.histogram()[3]);
+        assertEquals(0, stats.percentile(0.99));
+    }
+
+    /**
+     * Tests that linear probing and double hashing inserts record the collisions they went through.
+     */
+    @Test
+    public void testTableInsertsRecordCollisions() {
+        HW4_rci11 linear = new HW4_rci11(7);
+        ProbeStats stats = new ProbeStats();
+        linear.setProbeStats(stats);
+        for (int key : new int[] {0, 7, 14, 21}) {
+            linear.linearProbingInsert(key);
+        }
+        assertEquals(4, stats.inserts());
+        assertEquals(3, stats.maxDisplacement());
+        long[] histogram = stats.histogram();
+        assertEquals(1, histogram[0]);
+        assertEquals(1, histogram[1]);
+        assertEquals(1, histogram[2]);
+        assertEquals(1, histogram[3]);
+
+        HW4_rci11 doubleHash = new HW4_rci11(7);
+        ProbeStats doubleStats = new ProbeStats();
+        doubleHash.setProbeStats(doubleStats);
+        //14 lands on 0, taken by 0, and its step of 7 revisits 0 until the linear fallback finds 1
+        doubleHash.doubleHashInsert(0);
+        doubleHash.doubleHashInsert(14);
+        assertEquals(1, doubleStats.histogram()[0]);
+        assertEquals(1, doubleStats.histogram()[7]);
+        assertEquals(7, doubleStats.maxDisplacement());
+        doubleHash.setProbeStats(null);
+        doubleHash.doubleHashInsert(21);
+        assertEquals(2, doubleStats.inserts());
+    }
+}
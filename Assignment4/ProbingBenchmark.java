@@ -0,0 +1,131 @@
+/**
+ * Compares the collision strategies at fixed load factors. Every table is built with the same capacity
+ * and filled to the load factor without resizing. The benchmark times the inserts, then lookups of every
+ * inserted key and of as many missing keys. The HW4_rci11 linear probing and double hashing inserts run
+ * alongside them on a table of the same size, with their probe statistics in place of lookup times.
+ *
+ * Usage: java ProbingBenchmark [log2 capacity] [rounds]
+ *
+ * @author Ryan Cesar Irizarry
+ */
+public class ProbingBenchmark {
+
+    //The load factors to measure.
+    private static final float[] LOAD_FACTORS = {0.5f, 0.75f, 0.85f, 0.9f, 0.95f};
+
+    //The names of the IntHashTable implementations, in the order newTable numbers them.
+    private static final String[] NAMES = {"linear", "double hash", "robin hood", "swiss", "cuckoo"};
+
+    //Collects lookup results so the JIT cannot drop the lookups.
+    private static long sink;
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args Command-line arguments: log2 of the capacity and the number of timed rounds.
+     */
+    public static void main(String[] args) {
+        int capacity = 1 << (args.length > 0 ? Integer.parseInt(args[0]) : 16);
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        int[] present = distinctKeys(capacity, 0);
+        int[] absent = distinctKeys(capacity, 1);
+        System.out.println("Capacity " + capacity + ", ns per operation, best of " + rounds + " rounds");
+        System.out.printf("%-14s %6s %10s %10s %10s%n", "strategy", "load", "insert", "hit", "miss");
+        for (float loadFactor : LOAD_FACTORS) {
+            int n = (int) (capacity * loadFactor);
+            for (int t = 0; t < NAMES.length; t++) {
+                double[] best = {Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE};
+                for (int round = 0; round < rounds + 2; round++) {
+                    IntHashTable table = newTable(t, capacity);
+                    long start = System.nanoTime();
+                    for (int i = 0; i < n; i++) {
+                        table.add(present[i]);
+                    }
+                    long inserted = System.nanoTime();
+                    for (int i = 0; i < n; i++) {
+                        sink += table.contains(present[i]) ? 1 : 0;
+                    }
+                    long hits = System.nanoTime();
+                    for (int i = 0; i < n; i++) {
+                        sink += table.contains(absent[i]) ? 1 : 0;
+                    }
+                    long misses = System.nanoTime();
+                    if (table.capacity() != capacity || table.size() != n) {
+                        throw new IllegalStateException(NAMES[t] + " resized during the benchmark");
+                    }
+                    if (round >= 2) {
+                        best[0] = Math.min(best[0], (inserted - start) / (double) n);
+                        best[1] = Math.min(best[1], (hits - inserted) / (double) n);
+                        best[2] = Math.min(best[2], (misses - hits) / (double) n);
+                    }
+                }
+                System.out.printf("%-14s %6.2f %10.1f %10.1f %10.1f%n", NAMES[t], loadFactor, best[0], best[1],
+                        best[2]);
+            }
+            for (int strategy = 0; strategy < 2; strategy++) {
+                double best = Double.MAX_VALUE;
+                ProbeStats stats = new ProbeStats();
+                for (int round = 0; round < rounds + 2; round++) {
+                    HW4_rci11 table = new HW4_rci11(capacity);
+                    if (round == rounds + 1) {
+                        table.setProbeStats(stats);
+                    }
+                    long start = System.nanoTime();
+                    for (int i = 0; i < n; i++) {
+                        if (strategy == 0) {
+                            table.linearProbingInsert(present[i]);
+                        } else {
+                            table.doubleHashInsert(present[i]);
+                        }
+                    }
+                    long end = System.nanoTime();
+                    if (round >= 2) {
+                        best = Math.min(best, (end - start) / (double) n);
+                    }
+                }
+                System.out.printf("%-14s %6.2f %10.1f    %s%n", strategy == 0 ? "HW4 linear" : "HW4 double",
+                        loadFactor, best, stats);
+            }
+        }
+        System.out.println("(checksum " + sink + ")");
+    }
+
+    /**
+     * Builds an empty table that holds the given capacity without resizing up to a load factor of 0.99.
+     *
+     * @param strategy The position of the implementation in NAMES.
+     * @param capacity The capacity, a power of two.
+     * @return The table.
+     */
+    static IntHashTable newTable(int strategy, int capacity) {
+        switch (strategy) {
+            case 0:
+                return new IntSet(capacity / 2, 0.99f);
+            case 1:
+                return new DoubleHashIntSet(capacity / 2, 0.99f);
+            case 2:
+                return new RobinHoodIntSet(capacity / 2, 0.99f);
+            case 3:
+                return new SwissIntSet(capacity / 2, 0.99f);
+            default:
+                return new CuckooIntSet(capacity / 2, 0.99f);
+        }
+    }
+
+    /**
+     * Generates distinct pseudo-random keys. The mixing hash of IntIntMap is a bijection on ints, so
+     * distinct inputs give distinct keys, and the two streams never overlap because one uses even inputs
+     * and the other odd ones.
+     *
+     * @param count The number of keys.
+     * @param stream 0 or 1, picking one of two disjoint streams.
+     * @return The keys.
+     */
+    private static int[] distinctKeys(int count, int stream) {
+        int[] keys = new int[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = IntIntMap.mix(2 * i + stream);
+        }
+        return keys;
+    }
+}
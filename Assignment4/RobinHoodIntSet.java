@@ -0,0 +1,226 @@
+/**
+ * A hash set of ints that resolves collisions with Robin Hood hashing. It probes linearly like IntSet, but
+ * every slot records how far its key sits from its home slot. An inserted key that has travelled further
+ * than the key in a slot takes the slot and carries the poorer key on, so probe lengths stay short and
+ * even at high load. A lookup can stop as soon as it meets a key closer to home than itself, because its
+ * key would have taken that slot.
+ *
+ * The distance of an empty slot is 0 and every key stores its distance plus one, so any int, 0 included,
+ * can be a key. Removal shifts the rest of the run back by one slot.
+ *
+ * @author Ryan Cesar Irizarry
+ */
+public class RobinHoodIntSet implements IntHashTable {
+
+    //The largest power-of-two capacity an int array can have.
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    //The keys.
+    private int[] keys;
+
+    //The distance of each key from its home slot plus one, or 0 for an empty slot.
+    private int[] distances;
+
+    //capacity - 1, used to wrap slot numbers.
+    private int mask;
+
+    //The number of keys in the set.
+    private int size;
+
+    //The size at which the table doubles.
+    private int threshold;
+
+    //The fraction of slots that may be used before the table doubles.
+    private final float loadFactor;
+
+    /**
+     * Constructs an empty set with room for 16 keys and the default load factor.
+     */
+    public RobinHoodIntSet() {
+        this(16, IntIntMap.DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Constructs an empty set.
+     *
+     * @param expectedSize The number of keys the set should hold without resizing.
+     * @param loadFactor The fraction of slots that may be used before the table doubles, above 0 and below 1.
+     * @throws IllegalArgumentException If the size is negative or the load factor is out of range.
+     */
+    public RobinHoodIntSet(int expectedSize, float loadFactor) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("The expected size cannot be negative");
+        }
+        if (!(loadFactor > 0 && loadFactor < 1)) {
+            throw new IllegalArgumentException("The load factor must be between 0 and 1");
+        }
+        this.loadFactor = loadFactor;
+        allocate(IntIntMap.capacityFor(expectedSize, loadFactor));
+    }
+
+    /**
+     * Finds the slot of a key.
+     *
+     * @param key The key.
+     * @return The slot, or -1 if the key is not in the set.
+     */
+    private int find(int key) {
+        int pos = IntIntMap.mix(key) & mask;
+        int distance = 1;
+        while (distances[pos] >= distance) {
+            if (distances[pos] == distance && keys[pos] == key) {
+                return pos;
+            }
+            pos = (pos + 1) & mask;
+            distance++;
+        }
+        return -1;
+    }
+
+    /**
+     * Checks if a key is in the set.
+     *
+     * @param key The key.
+     * @return True if the key is in the set, false otherwise.
+     */
+    @Override
+    public boolean contains(int key) {
+        return find(key) >= 0;
+    }
+
+    /**
+     * Adds a key to the set.
+     *
+     * @param key The key.
+     * @return True if the key was added, false if it was already in the set.
+     */
+    @Override
+    public boolean add(int key) {
+        int pos = IntIntMap.mix(key) & mask;
+        int distance = 1;
+        while (distances[pos] >= distance) {
+            if (distances[pos] == distance && keys[pos] == key) {
+                return false;
+            }
+            pos = (pos + 1) & mask;
+            distance++;
+        }
+        place(key, pos, distance);
+        if (++size > threshold) {
+            rehash(keys.length * 2);
+        }
+        return true;
+    }
+
+    /**
+     * Puts a key into a slot, carrying each displaced key on to the next slot it can take.
+     *
+     * @param key The key.
+     * @param pos The first slot the key may take.
+     * @param distance The key's distance from home at pos, plus one.
+     */
+    private void place(int key, int pos, int distance) {
+        while (distances[pos] != 0) {
+            if (distances[pos] < distance) {
+                int displacedKey = keys[pos];
+                int displacedDistance = distances[pos];
+                keys[pos] = key;
+                distances[pos] = distance;
+                key = displacedKey;
+                distance = displacedDistance;
+            }
+            pos = (pos + 1) & mask;
+            distance++;
+        }
+        keys[pos] = key;
+        distances[pos] = distance;
+    }
+
+    /**
+     * Removes a key, shifting the keys after it back by one slot until a key sits at home.
+     *
+     * @param key The key.
+     * @return True if the key was removed, false if it was not in the set.
+     */
+    public boolean remove(int key) {
+        int hole = find(key);
+        if (hole < 0) {
+            return false;
+        }
+        int next = (hole + 1) & mask;
+        while (distances[next] > 1) {
+            keys[hole] = keys[next];
+            distances[hole] = distances[next] - 1;
+            hole = next;
+            next = (next + 1) & mask;
+        }
+        distances[hole] = 0;
+        size--;
+        return true;
+    }
+
+    /**
+     * Returns the longest distance any key sits from its home slot.
+     *
+     * @return The longest probe distance.
+     */
+    public int maxProbeDistance() {
+        int max = 0;
+        for (int distance : distances) {
+            max = Math.max(max, distance - 1);
+        }
+        return max;
+    }
+
+    /**
+     * Returns the number of keys in the set.
+     *
+     * @return The size.
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of slots in the table.
+     *
+     * @return The capacity.
+     */
+    @Override
+    public int capacity() {
+        return keys.length;
+    }
+
+    /**
+     * Allocates empty arrays of the given capacity.
+     *
+     * @param capacity The capacity, a power of two.
+     */
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        distances = new int[capacity];
+        mask = capacity - 1;
+        threshold = Math.min(capacity - 1, (int) Math.ceil(capacity * loadFactor));
+    }
+
+    /**
+     * Moves every key into a table of a new capacity.
+     *
+     * @param capacity The new capacity, a power of two.
+     * @throws IllegalStateException If the table cannot grow any further.
+     */
+    private void rehash(int capacity) {
+        if (capacity > MAX_CAPACITY || capacity <= 0) {
+            throw new IllegalStateException("RobinHoodIntSet cannot grow past " + MAX_CAPACITY + " slots");
+        }
+        int[] oldKeys = keys;
+        int[] oldDistances = distances;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldDistances[i] != 0) {
+                place(oldKeys[i], IntIntMap.mix(oldKeys[i]) & mask, 1);
+            }
+        }
+    }
+}
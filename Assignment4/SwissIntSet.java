@@ -0,0 +1,290 @@
+import java.util.Arrays;
+
+/**
+ * A hash set of ints laid out like a Swiss table. Besides the key array there is one control byte per
+ * slot, packed eight to a long, and each long is a group of eight slots. A full slot's control byte holds
+ * seven bits of the key's hash, so a lookup compares all eight bytes of a group with one hash in a few
+ * long operations (SWAR, SIMD within a register) and only reads the keys whose bytes match. Probing moves
+ * from group to group, and stops at the first group with an empty slot.
+ *
+ * Removal marks the slot deleted, or empty if its group still has an empty slot, since then no probe ever
+ * went past the group. Deleted slots are reused by inserts and cleared on the next resize. Any int, 0
+ * included, can be a key.
+ *
+ * @author Ryan Cesar Irizarry
+ */
+public class SwissIntSet implements IntHashTable {
+
+    //The control byte of an empty slot.
+    private static final int EMPTY = 0x80;
+
+    //The control byte of a slot whose key was removed.
+    private static final int DELETED = 0xFE;
+
+    //The number of slots in a group.
+    private static final int GROUP = 8;
+
+    //The lowest bit of every byte of a long.
+    private static final long LOW_BITS = 0x0101010101010101L;
+
+    //The highest bit of every byte of a long.
+    private static final long HIGH_BITS = 0x8080808080808080L;
+
+    //A group of eight empty control bytes.
+    private static final long EMPTY_GROUP = LOW_BITS * EMPTY;
+
+    //The largest power-of-two capacity an int array can have.
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    //The keys.
+    private int[] keys;
+
+    //The control bytes, eight to a long, with slot i in byte i % 8 of long i / 8.
+    private long[] control;
+
+    //The number of groups - 1, used to wrap group numbers.
+    private int groupMask;
+
+    //The number of keys in the set.
+    private int size;
+
+    //The number of slots that are not empty, deleted ones included.
+    private int used;
+
+    //The number of used slots at which the table is rebuilt.
+    private int threshold;
+
+    //The fraction of slots that may be used before the table is rebuilt.
+    private final float loadFactor;
+
+    /**
+     * Constructs an empty set with room for 16 keys and a load factor of 7/8.
+     */
+    public SwissIntSet() {
+        this(16, 0.875f);
+    }
+
+    /**
+     * Constructs an empty set.
+     *
+     * @param expectedSize The number of keys the set should hold without resizing.
+     * @param loadFactor The fraction of slots that may be used before the table is rebuilt, above 0 and
+     *                   below 1.
+     * @throws IllegalArgumentException If the size is negative or the load factor is out of range.
+     */
+    public SwissIntSet(int expectedSize, float loadFactor) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("The expected size cannot be negative");
+        }
+        if (!(loadFactor > 0 && loadFactor < 1)) {
+            throw new IllegalArgumentException("The load factor must be between 0 and 1");
+        }
+        this.loadFactor = loadFactor;
+        allocate(Math.max(GROUP, IntIntMap.capacityFor(expectedSize, loadFactor)));
+    }
+
+    /**
+     * Marks the bytes of a group that equal a value. A byte just above a real match may be marked too,
+     * so callers must check the key of every marked slot.
+     *
+     * @param group The control bytes of a group.
+     * @param value The byte to look for, below 0x80.
+     * @return A long with the high bit of each marked byte set.
+     */
+    private static long matchByte(long group, int value) {
+        long x = group ^ (LOW_BITS * value);
+        return (x - LOW_BITS) & ~x & HIGH_BITS;
+    }
+
+    /**
+     * Marks the empty bytes of a group. An empty byte has its high bit set and bit 1 clear, which tells it
+     * apart from a deleted one.
+     *
+     * @param group The control bytes of a group.
+     * @return A long with the high bit of each empty byte set.
+     */
+    private static long matchEmpty(long group) {
+        return group & ~(group << 6) & HIGH_BITS;
+    }
+
+    /**
+     * Finds the slot of a key.
+     *
+     * @param key The key.
+     * @param hash The mixed hash of the key.
+     * @return The slot, or -1 if the key is not in the set.
+     */
+    private int find(int key, int hash) {
+        int tag = hash & 0x7F;
+        int g = (hash >>> 7) & groupMask;
+        for (int stride = 1; ; stride++) {
+            long group = control[g];
+            for (long match = matchByte(group, tag); match != 0; match &= match - 1) {
+                int slot = g * GROUP + (Long.numberOfTrailingZeros(match) >>> 3);
+                if (keys[slot] == key) {
+                    return slot;
+                }
+            }
+            if (matchEmpty(group) != 0) {
+                return -1;
+            }
+            g = (g + stride) & groupMask;
+        }
+    }
+
+    /**
+     * Finds the first empty or deleted slot on a hash's probe sequence.
+     *
+     * @param hash The mixed hash of the key.
+     * @return The slot.
+     */
+    private int findFree(int hash) {
+        int g = (hash >>> 7) & groupMask;
+        for (int stride = 1; ; stride++) {
+            long free = control[g] & HIGH_BITS;
+            if (free != 0) {
+                return g * GROUP + (Long.numberOfTrailingZeros(free) >>> 3);
+            }
+            g = (g + stride) & groupMask;
+        }
+    }
+
+    /**
+     * Returns the control byte of a slot.
+     *
+     * @param slot The slot.
+     * @return The control byte.
+     */
+    private int controlByte(int slot) {
+        return (int) (control[slot / GROUP] >>> ((slot % GROUP) * 8)) & 0xFF;
+    }
+
+    /**
+     * Sets the control byte of a slot.
+     *
+     * @param slot The slot.
+     * @param value The control byte.
+     */
+    private void setControl(int slot, int value) {
+        int shift = (slot % GROUP) * 8;
+        int g = slot / GROUP;
+        control[g] = (control[g] & ~(0xFFL << shift)) | ((long) value << shift);
+    }
+
+    /**
+     * Checks if a key is in the set.
+     *
+     * @param key The key.
+     * @return True if the key is in the set, false otherwise.
+     */
+    @Override
+    public boolean contains(int key) {
+        return find(key, IntIntMap.mix(key)) >= 0;
+    }
+
+    /**
+     * Adds a key to the set.
+     *
+     * @param key The key.
+     * @return True if the key was added, false if it was already in the set.
+     */
+    @Override
+    public boolean add(int key) {
+        int hash = IntIntMap.mix(key);
+        if (find(key, hash) >= 0) {
+            return false;
+        }
+        int slot = findFree(hash);
+        if (controlByte(slot) == EMPTY) {
+            used++;
+        }
+        keys[slot] = key;
+        setControl(slot, hash & 0x7F);
+        size++;
+        if (used > threshold) {
+            rehash(size * 2 > threshold ? keys.length * 2 : keys.length);
+        }
+        return true;
+    }
+
+    /**
+     * Removes a key.
+     *
+     * @param key The key.
+     * @return True if the key was removed, false if it was not in the set.
+     */
+    public boolean remove(int key) {
+        int slot = find(key, IntIntMap.mix(key));
+        if (slot < 0) {
+            return false;
+        }
+        if (matchEmpty(control[slot / GROUP]) != 0) {
+            setControl(slot, EMPTY);
+            used--;
+        } else {
+            setControl(slot, DELETED);
+        }
+        size--;
+        return true;
+    }
+
+    /**
+     * Returns the number of keys in the set.
+     *
+     * @return The size.
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of slots in the table.
+     *
+     * @return The capacity.
+     */
+    @Override
+    public int capacity() {
+        return keys.length;
+    }
+
+    /**
+     * Allocates empty arrays of the given capacity.
+     *
+     * @param capacity The capacity, a power of two of at least one group.
+     */
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        control = new long[capacity / GROUP];
+        Arrays.fill(control, EMPTY_GROUP);
+        groupMask = control.length - 1;
+        used = 0;
+        threshold = Math.min(capacity - 1, (int) Math.ceil(capacity * loadFactor));
+    }
+
+    /**
+     * Moves every key into a table of a new capacity, dropping deleted slots.
+     *
+     * @param capacity The new capacity, a power of two.
+     * @throws IllegalStateException If the table cannot grow any further.
+     */
+    private void rehash(int capacity) {
+        if (capacity > MAX_CAPACITY || capacity <= 0) {
+            throw new IllegalStateException("SwissIntSet cannot grow past " + MAX_CAPACITY + " slots");
+        }
+        int[] oldKeys = keys;
+        long[] oldControl = control;
+        allocate(capacity);
+        for (int g = 0; g < oldControl.length; g++) {
+            long full = ~oldControl[g] & HIGH_BITS;
+            for (; full != 0; full &= full - 1) {
+                int key = oldKeys[g * GROUP + (Long.numberOfTrailingZeros(full) >>> 3)];
+                int hash = IntIntMap.mix(key);
+                int slot = findFree(hash);
+                keys[slot] = key;
+                setControl(slot, hash & 0x7F);
+                used++;
+            }
+        }
+    }
+}
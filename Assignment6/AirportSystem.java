@@ -1,12 +1,18 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.AbstractList;
+import java.util.AbstractSequentialList;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.ListIterator;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.PriorityQueue;
-import java.util.Comparator;
-import java.util.Queue;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Represents an airport system with cities, flights, and various algorithms.
@@ -14,8 +20,12 @@ import java.util.Queue;
  */
 public class AirportSystem {
 
+    //The timetable of an edge with no scheduled flights.
+    private static final int[] NO_FLIGHTS = new int[0];
+
     /**
-     * Represents an edge connecting two cities in the airport system.
+     * Represents an edge connecting two cities in the airport system. Its distance must be changed with
+     * updateEdgeWeight, which tells the airport system; setting the field directly is not seen.
      */
     class Edge {
 
@@ -28,6 +38,16 @@ public class AirportSystem {
         //The distance between start and destination.
         int distance;
 
+        //The departure times of the scheduled flights on this edge, in minutes, sorted. Only the first
+        //flightCount entries are used.
+        int[] departures = NO_FLIGHTS;
+
+        //The arrival time of each scheduled flight, in the same order as departures.
+        int[] arrivals = NO_FLIGHTS;
+
+        //The number of scheduled flights on this edge.
+        int flightCount;
+
         /**
          * Constructs an edge between two cities with a given distance.
          *
@@ -42,6 +62,30 @@ public class AirportSystem {
         }
 
 
+        /**
+         * Adds a scheduled flight, keeping the timetable sorted by departure and then arrival.
+         *
+         * @param departure The departure time.
+         * @param arrival The arrival time, later than the departure time.
+         */
+        void addFlight(int departure, int arrival) {
+            if (flightCount == departures.length) {
+                int capacity = Math.max(4, flightCount * 2);
+                departures = Arrays.copyOf(departures, capacity);
+                arrivals = Arrays.copyOf(arrivals, capacity);
+            }
+            int pos = flightCount;
+            while (pos > 0 && (departures[pos - 1] > departure
+                    || (departures[pos - 1] == departure && arrivals[pos - 1] > arrival))) {
+                departures[pos] = departures[pos - 1];
+                arrivals[pos] = arrivals[pos - 1];
+                pos--;
+            }
+            departures[pos] = departure;
+            arrivals[pos] = arrival;
+            flightCount++;
+        }
+
         /**
          * Returns a string representation of the edge.
          *
@@ -61,9 +105,13 @@ public class AirportSystem {
         //The city name.
         String id;
 
-        //The cities that are connected to this city by the airport system.
+        //The cities that are connected to this city by the airport system. Adding or removing edges here
+        //tells the airport system holding the vertex, as addEdge and removeEdge do.
         List<Edge> edges;
 
+        //The airport system whose connections hold this vertex, or null if it has not been added to one.
+        AirportSystem system;
+
         /**
          * Constructs a city with a given ID.
          *
@@ -71,7 +119,7 @@ public class AirportSystem {
          */
         public Vertex(String id) {
             this.id = id;
-            this.edges = new LinkedList<>();
+            this.edges = new EdgeList(this);
         }
 
         /**
@@ -86,16 +134,402 @@ public class AirportSystem {
 
     }
 
+    /**
+     * The edge list of a vertex. Every change, through the list or any of its iterators, is reported to
+     * the airport system holding the vertex.
+     */
+    private static class EdgeList extends AbstractSequentialList<Edge> {
+
+        //The vertex the edges leave from.
+        private final Vertex vertex;
+
+        //The edges.
+        private final LinkedList<Edge> edges = new LinkedList<>();
+
+        /**
+         * Constructs an empty edge list.
+         *
+         * @param vertex The vertex the edges leave from.
+         */
+        EdgeList(Vertex vertex) {
+            this.vertex = vertex;
+        }
+
+        /**
+         * Returns the number of edges.
+         *
+         * @return The number of edges.
+         */
+        @Override
+        public int size() {
+            return edges.size();
+        }
+
+        /**
+         * Returns an iterator that reports every edge it adds, removes or replaces.
+         *
+         * @param index The index of the first edge the iterator returns.
+         * @return The iterator.
+         */
+        @Override
+        public ListIterator<Edge> listIterator(int index) {
+            return new EdgeIterator(edges.listIterator(index));
+        }
+
+        /**
+         * An iterator over the edges that reports every edge it adds, removes or replaces.
+         */
+        private class EdgeIterator implements ListIterator<Edge> {
+
+            //The iterator over the underlying list.
+            private final ListIterator<Edge> inner;
+
+            //The edge last returned by next or previous.
+            private Edge last;
+
+            /**
+             * Constructs an iterator wrapping one over the underlying list.
+             *
+             * @param inner The iterator over the underlying list.
+             */
+            EdgeIterator(ListIterator<Edge> inner) {
+                this.inner = inner;
+            }
+
+            /**
+             * Checks if there is a next edge.
+             *
+             * @return True if next will return an edge.
+             */
+            @Override
+            public boolean hasNext() {
+                return inner.hasNext();
+            }
+
+            /**
+             * Returns the next edge.
+             *
+             * @return The next edge.
+             */
+            @Override
+            public Edge next() {
+                last = inner.next();
+                return last;
+            }
+
+            /**
+             * Checks if there is a previous edge.
+             *
+             * @return True if previous will return an edge.
+             */
+            @Override
+            public boolean hasPrevious() {
+                return inner.hasPrevious();
+            }
+
+            /**
+             * Returns the previous edge.
+             *
+             * @return The previous edge.
+             */
+            @Override
+            public Edge previous() {
+                last = inner.previous();
+                return last;
+            }
+
+            /**
+             * Returns the index of the edge next would return.
+             *
+             * @return The index.
+             */
+            @Override
+            public int nextIndex() {
+                return inner.nextIndex();
+            }
+
+            /**
+             * Returns the index of the edge previous would return.
+             *
+             * @return The index.
+             */
+            @Override
+            public int previousIndex() {
+                return inner.previousIndex();
+            }
+
+            /**
+             * Removes the edge last returned and reports it.
+             */
+            @Override
+            public void remove() {
+                inner.remove();
+                changed(last, false);
+            }
+
+            /**
+             * Replaces the edge last returned, reported as a removal and an addition.
+             *
+             * @param edge The new edge.
+             */
+            @Override
+            public void set(Edge edge) {
+                inner.set(edge);
+                changed(last, false);
+                changed(edge, true);
+                last = edge;
+            }
+
+            /**
+             * Inserts an edge and reports it.
+             *
+             * @param edge The edge.
+             */
+            @Override
+            public void add(Edge edge) {
+                inner.add(edge);
+                changed(edge, true);
+            }
+        }
+
+        /**
+         * Tells the airport system holding the vertex that an edge was added or removed.
+         *
+         * @param edge The edge.
+         * @param added True if the edge was added, false if it was removed.
+         */
+        private void changed(Edge edge, boolean added) {
+            if (vertex.system != null) {
+                vertex.system.edgeListChanged(vertex, edge, added);
+            }
+        }
+    }
+
+    /**
+     * The list of cities. Every change, through the list, its iterators or its sublists, goes through
+     * add, set and remove, which tell the airport system, so no change can leave a stale compiled graph.
+     * A list loaded from a compiled graph creates its vertices the first time it is used.
+     */
+    private class VertexList extends AbstractList<Vertex> {
+
+        //The vertices.
+        private final ArrayList<Vertex> vertices = new ArrayList<>();
+
+        //The compiled graph the vertices are still to be created from, or null once they exist. While it is
+        //set, it is also the compiled graph of the airport system.
+        private CompiledGraph backing;
+
+        /**
+         * Creates the vertices and edges of the backing graph, if they have not been created yet. The
+         * compiled graph already matches them, so nothing is told about the change.
+         */
+        private void materialize() {
+            if (backing == null) {
+                return;
+            }
+            CompiledGraph graph = backing;
+            backing = null;
+            vertices.ensureCapacity(graph.vertexCount());
+            for (int v = 0; v < graph.vertexCount(); v++) {
+                Vertex vertex = new Vertex(graph.nameOf(v));
+                for (int j = graph.offsets[v]; j < graph.offsets[v + 1]; j++) {
+                    vertex.edges.add(new Edge(vertex.id, graph.nameOf(graph.targets[j]), graph.weights[j]));
+                }
+                vertex.system = AirportSystem.this;
+                vertices.add(vertex);
+            }
+        }
+
+        /**
+         * Returns a vertex.
+         *
+         * @param index The index of the vertex.
+         * @return The vertex.
+         */
+        @Override
+        public Vertex get(int index) {
+            materialize();
+            return vertices.get(index);
+        }
+
+        /**
+         * Returns the number of vertices.
+         *
+         * @return The number of vertices.
+         */
+        @Override
+        public int size() {
+            materialize();
+            return vertices.size();
+        }
+
+        /**
+         * Replaces a vertex, which can change any part of the graph.
+         *
+         * @param index The index of the vertex.
+         * @param vertex The new vertex.
+         * @return The vertex that was replaced.
+         */
+        @Override
+        public Vertex set(int index, Vertex vertex) {
+            materialize();
+            Vertex old = vertices.set(index, vertex);
+            vertex.system = AirportSystem.this;
+            graphChanged();
+            return old;
+        }
+
+        /**
+         * Inserts a vertex. Appending a city with no edges only adds a city, and anything else can change
+         * which vertex a city name refers to.
+         *
+         * @param index The index to insert at.
+         * @param vertex The vertex.
+         */
+        @Override
+        public void add(int index, Vertex vertex) {
+            materialize();
+            vertices.add(index, vertex);
+            modCount++;
+            vertex.system = AirportSystem.this;
+            if (index == vertices.size() - 1 && vertex.edges.isEmpty()) {
+                cityAppended();
+            } else {
+                graphChanged();
+            }
+        }
+
+        /**
+         * Removes a vertex and every edge leaving it.
+         *
+         * @param index The index of the vertex.
+         * @return The vertex that was removed.
+         */
+        @Override
+        public Vertex remove(int index) {
+            materialize();
+            Vertex old = vertices.remove(index);
+            modCount++;
+            graphChanged();
+            return old;
+        }
+    }
+
     //The adjacency list of the cities.
     // Each node is a city, and each connecting line indicates a flight between two cities.
     // The List<Edge> represents a vertex.
-    List<Vertex> connections;
+    final List<Vertex> connections = new VertexList();
+
+    //Maps a city name to its vertex. Kept in sync with connections by findVertex.
+    private Map<String, Vertex> vertexIndex;
+
+    //The number of vertices of connections that have been added to vertexIndex.
+    private int indexedCount;
+
+    //The read-optimized form of the graph, or null if the graph changed since it was last compiled.
+    private CompiledGraph compiled;
+
+    //The number of times the graph has been compiled.
+    private int compilations;
+
+    //True if some edge may lead to a city name that is not in connections. compile drops such an edge
+    // until a city with that name is added.
+    private boolean danglingEdges;
+
+    //The objects told about every edge change.
+    private List<GraphChangeListener> listeners;
+
+    //The cache of recent shortestDistance answers, or null if caching is off.
+    private RouteCache routeCache;
+
+    //The incrementally maintained shortest-path trees of the hot sources, or null if there are none.
+    private DynamicShortestPaths hotSources;
+
+    //The point-to-point search engine for the compiled graph.
+    private DijkstraEngine dijkstra;
+
+    //The search engine for the bidirectional routing mode.
+    private BidirectionalDijkstra bidirectional;
+
+    //The minimum spanning forest algorithms for the compiled graph.
+    private SpanningForest spanningForest;
+
+    //The breadth-first search engine for the compiled graph.
+    private BfsEngine bfs;
+
+    //The engine for many-source distance batches.
+    private BatchShortestPaths batch;
+
+    //The cities used as landmarks by the ALT routing mode, or null if none have been set.
+    private List<String> landmarkCities;
+
+    //The search engine for the ALT routing mode.
+    private AltEngine alt;
+
+    //The preprocessed hierarchy for the contraction hierarchy routing mode, or null if there is none.
+    private ContractionHierarchy hierarchy;
+
+    //The compiled graph the hierarchy was built from or checked against.
+    private CompiledGraph hierarchyGraph;
+
+    //The scheduled flights sorted by departure for earliest-arrival queries, or null if they changed.
+    private ConnectionScan timetable;
+
+    //The shortest time allowed between arriving at a city and departing from it on another flight.
+    private int minimumConnectionTime;
 
     /**
      * Constructs an AirportSystem with an empty list of connections.
      */
     public AirportSystem() {
-        this.connections = new ArrayList<>();
+        this.vertexIndex = new HashMap<>();
+        this.listeners = new ArrayList<>();
+    }
+
+    /**
+     * Constructs an AirportSystem from a compiled graph, such as one read by GraphFile. The compiled graph
+     * backs every query until the first change. The vertices and edges of the mutable API are only created
+     * the first time connections is used, so a loaded graph that is only queried never builds them.
+     *
+     * @param graph The compiled graph.
+     * @return The airport system.
+     */
+    public static AirportSystem fromCompiled(CompiledGraph graph) {
+        AirportSystem airportSystem = new AirportSystem();
+        ((VertexList) airportSystem.connections).backing = graph;
+        airportSystem.compiled = graph;
+        return airportSystem;
+    }
+
+    /**
+     * Loads an AirportSystem from a binary graph file written by GraphFile.
+     *
+     * @param file The graph file.
+     * @return The airport system.
+     * @throws IOException If the file cannot be read or is not a graph file.
+     */
+    public static AirportSystem load(Path file) throws IOException {
+        return fromCompiled(GraphFile.read(file));
+    }
+
+    /**
+     * Returns an immutable snapshot of the current graph that can be shared with other threads or used to
+     * start a ConcurrentAirportSystem.
+     *
+     * @return The snapshot.
+     */
+    public GraphSnapshot snapshot() {
+        return GraphSnapshot.of(compile());
+    }
+
+    /**
+     * Writes the graph to a binary graph file that load can map back in.
+     *
+     * @param file The file to write.
+     * @throws IOException If the file cannot be written.
+     */
+    public void save(Path file) throws IOException {
+        GraphFile.write(compile(), file);
     }
 
     /**
@@ -105,13 +539,46 @@ public class AirportSystem {
      * @return The vertex with the specified ID, or null if not found.
      */
     private Vertex findVertex(String id) {
-        for (int i = 0; i < connections.size(); i++) {
-            Vertex v = connections.get(i);
-            if (v.id.equals(id)) {
-                return v;
+        if (indexedCount != connections.size()) {
+            //vertices are appended to connections directly, so index any we have not seen yet
+            for (int i = indexedCount; i < connections.size(); i++) {
+                Vertex v = connections.get(i);
+                vertexIndex.putIfAbsent(v.id, v);
             }
+            indexedCount = connections.size();
         }
-        return null;
+        return vertexIndex.get(id);
+    }
+
+    /**
+     * Returns the read-optimized form of the graph, compiling it again if it has changed since the last call.
+     * Vertices and edges stay the mutable way to build the graph, and the algorithms run on this form.
+     *
+     * @return The compiled graph.
+     */
+    public CompiledGraph compile() {
+        if (compiled == null) {
+            compiled = CompiledGraph.compile(connections);
+            compilations++;
+            int edges = 0;
+            for (Vertex vertex : connections) {
+                if (findVertex(vertex.id) == vertex) {
+                    edges += vertex.edges.size();
+                }
+            }
+            danglingEdges = edges != compiled.edgeCount();
+        }
+        return compiled;
+    }
+
+    /**
+     * Returns the number of times the graph has been compiled, which shows how often changes made the
+     * compiled graph stale before a query needed it.
+     *
+     * @return The number of compilations.
+     */
+    public int compilations() {
+        return compilations;
     }
 
     /**
@@ -146,69 +613,768 @@ public class AirportSystem {
         }
     }
 
+    /**
+     * Removes the edge from source to destination.
+     *
+     * @param source The source city.
+     * @param destination The destination city.
+     * @return True if the edge was removed, false if it does not exist.
+     */
+    public boolean removeEdge(String source, String destination) {
+        Vertex pinpointVertex = findVertex(source);
+        if (pinpointVertex == null) {
+            return false;
+        }
+        Iterator<Edge> vIterator = pinpointVertex.edges.iterator();
+        while (vIterator.hasNext()) {
+            Edge curEdge = vIterator.next();
+            if (curEdge.destination.equals(destination)) {
+                vIterator.remove();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Changes the weight of the edge from source to destination. Return false if the edge does not exist
+     * or the weight is negative.
+     *
+     * @param source The source city.
+     * @param destination The destination city.
+     * @param weight The new weight (distance) of the edge.
+     * @return True if the edge was updated, false otherwise.
+     */
+    public boolean updateEdgeWeight(String source, String destination, int weight) {
+        if (weight < 0) {
+            return false;
+        }
+        Vertex pinpointVertex = findVertex(source);
+        if (pinpointVertex == null) {
+            return false;
+        }
+        for (Edge curEdge : pinpointVertex.edges) {
+            if (curEdge.destination.equals(destination)) {
+                int oldWeight = curEdge.distance;
+                if (oldWeight != weight) {
+                    curEdge.distance = weight;
+                    edgeChanged(source, destination, oldWeight, weight);
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds a scheduled flight to the existing edge from source to destination. Times are in minutes
+     * from a fixed start, such as the start of the week. A flight must arrive strictly after it departs:
+     * earliestArrival scans flights once in departure order, which is only correct if every flight that
+     * can feed another departs before it.
+     *
+     * @param source The source city.
+     * @param destination The destination city.
+     * @param departure The departure time.
+     * @param arrival The arrival time, later than the departure time.
+     * @return True if the flight was added, false if the edge does not exist or the times are invalid.
+     */
+    public boolean addFlight(String source, String destination, int departure, int arrival) {
+        if (departure < 0 || arrival <= departure) {
+            return false;
+        }
+        Vertex pinpointVertex = findVertex(source);
+        if (pinpointVertex == null) {
+            return false;
+        }
+        for (Edge curEdge : pinpointVertex.edges) {
+            if (curEdge.destination.equals(destination)) {
+                curEdge.addFlight(departure, arrival);
+                timetable = null;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Sets the shortest layover allowed when changing flights at a city. It does not apply at the
+     * starting city.
+     *
+     * @param minutes The minimum connection time.
+     * @throws IllegalArgumentException If minutes is negative.
+     */
+    public void setMinimumConnectionTime(int minutes) {
+        if (minutes < 0) {
+            throw new IllegalArgumentException("The minimum connection time cannot be negative");
+        }
+        minimumConnectionTime = minutes;
+    }
+
+    /**
+     * Returns the earliest time a traveller can reach cityB when leaving cityA no earlier than the given
+     * time, using the scheduled flights and the minimum connection time.
+     *
+     * @param cityA The starting city.
+     * @param cityB The destination city.
+     * @param departureTime The earliest time the traveller can leave.
+     * @return The earliest arrival time, or Integer.MAX_VALUE if B cannot be reached.
+     */
+    public int earliestArrival(String cityA, String cityB, int departureTime) {
+        CompiledGraph graph = compile();
+        if (timetable == null || timetable.graph() != graph) {
+            timetable = ConnectionScan.build(graph, connections);
+        }
+        int source = graph.idOf(cityA);
+        int target = graph.idOf(cityB);
+        if (source < 0 || target < 0) {
+            return Integer.MAX_VALUE;
+        }
+        return timetable.earliestArrival(source, target, departureTime, minimumConnectionTime);
+    }
+
+    /**
+     * Registers a listener that is told about every edge change made through this class.
+     *
+     * @param listener The listener to add.
+     */
+    public void addChangeListener(GraphChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes a listener added with addChangeListener.
+     *
+     * @param listener The listener to remove.
+     */
+    public void removeChangeListener(GraphChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Reports an edge added to or removed from the edge list of a vertex. The change only matters if the
+     * vertex is the one its city name refers to, since compile ignores later vertices with the same name.
+     *
+     * @param vertex The vertex the edge leaves from.
+     * @param edge The edge.
+     * @param added True if the edge was added, false if it was removed.
+     */
+    private void edgeListChanged(Vertex vertex, Edge edge, boolean added) {
+        if (added && findVertex(edge.destination) == null) {
+            danglingEdges = true;
+        }
+        if (findVertex(vertex.id) == vertex) {
+            edgeChanged(vertex.id, edge.destination, added ? GraphChangeListener.NO_EDGE : edge.distance,
+                    added ? edge.distance : GraphChangeListener.NO_EDGE);
+        }
+    }
+
+    /**
+     * Throws away everything derived from the graph after a change that is not a single edge change, such
+     * as a city being replaced or removed, and tells the listeners.
+     */
+    private void graphChanged() {
+        compiled = null;
+        timetable = null;
+        danglingEdges = true;
+        vertexIndex.clear();
+        indexedCount = 0;
+        for (int i = 0; i < listeners.size(); i++) {
+            listeners.get(i).graphChanged();
+        }
+    }
+
+    /**
+     * Marks the compiled graph as stale after a city with no edges is appended to connections. That only
+     * adds a city, unless an edge already leads to its name: compile dropped such an edge while the city
+     * was missing, so the listeners are told that the graph changed.
+     */
+    private void cityAppended() {
+        compiled = null;
+        if (danglingEdges) {
+            for (int i = 0; i < listeners.size(); i++) {
+                listeners.get(i).graphChanged();
+            }
+        }
+    }
+
+    /**
+     * Marks the compiled graph as stale and tells the listeners about an edge change.
+     *
+     * @param source The source city of the edge.
+     * @param destination The destination city of the edge.
+     * @param oldWeight The weight before the change, or NO_EDGE if the edge was added.
+     * @param newWeight The weight after the change, or NO_EDGE if the edge was removed.
+     */
+    private void edgeChanged(String source, String destination, int oldWeight, int newWeight) {
+        compiled = null;
+        for (int i = 0; i < listeners.size(); i++) {
+            listeners.get(i).edgeChanged(source, destination, oldWeight, newWeight);
+        }
+    }
+
+    /**
+     * Keeps the shortest-path tree of a city up to date across edge changes, so that shortestDistance
+     * queries from it in the Dijkstra mode are answered without a search and without compiling the graph
+     * again. Edge changes repair the tree, and any other change to connections rebuilds it at the next
+     * query.
+     *
+     * @param city The hot source city.
+     * @throws IllegalArgumentException If the city is not in the airport system.
+     */
+    public void trackSource(String city) {
+        if (findVertex(city) == null) {
+            throw new IllegalArgumentException("Unknown city: " + city);
+        }
+        if (hotSources == null) {
+            hotSources = new DynamicShortestPaths(compile());
+            addChangeListener(hotSources);
+        }
+        hotSources().addSource(city);
+    }
+
+    /**
+     * Returns the hot source trees, first rebuilding them from the current graph if a change other than an
+     * edge change made them stale.
+     *
+     * @return The hot source trees, or null if there are none.
+     */
+    private DynamicShortestPaths hotSources() {
+        if (hotSources != null && hotSources.isStale()) {
+            removeChangeListener(hotSources);
+            DynamicShortestPaths rebuilt = new DynamicShortestPaths(compile());
+            for (String city : hotSources.sources()) {
+                if (findVertex(city) != null) {
+                    rebuilt.addSource(city);
+                }
+            }
+            hotSources = rebuilt;
+            addChangeListener(rebuilt);
+        }
+        return hotSources;
+    }
+
+    /**
+     * Stops keeping the shortest-path tree of a city.
+     *
+     * @param city The city.
+     */
+    public void untrackSource(String city) {
+        if (hotSources != null) {
+            hotSources.removeSource(city);
+        }
+    }
+
     /**
      * Returns the shortest distance between cityA and cityB using Dijkstra's algorithm.
      *
      * @param cityA The starting city.
      * @param cityB The destination city.
-     * @return The shortest distance between city A and city B.
+     * @return The shortest distance between city A and city B, or Integer.MAX_VALUE if B cannot be reached.
      */
     public int shortestDistance(String cityA, String cityB) {
-        //create an empty chart that will be used to list the vertices and their respective distances
-        Map<String, Integer> distanceTable = new HashMap<>();
-        for (int i = 0; i < connections.size(); i++) {
-            Vertex currVertex = connections.get(i);
-            String cID = currVertex.id;
-            distanceTable.put(cID, Integer.MAX_VALUE);
+        return shortestDistance(cityA, cityB, RoutingMode.DIJKSTRA);
+    }
+
+    /**
+     * Returns the shortest distance between cityA and cityB using the given search algorithm.
+     * Every mode returns the same distance; they differ in how many cities they visit to find it.
+     *
+     * @param cityA The starting city.
+     * @param cityB The destination city.
+     * @param mode The search algorithm to use.
+     * @return The shortest distance between city A and city B, or Integer.MAX_VALUE if B cannot be reached.
+     * @throws IllegalStateException If the ALT mode is used before any landmarks are set.
+     */
+    public int shortestDistance(String cityA, String cityB, RoutingMode mode) {
+        if (mode == RoutingMode.DIJKSTRA && hotSources() != null && hotSources.isSource(cityA)) {
+            //the tree is repaired on every edge change, so the graph is not compiled again
+            return findVertex(cityB) == null ? Integer.MAX_VALUE : hotSources.distance(cityA, cityB);
+        }
+        if (routeCache != null) {
+            //a cached pair means both cities exist, since removing a city clears the cache
+            int distance = routeCache.get(cityA, cityB);
+            if (distance != RouteCache.MISS) {
+                return distance;
+            }
+        }
+        CompiledGraph graph = compile();
+        int source = graph.idOf(cityA);
+        int target = graph.idOf(cityB);
+        if (source < 0 || target < 0) {
+            return Integer.MAX_VALUE;
+        }
+        int distance = route(graph, source, target, mode);
+        if (routeCache != null) {
+            routeCache.put(graph, cityA, cityB, distance);
+        }
+        return distance;
+    }
+
+    /**
+     * Runs a shortest distance query with the given search algorithm.
+     *
+     * @param graph The compiled graph.
+     * @param source The id of the starting city.
+     * @param target The id of the destination city.
+     * @param mode The search algorithm to use.
+     * @return The shortest distance, or Integer.MAX_VALUE if the target cannot be reached.
+     */
+    private int route(CompiledGraph graph, int source, int target, RoutingMode mode) {
+        switch (mode) {
+            case BIDIRECTIONAL:
+                if (bidirectional == null || bidirectional.graph() != graph) {
+                    bidirectional = new BidirectionalDijkstra(graph);
+                }
+                return bidirectional.distance(source, target);
+            case ALT:
+                return altEngine().distance(source, target);
+            case CONTRACTION_HIERARCHY:
+                if (hierarchy == null || hierarchyGraph != graph) {
+                    buildHierarchy();
+                }
+                return hierarchy.distance(source, target);
+            default:
+                if (dijkstra == null || dijkstra.graph() != graph) {
+                    dijkstra = new DijkstraEngine(graph);
+                }
+                return dijkstra.distance(source, target);
         }
-        distanceTable.put(cityA, 0);
+    }
 
-        PriorityQueue<Vertex> pq = new PriorityQueue<>((v1, v2) -> Integer.compare(distanceTable.get(v1.id), distanceTable.get(v2.id)));
-        Vertex sourceTex = findVertex(cityA);
-        pq.add(sourceTex);
+    /**
+     * Returns a shortest route between cityA and cityB.
+     *
+     * @param cityA The starting city.
+     * @param cityB The destination city.
+     * @return The cities on the route and its distance, or null if B cannot be reached.
+     */
+    public Route shortestRoute(String cityA, String cityB) {
+        CompiledGraph graph = compile();
+        int source = graph.idOf(cityA);
+        int target = graph.idOf(cityB);
+        if (source < 0 || target < 0) {
+            return null;
+        }
+        if (dijkstra == null || dijkstra.graph() != graph) {
+            dijkstra = new DijkstraEngine(graph);
+        }
+        int[] path = dijkstra.path(source, target);
+        if (path == null) {
+            return null;
+        }
+        int distance = 0;
+        for (int i = 0; i + 1 < path.length; i++) {
+            distance += graph.weight(path[i], path[i + 1]);
+        }
+        return Route.of(graph, path, distance);
+    }
 
-        while (pq.size() > 0) {
-            Vertex curVertex = pq.poll();
+    /**
+     * Lists the routes between cityA and cityB that never visit a city twice, shortest first. Routes are
+     * found one at a time as the iterator is advanced, so taking only the first few is cheap.
+     *
+     * @param cityA The starting city.
+     * @param cityB The destination city.
+     * @return An iterator over the routes, empty if either city is unknown or B cannot be reached.
+     */
+    public Iterator<Route> shortestRoutes(String cityA, String cityB) {
+        CompiledGraph graph = compile();
+        int source = graph.idOf(cityA);
+        int target = graph.idOf(cityB);
+        if (source < 0 || target < 0) {
+            return Collections.emptyIterator();
+        }
+        return new KShortestPaths(graph, source, target);
+    }
 
-            for (int j = 0; j < curVertex.edges.size(); j++) {
-                Edge edge = curVertex.edges.get(j);
-                int curDistance = distanceTable.get(curVertex.id);
-                int newDistance = curDistance + edge.distance;
-                String destinationId = edge.destination;
+    /**
+     * Returns up to k of the shortest routes between cityA and cityB that never visit a city twice.
+     *
+     * @param cityA The starting city.
+     * @param cityB The destination city.
+     * @param k The largest number of routes to return.
+     * @return The routes, shortest first.
+     */
+    public List<Route> shortestRoutes(String cityA, String cityB, int k) {
+        List<Route> routes = new ArrayList<>();
+        Iterator<Route> iterator = shortestRoutes(cityA, cityB);
+        while (routes.size() < k && iterator.hasNext()) {
+            routes.add(iterator.next());
+        }
+        return routes;
+    }
+
+    /**
+     * Puts a cache of the given size in front of shortestDistance. Edge changes made through addEdge,
+     * removeEdge and updateEdgeWeight drop only the cached routes they can affect, and a hit is answered
+     * without compiling the graph.
+     *
+     * @param capacity The maximum number of cached city pairs.
+     * @return The cache, which reports hit, miss and eviction counts.
+     */
+    public RouteCache enableRouteCache(int capacity) {
+        disableRouteCache();
+        routeCache = new RouteCache(capacity);
+        addChangeListener(routeCache);
+        return routeCache;
+    }
 
-                if (newDistance < distanceTable.get(destinationId)) {
-                    distanceTable.put(destinationId, newDistance);
-                    Vertex destinationVertex = findVertex(destinationId);
-                    pq.add(destinationVertex);
+    /**
+     * Removes the route cache, if there is one.
+     */
+    public void disableRouteCache() {
+        if (routeCache != null) {
+            removeChangeListener(routeCache);
+            routeCache = null;
+        }
+    }
+
+    /**
+     * Returns the shortest distance from a city to every city. Large graphs are searched in parallel with
+     * delta-stepping on the common pool; small ones use sequential Dijkstra.
+     * Entries follow the city ids of compile(), so entry j is the city compile().nameOf(j).
+     *
+     * @param city The starting city.
+     * @return The distance to each city, with Integer.MAX_VALUE for cities that cannot be reached.
+     * @throws IllegalArgumentException If the city is not in the airport system.
+     */
+    public int[] shortestDistances(String city) {
+        CompiledGraph graph = compile();
+        return shortestDistances(city, DeltaStepping.defaultDelta(graph), ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Returns the shortest distance from a city to every city using delta-stepping with the given bucket
+     * width on the given pool.
+     *
+     * @param city The starting city.
+     * @param delta The bucket width, at least 1.
+     * @param pool The pool to run the relaxations on.
+     * @return The distance to each city id, with Integer.MAX_VALUE for cities that cannot be reached.
+     * @throws IllegalArgumentException If the city is not in the airport system.
+     */
+    public int[] shortestDistances(String city, int delta, ForkJoinPool pool) {
+        CompiledGraph graph = compile();
+        return new DeltaStepping(graph, delta, pool).distancesFrom(sourceIds(List.of(city))[0]);
+    }
+
+    /**
+     * Returns the shortest distances from each of the given cities to every city, computed in parallel.
+     * Columns follow the city ids of compile(), so column j is the city compile().nameOf(j).
+     *
+     * @param sources The starting cities.
+     * @return A matrix whose row i holds the distances from sources.get(i), with Integer.MAX_VALUE for
+     *         cities that cannot be reached.
+     * @throws IllegalArgumentException If a source city is not in the airport system.
+     */
+    public int[][] distanceMatrix(List<String> sources) {
+        return batchEngine().matrix(sourceIds(sources));
+    }
+
+    /**
+     * Computes the shortest distances from each of the given cities to every city on the given pool and
+     * streams each row to the consumer as soon as it is ready, without holding the whole matrix.
+     *
+     * @param sources The starting cities.
+     * @param consumer Receives each row, indexed by the position of its source in the list.
+     * @param listener Receives progress reports and can cancel the batch, or null.
+     * @param pool The pool to run the searches on.
+     * @throws IllegalArgumentException If a source city is not in the airport system.
+     * @throws java.util.concurrent.CancellationException If the listener cancelled the batch.
+     */
+    public void distanceMatrix(List<String> sources, BatchShortestPaths.RowConsumer consumer,
+                               BatchShortestPaths.ProgressListener listener, ForkJoinPool pool) {
+        batchEngine().stream(sourceIds(sources), consumer, listener, pool);
+    }
+
+    /**
+     * Returns the batch engine for the current graph.
+     *
+     * @return The batch engine.
+     */
+    private BatchShortestPaths batchEngine() {
+        CompiledGraph graph = compile();
+        if (batch == null || batch.graph() != graph) {
+            batch = new BatchShortestPaths(graph);
+        }
+        return batch;
+    }
+
+    /**
+     * Converts a list of city names to compiled ids.
+     *
+     * @param cities The city names.
+     * @return The ids of the cities.
+     * @throws IllegalArgumentException If a city is not in the airport system.
+     */
+    private int[] sourceIds(List<String> cities) {
+        CompiledGraph graph = compile();
+        int[] ids = new int[cities.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = graph.idOf(cities.get(i));
+            if (ids[i] < 0) {
+                throw new IllegalArgumentException("Unknown city: " + cities.get(i));
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Sets the landmark cities used by the ALT routing mode. The distance tables are computed the next
+     * time they are needed, and again whenever the graph changes.
+     *
+     * @param cities The landmark cities.
+     * @throws IllegalArgumentException If a city is not in the airport system.
+     */
+    public void setLandmarks(List<String> cities) {
+        for (String city : cities) {
+            if (findVertex(city) == null) {
+                throw new IllegalArgumentException("Unknown landmark city: " + city);
+            }
+        }
+        landmarkCities = new ArrayList<>(cities);
+        alt = null;
+    }
+
+    /**
+     * Picks k landmark cities that are spread out over the graph and uses them for the ALT routing mode.
+     *
+     * @param k The number of landmarks.
+     * @return The chosen landmark cities.
+     */
+    public List<String> selectLandmarks(int k) {
+        CompiledGraph graph = compile();
+        int[] ids = LandmarkIndex.selectFarthest(graph, k);
+        List<String> cities = new ArrayList<>();
+        for (int id : ids) {
+            cities.add(graph.nameOf(id));
+        }
+        landmarkCities = cities;
+        alt = new AltEngine(LandmarkIndex.build(graph, ids));
+        return cities;
+    }
+
+    /**
+     * Writes the landmark distance tables to a file so they can be loaded with the graph later.
+     *
+     * @param file The file to write.
+     * @throws IOException If the file cannot be written.
+     * @throws IllegalStateException If no landmarks are set.
+     */
+    public void saveLandmarks(File file) throws IOException {
+        altEngine().landmarks().save(file);
+    }
+
+    /**
+     * Loads landmark distance tables written by saveLandmarks and uses them for the ALT routing mode.
+     *
+     * @param file The file to read.
+     * @throws IOException If the file cannot be read or was saved for a different graph.
+     */
+    public void loadLandmarks(File file) throws IOException {
+        CompiledGraph graph = compile();
+        LandmarkIndex index = LandmarkIndex.load(file, graph);
+        List<String> cities = new ArrayList<>();
+        for (int id : index.landmarks()) {
+            cities.add(graph.nameOf(id));
+        }
+        landmarkCities = cities;
+        alt = new AltEngine(index);
+    }
+
+    /**
+     * Builds the Contraction Hierarchy for the current graph. This is slow on large graphs, so it is best
+     * run once offline and saved with saveHierarchy. The contraction hierarchy mode calls it if the graph
+     * has changed since the hierarchy was built.
+     */
+    public void buildHierarchy() {
+        CompiledGraph graph = compile();
+        hierarchy = ContractionHierarchy.build(graph);
+        hierarchyGraph = graph;
+    }
+
+    /**
+     * Writes the Contraction Hierarchy to a file, building it first if needed.
+     *
+     * @param file The file to write.
+     * @throws IOException If the file cannot be written.
+     */
+    public void saveHierarchy(File file) throws IOException {
+        if (hierarchy == null || hierarchyGraph != compile()) {
+            buildHierarchy();
+        }
+        hierarchy.save(file);
+    }
+
+    /**
+     * Loads a Contraction Hierarchy written by saveHierarchy, so it does not have to be rebuilt at startup.
+     *
+     * @param file The file to read.
+     * @throws IOException If the file cannot be read or was built from a different graph.
+     */
+    public void loadHierarchy(File file) throws IOException {
+        CompiledGraph graph = compile();
+        ContractionHierarchy loaded = ContractionHierarchy.load(file);
+        if (!loaded.matches(graph)) {
+            throw new IOException("Contraction hierarchy " + file + " was built from a different graph");
+        }
+        hierarchy = loaded;
+        hierarchyGraph = graph;
+    }
+
+    /**
+     * Returns the ALT engine for the current graph, recomputing the landmark tables if the graph changed.
+     * Landmark cities that have been removed from the airport system are dropped.
+     *
+     * @return The ALT engine.
+     * @throws IllegalStateException If no landmarks are set, or none of them are left.
+     */
+    private AltEngine altEngine() {
+        if (landmarkCities == null) {
+            throw new IllegalStateException("No landmarks set for ALT routing");
+        }
+        CompiledGraph graph = compile();
+        if (alt == null || alt.landmarks().graph() != graph) {
+            List<String> cities = new ArrayList<>();
+            int[] ids = new int[landmarkCities.size()];
+            int count = 0;
+            for (String city : landmarkCities) {
+                int id = graph.idOf(city);
+                if (id >= 0) {
+                    cities.add(city);
+                    ids[count++] = id;
                 }
             }
+            if (cities.isEmpty()) {
+                throw new IllegalStateException("None of the landmark cities are in the airport system anymore");
+            }
+            landmarkCities = cities;
+            alt = new AltEngine(LandmarkIndex.build(graph, Arrays.copyOf(ids, count)));
         }
-        return distanceTable.get(cityB);
+        return alt;
+    }
+
+    /**
+     * Computes the shortest distance between every pair of cities and writes them to a memory-mapped
+     * matrix file, choosing Floyd-Warshall or Johnson's algorithm by the density of the graph.
+     *
+     * @param file The file to write.
+     * @return The distance matrix, which other processes can open with DistanceMatrix.open.
+     * @throws IOException If the file cannot be written.
+     * @throws IllegalArgumentException If there are more than DistanceMatrix.MAX_CITIES cities or the
+     *                                  matrix file would not fit in one mapping.
+     */
+    public DistanceMatrix allPairsShortestPaths(Path file) throws IOException {
+        return allPairsShortestPaths(file, ApspAlgorithm.AUTO);
     }
 
     /**
-     * Uses Prim's algorithm to create a minimum spanning tree.
+     * Computes the shortest distance between every pair of cities with the given algorithm and writes them
+     * to a memory-mapped matrix file. Parallel phases run on the common pool.
+     *
+     * @param file The file to write.
+     * @param algorithm The algorithm to use.
+     * @return The distance matrix, which other processes can open with DistanceMatrix.open.
+     * @throws IOException If the file cannot be written.
+     * @throws IllegalArgumentException If there are more than DistanceMatrix.MAX_CITIES cities or the
+     *                                  matrix file would not fit in one mapping.
+     */
+    public DistanceMatrix allPairsShortestPaths(Path file, ApspAlgorithm algorithm) throws IOException {
+        return new AllPairsShortestPaths(compile(), ForkJoinPool.commonPool()).compute(file, algorithm);
+    }
+
+    /**
+     * Splits the cities into k regions of about equal size with few flights between regions.
+     * Entries follow the city ids of compile(), so entry j is the region of compile().nameOf(j).
+     *
+     * @param k The number of regions.
+     * @return The region of each city, from 0 to k - 1.
+     * @throws IllegalArgumentException If k is less than 1.
+     */
+    public int[] partition(int k) {
+        return GraphPartitioner.partition(compile(), k, 233);
+    }
+
+    /**
+     * Splits the graph into k regions, gives each region its own RoutingShard, and returns a router that
+     * answers queries through them. The shards run in this process behind a LocalTransport, and they do
+     * not see later changes to the airport system.
+     *
+     * @param k The number of regions.
+     * @return The router.
+     * @throws IllegalArgumentException If k is less than 1.
+     */
+    public ShardedRouter shardedRouter(int k) {
+        CompiledGraph graph = compile();
+        int[] part = GraphPartitioner.partition(graph, k, 233);
+        RoutingShard[] shards = new RoutingShard[k];
+        for (int shard = 0; shard < k; shard++) {
+            shards[shard] = new RoutingShard(graph, part, shard);
+        }
+        return new ShardedRouter(new LocalTransport(shards));
+    }
+
+    /**
+     * Uses Prim's algorithm to create a minimum spanning tree. If some cities cannot be reached from the
+     * first city, each unreached part gets its own tree, giving a minimum spanning forest. Flights are
+     * followed in their own direction, as they always have been here, so the result can differ from
+     * minimumSpanningTree(MstAlgorithm.PRIM) when some flight has no return flight.
      *
      * @return A list of edges representing the minimum spanning tree.
      */
     public List<Edge> minimumSpanningTree() {
-        List<Vertex> visited = new ArrayList<>();
-        List<Edge> treeEdges = new ArrayList<>();
-        PriorityQueue<Edge> pq = new PriorityQueue<>(Comparator.comparingInt(edge -> edge.distance));
-
-        Vertex startTex = connections.get(0);
-        visited.add(startTex);
-        pq.addAll(startTex.edges);
-
-        while (pq.size() > 0) {
-            Edge minEdge = pq.poll();
-            Vertex destinationTex = findVertex(minEdge.destination);
-
-            if (!visited.contains(destinationTex)) {
-                visited.add(destinationTex);
-                treeEdges.add(minEdge);
-                pq.addAll(destinationTex.edges);
-            }
+        CompiledGraph graph = compile();
+        return forestEdges(graph, spanningForest(graph).primDirected());
+    }
+
+    /**
+     * Creates a minimum spanning forest with the given algorithm. Every algorithm treats each flight as a
+     * two-way link, so they all give forests with the same total distance and one tree per connected part.
+     *
+     * @param algorithm The algorithm to use.
+     * @return A list of edges representing the minimum spanning forest.
+     */
+    public List<Edge> minimumSpanningTree(MstAlgorithm algorithm) {
+        CompiledGraph graph = compile();
+        int[] forest;
+        switch (algorithm) {
+            case KRUSKAL:
+                forest = spanningForest(graph).kruskal();
+                break;
+            case BORUVKA:
+                forest = spanningForest(graph).boruvka(ForkJoinPool.commonPool());
+                break;
+            default:
+                forest = spanningForest(graph).prim();
+                break;
+        }
+        return forestEdges(graph, forest);
+    }
+
+    /**
+     * Returns the spanning forest algorithms for the current graph.
+     *
+     * @param graph The compiled graph.
+     * @return The spanning forest algorithms.
+     */
+    private SpanningForest spanningForest(CompiledGraph graph) {
+        if (spanningForest == null || spanningForest.graph() != graph) {
+            spanningForest = new SpanningForest(graph);
+        }
+        return spanningForest;
+    }
+
+    /**
+     * Converts the edge positions of a forest to edges.
+     *
+     * @param graph The compiled graph.
+     * @param forest The positions of the forest edges.
+     * @return The forest edges.
+     */
+    private List<Edge> forestEdges(CompiledGraph graph, int[] forest) {
+        List<Edge> treeEdges = new ArrayList<>(forest.length);
+        for (int j : forest) {
+            treeEdges.add(new Edge(graph.nameOf(graph.sourceOf(j)), graph.nameOf(graph.targets[j]), graph.weights[j]));
         }
         return treeEdges;
     }
@@ -220,33 +1386,49 @@ public class AirportSystem {
      * @return A list of visited cities in the order they were visited.
      */
     public List<String> breadthFirstSearch(String start) {
-        Vertex startVertex = findVertex(start);
+        CompiledGraph graph = compile();
+        int startVertex = graph.idOf(start);
 
-        if (startVertex == null) {
+        if (startVertex < 0) {
             return null;
         }
 
-        ArrayList<String> visited = new ArrayList<>();
-        Queue<Vertex> queue = new LinkedList<>();
-
-        queue.add(startVertex);
-        visited.add(start);
-
-        while (!queue.isEmpty()) {
-            Vertex currVertex = queue.poll();
+        int[] order = bfsEngine().sequential(startVertex).order;
+        ArrayList<String> visited = new ArrayList<>(order.length);
+        for (int i = 0; i < order.length; i++) {
+            visited.add(graph.nameOf(order[i]));
+        }
+        return visited;
+    }
 
-            for (int i = 0; i < currVertex.edges.size(); i++) {
-                Edge child = currVertex.edges.get(i);
-                String directlyConnectedID = child.destination;
-                Vertex directlyConnected = findVertex(directlyConnectedID);
+    /**
+     * Performs a parallel, direction-optimizing breadth-first search from the specified city on the common
+     * pool. Besides the visit order this gives the hop count and parent of every city, indexed by the
+     * city ids of compile().
+     *
+     * @param start The ID of the starting city.
+     * @return The search result, or null if the city is not in the airport system.
+     */
+    public BfsEngine.Result breadthFirstSearchTree(String start) {
+        CompiledGraph graph = compile();
+        int startVertex = graph.idOf(start);
+        if (startVertex < 0) {
+            return null;
+        }
+        return bfsEngine().directionOptimizing(startVertex, ForkJoinPool.commonPool());
+    }
 
-                if (directlyConnected != null && !visited.contains(directlyConnectedID)) {
-                    queue.add(directlyConnected);
-                    visited.add(directlyConnectedID);
-                }
-            }
+    /**
+     * Returns the breadth-first search engine for the current graph.
+     *
+     * @return The search engine.
+     */
+    private BfsEngine bfsEngine() {
+        CompiledGraph graph = compile();
+        if (bfs == null || bfs.graph() != graph) {
+            bfs = new BfsEngine(graph);
         }
-        return visited;
+        return bfs;
     }
 
     /**
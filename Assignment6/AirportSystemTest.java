@@ -0,0 +1,83 @@
+import org.junit.Test;
+import java.util.Iterator;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for the AirportSystem class.
+ *
+ * @author Ryan Cesar Irizarry
+ */
+public class AirportSystemTest {
+
+    /**
+     * Builds a system with a chain of cities C0 to C(n-1), each flight of distance 1.
+     *
+     * @param n The number of cities.
+     * @return The system.
+     */
+    private static AirportSystem chain(int n) {
+        AirportSystem airportSystem = new AirportSystem();
+        for (int i = 0; i < n; i++) {
+            airportSystem.connections.add(new AirportSystem.Vertex("C" + i));
+        }
+        for (int i = 0; i + 1 < n; i++) {
+            airportSystem.addEdge("C" + i, "C" + (i + 1), 1);
+        }
+        return airportSystem;
+    }
+
+    /**
+     * Tests that replacing a vertex in connections, which keeps its size, is seen by the next query.
+     */
+    @Test
+    public void testVertexSwapIsSeen() {
+        AirportSystem airportSystem = chain(4);
+        assertEquals(3, airportSystem.shortestDistance("C0", "C3"));
+        AirportSystem.Vertex replacement = new AirportSystem.Vertex("C1");
+        replacement.edges.add(airportSystem.new Edge("C1", "C2", 10));
+        airportSystem.connections.set(1, replacement);
+        assertEquals(12, airportSystem.shortestDistance("C0", "C3"));
+        assertTrue(airportSystem.addEdge("C1", "C3", 2));
+        assertEquals(3, airportSystem.shortestDistance("C0", "C3"));
+    }
+
+    /**
+     * Tests that adding and removing edges through Vertex.edges is seen by the next query.
+     */
+    @Test
+    public void testDirectEdgeChangesAreSeen() {
+        AirportSystem airportSystem = chain(4);
+        assertEquals(3, airportSystem.shortestDistance("C0", "C3"));
+        AirportSystem.Vertex c0 = airportSystem.connections.get(0);
+        c0.edges.add(airportSystem.new Edge("C0", "C3", 1));
+        assertEquals(1, airportSystem.shortestDistance("C0", "C3"));
+        Iterator<AirportSystem.Edge> iterator = c0.edges.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().destination.equals("C3")) {
+                iterator.remove();
+            }
+        }
+        assertEquals(3, airportSystem.shortestDistance("C0", "C3"));
+        airportSystem.connections.get(2).edges.clear();
+        assertEquals(Integer.MAX_VALUE, airportSystem.shortestDistance("C0", "C3"));
+    }
+
+    /**
+     * Tests that removing a vertex is seen by the next query, and that edges of a vertex shadowed by an
+     * earlier one with the same name are ignored.
+     */
+    @Test
+    public void testVertexRemovalAndShadowedVertex() {
+        AirportSystem airportSystem = chain(4);
+        assertEquals(2, airportSystem.shortestDistance("C0", "C2"));
+        airportSystem.connections.remove(1);
+        assertEquals(Integer.MAX_VALUE, airportSystem.shortestDistance("C0", "C2"));
+        airportSystem.addEdge("C0", "C2", 5);
+        assertEquals(5, airportSystem.shortestDistance("C0", "C2"));
+
+        AirportSystem.Vertex shadow = new AirportSystem.Vertex("C0");
+        airportSystem.connections.add(shadow);
+        shadow.edges.add(airportSystem.new Edge("C0", "C3", 1));
+        assertEquals(6, airportSystem.shortestDistance("C0", "C3"));
+    }
+}
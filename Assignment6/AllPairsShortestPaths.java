@@ -0,0 +1,202 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Computes the shortest distance between every pair of cities, either with a blocked Floyd-Warshall over a
+ * flat matrix or with Johnson's algorithm, and writes the result to a memory-mapped DistanceMatrix file.
+ *
+ * Floyd-Warshall works on BLOCK by BLOCK tiles. For each tile on the diagonal it updates that tile, then the
+ * tiles in its row and column in parallel, then every other tile in parallel, so each inner loop runs over
+ * memory that stays in cache. Johnson's algorithm is normally a Bellman-Ford reweighting followed by one
+ * Dijkstra per city. Flights never have negative distances, so the reweighting is skipped and the
+ * Dijkstras run in parallel, each writing its row straight into the file.
+ *
+ * @author Ryan Cesar Irizarry
+ */
+public class AllPairsShortestPaths {
+
+    //The side of a Floyd-Warshall tile. Three tiles of ints fit in a typical L2 cache.
+    static final int BLOCK = 64;
+
+    //Stands for an unreachable pair while Floyd-Warshall runs, small enough that adding two never overflows.
+    private static final int INF = Integer.MAX_VALUE / 2;
+
+    //The graph to search.
+    private final CompiledGraph graph;
+
+    //The pool that runs the parallel phases.
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructs an engine for the given graph.
+     *
+     * @param graph The graph to search.
+     * @param pool The pool that runs the parallel phases.
+     */
+    public AllPairsShortestPaths(CompiledGraph graph, ForkJoinPool pool) {
+        this.graph = graph;
+        this.pool = pool;
+    }
+
+    /**
+     * Picks the algorithm with the smaller estimated cost: about n^3 simple steps for Floyd-Warshall,
+     * against n Dijkstras of about (m + n) log n heap steps each, which cost several times more per step.
+     *
+     * @param graph The graph to search.
+     * @return FLOYD_WARSHALL for dense graphs, JOHNSON for sparse ones.
+     */
+    public static ApspAlgorithm choose(CompiledGraph graph) {
+        double n = graph.vertexCount();
+        double m = graph.edgeCount();
+        double log = Math.max(1, Math.log(n) / Math.log(2));
+        return n * n <= 8 * (m + n) * log ? ApspAlgorithm.FLOYD_WARSHALL : ApspAlgorithm.JOHNSON;
+    }
+
+    /**
+     * Computes every distance and writes the matrix to a file.
+     *
+     * @param file The file to write.
+     * @param algorithm The algorithm to use, or AUTO to choose by density.
+     * @return The matrix, mapped from the file.
+     * @throws IOException If the file cannot be written.
+     * @throws IllegalArgumentException If the graph has more than DistanceMatrix.MAX_CITIES cities or the
+     *                                  matrix file would not fit in one mapping.
+     */
+    public DistanceMatrix compute(Path file, ApspAlgorithm algorithm) throws IOException {
+        if (algorithm == ApspAlgorithm.AUTO) {
+            algorithm = choose(graph);
+        }
+        DistanceMatrix matrix = DistanceMatrix.create(file, graph);
+        if (algorithm == ApspAlgorithm.FLOYD_WARSHALL) {
+            matrix.putAll(floydWarshall());
+        } else {
+            int n = graph.vertexCount();
+            int threads = Math.max(1, pool.getParallelism());
+            int chunk = Math.max(1, (n + threads * 4 - 1) / (threads * 4));
+            run((n + chunk - 1) / chunk, block -> {
+                DijkstraEngine dijkstra = new DijkstraEngine(graph);
+                int[] row = new int[n];
+                for (int source = block * chunk; source < Math.min(n, (block + 1) * chunk); source++) {
+                    dijkstra.distancesFrom(source, row);
+                    matrix.putRow(source, row);
+                }
+            });
+        }
+        matrix.force();
+        return matrix;
+    }
+
+    /**
+     * Runs the blocked Floyd-Warshall algorithm.
+     *
+     * @return The distances in row order, n * n entries with Integer.MAX_VALUE for unreachable pairs.
+     * @throws IllegalArgumentException If the graph has more than DistanceMatrix.MAX_CITIES cities.
+     */
+    public int[] floydWarshall() {
+        int n = graph.vertexCount();
+        if (n > DistanceMatrix.MAX_CITIES) {
+            throw new IllegalArgumentException("A distance matrix holds at most " + DistanceMatrix.MAX_CITIES + " cities");
+        }
+        int[] d = new int[n * n];
+        Arrays.fill(d, INF);
+        for (int v = 0; v < n; v++) {
+            d[v * n + v] = 0;
+            for (int j = graph.offsets[v]; j < graph.offsets[v + 1]; j++) {
+                int cell = v * n + graph.targets[j];
+                d[cell] = Math.min(d[cell], graph.weights[j]);
+            }
+        }
+
+        int blocks = (n + BLOCK - 1) / BLOCK;
+        for (int kb = 0; kb < blocks; kb++) {
+            int k = kb;
+            relaxTile(d, n, k, k, k);
+            run(2 * blocks, task -> {
+                int other = task >> 1;
+                if (other != k) {
+                    if ((task & 1) == 0) {
+                        relaxTile(d, n, k, k, other);
+                    } else {
+                        relaxTile(d, n, k, other, k);
+                    }
+                }
+            });
+            run(blocks, ib -> {
+                if (ib != k) {
+                    for (int jb = 0; jb < blocks; jb++) {
+                        if (jb != k) {
+                            relaxTile(d, n, k, ib, jb);
+                        }
+                    }
+                }
+            });
+        }
+
+        for (int i = 0; i < d.length; i++) {
+            if (d[i] >= INF) {
+                d[i] = Integer.MAX_VALUE;
+            }
+        }
+        return d;
+    }
+
+    /**
+     * Relaxes the pairs in one tile through every intermediate city in one diagonal tile.
+     *
+     * @param d The distance matrix.
+     * @param n The number of cities.
+     * @param kb The tile index of the intermediate cities.
+     * @param ib The tile row.
+     * @param jb The tile column.
+     */
+    private static void relaxTile(int[] d, int n, int kb, int ib, int jb) {
+        int kEnd = Math.min(n, (kb + 1) * BLOCK);
+        int iEnd = Math.min(n, (ib + 1) * BLOCK);
+        int jStart = jb * BLOCK;
+        int jEnd = Math.min(n, jStart + BLOCK);
+        for (int k = kb * BLOCK; k < kEnd; k++) {
+            int kRow = k * n;
+            for (int i = ib * BLOCK; i < iEnd; i++) {
+                int iRow = i * n;
+                int throughK = d[iRow + k];
+                if (throughK >= INF) {
+                    continue;
+                }
+                for (int j = jStart; j < jEnd; j++) {
+                    int candidate = throughK + d[kRow + j];
+                    if (candidate < d[iRow + j]) {
+                        d[iRow + j] = candidate;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs one task per block on the pool and waits for all of them. A single block runs on the caller.
+     *
+     * @param blocks The number of blocks.
+     * @param task The task to run for each block number.
+     */
+    private void run(int blocks, IntConsumer task) {
+        if (blocks <= 1 || pool.getParallelism() <= 1) {
+            for (int b = 0; b < blocks; b++) {
+                task.accept(b);
+            }
+            return;
+        }
+        try {
+            pool.submit(() -> IntStream.range(0, blocks).parallel().forEach(task)).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted during all-pairs shortest paths", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,112 @@
+import org.junit.Test;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for the AllPairsShortestPaths and DistanceMatrix classes.
+ *
+ * @author Ryan Cesar Irizarry
+ */
+public class AllPairsShortestPathsTest {
+
+    /**
+     * Checks every entry of a matrix against one Dijkstra per source.
+     *
+     * @param matrix The matrix to check.
+     * @param graph The graph it was computed on.
+     * @return The number of unreachable pairs.
+     */
+    private static int checkAgainstDijkstra(DistanceMatrix matrix, CompiledGraph graph) {
+        int n = graph.vertexCount();
+        assertEquals(n, matrix.size());
+        assertTrue(matrix.matches(graph));
+        DijkstraEngine dijkstra = new DijkstraEngine(graph);
+        int[] row = new int[n];
+        int unreachable = 0;
+        for (int source = 0; source < n; source++) {
+            int[] expected = dijkstra.distancesFrom(source);
+            matrix.row(matrix.idOf(graph.nameOf(source)), row);
+            for (int target = 0; target < n; target++) {
+                assertEquals(graph.nameOf(source) + " to " + graph.nameOf(target), expected[target],
+                        matrix.distance(graph.nameOf(source), graph.nameOf(target)));
+                assertEquals(expected[target], row[matrix.idOf(graph.nameOf(target))]);
+                if (expected[target] == Integer.MAX_VALUE) {
+                    unreachable++;
+                }
+            }
+        }
+        return unreachable;
+    }
+
+    /**
+     * Tests every algorithm against Dijkstra on sizes that are not multiples of the block size, both on the
+     * returned matrix and on the file opened again.
+     *
+     * @throws IOException If a matrix file cannot be written or read.
+     */
+    @Test
+    public void testAlgorithmsMatchDijkstra() throws IOException {
+        int[] sizes = {1, 2, AllPairsShortestPaths.BLOCK - 1, AllPairsShortestPaths.BLOCK + 1,
+                2 * AllPairsShortestPaths.BLOCK + 7};
+        for (int n : sizes) {
+            AirportSystem airportSystem = TestGraphs.randomSystem(n, n - 1, 2 * n, 50, n);
+            CompiledGraph graph = airportSystem.compile();
+            for (ApspAlgorithm algorithm : ApspAlgorithm.values()) {
+                Path file = Files.createTempFile("apsp", ".bin");
+                try {
+                    DistanceMatrix matrix = airportSystem.allPairsShortestPaths(file, algorithm);
+                    int unreachable = checkAgainstDijkstra(matrix, graph);
+                    assertTrue(n == 1 || unreachable > 0);
+                    assertEquals(unreachable, checkAgainstDijkstra(DistanceMatrix.open(file), graph));
+                } finally {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Tests that floydWarshall returns the same flat matrix as one Dijkstra per source.
+     */
+    @Test
+    public void testFloydWarshallMatrix() {
+        int n = AllPairsShortestPaths.BLOCK + 3;
+        CompiledGraph graph = TestGraphs.randomSystem(n, n - 1, 3 * n, 50, 14).compile();
+        int[] d = new AllPairsShortestPaths(graph, ForkJoinPool.commonPool()).floydWarshall();
+        DijkstraEngine dijkstra = new DijkstraEngine(graph);
+        for (int source = 0; source < n; source++) {
+            int[] expected = dijkstra.distancesFrom(source);
+            for (int target = 0; target < n; target++) {
+                assertEquals(expected[target], d[source * n + target]);
+            }
+        }
+    }
+
+    /**
+     * Tests that a matrix file whose header claims more cities than it holds is rejected.
+     *
+     * @throws IOException If the file cannot be written.
+     */
+    @Test
+    public void testTruncatedFileRejected() throws IOException {
+        AirportSystem airportSystem = TestGraphs.randomSystem(10, 9, 20, 50, 3);
+        Path file = Files.createTempFile("apsp", ".bin");
+        try {
+            airportSystem.allPairsShortestPaths(file, ApspAlgorithm.JOHNSON);
+            byte[] bytes = Files.readAllBytes(file);
+            Files.write(file, Arrays.copyOf(bytes, bytes.length - 50));
+            try {
+                DistanceMatrix.open(file);
+                fail("A truncated file was opened");
+            } catch (IOException e) {
+                assertTrue(e.getMessage().contains("distance matrix"));
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
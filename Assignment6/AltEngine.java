@@ -0,0 +1,74 @@
+/**
+ * Point-to-point A* search that uses landmark distances as lower bounds (the ALT method). The bounds
+ * are consistent, so the search can stop as soon as the target is settled, and vertices that lead away
+ * from the target are settled late or not at all.
+ *
+ * @author Ryan Cesar Irizarry
+ */
+public class AltEngine {
+
+    //The landmark tables, which also hold the graph to search.
+    private final LandmarkIndex landmarks;
+
+    /**
+     * Constructs an engine that searches the graph of the given landmark index.
+     *
+     * @param landmarks The landmark tables.
+     */
+    public AltEngine(LandmarkIndex landmarks) {
+        this.landmarks = landmarks;
+    }
+
+    /**
+     * Returns the landmark tables this engine uses.
+     *
+     * @return The landmark index.
+     */
+    public LandmarkIndex landmarks() {
+        return landmarks;
+    }
+
+    /**
+     * Returns the shortest distance between two vertices.
+     *
+     * @param source The id of the starting vertex.
+     * @param target The id of the destination vertex.
+     * @return The shortest distance, or Integer.MAX_VALUE if the target cannot be reached.
+     */
+    public int distance(int source, int target) {
+        CompiledGraph graph = landmarks.graph();
+        SearchScratch scratch = SearchScratch.current(graph.vertexCount());
+        IndexedMinHeap heap = scratch.heap;
+
+        scratch.relax(source, 0, landmarks.lowerBound(source, target));
+        while (!heap.isEmpty()) {
+            int curVertex = heap.poll();
+            scratch.settle(curVertex);
+            int curDistance = scratch.dist[curVertex];
+            if (curVertex == target) {
+                return curDistance;
+            }
+
+            for (int j = graph.offsets[curVertex]; j < graph.offsets[curVertex + 1]; j++) {
+                int destination = graph.targets[j];
+                if (scratch.isSettled(destination)) {
+                    continue;
+                }
+                int newDistance = curDistance + graph.weights[j];
+                if (newDistance < scratch.distance(destination)) {
+                    scratch.relax(destination, newDistance, newDistance + landmarks.lowerBound(destination, target));
+                }
+            }
+        }
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * Returns the number of vertices settled by the calling thread's last query.
+     *
+     * @return The settled vertex count.
+     */
+    public int lastSettledCount() {
+        return SearchScratch.lastSettledCount();
+    }
+}
@@ -0,0 +1,75 @@
+import org.junit.Test;
+import java.util.Arrays;
+import java.util.List;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for the ALT routing mode of AirportSystem and its landmark cities.
+ *
+ * @author Ryan Cesar Irizarry
+ */
+public class AltEngineTest {
+
+    /**
+     * Builds a system with the cities A, B, C and D and flights A to B (4), A to C (1), C to B (1) and
+     * B to D (2).
+     *
+     * @return The system.
+     */
+    private static AirportSystem smallSystem() {
+        AirportSystem airportSystem = new AirportSystem();
+        for (String city : new String[] {"A", "B", "C", "D"}) {
+            airportSystem.connections.add(new AirportSystem.Vertex(city));
+        }
+        airportSystem.addEdge("A", "B", 4);
+        airportSystem.addEdge("A", "C", 1);
+        airportSystem.addEdge("C", "B", 1);
+        airportSystem.addEdge("B", "D", 2);
+        return airportSystem;
+    }
+
+    /**
+     * Tests that a landmark city removed from connections is dropped instead of breaking the landmark
+     * tables, and that the remaining landmarks still give the right distances.
+     */
+    @Test
+    public void testRemovedLandmarkIsDropped() {
+        AirportSystem airportSystem = smallSystem();
+        airportSystem.setLandmarks(Arrays.asList("C", "D"));
+        assertEquals(2, airportSystem.shortestDistance("A", "B", RoutingMode.ALT));
+        airportSystem.connections.remove(2);
+        assertEquals(4, airportSystem.shortestDistance("A", "B", RoutingMode.ALT));
+        for (String from : new String[] {"A", "B", "D"}) {
+            for (String to : new String[] {"A", "B", "D"}) {
+                assertEquals(from + " to " + to, airportSystem.shortestDistance(from, to),
+                        airportSystem.shortestDistance(from, to, RoutingMode.ALT));
+            }
+        }
+    }
+
+    /**
+     * Tests that the ALT mode reports a clear error once every landmark city has been removed, and
+     * before any landmarks are set.
+     */
+    @Test
+    public void testNoLandmarksLeft() {
+        AirportSystem airportSystem = smallSystem();
+        try {
+            airportSystem.shortestDistance("A", "B", RoutingMode.ALT);
+            fail("The ALT mode ran without landmarks");
+        } catch (IllegalStateException e) {
+            assertNotNull(e.getMessage());
+        }
+        airportSystem.setLandmarks(List.of("C"));
+        airportSystem.connections.remove(2);
+        airportSystem.addEdge("A", "D", 9);
+        try {
+            airportSystem.shortestDistance("A", "D", RoutingMode.ALT);
+            fail("The ALT mode ran after its only landmark was removed");
+        } catch (IllegalStateException e) {
+            assertNotNull(e.getMessage());
+        }
+        airportSystem.setLandmarks(List.of("D"));
+        assertEquals(6, airportSystem.shortestDistance("A", "D", RoutingMode.ALT));
+    }
+}
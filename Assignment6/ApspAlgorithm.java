@@ -0,0 +1,17 @@
+/**
+ * The algorithms AirportSystem can use to compute all-pairs shortest distances.
+ *
+ * @author Ryan Cesar Irizarry
+ */
+public enum ApspAlgorithm {
+
+    //Picks Floyd-Warshall for dense graphs and Johnson for sparse ones, by comparing their operation counts.
+    AUTO,
+
+    //Floyd-Warshall over a flat matrix, processed in cache-sized blocks with each phase spread over threads.
+    FLOYD_WARSHALL,
+
+    //Johnson's algorithm: one Dijkstra per source city, run in parallel. No reweighting pass is needed
+    //because flights never have negative distances.
+    JOHNSON
+}
@@ -0,0 +1,54 @@
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures how the throughput of BatchShortestPaths scales with the number of worker threads, on the
+ * same generated grid network as RoutingBenchmark.
+ *
+ * Usage: java BatchBenchmark [gridSide] [sources]
+ *
+ * @author Ryan Cesar Irizarry
+ */
+public class BatchBenchmark {
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args Command-line arguments: grid side and number of source cities.
+     */
+    public static void main(String[] args) {
+        int side = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int sourceCount = args.length > 1 ? Integer.parseInt(args[1]) : 256;
+
+        Random random = new Random(42);
+        CompiledGraph graph = RoutingBenchmark.buildGrid(side, random).compile();
+        BatchShortestPaths batch = new BatchShortestPaths(graph);
+        int[] sources = new int[sourceCount];
+        for (int i = 0; i < sourceCount; i++) {
+            sources[i] = random.nextInt(graph.vertexCount());
+        }
+        System.out.println("Cities: " + graph.vertexCount() + ", flights: " + graph.edgeCount()
+                + ", sources: " + sourceCount);
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        double baseline = 0;
+        for (int threads = 1; threads <= cores; threads *= 2) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            AtomicLong checksum = new AtomicLong();
+            //warm up once, then time a second run
+            batch.stream(sources, (i, row) -> checksum.addAndGet(row[0]), null, pool);
+            long start = System.nanoTime();
+            batch.stream(sources, (i, row) -> checksum.addAndGet(row[0]), null, pool);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            pool.shutdown();
+
+            double rowsPerSecond = sourceCount / seconds;
+            if (threads == 1) {
+                baseline = rowsPerSecond;
+            }
+            System.out.printf("%3d threads: %10.1f rows/s, speedup %.2fx%n", threads, rowsPerSecond,
+                    rowsPerSecond / baseline);
+        }
+    }
+}
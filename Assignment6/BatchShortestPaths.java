@@ -0,0 +1,136 @@
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+/**
+ * Computes shortest distances from many source cities at once. Each source gets its own one-to-all
+ * Dijkstra, and the sources are spread over the threads of a ForkJoinPool. Every worker thread keeps its
+ * own search scratch space and row buffer, so the workers share nothing but the read-only graph.
+ *
+ * @author Ryan Cesar Irizarry
+ */
+public class BatchShortestPaths {
+
+    /**
+     * Receives the rows of a distance matrix as they are computed. Rows arrive from several worker threads
+     * at once and in no particular order.
+     */
+    public interface RowConsumer {
+
+        /**
+         * Accepts one row of the matrix. The array belongs to the worker thread and is reused for its next
+         * row, so it must be copied if it is needed after this call returns.
+         *
+         * @param sourceIndex The position of the source in the list of sources.
+         * @param distances The distance from the source to each city id, with Integer.MAX_VALUE for cities
+         *                  that cannot be reached.
+         */
+        void accept(int sourceIndex, int[] distances);
+    }
+
+    /**
+     * Receives progress reports and can cancel a batch.
+     */
+    public interface ProgressListener {
+
+        /**
+         * Called after each row is finished, from the worker thread that finished it.
+         *
+         * @param completed The number of rows finished so far.
+         * @param total The number of rows in the batch.
+         * @return True to keep going, false to cancel the rest of the batch.
+         */
+        boolean progress(int completed, int total);
+    }
+
+    //The graph to search.
+    private final CompiledGraph graph;
+
+    //The single-source engine shared by the workers. It keeps no state of its own.
+    private final DijkstraEngine engine;
+
+    /**
+     * Constructs a batch engine for the given graph.
+     *
+     * @param graph The graph to search.
+     */
+    public BatchShortestPaths(CompiledGraph graph) {
+        this.graph = graph;
+        this.engine = new DijkstraEngine(graph);
+    }
+
+    /**
+     * Returns the graph this engine searches.
+     *
+     * @return The compiled graph.
+     */
+    public CompiledGraph graph() {
+        return graph;
+    }
+
+    /**
+     * Computes the dense distance matrix for the given sources using all available cores.
+     *
+     * @param sources The ids of the source cities.
+     * @return A matrix whose row i holds the distances from sources[i] to each city id.
+     */
+    public int[][] matrix(int[] sources) {
+        int[][] matrix = new int[sources.length][];
+        stream(sources, (sourceIndex, distances) -> matrix[sourceIndex] = distances.clone(), null,
+                ForkJoinPool.commonPool());
+        return matrix;
+    }
+
+    /**
+     * Computes the distance rows for the given sources and hands each to the consumer as soon as it is
+     * ready. This avoids holding the whole matrix in memory.
+     *
+     * @param sources The ids of the source cities.
+     * @param consumer Receives each row.
+     * @param listener Receives progress reports and can cancel the batch, or null.
+     * @param pool The pool to run the searches on.
+     * @throws CancellationException If the listener cancelled the batch.
+     */
+    public void stream(int[] sources, RowConsumer consumer, ProgressListener listener, ForkJoinPool pool) {
+        int n = graph.vertexCount();
+        for (int source : sources) {
+            if (source < 0 || source >= n) {
+                throw new IllegalArgumentException("Unknown source id: " + source);
+            }
+        }
+        AtomicInteger completed = new AtomicInteger();
+        AtomicBoolean cancelled = new AtomicBoolean();
+        ThreadLocal<int[]> rows = ThreadLocal.withInitial(() -> new int[n]);
+
+        try {
+            pool.submit(() -> IntStream.range(0, sources.length).parallel().forEach(i -> {
+                if (cancelled.get()) {
+                    return;
+                }
+                int[] row = rows.get();
+                engine.distancesFrom(sources[i], row);
+                consumer.accept(i, row);
+                int done = completed.incrementAndGet();
+                if (listener != null && !listener.progress(done, sources.length)) {
+                    cancelled.set(true);
+                }
+            })).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while computing distances");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+        if (cancelled.get()) {
+            throw new CancellationException("Batch cancelled after " + completed.get() + " of "
+                    + sources.length + " rows");
+        }
+    }
+}
@@ -0,0 +1,143 @@
+import org.junit.Test;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for the BatchShortestPaths class and the distanceMatrix methods of AirportSystem.
+ *
+ * @author Ryan Cesar Irizarry
+ */
+public class BatchShortestPathsTest {
+
+    /**
+     * Picks random source ids, with repeats.
+     *
+     * @param count The number of sources.
+     * @param cities The number of cities.
+     * @param random The source of ids.
+     * @return The source ids.
+     */
+    private static int[] randomSources(int count, int cities, Random random) {
+        int[] sources = new int[count];
+        for (int i = 0; i < count; i++) {
+            sources[i] = random.nextInt(cities);
+        }
+        return sources;
+    }
+
+    /**
+     * Tests that each row of the matrix, and of the matrix AirportSystem returns for city names, equals a
+     * one-to-all Dijkstra from its source, and that an unknown source city is rejected.
+     */
+    @Test
+    public void testMatrixMatchesDijkstra() {
+        for (int round = 0; round < 3; round++) {
+            int cities = 50 + 100 * round;
+            AirportSystem airportSystem = TestGraphs.randomSystem(cities, 3 * cities, round);
+            CompiledGraph graph = airportSystem.compile();
+            DijkstraEngine dijkstra = new DijkstraEngine(graph);
+            int[] sources = randomSources(40, cities, new Random(round));
+            int[][] matrix = new BatchShortestPaths(graph).matrix(sources);
+            List<String> names = new ArrayList<>();
+            for (int source : sources) {
+                names.add(graph.nameOf(source));
+            }
+            int[][] named = airportSystem.distanceMatrix(names);
+            assertEquals(sources.length, matrix.length);
+            assertEquals(sources.length, named.length);
+            for (int i = 0; i < sources.length; i++) {
+                int[] expected = dijkstra.distancesFrom(sources[i]);
+                assertArrayEquals("row " + i, expected, matrix[i]);
+                assertArrayEquals("row " + i, expected, named[i]);
+            }
+        }
+        AirportSystem airportSystem = TestGraphs.randomSystem(10, 20, 5);
+        try {
+            airportSystem.distanceMatrix(Arrays.asList("C1", "Nowhere"));
+            fail("An unknown source city was accepted");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("Nowhere"));
+        }
+    }
+
+    /**
+     * Tests that streaming on a pool of several threads hands every row to the consumer exactly once,
+     * with the right distances, and reports each count from 1 to the number of rows exactly once.
+     */
+    @Test
+    public void testStreamDeliversEveryRowOnce() {
+        AirportSystem airportSystem = TestGraphs.randomSystem(200, 600, 11);
+        CompiledGraph graph = airportSystem.compile();
+        int[] sources = randomSources(300, 200, new Random(12));
+        AtomicIntegerArray deliveries = new AtomicIntegerArray(sources.length);
+        int[][] rows = new int[sources.length][];
+        AtomicIntegerArray reports = new AtomicIntegerArray(sources.length + 1);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            new BatchShortestPaths(graph).stream(sources, (sourceIndex, distances) -> {
+                deliveries.incrementAndGet(sourceIndex);
+                rows[sourceIndex] = distances.clone();
+            }, (completed, total) -> {
+                assertEquals(sources.length, total);
+                reports.incrementAndGet(completed);
+                return true;
+            }, pool);
+        } finally {
+            pool.shutdown();
+        }
+        DijkstraEngine dijkstra = new DijkstraEngine(graph);
+        for (int i = 0; i < sources.length; i++) {
+            assertEquals("row " + i, 1, deliveries.get(i));
+            assertArrayEquals("row " + i, dijkstra.distancesFrom(sources[i]), rows[i]);
+            assertEquals("count " + (i + 1), 1, reports.get(i + 1));
+        }
+        assertEquals(0, reports.get(0));
+    }
+
+    /**
+     * Tests that a listener that cancels the batch stops the remaining rows from being computed, that the
+     * batch ends with a CancellationException, and that every row handed to the consumer was reported to
+     * the listener exactly once.
+     */
+    @Test
+    public void testCancellingListenerStopsBatch() {
+        AirportSystem airportSystem = TestGraphs.randomSystem(300, 900, 13);
+        int[] sources = randomSources(2000, 300, new Random(14));
+        List<String> names = new ArrayList<>();
+        for (int source : sources) {
+            names.add("C" + source);
+        }
+        AtomicIntegerArray deliveries = new AtomicIntegerArray(sources.length);
+        ConcurrentHashMap<Integer, Integer> reports = new ConcurrentHashMap<>();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            airportSystem.distanceMatrix(names, (sourceIndex, distances) -> deliveries.incrementAndGet(sourceIndex),
+                    (completed, total) -> {
+                        reports.merge(completed, 1, Integer::sum);
+                        return completed < 20;
+                    }, pool);
+            fail("The batch finished after the listener cancelled it");
+        } catch (CancellationException e) {
+            assertNotNull(e.getMessage());
+        } finally {
+            pool.shutdown();
+        }
+        int delivered = 0;
+        for (int i = 0; i < sources.length; i++) {
+            assertTrue(deliveries.get(i) <= 1);
+            delivered += deliveries.get(i);
+        }
+        assertTrue(delivered + " rows delivered", delivered >= 20 && delivered < sources.length / 2);
+        assertEquals(delivered, reports.size());
+        for (int count = 1; count <= delivered; count++) {
+            assertEquals(Integer.valueOf(1), reports.get(count));
+        }
+    }
+}
@@ -0,0 +1,295 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Breadth-first search over a compiled graph. Visited cities are tracked in a long[] bitset and each
+ * level is an int range of the visit order. The parallel mode is direction-optimizing in the style of
+ * Beamer et al.: small frontiers expand top-down along outgoing edges, and once the frontier covers a
+ * large share of the edges, each unvisited city instead looks for a parent among its incoming edges.
+ *
+ * @author Ryan Cesar Irizarry
+ */
+public class BfsEngine {
+
+    //Switch to bottom-up once the frontier's edges exceed the unexplored edges divided by this.
+    private static final int ALPHA = 14;
+
+    //Switch back to top-down once the frontier has fewer cities than the graph divided by this.
+    private static final int BETA = 24;
+
+    //The number of cities each parallel task handles. A multiple of 64 so tasks own whole bitset words.
+    private static final int BLOCK = 1024;
+
+    //Gives atomic access to the elements of a long array.
+    private static final VarHandle LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    /**
+     * The outcome of a breadth-first search.
+     */
+    public static class Result {
+
+        //The visited city ids in the order they were reached, one level after another.
+        public final int[] order;
+
+        //The number of hops from the start to each city, or -1 if it was not reached.
+        public final int[] hops;
+
+        //The city each city was reached from, or -1 for the start and for cities not reached.
+        public final int[] parent;
+
+        //The number of levels that were expanded bottom-up.
+        public final int bottomUpLevels;
+
+        /**
+         * Constructs a result.
+         *
+         * @param order The visit order.
+         * @param hops The hop distance of each city.
+         * @param parent The parent of each city.
+         * @param bottomUpLevels The number of levels expanded bottom-up.
+         */
+        Result(int[] order, int[] hops, int[] parent, int bottomUpLevels) {
+            this.order = order;
+            this.hops = hops;
+            this.parent = parent;
+            this.bottomUpLevels = bottomUpLevels;
+        }
+    }
+
+    //The graph to search.
+    private final CompiledGraph graph;
+
+    /**
+     * Constructs an engine for the given graph.
+     *
+     * @param graph The graph to search.
+     */
+    public BfsEngine(CompiledGraph graph) {
+        this.graph = graph;
+    }
+
+    /**
+     * Returns the graph this engine searches.
+     *
+     * @return The compiled graph.
+     */
+    public CompiledGraph graph() {
+        return graph;
+    }
+
+    /**
+     * Runs a sequential top-down search. Cities are visited in exactly the order a queue-based search
+     * following each city's edges in list order would visit them.
+     *
+     * @param source The id of the starting city.
+     * @return The search result.
+     */
+    public Result sequential(int source) {
+        int n = graph.vertexCount();
+        long[] visited = new long[(n + 63) >>> 6];
+        int[] order = new int[n];
+        int[] hops = new int[n];
+        int[] parent = new int[n];
+        Arrays.fill(hops, -1);
+        Arrays.fill(parent, -1);
+
+        int head = 0;
+        int tail = 0;
+        order[tail++] = source;
+        visited[source >>> 6] |= 1L << source;
+        hops[source] = 0;
+        while (head < tail) {
+            int u = order[head++];
+            for (int j = graph.offsets[u]; j < graph.offsets[u + 1]; j++) {
+                int v = graph.targets[j];
+                if ((visited[v >>> 6] & (1L << v)) == 0) {
+                    visited[v >>> 6] |= 1L << v;
+                    hops[v] = hops[u] + 1;
+                    parent[v] = u;
+                    order[tail++] = v;
+                }
+            }
+        }
+        return new Result(Arrays.copyOf(order, tail), hops, parent, 0);
+    }
+
+    /**
+     * Runs a parallel direction-optimizing search on the given pool. Every level is the same as in the
+     * sequential search, but the order of cities within a level and the choice between equally near
+     * parents may differ.
+     *
+     * @param source The id of the starting city.
+     * @param pool The pool to run the levels on.
+     * @return The search result.
+     */
+    public Result directionOptimizing(int source, ForkJoinPool pool) {
+        int n = graph.vertexCount();
+        CompiledGraph reverse = graph.reverse();
+        long[] visited = new long[(n + 63) >>> 6];
+        long[] frontierBits = new long[visited.length];
+        int[] order = new int[n];
+        int[] hops = new int[n];
+        int[] parent = new int[n];
+        Arrays.fill(hops, -1);
+        Arrays.fill(parent, -1);
+
+        order[0] = source;
+        visited[source >>> 6] |= 1L << source;
+        hops[source] = 0;
+        int start = 0;
+        int end = 1;
+        int level = 0;
+        long unexploredEdges = graph.edgeCount();
+        boolean bottomUp = false;
+        int bottomUpLevels = 0;
+
+        while (start < end) {
+            long frontierEdges = 0;
+            for (int i = start; i < end; i++) {
+                frontierEdges += graph.offsets[order[i] + 1] - graph.offsets[order[i]];
+            }
+            if (!bottomUp && frontierEdges > unexploredEdges / ALPHA) {
+                bottomUp = true;
+            } else if (bottomUp && end - start < n / BETA) {
+                bottomUp = false;
+            }
+            unexploredEdges -= frontierEdges;
+
+            IntList[] found;
+            if (bottomUp) {
+                Arrays.fill(frontierBits, 0);
+                for (int i = start; i < end; i++) {
+                    frontierBits[order[i] >>> 6] |= 1L << order[i];
+                }
+                found = bottomUpStep(reverse, visited, frontierBits, hops, parent, level, pool);
+                bottomUpLevels++;
+            } else {
+                found = topDownStep(order, start, end, visited, hops, parent, level, pool);
+            }
+
+            int next = end;
+            for (IntList list : found) {
+                if (list != null) {
+                    System.arraycopy(list.items, 0, order, next, list.size);
+                    next += list.size;
+                }
+            }
+            start = end;
+            end = next;
+            level++;
+        }
+        return new Result(Arrays.copyOf(order, end), hops, parent, bottomUpLevels);
+    }
+
+    /**
+     * Expands a level along outgoing edges. Each task claims newly reached cities by setting their bit
+     * with compare-and-set, so every city gets exactly one parent.
+     *
+     * @return The cities reached by each task.
+     */
+    private IntList[] topDownStep(int[] order, int start, int end, long[] visited, int[] hops, int[] parent,
+                                  int level, ForkJoinPool pool) {
+        int blocks = (end - start + BLOCK - 1) / BLOCK;
+        IntList[] found = new IntList[blocks];
+        run(pool, blocks, b -> {
+            IntList local = new IntList();
+            int blockEnd = Math.min(end, start + (b + 1) * BLOCK);
+            for (int i = start + b * BLOCK; i < blockEnd; i++) {
+                int u = order[i];
+                for (int j = graph.offsets[u]; j < graph.offsets[u + 1]; j++) {
+                    int v = graph.targets[j];
+                    if (claim(visited, v)) {
+                        hops[v] = level + 1;
+                        parent[v] = u;
+                        local.add(v);
+                    }
+                }
+            }
+            found[b] = local;
+        });
+        return found;
+    }
+
+    /**
+     * Expands a level by having every unvisited city look for a parent in the frontier among its incoming
+     * edges. Each task owns a whole range of bitset words, so no atomic updates are needed.
+     *
+     * @return The cities reached by each task, in id order.
+     */
+    private IntList[] bottomUpStep(CompiledGraph reverse, long[] visited, long[] frontierBits, int[] hops,
+                                   int[] parent, int level, ForkJoinPool pool) {
+        int n = graph.vertexCount();
+        int blocks = (n + BLOCK - 1) / BLOCK;
+        IntList[] found = new IntList[blocks];
+        run(pool, blocks, b -> {
+            IntList local = new IntList();
+            int blockEnd = Math.min(n, (b + 1) * BLOCK);
+            for (int v = b * BLOCK; v < blockEnd; v++) {
+                if ((visited[v >>> 6] & (1L << v)) != 0) {
+                    continue;
+                }
+                for (int j = reverse.offsets[v]; j < reverse.offsets[v + 1]; j++) {
+                    int u = reverse.targets[j];
+                    if ((frontierBits[u >>> 6] & (1L << u)) != 0) {
+                        visited[v >>> 6] |= 1L << v;
+                        hops[v] = level + 1;
+                        parent[v] = u;
+                        local.add(v);
+                        break;
+                    }
+                }
+            }
+            found[b] = local;
+        });
+        return found;
+    }
+
+    /**
+     * Sets the bit of a city if it is not set yet.
+     *
+     * @param visited The bitset.
+     * @param v The city id.
+     * @return True if this call set the bit, false if it was already set.
+     */
+    private static boolean claim(long[] visited, int v) {
+        int word = v >>> 6;
+        long bit = 1L << v;
+        long current = (long) LONGS.getVolatile(visited, word);
+        while ((current & bit) == 0) {
+            if (LONGS.compareAndSet(visited, word, current, current | bit)) {
+                return true;
+            }
+            current = (long) LONGS.getVolatile(visited, word);
+        }
+        return false;
+    }
+
+    /**
+     * Runs one task per block on the pool and waits for all of them. A single block runs on the caller.
+     *
+     * @param pool The pool.
+     * @param blocks The number of blocks.
+     * @param task The task to run for each block number.
+     */
+    private static void run(ForkJoinPool pool, int blocks, IntConsumer task) {
+        if (blocks <= 1) {
+            for (int b = 0; b < blocks; b++) {
+                task.accept(b);
+            }
+            return;
+        }
+        try {
+            pool.submit(() -> IntStream.range(0, blocks).parallel().forEach(task)).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted during breadth-first search", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,129 @@
+import org.junit.Test;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for the BfsEngine class and the breadth-first searches of AirportSystem.
+ *
+ * @author Ryan Cesar Irizarry
+ */
+public class BfsEngineTest {
+
+    /**
+     * Checks a direction-optimizing result against a sequential one: the same hop counts, a parent for
+     * every reached city that has a flight to it and is one hop closer, and a visit order that holds each
+     * reached city once, level by level.
+     *
+     * @param graph The graph that was searched.
+     * @param source The starting city.
+     * @param expected The sequential result.
+     * @param actual The direction-optimizing result.
+     */
+    private static void checkResult(CompiledGraph graph, int source, BfsEngine.Result expected,
+                                    BfsEngine.Result actual) {
+        int n = graph.vertexCount();
+        assertTrue(Arrays.equals(expected.hops, actual.hops));
+        assertEquals(-1, actual.parent[source]);
+        for (int v = 0; v < n; v++) {
+            int p = actual.parent[v];
+            if (v == source || actual.hops[v] < 0) {
+                assertEquals("city " + v, -1, p);
+                continue;
+            }
+            assertEquals("city " + v, actual.hops[v], actual.hops[p] + 1);
+            boolean edge = false;
+            for (int j = graph.offsets[p]; j < graph.offsets[p + 1] && !edge; j++) {
+                edge = graph.targets[j] == v;
+            }
+            assertTrue("no flight from parent " + p + " to " + v, edge);
+        }
+        assertEquals(expected.order.length, actual.order.length);
+        assertEquals(source, actual.order[0]);
+        boolean[] seen = new boolean[n];
+        for (int i = 0; i < actual.order.length; i++) {
+            int v = actual.order[i];
+            assertFalse("city " + v + " visited twice", seen[v]);
+            seen[v] = true;
+            assertTrue(actual.hops[v] >= 0);
+            if (i > 0) {
+                assertTrue("order is not level by level at " + i,
+                        actual.hops[actual.order[i - 1]] <= actual.hops[v]);
+            }
+        }
+    }
+
+    /**
+     * Tests the direction-optimizing search against the sequential one on random graphs dense enough that
+     * the middle levels are expanded bottom-up, from several sources, on a pool of several threads.
+     */
+    @Test
+    public void testDirectionOptimizingMatchesSequential() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int round = 0; round < 2; round++) {
+                int cities = 20000 + 10000 * round;
+                CompiledGraph graph = TestGraphs.randomSystem(cities, cities - cities / 20, 8 * cities, 1, round)
+                        .compile();
+                BfsEngine engine = new BfsEngine(graph);
+                Random random = new Random(round);
+                for (int query = 0; query < 3; query++) {
+                    int source = random.nextInt(cities - cities / 20);
+                    BfsEngine.Result expected = engine.sequential(source);
+                    BfsEngine.Result actual = engine.directionOptimizing(source, pool);
+                    assertTrue("round " + round + " never went bottom-up", actual.bottomUpLevels > 0);
+                    checkResult(graph, source, expected, actual);
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Tests the direction-optimizing search on a long chain, where the frontier is a single city, from
+     * its start, its middle and its last city.
+     */
+    @Test
+    public void testChain() {
+        AirportSystem chain = new AirportSystem();
+        for (int i = 0; i < 3000; i++) {
+            chain.connections.add(new AirportSystem.Vertex("C" + i));
+        }
+        for (int i = 0; i + 1 < 3000; i++) {
+            chain.addEdge("C" + i, "C" + (i + 1), 1);
+        }
+        CompiledGraph graph = chain.compile();
+        BfsEngine engine = new BfsEngine(graph);
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            for (int source : new int[] {0, 1500, 2999}) {
+                BfsEngine.Result actual = engine.directionOptimizing(source, pool);
+                checkResult(graph, source, engine.sequential(source), actual);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Tests the breadth-first searches of AirportSystem, including a start city that is not in it.
+     */
+    @Test
+    public void testAirportSystemSearches() {
+        AirportSystem airportSystem = TestGraphs.randomSystem(200, 600, 5);
+        CompiledGraph graph = airportSystem.compile();
+        List<String> order = airportSystem.breadthFirstSearch("C3");
+        BfsEngine.Result tree = airportSystem.breadthFirstSearchTree("C3");
+        assertEquals(order.size(), tree.order.length);
+        assertEquals("C3", order.get(0));
+        for (int i = 0; i < order.size(); i++) {
+            assertTrue(tree.hops[graph.idOf(order.get(i))] >= 0);
+        }
+        checkResult(graph, graph.idOf("C3"), new BfsEngine(graph).sequential(graph.idOf("C3")), tree);
+        assertNull(airportSystem.breadthFirstSearch("Nowhere"));
+        assertNull(airportSystem.breadthFirstSearchTree("Nowhere"));
+    }
+}
@@ -0,0 +1,103 @@
+/**
+ * Point-to-point Dijkstra that searches forward from the source and backward from the target at the
+ * same time, stopping once the two frontiers together cannot improve on the best meeting point found.
+ *
+ * @author Ryan Cesar Irizarry
+ */
+public class BidirectionalDijkstra {
+
+    //The graph to search.
+    private final CompiledGraph graph;
+
+    //The graph with every edge reversed, used by the backward search.
+    private final CompiledGraph reverse;
+
+    /**
+     * Constructs an engine for the given graph.
+     *
+     * @param graph The graph to search.
+     */
+    public BidirectionalDijkstra(CompiledGraph graph) {
+        this.graph = graph;
+        this.reverse = graph.reverse();
+    }
+
+    /**
+     * Returns the graph this engine searches.
+     *
+     * @return The compiled graph.
+     */
+    public CompiledGraph graph() {
+        return graph;
+    }
+
+    /**
+     * Returns the shortest distance between two vertices.
+     *
+     * @param source The id of the starting vertex.
+     * @param target The id of the destination vertex.
+     * @return The shortest distance, or Integer.MAX_VALUE if the target cannot be reached.
+     */
+    public int distance(int source, int target) {
+        if (source == target) {
+            SearchScratch.current(graph.vertexCount()).settle(source);
+            return 0;
+        }
+        SearchScratch forward = SearchScratch.current(0, graph.vertexCount());
+        SearchScratch backward = SearchScratch.current(1, graph.vertexCount());
+        forward.relax(source, 0);
+        backward.relax(target, 0);
+
+        //the length of the best route found so far through a vertex reached by both searches
+        long best = Long.MAX_VALUE;
+        while (!forward.heap.isEmpty() && !backward.heap.isEmpty()) {
+            if ((long) forward.heap.minKey() + backward.heap.minKey() >= best) {
+                break;
+            }
+            if (forward.heap.size() <= backward.heap.size()) {
+                best = step(graph, forward, backward, best);
+            } else {
+                best = step(reverse, backward, forward, best);
+            }
+        }
+        return best == Long.MAX_VALUE ? Integer.MAX_VALUE : (int) best;
+    }
+
+    /**
+     * Settles the closest queued vertex of one search and relaxes its edges.
+     *
+     * @param g The graph the search runs on.
+     * @param self The scratch space of the search being advanced.
+     * @param other The scratch space of the opposite search.
+     * @param best The best route length found so far.
+     * @return The best route length after this step.
+     */
+    private static long step(CompiledGraph g, SearchScratch self, SearchScratch other, long best) {
+        int curVertex = self.heap.poll();
+        self.settle(curVertex);
+        int curDistance = self.dist[curVertex];
+
+        for (int j = g.offsets[curVertex]; j < g.offsets[curVertex + 1]; j++) {
+            int destination = g.targets[j];
+            if (self.isSettled(destination)) {
+                continue;
+            }
+            int newDistance = curDistance + g.weights[j];
+            self.relax(destination, newDistance);
+            int otherDistance = other.distance(destination);
+            if (otherDistance != Integer.MAX_VALUE && (long) newDistance + otherDistance < best) {
+                best = (long) newDistance + otherDistance;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Returns the number of vertices settled by the calling thread's last query, over both directions.
+     *
+     * @return The settled vertex count.
+     */
+    public int lastSettledCount() {
+        return SearchScratch.lastSettledCount();
+    }
+}
@@ -0,0 +1,227 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A read-optimized form of an AirportSystem graph. City ids are interned to dense ints and the
+ * flights leaving each city are packed into compressed sparse row (CSR) arrays.
+ *
+ * @author Ryan Cesar Irizarry
+ */
+public class CompiledGraph {
+
+    //The city name for each interned id.
+    final String[] names;
+
+    //Maps a city name to its interned id.
+    final Map<String, Integer> ids;
+
+    //The outgoing edges of city v are stored at positions offsets[v] to offsets[v + 1] - 1.
+    final int[] offsets;
+
+    //The destination id of each edge.
+    final int[] targets;
+
+    //The distance of each edge.
+    final int[] weights;
+
+    //The number of vertices in the connections list this graph was compiled from.
+    final int sourceVertexCount;
+
+    //The same graph with every edge reversed, built the first time it is needed.
+    private volatile CompiledGraph reverse;
+
+    /**
+     * Constructs a compiled graph from already packed arrays.
+     *
+     * @param names The city name for each id.
+     * @param ids The id of each city name.
+     * @param offsets The CSR offset array, of length vertexCount + 1.
+     * @param targets The destination id of each edge.
+     * @param weights The distance of each edge.
+     * @param sourceVertexCount The size of the connections list this graph was built from.
+     */
+    CompiledGraph(String[] names, Map<String, Integer> ids, int[] offsets, int[] targets, int[] weights,
+                  int sourceVertexCount) {
+        this.names = names;
+        this.ids = ids;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.sourceVertexCount = sourceVertexCount;
+    }
+
+    /**
+     * Compiles a list of vertices into CSR form. Ids are assigned in list order. If a city appears more
+     * than once only the first vertex is used, and edges to cities that are not in the list are dropped,
+     * which matches how findVertex resolves them.
+     *
+     * @param vertices The vertices of the airport system.
+     * @return The compiled graph.
+     */
+    static CompiledGraph compile(List<AirportSystem.Vertex> vertices) {
+        Map<String, Integer> ids = new HashMap<>(vertices.size() * 2);
+        AirportSystem.Vertex[] unique = new AirportSystem.Vertex[vertices.size()];
+        int n = 0;
+        for (int i = 0; i < vertices.size(); i++) {
+            AirportSystem.Vertex v = vertices.get(i);
+            if (!ids.containsKey(v.id)) {
+                ids.put(v.id, n);
+                unique[n] = v;
+                n++;
+            }
+        }
+
+        String[] names = new String[n];
+        int[] offsets = new int[n + 1];
+        int edgeCount = 0;
+        for (int v = 0; v < n; v++) {
+            names[v] = unique[v].id;
+            for (AirportSystem.Edge edge : unique[v].edges) {
+                if (ids.containsKey(edge.destination)) {
+                    edgeCount++;
+                }
+            }
+            offsets[v + 1] = edgeCount;
+        }
+
+        int[] targets = new int[edgeCount];
+        int[] weights = new int[edgeCount];
+        int pos = 0;
+        for (int v = 0; v < n; v++) {
+            for (AirportSystem.Edge edge : unique[v].edges) {
+                Integer target = ids.get(edge.destination);
+                if (target != null) {
+                    targets[pos] = target;
+                    weights[pos] = edge.distance;
+                    pos++;
+                }
+            }
+        }
+        return new CompiledGraph(names, ids, offsets, targets, weights, vertices.size());
+    }
+
+    /**
+     * Returns the number of cities in the graph.
+     *
+     * @return The number of cities.
+     */
+    public int vertexCount() {
+        return names.length;
+    }
+
+    /**
+     * Returns the number of flights in the graph.
+     *
+     * @return The number of flights.
+     */
+    public int edgeCount() {
+        return targets.length;
+    }
+
+    /**
+     * Returns the interned id of a city.
+     *
+     * @param city The city name.
+     * @return The id of the city, or -1 if the city is not in the graph.
+     */
+    public int idOf(String city) {
+        Integer id = ids.get(city);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Returns the name of the city with the given id.
+     *
+     * @param id The id of the city.
+     * @return The city name.
+     */
+    public String nameOf(int id) {
+        return names[id];
+    }
+
+    /**
+     * Returns the distance of the flight between two cities.
+     *
+     * @param source The id of the source city.
+     * @param destination The id of the destination city.
+     * @return The distance, or -1 if there is no such flight.
+     */
+    public int weight(int source, int destination) {
+        for (int j = offsets[source]; j < offsets[source + 1]; j++) {
+            if (targets[j] == destination) {
+                return weights[j];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the id of the city an edge leaves from.
+     *
+     * @param edge The position of the edge in the targets array.
+     * @return The id of the source city.
+     */
+    public int sourceOf(int edge) {
+        int low = 0;
+        int high = names.length - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (offsets[mid] <= edge) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns this graph with every edge reversed, so that the outgoing edges of a city in the reverse
+     * graph are the incoming edges of that city here. Ids are shared with this graph.
+     *
+     * @return The reverse graph.
+     */
+    public CompiledGraph reverse() {
+        CompiledGraph r = reverse;
+        if (r == null) {
+            int n = vertexCount();
+            int[] inOffsets = new int[n + 1];
+            for (int j = 0; j < targets.length; j++) {
+                inOffsets[targets[j] + 1]++;
+            }
+            for (int v = 0; v < n; v++) {
+                inOffsets[v + 1] += inOffsets[v];
+            }
+            int[] next = Arrays.copyOf(inOffsets, n);
+            int[] inSources = new int[targets.length];
+            int[] inWeights = new int[targets.length];
+            for (int u = 0; u < n; u++) {
+                for (int j = offsets[u]; j < offsets[u + 1]; j++) {
+                    int p = next[targets[j]]++;
+                    inSources[p] = u;
+                    inWeights[p] = weights[j];
+                }
+            }
+            r = new CompiledGraph(names, ids, inOffsets, inSources, inWeights, sourceVertexCount);
+            r.reverse = this;
+            reverse = r;
+        }
+        return r;
+    }
+
+    /**
+     * Returns a hash of the graph structure, used to check that data saved for a graph still matches it.
+     *
+     * @return The fingerprint of the graph.
+     */
+    public long fingerprint() {
+        long hash = vertexCount();
+        hash = hash * 31 + Arrays.hashCode(names);
+        hash = hash * 31 + Arrays.hashCode(offsets);
+        hash = hash * 31 + Arrays.hashCode(targets);
+        hash = hash * 31 + Arrays.hashCode(weights);
+        return hash;
+    }
+}
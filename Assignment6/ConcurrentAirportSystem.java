@@ -0,0 +1,107 @@
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * An airport graph shared by many reader threads and a few writers. Readers take the current
+ * GraphSnapshot and query it without locking. Writers group changes into a batch that is committed as a
+ * new snapshot and published atomically, so a reader sees either all of a batch or none of it.
+ *
+ * @author Ryan Cesar Irizarry
+ */
+public class ConcurrentAirportSystem {
+
+    //The latest published snapshot.
+    private final AtomicReference<GraphSnapshot> current;
+
+    /**
+     * Constructs an empty system.
+     */
+    public ConcurrentAirportSystem() {
+        this(GraphSnapshot.empty());
+    }
+
+    /**
+     * Constructs a system that starts from the given snapshot.
+     *
+     * @param initial The first snapshot.
+     */
+    public ConcurrentAirportSystem(GraphSnapshot initial) {
+        this.current = new AtomicReference<>(initial);
+    }
+
+    /**
+     * Constructs a system holding the cities and flights of an AirportSystem.
+     *
+     * @param airportSystem The airport system to copy.
+     */
+    public ConcurrentAirportSystem(AirportSystem airportSystem) {
+        this(airportSystem.snapshot());
+    }
+
+    /**
+     * Returns the latest published snapshot. The snapshot never changes, so a reader can run several
+     * queries against it and get answers that agree with each other.
+     *
+     * @return The current snapshot.
+     */
+    public GraphSnapshot snapshot() {
+        return current.get();
+    }
+
+    /**
+     * Applies a batch of changes and publishes the result. If another writer publishes first, the batch
+     * is rebuilt on top of the newer snapshot and the changes are applied again, so the changes should only
+     * depend on the batch they are given.
+     *
+     * @param changes Makes the changes to a batch.
+     * @return The published snapshot.
+     */
+    public GraphSnapshot update(Consumer<GraphSnapshot.Batch> changes) {
+        while (true) {
+            GraphSnapshot base = current.get();
+            GraphSnapshot.Batch batch = base.edit();
+            changes.accept(batch);
+            GraphSnapshot next = batch.commit();
+            if (current.compareAndSet(base, next)) {
+                return next;
+            }
+        }
+    }
+
+    /**
+     * Adds a city with no flights.
+     *
+     * @param city The city name.
+     * @return True if the city was added, false if it already exists.
+     */
+    public boolean addCity(String city) {
+        boolean[] added = new boolean[1];
+        update(batch -> added[0] = batch.addCity(city));
+        return added[0];
+    }
+
+    /**
+     * Adds a flight between two existing cities as a batch of its own.
+     *
+     * @param source The source city.
+     * @param destination The destination city.
+     * @param weight The distance of the flight.
+     * @return True if the flight was added, false otherwise.
+     */
+    public boolean addEdge(String source, String destination, int weight) {
+        boolean[] added = new boolean[1];
+        update(batch -> added[0] = batch.addEdge(source, destination, weight));
+        return added[0];
+    }
+
+    /**
+     * Returns the shortest distance between two cities in the current snapshot.
+     *
+     * @param cityA The starting city.
+     * @param cityB The destination city.
+     * @return The shortest distance, or Integer.MAX_VALUE if either city is unknown or cannot be reached.
+     */
+    public int shortestDistance(String cityA, String cityB) {
+        return snapshot().shortestDistance(cityA, cityB);
+    }
+}
@@ -0,0 +1,186 @@
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Earliest-arrival queries over scheduled flights with the Connection Scan Algorithm. Every flight of the
+ * timetable is one connection, and the connections are stored in flat arrays sorted by departure time.
+ * A query finds the first connection at or after the start time and walks forward through the arrays once,
+ * taking each flight that leaves a city the traveller can be ready at in time. There is no priority
+ * queue, the scan reads the connection arrays strictly in order, and each connection costs one lookup of
+ * the time the traveller is ready to leave its departure city.
+ *
+ * One pass is enough because every flight arrives strictly after it departs, which addFlight enforces: a
+ * flight that can be caught after another departs no earlier than that one arrives, so it comes later in
+ * the scan. A flight of zero length could feed a flight leaving at the same minute that sorts before it.
+ *
+ * @author Ryan Cesar Irizarry
+ */
+public class ConnectionScan {
+
+    //The graph whose city ids the connections use.
+    private final CompiledGraph graph;
+
+    //The departure city of each connection.
+    private final int[] departureCity;
+
+    //The arrival city of each connection.
+    private final int[] arrivalCity;
+
+    //The departure time of each connection, sorted.
+    private final int[] departureTime;
+
+    //The arrival time of each connection.
+    private final int[] arrivalTime;
+
+    /**
+     * Constructs a timetable from sorted connection arrays.
+     *
+     * @param graph The graph whose city ids the connections use.
+     * @param departureCity The departure city of each connection.
+     * @param arrivalCity The arrival city of each connection.
+     * @param departureTime The departure time of each connection, sorted.
+     * @param arrivalTime The arrival time of each connection.
+     */
+    ConnectionScan(CompiledGraph graph, int[] departureCity, int[] arrivalCity, int[] departureTime,
+                   int[] arrivalTime) {
+        this.graph = graph;
+        this.departureCity = departureCity;
+        this.arrivalCity = arrivalCity;
+        this.departureTime = departureTime;
+        this.arrivalTime = arrivalTime;
+    }
+
+    /**
+     * Collects the scheduled flights of every edge into a timetable sorted by departure time, then by
+     * arrival time. As in compile, only the first vertex of each city is used and flights to unknown cities
+     * are dropped.
+     *
+     * @param graph The compiled form of the vertices.
+     * @param vertices The vertices of the airport system.
+     * @return The timetable.
+     */
+    static ConnectionScan build(CompiledGraph graph, List<AirportSystem.Vertex> vertices) {
+        boolean[] seen = new boolean[graph.vertexCount()];
+        IntList departures = new IntList();
+        IntList arrivals = new IntList();
+        IntList from = new IntList();
+        IntList to = new IntList();
+        for (AirportSystem.Vertex vertex : vertices) {
+            int u = graph.idOf(vertex.id);
+            if (seen[u]) {
+                continue;
+            }
+            seen[u] = true;
+            for (AirportSystem.Edge edge : vertex.edges) {
+                int v = graph.idOf(edge.destination);
+                if (v < 0) {
+                    continue;
+                }
+                for (int i = 0; i < edge.flightCount; i++) {
+                    departures.add(edge.departures[i]);
+                    arrivals.add(edge.arrivals[i]);
+                    from.add(u);
+                    to.add(v);
+                }
+            }
+        }
+
+        int m = departures.size;
+        long[] byArrival = new long[m];
+        for (int i = 0; i < m; i++) {
+            byArrival[i] = ((long) arrivals.get(i) << 32) | i;
+        }
+        Arrays.sort(byArrival);
+        long[] order = new long[m];
+        for (int rank = 0; rank < m; rank++) {
+            order[rank] = ((long) departures.get((int) byArrival[rank]) << 32) | rank;
+        }
+        Arrays.sort(order);
+        int[] departureCity = new int[m];
+        int[] arrivalCity = new int[m];
+        int[] departureTime = new int[m];
+        int[] arrivalTime = new int[m];
+        for (int c = 0; c < m; c++) {
+            int i = (int) byArrival[(int) order[c]];
+            departureCity[c] = from.get(i);
+            arrivalCity[c] = to.get(i);
+            departureTime[c] = departures.get(i);
+            arrivalTime[c] = arrivals.get(i);
+        }
+        return new ConnectionScan(graph, departureCity, arrivalCity, departureTime, arrivalTime);
+    }
+
+    /**
+     * Returns the graph whose city ids the connections use.
+     *
+     * @return The compiled graph.
+     */
+    public CompiledGraph graph() {
+        return graph;
+    }
+
+    /**
+     * Returns the number of scheduled flights.
+     *
+     * @return The number of connections.
+     */
+    public int connectionCount() {
+        return departureTime.length;
+    }
+
+    /**
+     * Returns the earliest arrival time at a city.
+     *
+     * @param source The id of the starting city.
+     * @param target The id of the destination city.
+     * @param start The earliest time the traveller can leave the starting city.
+     * @param minimumConnectionTime The shortest layover allowed between two flights.
+     * @return The earliest arrival time, or Integer.MAX_VALUE if the destination cannot be reached.
+     */
+    public int earliestArrival(int source, int target, int start, int minimumConnectionTime) {
+        if (source == target) {
+            return start;
+        }
+        int[] ready = SearchScratch.current(graph.vertexCount()).dist;
+        Arrays.fill(ready, 0, graph.vertexCount(), Integer.MAX_VALUE);
+        ready[source] = start;
+
+        int best = Integer.MAX_VALUE;
+        for (int c = firstDeparture(start); c < departureTime.length; c++) {
+            int leave = departureTime[c];
+            if (leave >= best) {
+                break;
+            }
+            if (ready[departureCity[c]] <= leave) {
+                int to = arrivalCity[c];
+                int arrive = arrivalTime[c];
+                if (to == target) {
+                    best = Math.min(best, arrive);
+                } else if (arrive + minimumConnectionTime < ready[to]) {
+                    ready[to] = arrive + minimumConnectionTime;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Finds the first connection that departs at or after a time.
+     *
+     * @param time The time.
+     * @return The index of the connection, or connectionCount if there is none.
+     */
+    private int firstDeparture(int time) {
+        int low = 0;
+        int high = departureTime.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (departureTime[mid] < time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,104 @@
+import org.junit.Test;
+import java.util.Arrays;
+import java.util.Random;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for the ConnectionScan class and the earliestArrival query of AirportSystem.
+ *
+ * @author Ryan Cesar Irizarry
+ */
+public class ConnectionScanTest {
+
+    /**
+     * Finds the earliest arrival by relaxing every flight over and over until nothing changes, which needs
+     * no ordering of the flights.
+     *
+     * @param flights The flights as rows of source, destination, departure and arrival.
+     * @param cities The number of cities.
+     * @param source The starting city.
+     * @param target The destination city.
+     * @param start The earliest time the traveller can leave.
+     * @param connectionTime The minimum connection time.
+     * @return The earliest arrival time, or Integer.MAX_VALUE if the destination cannot be reached.
+     */
+    private static int bruteForce(int[][] flights, int cities, int source, int target, int start,
+                                  int connectionTime) {
+        if (source == target) {
+            return start;
+        }
+        int[] arrival = new int[cities];
+        Arrays.fill(arrival, Integer.MAX_VALUE);
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int[] flight : flights) {
+                int ready = flight[0] == source ? start
+                        : arrival[flight[0]] == Integer.MAX_VALUE ? Integer.MAX_VALUE
+                        : arrival[flight[0]] + connectionTime;
+                if (ready <= flight[2] && flight[3] < arrival[flight[1]]) {
+                    arrival[flight[1]] = flight[3];
+                    changed = true;
+                }
+            }
+        }
+        return arrival[target];
+    }
+
+    /**
+     * Tests that flights arriving no later than they depart are rejected.
+     */
+    @Test
+    public void testZeroLengthFlightRejected() {
+        AirportSystem airportSystem = new AirportSystem();
+        airportSystem.connections.add(new AirportSystem.Vertex("A"));
+        airportSystem.connections.add(new AirportSystem.Vertex("B"));
+        airportSystem.addEdge("A", "B", 1);
+        assertFalse(airportSystem.addFlight("A", "B", 100, 100));
+        assertFalse(airportSystem.addFlight("A", "B", 100, 99));
+        assertFalse(airportSystem.addFlight("A", "B", -1, 5));
+        assertTrue(airportSystem.addFlight("A", "B", 100, 101));
+        assertEquals(101, airportSystem.earliestArrival("A", "B", 50));
+        assertEquals(Integer.MAX_VALUE, airportSystem.earliestArrival("A", "B", 101));
+    }
+
+    /**
+     * Tests earliestArrival against the brute-force fixed point on random timetables with short flights
+     * and many flights leaving at the same minute, with and without a minimum connection time.
+     */
+    @Test
+    public void testRandomTimetables() {
+        Random random = new Random(16);
+        for (int round = 0; round < 40; round++) {
+            int cities = 2 + random.nextInt(8);
+            AirportSystem airportSystem = new AirportSystem();
+            for (int i = 0; i < cities; i++) {
+                airportSystem.connections.add(new AirportSystem.Vertex("C" + i));
+            }
+            int count = random.nextInt(60);
+            int[][] flights = new int[count][];
+            int added = 0;
+            for (int f = 0; f < count; f++) {
+                int from = random.nextInt(cities);
+                int to = random.nextInt(cities);
+                int departure = random.nextInt(30);
+                int arrival = departure + 1 + random.nextInt(3);
+                airportSystem.addEdge("C" + from, "C" + to, 1);
+                if (from != to && airportSystem.addFlight("C" + from, "C" + to, departure, arrival)) {
+                    flights[added++] = new int[] {from, to, departure, arrival};
+                }
+            }
+            flights = Arrays.copyOf(flights, added);
+            int connectionTime = random.nextInt(3);
+            airportSystem.setMinimumConnectionTime(connectionTime);
+            for (int query = 0; query < 30; query++) {
+                int source = random.nextInt(cities);
+                int target = random.nextInt(cities);
+                int start = random.nextInt(30);
+                assertEquals("round " + round + " query " + query,
+                        bruteForce(flights, cities, source, target, start, connectionTime),
+                        airportSystem.earliestArrival("C" + source, "C" + target, start));
+            }
+        }
+    }
+}
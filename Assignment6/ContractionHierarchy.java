@@ -0,0 +1,616 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A Contraction Hierarchy over a compiled AirportSystem graph. Cities are contracted one at a time in
+ * order of importance, and shortcut edges are added wherever contracting a city would otherwise lose a
+ * shortest route. A query then only needs a bidirectional search that moves upward in the order.
+ *
+ * @author Ryan Cesar Irizarry
+ */
+public class ContractionHierarchy {
+
+    //Marks the start of a hierarchy file.
+    private static final int MAGIC = 0x43484831;
+
+    //The most vertices a witness search settles before giving up and adding the shortcut anyway.
+    private static final int WITNESS_SETTLE_LIMIT = 60;
+
+    //The smaller settle limit used when only estimating how many shortcuts a contraction needs.
+    private static final int ESTIMATE_SETTLE_LIMIT = 40;
+
+    //The city name for each id.
+    private final String[] names;
+
+    //Maps a city name to its id.
+    private final Map<String, Integer> ids;
+
+    //The fingerprint of the graph this hierarchy was built from.
+    private final long graphFingerprint;
+
+    //The position of each city in the contraction order.
+    private final int[] rank;
+
+    //The edges from each city to cities of higher rank, in CSR form.
+    private final int[] upOffsets;
+    private final int[] upTargets;
+    private final int[] upWeights;
+
+    //The edges into each city from cities of higher rank, in CSR form, for the backward search.
+    private final int[] downOffsets;
+    private final int[] downSources;
+    private final int[] downWeights;
+
+    /**
+     * Constructs a hierarchy from its packed arrays.
+     */
+    private ContractionHierarchy(String[] names, Map<String, Integer> ids, long graphFingerprint, int[] rank,
+                                 int[] upOffsets, int[] upTargets, int[] upWeights,
+                                 int[] downOffsets, int[] downSources, int[] downWeights) {
+        this.names = names;
+        this.ids = ids;
+        this.graphFingerprint = graphFingerprint;
+        this.rank = rank;
+        this.upOffsets = upOffsets;
+        this.upTargets = upTargets;
+        this.upWeights = upWeights;
+        this.downOffsets = downOffsets;
+        this.downSources = downSources;
+        this.downWeights = downWeights;
+    }
+
+    /**
+     * Builds the hierarchy for a graph. This is the expensive preprocessing step and is meant to run
+     * offline, with the result saved and loaded at startup.
+     *
+     * @param graph The graph to preprocess.
+     * @return The contraction hierarchy.
+     */
+    public static ContractionHierarchy build(CompiledGraph graph) {
+        return new Builder(graph).build();
+    }
+
+    /**
+     * Returns the number of cities in the hierarchy.
+     *
+     * @return The number of cities.
+     */
+    public int vertexCount() {
+        return names.length;
+    }
+
+    /**
+     * Returns the number of upward and downward edges, including shortcuts.
+     *
+     * @return The number of edges in the hierarchy.
+     */
+    public int edgeCount() {
+        return upTargets.length + downSources.length;
+    }
+
+    /**
+     * Returns the id of a city.
+     *
+     * @param city The city name.
+     * @return The id of the city, or -1 if the city is not in the hierarchy.
+     */
+    public int idOf(String city) {
+        Integer id = ids.get(city);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Checks if this hierarchy was built from the given graph.
+     *
+     * @param graph The graph to check.
+     * @return True if the graph matches, false otherwise.
+     */
+    public boolean matches(CompiledGraph graph) {
+        return graph.vertexCount() == names.length && graph.fingerprint() == graphFingerprint;
+    }
+
+    /**
+     * Returns the shortest distance between two cities with an upward search from both ends.
+     *
+     * @param source The id of the starting city.
+     * @param target The id of the destination city.
+     * @return The shortest distance, or Integer.MAX_VALUE if the target cannot be reached.
+     */
+    public int distance(int source, int target) {
+        SearchScratch forward = SearchScratch.current(0, names.length);
+        SearchScratch backward = SearchScratch.current(1, names.length);
+        forward.relax(source, 0);
+        backward.relax(target, 0);
+
+        long best = Long.MAX_VALUE;
+        while (true) {
+            boolean forwardOpen = !forward.heap.isEmpty() && forward.heap.minKey() < best;
+            boolean backwardOpen = !backward.heap.isEmpty() && backward.heap.minKey() < best;
+            if (!forwardOpen && !backwardOpen) {
+                break;
+            }
+            if (forwardOpen && (!backwardOpen || forward.heap.minKey() <= backward.heap.minKey())) {
+                best = step(forward, backward, upOffsets, upTargets, upWeights, best);
+            } else {
+                best = step(backward, forward, downOffsets, downSources, downWeights, best);
+            }
+        }
+        return best == Long.MAX_VALUE ? Integer.MAX_VALUE : (int) best;
+    }
+
+    /**
+     * Settles the closest queued city of one search direction and relaxes its upward edges.
+     *
+     * @param self The scratch space of the direction being advanced.
+     * @param other The scratch space of the opposite direction.
+     * @param offsets The CSR offsets of the edges this direction follows.
+     * @param targets The CSR targets of the edges this direction follows.
+     * @param weights The CSR weights of the edges this direction follows.
+     * @param best The best route length found so far.
+     * @return The best route length after this step.
+     */
+    private static long step(SearchScratch self, SearchScratch other, int[] offsets, int[] targets, int[] weights,
+                             long best) {
+        int curVertex = self.heap.poll();
+        self.settle(curVertex);
+        int curDistance = self.dist[curVertex];
+        int otherDistance = other.distance(curVertex);
+        if (otherDistance != Integer.MAX_VALUE && (long) curDistance + otherDistance < best) {
+            best = (long) curDistance + otherDistance;
+        }
+        for (int j = offsets[curVertex]; j < offsets[curVertex + 1]; j++) {
+            if (!self.isSettled(targets[j])) {
+                self.relax(targets[j], curDistance + weights[j]);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Returns the number of cities settled by the calling thread's last query, over both directions.
+     *
+     * @return The settled city count.
+     */
+    public int lastSettledCount() {
+        return SearchScratch.lastSettledCount();
+    }
+
+    /**
+     * Writes the hierarchy to a binary file.
+     *
+     * @param file The file to write.
+     * @throws IOException If the file cannot be written.
+     */
+    public void save(File file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeLong(graphFingerprint);
+            out.writeInt(names.length);
+            for (String name : names) {
+                out.writeUTF(name);
+            }
+            writeArray(out, rank);
+            writeArray(out, upOffsets);
+            writeArray(out, upTargets);
+            writeArray(out, upWeights);
+            writeArray(out, downOffsets);
+            writeArray(out, downSources);
+            writeArray(out, downWeights);
+        }
+    }
+
+    /**
+     * Reads a hierarchy written by save, without rebuilding it.
+     *
+     * @param file The file to read.
+     * @return The contraction hierarchy.
+     * @throws IOException If the file cannot be read or is not a hierarchy file.
+     */
+    public static ContractionHierarchy load(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a contraction hierarchy file: " + file);
+            }
+            long fingerprint = in.readLong();
+            int n = in.readInt();
+            String[] names = new String[n];
+            Map<String, Integer> ids = new HashMap<>(n * 2);
+            for (int i = 0; i < n; i++) {
+                names[i] = in.readUTF();
+                ids.put(names[i], i);
+            }
+            return new ContractionHierarchy(names, ids, fingerprint, readArray(in), readArray(in), readArray(in),
+                    readArray(in), readArray(in), readArray(in), readArray(in));
+        }
+    }
+
+    /**
+     * Writes an int array preceded by its length.
+     *
+     * @param out The stream to write to.
+     * @param array The array to write.
+     * @throws IOException If the stream cannot be written.
+     */
+    private static void writeArray(DataOutputStream out, int[] array) throws IOException {
+        out.writeInt(array.length);
+        for (int value : array) {
+            out.writeInt(value);
+        }
+    }
+
+    /**
+     * Reads an int array written by writeArray.
+     *
+     * @param in The stream to read from.
+     * @return The array.
+     * @throws IOException If the stream cannot be read.
+     */
+    private static int[] readArray(DataInputStream in) throws IOException {
+        int[] array = new int[in.readInt()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = in.readInt();
+        }
+        return array;
+    }
+
+    /**
+     * Contracts the cities of a graph and collects the resulting upward and downward edges.
+     */
+    private static class Builder {
+
+        //The graph being preprocessed.
+        private final CompiledGraph graph;
+
+        //The number of cities.
+        private final int n;
+
+        //The outgoing edges of each city, including shortcuts added so far. outTwin gives the position of
+        //each edge in the incoming list of its destination.
+        private final int[][] outTo;
+        private final int[][] outWeight;
+        private final int[][] outTwin;
+        private final int[] outSize;
+
+        //The incoming edges of each city, including shortcuts added so far. inTwin gives the position of
+        //each edge in the outgoing list of its source.
+        private final int[][] inFrom;
+        private final int[][] inWeight;
+        private final int[][] inTwin;
+        private final int[] inSize;
+
+        //The position of each city in the outgoing list of the city edges are being added to, valid where
+        //positionStamp equals positionEpoch, so addEdge finds an existing edge without a scan.
+        private final int[] position;
+        private final int[] positionStamp;
+        private int positionEpoch;
+
+        //The number of contracted neighbors of each city, used in the contraction priority.
+        private final int[] deletedNeighbors;
+
+        //One more than the highest level of any contracted neighbor, used in the contraction priority.
+        private final int[] level;
+
+        //The working memory of the witness search.
+        private final int[] witnessDist;
+        private final int[] witnessStamp;
+        private final IndexedMinHeap witnessHeap;
+        private int witnessEpoch;
+
+        /**
+         * Copies the graph into growable adjacency lists. Self-loops are dropped and parallel edges keep
+         * only the shortest.
+         *
+         * @param graph The graph to preprocess.
+         */
+        Builder(CompiledGraph graph) {
+            this.graph = graph;
+            this.n = graph.vertexCount();
+            this.outTo = new int[n][];
+            this.outWeight = new int[n][];
+            this.outTwin = new int[n][];
+            this.outSize = new int[n];
+            this.inFrom = new int[n][];
+            this.inWeight = new int[n][];
+            this.inTwin = new int[n][];
+            this.inSize = new int[n];
+            this.position = new int[n];
+            this.positionStamp = new int[n];
+            this.deletedNeighbors = new int[n];
+            this.level = new int[n];
+            this.witnessDist = new int[n];
+            this.witnessStamp = new int[n];
+            this.witnessHeap = new IndexedMinHeap(n);
+
+            CompiledGraph reverse = graph.reverse();
+            for (int v = 0; v < n; v++) {
+                int outDegree = graph.offsets[v + 1] - graph.offsets[v];
+                int inDegree = reverse.offsets[v + 1] - reverse.offsets[v];
+                outTo[v] = new int[Math.max(outDegree, 2)];
+                outWeight[v] = new int[outTo[v].length];
+                outTwin[v] = new int[outTo[v].length];
+                inFrom[v] = new int[Math.max(inDegree, 2)];
+                inWeight[v] = new int[inFrom[v].length];
+                inTwin[v] = new int[inFrom[v].length];
+            }
+            for (int u = 0; u < n; u++) {
+                beginAdding(u);
+                for (int j = graph.offsets[u]; j < graph.offsets[u + 1]; j++) {
+                    if (graph.targets[j] != u) {
+                        addEdge(u, graph.targets[j], graph.weights[j]);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Contracts every city and packs the hierarchy.
+         *
+         * @return The contraction hierarchy.
+         */
+        ContractionHierarchy build() {
+            int[] rank = new int[n];
+            IndexedMinHeap queue = new IndexedMinHeap(n);
+            for (int v = 0; v < n; v++) {
+                queue.insertOrDecrease(v, priority(v));
+            }
+
+            int order = 0;
+            while (!queue.isEmpty()) {
+                int v = queue.poll();
+                //priorities go stale as neighbors are contracted, so check again before contracting
+                int current = priority(v);
+                if (!queue.isEmpty() && current > queue.minKey()) {
+                    queue.insertOrDecrease(v, current);
+                    continue;
+                }
+                contract(v, false);
+                rank[v] = order++;
+                //v's own lists now hold exactly its hierarchy edges, so only the neighbors forget v
+                for (int i = 0; i < outSize[v]; i++) {
+                    removeIncoming(outTo[v][i], outTwin[v][i]);
+                }
+                for (int i = 0; i < inSize[v]; i++) {
+                    removeOutgoing(inFrom[v][i], inTwin[v][i]);
+                }
+                for (int i = 0; i < outSize[v]; i++) {
+                    neighborContracted(outTo[v][i], v);
+                }
+                for (int i = 0; i < inSize[v]; i++) {
+                    neighborContracted(inFrom[v][i], v);
+                }
+            }
+            return pack(rank);
+        }
+
+        /**
+         * Updates the priority terms of a neighbor of a city that was just contracted. Its queued priority
+         * is left stale and only recomputed when it reaches the front of the queue.
+         *
+         * @param u The neighbor.
+         * @param v The city that was contracted.
+         */
+        private void neighborContracted(int u, int v) {
+            deletedNeighbors[u]++;
+            level[u] = Math.max(level[u], level[v] + 1);
+        }
+
+        /**
+         * Returns the contraction priority of a city. This weighs the number of shortcuts contracting it
+         * would add against the edges it would remove, and adds the number of contracted neighbors and the
+         * level of the city so that contraction spreads evenly over the graph.
+         *
+         * @param v The city.
+         * @return The priority, where smaller is contracted earlier.
+         */
+        private int priority(int v) {
+            int removed = outSize[v] + inSize[v];
+            return 2 * (contract(v, true) - removed) + deletedNeighbors[v] + level[v];
+        }
+
+        /**
+         * Finds the shortcuts needed to contract a city and adds them unless simulating.
+         *
+         * @param v The city to contract.
+         * @param simulate True to only count the shortcuts.
+         * @return The number of shortcuts needed.
+         */
+        private int contract(int v, boolean simulate) {
+            int shortcuts = 0;
+            for (int i = 0; i < inSize[v]; i++) {
+                int u = inFrom[v][i];
+                int w1 = inWeight[v][i];
+                int maxDistance = -1;
+                for (int k = 0; k < outSize[v]; k++) {
+                    int x = outTo[v][k];
+                    if (x != u) {
+                        maxDistance = Math.max(maxDistance, w1 + outWeight[v][k]);
+                    }
+                }
+                if (maxDistance < 0) {
+                    continue;
+                }
+                witnessSearch(u, v, maxDistance, simulate ? ESTIMATE_SETTLE_LIMIT : WITNESS_SETTLE_LIMIT);
+                if (!simulate) {
+                    beginAdding(u);
+                }
+                for (int k = 0; k < outSize[v]; k++) {
+                    int x = outTo[v][k];
+                    if (x == u) {
+                        continue;
+                    }
+                    int viaV = w1 + outWeight[v][k];
+                    if (witnessStamp[x] != witnessEpoch || witnessDist[x] > viaV) {
+                        shortcuts++;
+                        if (!simulate) {
+                            addEdge(u, x, viaV);
+                        }
+                    }
+                }
+            }
+            return shortcuts;
+        }
+
+        /**
+         * Runs a bounded Dijkstra from a city that avoids the city being contracted. Cities contracted
+         * before it are already gone from the adjacency lists. Distances found this way are witnesses that a shortcut is not needed.
+         *
+         * @param source The city to search from.
+         * @param avoid The city being contracted.
+         * @param maxDistance The distance past which witnesses are no longer useful.
+         * @param settleLimit The most cities to settle.
+         */
+        private void witnessSearch(int source, int avoid, int maxDistance, int settleLimit) {
+            witnessEpoch++;
+            witnessHeap.clear();
+            witnessStamp[source] = witnessEpoch;
+            witnessDist[source] = 0;
+            witnessHeap.insertOrDecrease(source, 0);
+            int settled = 0;
+            while (!witnessHeap.isEmpty() && settled < settleLimit) {
+                if (witnessHeap.minKey() > maxDistance) {
+                    break;
+                }
+                int u = witnessHeap.poll();
+                settled++;
+                int d = witnessDist[u];
+                for (int i = 0; i < outSize[u]; i++) {
+                    int x = outTo[u][i];
+                    if (x == avoid) {
+                        continue;
+                    }
+                    int nd = d + outWeight[u][i];
+                    if (witnessStamp[x] != witnessEpoch || nd < witnessDist[x]) {
+                        witnessStamp[x] = witnessEpoch;
+                        witnessDist[x] = nd;
+                        witnessHeap.insertOrDecrease(x, nd);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Removes an edge from the incoming list of x. The last edge of the list takes its place, and the
+         * outgoing list of that edge's source is told its new position.
+         *
+         * @param x The city whose incoming list changes.
+         * @param i The position of the edge in the list.
+         */
+        private void removeIncoming(int x, int i) {
+            int last = --inSize[x];
+            if (i != last) {
+                inFrom[x][i] = inFrom[x][last];
+                inWeight[x][i] = inWeight[x][last];
+                inTwin[x][i] = inTwin[x][last];
+                outTwin[inFrom[x][i]][inTwin[x][i]] = i;
+            }
+        }
+
+        /**
+         * Removes an edge from the outgoing list of u. The last edge of the list takes its place, and the
+         * incoming list of that edge's destination is told its new position.
+         *
+         * @param u The city whose outgoing list changes.
+         * @param i The position of the edge in the list.
+         */
+        private void removeOutgoing(int u, int i) {
+            int last = --outSize[u];
+            if (i != last) {
+                outTo[u][i] = outTo[u][last];
+                outWeight[u][i] = outWeight[u][last];
+                outTwin[u][i] = outTwin[u][last];
+                inTwin[outTo[u][i]][outTwin[u][i]] = i;
+            }
+        }
+
+        /**
+         * Marks where each destination sits in the outgoing list of u, so that the following calls to
+         * addEdge for u find existing edges in constant time. Must be called again after any other city's
+         * edges are added or any outgoing list is shortened.
+         *
+         * @param u The city whose edges will be added.
+         */
+        private void beginAdding(int u) {
+            positionEpoch++;
+            for (int i = 0; i < outSize[u]; i++) {
+                position[outTo[u][i]] = i;
+                positionStamp[outTo[u][i]] = positionEpoch;
+            }
+        }
+
+        /**
+         * Adds the edge u to x, or lowers its weight if it already exists with a larger one. beginAdding(u)
+         * must have been called first.
+         *
+         * @param u The source city.
+         * @param x The destination city.
+         * @param weight The edge weight.
+         */
+        private void addEdge(int u, int x, int weight) {
+            if (positionStamp[x] == positionEpoch) {
+                int i = position[x];
+                if (weight < outWeight[u][i]) {
+                    outWeight[u][i] = weight;
+                    inWeight[x][outTwin[u][i]] = weight;
+                }
+                return;
+            }
+            if (outSize[u] == outTo[u].length) {
+                outTo[u] = Arrays.copyOf(outTo[u], outSize[u] * 2);
+                outWeight[u] = Arrays.copyOf(outWeight[u], outSize[u] * 2);
+                outTwin[u] = Arrays.copyOf(outTwin[u], outSize[u] * 2);
+            }
+            if (inSize[x] == inFrom[x].length) {
+                inFrom[x] = Arrays.copyOf(inFrom[x], inSize[x] * 2);
+                inWeight[x] = Arrays.copyOf(inWeight[x], inSize[x] * 2);
+                inTwin[x] = Arrays.copyOf(inTwin[x], inSize[x] * 2);
+            }
+            int i = outSize[u]++;
+            int k = inSize[x]++;
+            outTo[u][i] = x;
+            outWeight[u][i] = weight;
+            outTwin[u][i] = k;
+            inFrom[x][k] = u;
+            inWeight[x][k] = weight;
+            inTwin[x][k] = i;
+            position[x] = i;
+            positionStamp[x] = positionEpoch;
+        }
+
+        /**
+         * Packs the edges each city had left when it was contracted. Those all lead to cities of higher
+         * rank, so the outgoing ones form the upward graph and the incoming ones the downward graph.
+         *
+         * @param rank The contraction order.
+         * @return The contraction hierarchy.
+         */
+        private ContractionHierarchy pack(int[] rank) {
+            int[] upOffsets = new int[n + 1];
+            int[] downOffsets = new int[n + 1];
+            for (int v = 0; v < n; v++) {
+                upOffsets[v + 1] = upOffsets[v] + outSize[v];
+                downOffsets[v + 1] = downOffsets[v] + inSize[v];
+            }
+            int[] upTargets = new int[upOffsets[n]];
+            int[] upWeights = new int[upOffsets[n]];
+            int[] downSources = new int[downOffsets[n]];
+            int[] downWeights = new int[downOffsets[n]];
+            for (int v = 0; v < n; v++) {
+                System.arraycopy(outTo[v], 0, upTargets, upOffsets[v], outSize[v]);
+                System.arraycopy(outWeight[v], 0, upWeights, upOffsets[v], outSize[v]);
+                System.arraycopy(inFrom[v], 0, downSources, downOffsets[v], inSize[v]);
+                System.arraycopy(inWeight[v], 0, downWeights, downOffsets[v], inSize[v]);
+            }
+            return new ContractionHierarchy(graph.names, graph.ids, graph.fingerprint(), rank,
+                    upOffsets, upTargets, upWeights, downOffsets, downSources, downWeights);
+        }
+    }
+}
@@ -0,0 +1,270 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+/**
+ * Parallel one-to-all shortest paths using delta-stepping. Tentative distances are grouped into buckets
+ * of width delta. All vertices in the lowest bucket are relaxed at once by the worker threads, light edges
+ * (weight at most delta) first until the bucket stops changing, then heavy edges. Small graphs fall back
+ * to the sequential Dijkstra, where the threads would cost more than they save.
+ *
+ * @author Ryan Cesar Irizarry
+ */
+public class DeltaStepping {
+
+    //By default, graphs with fewer vertices than this are searched with sequential Dijkstra.
+    public static final int SEQUENTIAL_THRESHOLD = 50000;
+
+    //The number of frontier vertices each parallel task relaxes.
+    private static final int BLOCK = 256;
+
+    //Gives atomic access to the elements of an int array.
+    private static final VarHandle INTS = MethodHandles.arrayElementVarHandle(int[].class);
+
+    //The graph to search.
+    private final CompiledGraph graph;
+
+    //The bucket width.
+    private final int delta;
+
+    //The pool that runs the relaxations.
+    private final ForkJoinPool pool;
+
+    //Graphs with fewer vertices than this are searched with sequential Dijkstra.
+    private final int sequentialThreshold;
+
+    /**
+     * Constructs a delta-stepping engine that falls back to Dijkstra below SEQUENTIAL_THRESHOLD vertices.
+     *
+     * @param graph The graph to search.
+     * @param delta The bucket width, at least 1.
+     * @param pool The pool that runs the relaxations.
+     */
+    public DeltaStepping(CompiledGraph graph, int delta, ForkJoinPool pool) {
+        this(graph, delta, pool, SEQUENTIAL_THRESHOLD);
+    }
+
+    /**
+     * Constructs a delta-stepping engine.
+     *
+     * @param graph The graph to search.
+     * @param delta The bucket width, at least 1.
+     * @param pool The pool that runs the relaxations.
+     * @param sequentialThreshold Graphs with fewer vertices than this use sequential Dijkstra instead.
+     */
+    public DeltaStepping(CompiledGraph graph, int delta, ForkJoinPool pool, int sequentialThreshold) {
+        if (delta < 1) {
+            throw new IllegalArgumentException("delta must be at least 1: " + delta);
+        }
+        this.graph = graph;
+        this.delta = delta;
+        this.pool = pool;
+        this.sequentialThreshold = sequentialThreshold;
+    }
+
+    /**
+     * Returns a bucket width suited to the graph: the largest edge weight divided by the average degree.
+     *
+     * @param graph The graph to search.
+     * @return The suggested delta.
+     */
+    public static int defaultDelta(CompiledGraph graph) {
+        int maxWeight = 0;
+        for (int w : graph.weights) {
+            maxWeight = Math.max(maxWeight, w);
+        }
+        double averageDegree = Math.max(1.0, (double) graph.edgeCount() / Math.max(1, graph.vertexCount()));
+        return Math.max(1, (int) (maxWeight / averageDegree));
+    }
+
+    /**
+     * Returns the shortest distance from a vertex to every vertex in the graph.
+     *
+     * @param source The id of the starting vertex.
+     * @return The distance to each vertex, with Integer.MAX_VALUE for vertices that cannot be reached.
+     */
+    public int[] distancesFrom(int source) {
+        if (graph.vertexCount() < sequentialThreshold || pool.getParallelism() == 1) {
+            return new DijkstraEngine(graph).distancesFrom(source);
+        }
+        return new Run(source).execute();
+    }
+
+    /**
+     * The state of one delta-stepping search.
+     */
+    private class Run {
+
+        //The tentative distance of each vertex, updated with compare-and-set.
+        final int[] dist;
+
+        //The distance each vertex last had its light edges relaxed at, so it is not relaxed twice.
+        final int[] lightDone;
+
+        //The phase in which each vertex was last added to changed, so it is added once per phase.
+        final int[] changedPhase;
+
+        //The vertices whose distance improved in the current phase.
+        final int[] changed;
+
+        //The number of entries in changed.
+        final AtomicInteger changedCount = new AtomicInteger();
+
+        //The buckets, used as a ring. Live distances never span more than maxWeight / delta + 1 buckets.
+        final IntList[] buckets;
+
+        //The current phase number.
+        int phase;
+
+        /**
+         * Sets up a search from the given vertex.
+         *
+         * @param source The id of the starting vertex.
+         */
+        Run(int source) {
+            int n = graph.vertexCount();
+            dist = new int[n];
+            lightDone = new int[n];
+            changedPhase = new int[n];
+            changed = new int[n];
+            Arrays.fill(dist, Integer.MAX_VALUE);
+            Arrays.fill(lightDone, -1);
+
+            int maxWeight = 0;
+            for (int w : graph.weights) {
+                maxWeight = Math.max(maxWeight, w);
+            }
+            buckets = new IntList[maxWeight / delta + 2];
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new IntList();
+            }
+            dist[source] = 0;
+            buckets[0].add(source);
+        }
+
+        /**
+         * Runs the search to completion.
+         *
+         * @return The distance to each vertex.
+         */
+        int[] execute() {
+            long current = 0;
+            IntList settled = new IntList();
+            IntList frontier = new IntList();
+            while (true) {
+                //find the next non-empty bucket, which is at most one ring length ahead
+                int empty = 0;
+                while (buckets[(int) (current % buckets.length)].isEmpty() && empty < buckets.length) {
+                    current++;
+                    empty++;
+                }
+                if (empty == buckets.length) {
+                    return dist;
+                }
+
+                IntList bucket = buckets[(int) (current % buckets.length)];
+                settled.clear();
+                while (!bucket.isEmpty()) {
+                    frontier.clear();
+                    for (int i = 0; i < bucket.size; i++) {
+                        int v = bucket.get(i);
+                        int d = dist[v];
+                        //skip stale entries left behind when a vertex moved to a lower bucket
+                        if (d / delta == current && lightDone[v] != d) {
+                            lightDone[v] = d;
+                            frontier.add(v);
+                            settled.add(v);
+                        }
+                    }
+                    bucket.clear();
+                    relaxAll(frontier, true);
+                    collect();
+                }
+                relaxAll(settled, false);
+                collect();
+                current++;
+            }
+        }
+
+        /**
+         * Relaxes the light or heavy edges of every vertex in a list, spread over the pool.
+         *
+         * @param vertices The vertices whose edges to relax.
+         * @param light True to relax edges of weight at most delta, false for the heavier ones.
+         */
+        void relaxAll(IntList vertices, boolean light) {
+            phase++;
+            changedCount.set(0);
+            int blocks = (vertices.size + BLOCK - 1) / BLOCK;
+            if (blocks <= 1) {
+                relaxBlock(vertices, 0, light);
+                return;
+            }
+            try {
+                pool.submit(() -> IntStream.range(0, blocks).parallel()
+                        .forEach(b -> relaxBlock(vertices, b, light))).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted during delta-stepping", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+
+        /**
+         * Relaxes the edges of one block of a vertex list.
+         *
+         * @param vertices The vertices whose edges to relax.
+         * @param block The block number.
+         * @param light True to relax light edges, false for heavy ones.
+         */
+        void relaxBlock(IntList vertices, int block, boolean light) {
+            int end = Math.min(vertices.size, (block + 1) * BLOCK);
+            for (int i = block * BLOCK; i < end; i++) {
+                int u = vertices.get(i);
+                int du = (int) INTS.getVolatile(dist, u);
+                for (int j = graph.offsets[u]; j < graph.offsets[u + 1]; j++) {
+                    int w = graph.weights[j];
+                    if ((w <= delta) == light) {
+                        relax(graph.targets[j], du + w);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Lowers the distance of a vertex if the new one is smaller, and records it as changed.
+         *
+         * @param v The vertex id.
+         * @param d The new distance.
+         */
+        void relax(int v, int d) {
+            int old = (int) INTS.getVolatile(dist, v);
+            while (d < old) {
+                if (INTS.compareAndSet(dist, v, old, d)) {
+                    int seen = (int) INTS.getVolatile(changedPhase, v);
+                    if (seen != phase && INTS.compareAndSet(changedPhase, v, seen, phase)) {
+                        changed[changedCount.getAndIncrement()] = v;
+                    }
+                    return;
+                }
+                old = (int) INTS.getVolatile(dist, v);
+            }
+        }
+
+        /**
+         * Moves every vertex that changed in the last phase into the bucket of its new distance.
+         */
+        void collect() {
+            int count = changedCount.get();
+            for (int i = 0; i < count; i++) {
+                int v = changed[i];
+                buckets[(dist[v] / delta) % buckets.length].add(v);
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+import org.junit.Test;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for the DeltaStepping class.
+ *
+ * @author Ryan Cesar Irizarry
+ */
+public class DeltaSteppingTest {
+
+    /**
+     * Tests parallel delta-stepping, with the sequential fallback turned off, against Dijkstra from several
+     * sources on random graphs, with a bucket width of 1, a width in between and a width larger than any
+     * path so that everything lands in one bucket. Graphs with zero-weight flights and cities that cannot
+     * be reached are included.
+     */
+    @Test
+    public void testMatchesDijkstra() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int round = 0; round < 6; round++) {
+                int cities = 300 + 700 * round;
+                int maxWeight = round % 2 == 0 ? 50 : 6;
+                CompiledGraph graph = TestGraphs.randomSystem(cities, cities - cities / 10, 3 * cities,
+                        maxWeight, round).compile();
+                DijkstraEngine dijkstra = new DijkstraEngine(graph);
+                Random random = new Random(round);
+                int[] deltas = {1, Math.max(2, DeltaStepping.defaultDelta(graph)), Integer.MAX_VALUE};
+                for (int query = 0; query < 4; query++) {
+                    int source = random.nextInt(cities);
+                    int[] expected = dijkstra.distancesFrom(source);
+                    for (int delta : deltas) {
+                        int[] actual = new DeltaStepping(graph, delta, pool, 0).distancesFrom(source);
+                        assertTrue("round " + round + " source " + source + " delta " + delta,
+                                Arrays.equals(expected, actual));
+                    }
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Tests that a bucket width below 1 is rejected.
+     */
+    @Test
+    public void testInvalidDelta() {
+        CompiledGraph graph = TestGraphs.randomSystem(5, 10, 1).compile();
+        try {
+            new DeltaStepping(graph, 0, ForkJoinPool.commonPool());
+            fail("A bucket width of 0 was accepted");
+        } catch (IllegalArgumentException e) {
+            assertNotNull(e.getMessage());
+        }
+    }
+}
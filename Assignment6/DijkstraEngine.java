@@ -0,0 +1,168 @@
+import java.util.Arrays;
+
+/**
+ * Point-to-point Dijkstra over a compiled graph. The queue is an indexed heap over int ids with
+ * decrease-key, the search stops as soon as the target is settled, and all working arrays come from the
+ * calling thread's reusable scratch space, so a query does not allocate once the thread has warmed up.
+ *
+ * @author Ryan Cesar Irizarry
+ */
+public class DijkstraEngine {
+
+    //The graph to search.
+    private final CompiledGraph graph;
+
+    /**
+     * Constructs an engine for the given graph.
+     *
+     * @param graph The graph to search.
+     */
+    public DijkstraEngine(CompiledGraph graph) {
+        this.graph = graph;
+    }
+
+    /**
+     * Returns the graph this engine searches.
+     *
+     * @return The compiled graph.
+     */
+    public CompiledGraph graph() {
+        return graph;
+    }
+
+    /**
+     * Returns the shortest distance between two vertices.
+     *
+     * @param source The id of the starting vertex.
+     * @param target The id of the destination vertex.
+     * @return The shortest distance, or Integer.MAX_VALUE if the target cannot be reached.
+     */
+    public int distance(int source, int target) {
+        SearchScratch scratch = SearchScratch.current(graph.vertexCount());
+        int[] offsets = graph.offsets;
+        int[] targets = graph.targets;
+        int[] weights = graph.weights;
+        IndexedMinHeap heap = scratch.heap;
+
+        scratch.relax(source, 0);
+        while (!heap.isEmpty()) {
+            int curVertex = heap.poll();
+            scratch.settle(curVertex);
+            int curDistance = scratch.dist[curVertex];
+            if (curVertex == target) {
+                return curDistance;
+            }
+
+            for (int j = offsets[curVertex]; j < offsets[curVertex + 1]; j++) {
+                int destination = targets[j];
+                if (!scratch.isSettled(destination)) {
+                    scratch.relax(destination, curDistance + weights[j]);
+                }
+            }
+        }
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * Returns a shortest path between two vertices.
+     *
+     * @param source The id of the starting vertex.
+     * @param target The id of the destination vertex.
+     * @return The ids of the vertices on the path from source to target, or null if the target cannot be
+     *         reached.
+     */
+    public int[] path(int source, int target) {
+        SearchScratch scratch = SearchScratch.current(graph.vertexCount());
+        int[] offsets = graph.offsets;
+        int[] targets = graph.targets;
+        int[] weights = graph.weights;
+        IndexedMinHeap heap = scratch.heap;
+
+        scratch.relax(source, 0);
+        scratch.parent[source] = -1;
+        while (!heap.isEmpty()) {
+            int curVertex = heap.poll();
+            scratch.settle(curVertex);
+            if (curVertex == target) {
+                return tracePath(scratch.parent, target);
+            }
+            int curDistance = scratch.dist[curVertex];
+            for (int j = offsets[curVertex]; j < offsets[curVertex + 1]; j++) {
+                int destination = targets[j];
+                if (!scratch.isSettled(destination) && scratch.relax(destination, curDistance + weights[j])) {
+                    scratch.parent[destination] = curVertex;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Follows parent links back from a vertex to the start of the search.
+     *
+     * @param parent The vertex each vertex was reached from, with -1 at the start.
+     * @param last The vertex to trace back from.
+     * @return The ids of the vertices from the start to last.
+     */
+    static int[] tracePath(int[] parent, int last) {
+        int length = 0;
+        for (int v = last; v >= 0; v = parent[v]) {
+            length++;
+        }
+        int[] path = new int[length];
+        for (int v = last; v >= 0; v = parent[v]) {
+            path[--length] = v;
+        }
+        return path;
+    }
+
+    /**
+     * Returns the shortest distance from a vertex to every vertex in the graph.
+     *
+     * @param source The id of the starting vertex.
+     * @return The distance to each vertex, with Integer.MAX_VALUE for vertices that cannot be reached.
+     */
+    public int[] distancesFrom(int source) {
+        int[] result = new int[graph.vertexCount()];
+        distancesFrom(source, result);
+        return result;
+    }
+
+    /**
+     * Writes the shortest distance from a vertex to every vertex in the graph into a caller-owned array,
+     * so that batch jobs can reuse one row buffer per thread.
+     *
+     * @param source The id of the starting vertex.
+     * @param result The array to fill, of length at least vertexCount, with Integer.MAX_VALUE for vertices
+     *               that cannot be reached.
+     */
+    public void distancesFrom(int source, int[] result) {
+        SearchScratch scratch = SearchScratch.current(graph.vertexCount());
+        IndexedMinHeap heap = scratch.heap;
+        Arrays.fill(result, 0, graph.vertexCount(), Integer.MAX_VALUE);
+
+        scratch.relax(source, 0);
+        while (!heap.isEmpty()) {
+            int curVertex = heap.poll();
+            scratch.settle(curVertex);
+            int curDistance = scratch.dist[curVertex];
+            result[curVertex] = curDistance;
+
+            for (int j = graph.offsets[curVertex]; j < graph.offsets[curVertex + 1]; j++) {
+                int destination = graph.targets[j];
+                if (!scratch.isSettled(destination)) {
+                    scratch.relax(destination, curDistance + graph.weights[j]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of vertices settled by the calling thread's last query.
+     *
+     * @return The settled vertex count.
+     */
+    public int lastSettledCount() {
+        return SearchScratch.lastSettledCount();
+    }
+}
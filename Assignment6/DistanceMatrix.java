@@ -0,0 +1,264 @@
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An all-pairs distance matrix stored in a memory-mapped file. Lookups read straight from the mapping, so
+ * any number of processes can open the same file and share one copy of it through the page cache.
+ *
+ * File layout, all big-endian: magic, city count n, graph fingerprint (long), the n * n distances in row
+ * order with Integer.MAX_VALUE for unreachable pairs, then each city name as a length-prefixed UTF-8 string.
+ *
+ * @author Ryan Cesar Irizarry
+ */
+public class DistanceMatrix {
+
+    //Marks the start of a distance matrix file.
+    private static final int MAGIC = 0x41505350;
+
+    //The size of the header in bytes.
+    private static final int HEADER_BYTES = 16;
+
+    //The most bytes a file can have, since it is read through a single mapping.
+    private static final long MAX_FILE_BYTES = Integer.MAX_VALUE;
+
+    //The largest number of cities whose file fits in a single mapping: the header, the matrix and a
+    //length prefix for each name. Longer names lower the limit, which create checks.
+    static final int MAX_CITIES = maxCities();
+
+    //The number of cities.
+    private final int size;
+
+    //The fingerprint of the graph the distances were computed on.
+    private final long graphFingerprint;
+
+    //The distances, viewed directly on the mapped file.
+    private final IntBuffer distances;
+
+    //The mapping, kept so that writes can be flushed.
+    private final MappedByteBuffer mapping;
+
+    //The city name of each row.
+    private final String[] names;
+
+    //Maps a city name to its row.
+    private final Map<String, Integer> ids;
+
+    /**
+     * Finds the largest number of cities whose header, matrix and name length prefixes fit in one mapping.
+     *
+     * @return The number of cities.
+     */
+    private static int maxCities() {
+        int n = (int) Math.sqrt(MAX_FILE_BYTES / 4.0);
+        while (fileBytes(n, 4L * n) > MAX_FILE_BYTES) {
+            n--;
+        }
+        return n;
+    }
+
+    /**
+     * Returns the size of a matrix file.
+     *
+     * @param n The number of cities.
+     * @param nameBytes The bytes taken by the names and their length prefixes.
+     * @return The size in bytes.
+     */
+    private static long fileBytes(int n, long nameBytes) {
+        return HEADER_BYTES + 4L * n * n + nameBytes;
+    }
+
+    /**
+     * Constructs a matrix over a mapping.
+     */
+    private DistanceMatrix(MappedByteBuffer mapping, int size, long graphFingerprint, String[] names,
+                           Map<String, Integer> ids) {
+        this.mapping = mapping;
+        this.size = size;
+        this.graphFingerprint = graphFingerprint;
+        this.distances = mapping.slice(HEADER_BYTES, (int) (4L * size * size)).asIntBuffer();
+        this.names = names;
+        this.ids = ids;
+    }
+
+    /**
+     * Creates a matrix file for a graph, with every distance still unset. The caller fills the rows.
+     *
+     * @param file The file to create.
+     * @param graph The graph the distances belong to.
+     * @return The writable matrix.
+     * @throws IOException If the file cannot be created.
+     * @throws IllegalArgumentException If the graph has more than MAX_CITIES cities or the file would not
+     *                                  fit in one mapping.
+     */
+    static DistanceMatrix create(Path file, CompiledGraph graph) throws IOException {
+        int n = graph.vertexCount();
+        if (n > MAX_CITIES) {
+            throw new IllegalArgumentException("A distance matrix holds at most " + MAX_CITIES + " cities");
+        }
+        byte[][] encoded = new byte[n][];
+        long nameBytes = 0;
+        for (int v = 0; v < n; v++) {
+            encoded[v] = graph.nameOf(v).getBytes(StandardCharsets.UTF_8);
+            nameBytes += 4 + encoded[v].length;
+        }
+        long bytes = fileBytes(n, nameBytes);
+        if (bytes > MAX_FILE_BYTES) {
+            throw new IllegalArgumentException("A distance matrix of " + n + " cities takes " + bytes
+                    + " bytes, more than one mapping holds");
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer mapping = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+            mapping.putInt(MAGIC).putInt(n).putLong(graph.fingerprint());
+            mapping.position((int) fileBytes(n, 0));
+            for (byte[] name : encoded) {
+                mapping.putInt(name.length).put(name);
+            }
+            return new DistanceMatrix(mapping, n, graph.fingerprint(), graph.names, graph.ids);
+        }
+    }
+
+    /**
+     * Opens a matrix file read-only. Only the city names are read up front.
+     *
+     * @param file The file to open.
+     * @return The matrix.
+     * @throws IOException If the file cannot be read or is not a distance matrix file.
+     */
+    public static DistanceMatrix open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > MAX_FILE_BYTES) {
+                throw new IOException("Too large for a distance matrix file: " + file);
+            }
+            MappedByteBuffer mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (mapping.remaining() < HEADER_BYTES || mapping.getInt() != MAGIC) {
+                throw new IOException("Not a distance matrix file: " + file);
+            }
+            int n = mapping.getInt();
+            long fingerprint = mapping.getLong();
+            if (n < 0 || n > MAX_CITIES || fileBytes(n, 4L * n) > mapping.capacity()) {
+                throw new IOException("Truncated or corrupt distance matrix file: " + file);
+            }
+            mapping.position((int) fileBytes(n, 0));
+            String[] names = new String[n];
+            Map<String, Integer> ids = new HashMap<>(n * 2);
+            for (int v = 0; v < n; v++) {
+                int length = mapping.remaining() < 4 ? -1 : mapping.getInt();
+                if (length < 0 || length > mapping.remaining()) {
+                    throw new IOException("Truncated or corrupt distance matrix file: " + file);
+                }
+                names[v] = StandardCharsets.UTF_8.decode(mapping.slice(mapping.position(), length)).toString();
+                mapping.position(mapping.position() + length);
+                ids.put(names[v], v);
+            }
+            return new DistanceMatrix(mapping, n, fingerprint, names, ids);
+        }
+    }
+
+    /**
+     * Returns the number of cities.
+     *
+     * @return The number of rows and columns.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks if the distances were computed on the given graph.
+     *
+     * @param graph The graph to check.
+     * @return True if the graph has not changed since, false otherwise.
+     */
+    public boolean matches(CompiledGraph graph) {
+        return graph.fingerprint() == graphFingerprint;
+    }
+
+    /**
+     * Returns the id of a city.
+     *
+     * @param city The city name.
+     * @return The row of the city, or -1 if it is not in the matrix.
+     */
+    public int idOf(String city) {
+        Integer id = ids.get(city);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Returns the name of the city in a row.
+     *
+     * @param id The row.
+     * @return The city name.
+     */
+    public String nameOf(int id) {
+        return names[id];
+    }
+
+    /**
+     * Returns the shortest distance between two cities by id.
+     *
+     * @param source The row of the starting city.
+     * @param target The column of the destination city.
+     * @return The distance, or Integer.MAX_VALUE if the destination cannot be reached.
+     */
+    public int distance(int source, int target) {
+        return distances.get(source * size + target);
+    }
+
+    /**
+     * Returns the shortest distance between two cities.
+     *
+     * @param cityA The starting city.
+     * @param cityB The destination city.
+     * @return The distance, or Integer.MAX_VALUE if either city is unknown or B cannot be reached.
+     */
+    public int distance(String cityA, String cityB) {
+        int source = idOf(cityA);
+        int target = idOf(cityB);
+        return source < 0 || target < 0 ? Integer.MAX_VALUE : distance(source, target);
+    }
+
+    /**
+     * Copies a row of distances into an array.
+     *
+     * @param source The row.
+     * @param out The array to fill, of length at least size.
+     */
+    public void row(int source, int[] out) {
+        distances.duplicate().get(source * size, out, 0, size);
+    }
+
+    /**
+     * Writes a row of distances. Rows may be written from several threads at once.
+     *
+     * @param source The row.
+     * @param row The distances, of length at least size.
+     */
+    void putRow(int source, int[] row) {
+        distances.duplicate().put(source * size, row, 0, size);
+    }
+
+    /**
+     * Writes the whole matrix.
+     *
+     * @param matrix The distances in row order.
+     */
+    void putAll(int[] matrix) {
+        distances.duplicate().put(0, matrix, 0, size * size);
+    }
+
+    /**
+     * Flushes written distances to the file.
+     */
+    void force() {
+        mapping.force();
+    }
+}
@@ -0,0 +1,383 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps shortest-path trees for a set of hot source cities up to date as flights are added, removed and
+ * reweighted. Each change is repaired in the style of Ramalingam and Reps: an improvement is pushed
+ * outward from the edge with a Dijkstra limited to the vertices that get closer, and a loss is handled by
+ * resetting only the subtree that hung off the changed edge and rebuilding it from its unaffected
+ * neighbors. The cost of a change is proportional to the part of each tree it affects, not to the graph.
+ *
+ * @author Ryan Cesar Irizarry
+ */
+public class DynamicShortestPaths implements GraphChangeListener {
+
+    //Maps a city name to its id in this structure.
+    private final Map<String, Integer> ids = new HashMap<>();
+
+    //The city name for each id.
+    private final List<String> names = new ArrayList<>();
+
+    //The outgoing edges of each city as parallel target and weight lists.
+    private final List<IntList> outTo = new ArrayList<>();
+    private final List<IntList> outWeight = new ArrayList<>();
+
+    //The incoming edges of each city as parallel source and weight lists.
+    private final List<IntList> inFrom = new ArrayList<>();
+    private final List<IntList> inWeight = new ArrayList<>();
+
+    //The shortest-path tree of each hot source, by source id.
+    private final Map<Integer, Tree> trees = new HashMap<>();
+
+    //The queue shared by all repairs. It is always empty between repairs.
+    private IndexedMinHeap heap = new IndexedMinHeap(0);
+
+    //The repair that last marked each city as affected.
+    private int[] affectedStamp = new int[0];
+
+    //The number of the current repair.
+    private int repairEpoch;
+
+    //True if a change other than an edge change made the trees stale.
+    private boolean stale;
+
+    /**
+     * The shortest-path tree of one source.
+     */
+    private static class Tree {
+
+        //The id of the source.
+        final int source;
+
+        //The distance from the source to each city.
+        int[] dist;
+
+        //The previous city on the shortest route to each city, or -1.
+        int[] parent;
+
+        /**
+         * Constructs a tree in which only the source is reached.
+         *
+         * @param source The id of the source.
+         * @param n The number of cities.
+         */
+        Tree(int source, int n) {
+            this.source = source;
+            this.dist = new int[n];
+            this.parent = new int[n];
+            Arrays.fill(dist, Integer.MAX_VALUE);
+            Arrays.fill(parent, -1);
+            dist[source] = 0;
+        }
+
+        /**
+         * Makes room for at least n cities. New cities start unreached.
+         *
+         * @param n The number of cities.
+         */
+        void ensureCapacity(int n) {
+            if (dist.length < n) {
+                int oldLength = dist.length;
+                int newLength = Math.max(n, oldLength * 2);
+                dist = Arrays.copyOf(dist, newLength);
+                parent = Arrays.copyOf(parent, newLength);
+                Arrays.fill(dist, oldLength, newLength, Integer.MAX_VALUE);
+                Arrays.fill(parent, oldLength, newLength, -1);
+            }
+        }
+    }
+
+    /**
+     * Constructs the structure from the current state of a compiled graph.
+     *
+     * @param graph The graph to start from.
+     */
+    public DynamicShortestPaths(CompiledGraph graph) {
+        for (int v = 0; v < graph.vertexCount(); v++) {
+            intern(graph.nameOf(v));
+        }
+        for (int u = 0; u < graph.vertexCount(); u++) {
+            for (int j = graph.offsets[u]; j < graph.offsets[u + 1]; j++) {
+                outTo.get(u).add(graph.targets[j]);
+                outWeight.get(u).add(graph.weights[j]);
+                inFrom.get(graph.targets[j]).add(u);
+                inWeight.get(graph.targets[j]).add(graph.weights[j]);
+            }
+        }
+    }
+
+    /**
+     * Starts keeping the shortest-path tree of a city, computing it once from scratch.
+     *
+     * @param city The source city.
+     */
+    public void addSource(String city) {
+        int source = intern(city);
+        if (trees.containsKey(source)) {
+            return;
+        }
+        Tree tree = new Tree(source, names.size());
+        heap.insertOrDecrease(source, 0);
+        propagate(tree);
+        trees.put(source, tree);
+    }
+
+    /**
+     * Stops keeping the shortest-path tree of a city.
+     *
+     * @param city The source city.
+     */
+    public void removeSource(String city) {
+        Integer source = ids.get(city);
+        if (source != null) {
+            trees.remove(source);
+        }
+    }
+
+    /**
+     * Checks if a city is a hot source.
+     *
+     * @param city The city.
+     * @return True if its shortest-path tree is kept, false otherwise.
+     */
+    public boolean isSource(String city) {
+        Integer source = ids.get(city);
+        return source != null && trees.containsKey(source);
+    }
+
+    /**
+     * Returns the hot source cities.
+     *
+     * @return The names of the sources.
+     */
+    public List<String> sources() {
+        List<String> sources = new ArrayList<>();
+        for (int source : trees.keySet()) {
+            sources.add(names.get(source));
+        }
+        return sources;
+    }
+
+    /**
+     * Checks if a change other than an edge change was reported, after which the trees no longer match
+     * the graph and the structure must be rebuilt from it.
+     *
+     * @return True if the structure is stale.
+     */
+    public boolean isStale() {
+        return stale;
+    }
+
+    /**
+     * Returns the shortest distance from a hot source to a city.
+     *
+     * @param source The hot source city.
+     * @param city The destination city.
+     * @return The distance, or Integer.MAX_VALUE if the city cannot be reached.
+     * @throws IllegalArgumentException If the source is not a hot source.
+     * @throws IllegalStateException If the structure is stale.
+     */
+    public int distance(String source, String city) {
+        if (stale) {
+            throw new IllegalStateException("The graph changed in a way the trees cannot be repaired for");
+        }
+        Integer sourceId = ids.get(source);
+        Tree tree = sourceId == null ? null : trees.get(sourceId);
+        if (tree == null) {
+            throw new IllegalArgumentException("Not a hot source: " + source);
+        }
+        Integer id = ids.get(city);
+        return id == null ? Integer.MAX_VALUE : tree.dist[id];
+    }
+
+    /**
+     * Updates the mirrored graph and repairs every tree after an edge change.
+     */
+    @Override
+    public void edgeChanged(String source, String destination, int oldWeight, int newWeight) {
+        if (stale) {
+            return;
+        }
+        int u = intern(source);
+        int v = intern(destination);
+        setEdge(u, v, newWeight);
+        for (Tree tree : trees.values()) {
+            if (newWeight != NO_EDGE && (oldWeight == NO_EDGE || newWeight < oldWeight)) {
+                repairDecrease(tree, u, v, newWeight);
+            } else if (tree.parent[v] == u) {
+                //the edge got longer or went away, and it was part of this tree
+                repairIncrease(tree, v);
+            }
+        }
+    }
+
+    /**
+     * Marks the structure as stale, since a replaced or removed city cannot be repaired edge by edge.
+     */
+    @Override
+    public void graphChanged() {
+        stale = true;
+    }
+
+    /**
+     * Repairs a tree after the edge u to v got shorter or was added.
+     *
+     * @param tree The tree to repair.
+     * @param u The source of the edge.
+     * @param v The destination of the edge.
+     * @param weight The new weight.
+     */
+    private void repairDecrease(Tree tree, int u, int v, int weight) {
+        if (tree.dist[u] == Integer.MAX_VALUE || tree.dist[u] + weight >= tree.dist[v]) {
+            return;
+        }
+        tree.dist[v] = tree.dist[u] + weight;
+        tree.parent[v] = u;
+        heap.insertOrDecrease(v, tree.dist[v]);
+        propagate(tree);
+    }
+
+    /**
+     * Repairs a tree after the tree edge into v got longer or was removed. Every city whose route ran
+     * through that edge is reset, then given the best distance through an incoming edge from outside the
+     * reset part, and the improvements are propagated.
+     *
+     * @param tree The tree to repair.
+     * @param v The destination of the changed edge.
+     */
+    private void repairIncrease(Tree tree, int v) {
+        //collect the subtree below v by following tree edges
+        int epoch = ++repairEpoch;
+        IntList affected = new IntList();
+        affected.add(v);
+        affectedStamp[v] = epoch;
+        for (int i = 0; i < affected.size; i++) {
+            int x = affected.get(i);
+            IntList targets = outTo.get(x);
+            for (int j = 0; j < targets.size; j++) {
+                int y = targets.get(j);
+                if (affectedStamp[y] != epoch && tree.parent[y] == x) {
+                    affectedStamp[y] = epoch;
+                    affected.add(y);
+                }
+            }
+        }
+
+        for (int i = 0; i < affected.size; i++) {
+            int x = affected.get(i);
+            tree.dist[x] = Integer.MAX_VALUE;
+            tree.parent[x] = -1;
+        }
+        for (int i = 0; i < affected.size; i++) {
+            int x = affected.get(i);
+            IntList sources = inFrom.get(x);
+            IntList weights = inWeight.get(x);
+            for (int j = 0; j < sources.size; j++) {
+                int p = sources.get(j);
+                if (affectedStamp[p] != epoch && tree.dist[p] != Integer.MAX_VALUE && tree.dist[p] + weights.get(j) < tree.dist[x]) {
+                    tree.dist[x] = tree.dist[p] + weights.get(j);
+                    tree.parent[x] = p;
+                }
+            }
+            if (tree.dist[x] != Integer.MAX_VALUE) {
+                heap.insertOrDecrease(x, tree.dist[x]);
+            }
+        }
+        propagate(tree);
+    }
+
+    /**
+     * Runs Dijkstra from the cities in the shared queue, lowering distances in the tree as it goes.
+     *
+     * @param tree The tree to update.
+     */
+    private void propagate(Tree tree) {
+        while (!heap.isEmpty()) {
+            int x = heap.poll();
+            int d = tree.dist[x];
+            IntList targets = outTo.get(x);
+            IntList weights = outWeight.get(x);
+            for (int j = 0; j < targets.size; j++) {
+                int y = targets.get(j);
+                int nd = d + weights.get(j);
+                if (nd < tree.dist[y]) {
+                    tree.dist[y] = nd;
+                    tree.parent[y] = x;
+                    heap.insertOrDecrease(y, nd);
+                }
+            }
+        }
+    }
+
+    /**
+     * Sets, reweights or removes the edge u to v in the mirrored graph.
+     *
+     * @param u The source city id.
+     * @param v The destination city id.
+     * @param weight The new weight, or NO_EDGE to remove the edge.
+     */
+    private void setEdge(int u, int v, int weight) {
+        setEntry(outTo.get(u), outWeight.get(u), v, weight);
+        setEntry(inFrom.get(v), inWeight.get(v), u, weight);
+    }
+
+    /**
+     * Sets, reweights or removes the entry for one neighbor in a pair of parallel adjacency lists.
+     *
+     * @param neighbors The neighbor list.
+     * @param weights The weight list.
+     * @param neighbor The neighbor id.
+     * @param weight The new weight, or NO_EDGE to remove the entry.
+     */
+    private static void setEntry(IntList neighbors, IntList weights, int neighbor, int weight) {
+        for (int i = 0; i < neighbors.size; i++) {
+            if (neighbors.get(i) == neighbor) {
+                if (weight == NO_EDGE) {
+                    int last = neighbors.size - 1;
+                    neighbors.items[i] = neighbors.items[last];
+                    weights.items[i] = weights.items[last];
+                    neighbors.size--;
+                    weights.size--;
+                } else {
+                    weights.items[i] = weight;
+                }
+                return;
+            }
+        }
+        if (weight != NO_EDGE) {
+            neighbors.add(neighbor);
+            weights.add(weight);
+        }
+    }
+
+    /**
+     * Returns the id of a city, adding it and growing every tree if it is new.
+     *
+     * @param city The city name.
+     * @return The id of the city.
+     */
+    private int intern(String city) {
+        Integer id = ids.get(city);
+        if (id != null) {
+            return id;
+        }
+        int newId = names.size();
+        ids.put(city, newId);
+        names.add(city);
+        outTo.add(new IntList());
+        outWeight.add(new IntList());
+        inFrom.add(new IntList());
+        inWeight.add(new IntList());
+        for (Tree tree : trees.values()) {
+            tree.ensureCapacity(newId + 1);
+        }
+        if (heap.capacity() <= newId) {
+            heap = new IndexedMinHeap(Math.max(newId + 1, heap.capacity() * 2));
+            affectedStamp = Arrays.copyOf(affectedStamp, heap.capacity());
+        }
+        return newId;
+    }
+}
@@ -0,0 +1,139 @@
+import org.junit.Test;
+import java.util.Random;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for the DynamicShortestPaths class and the hot sources of AirportSystem.
+ *
+ * @author Ryan Cesar Irizarry
+ */
+public class DynamicShortestPathsTest {
+
+    /**
+     * Makes the same random edge change to two systems.
+     *
+     * @param random The source of changes.
+     * @param cities The number of cities.
+     * @param tested The system with hot sources.
+     * @param reference The system without.
+     */
+    private static void mutate(Random random, int cities, AirportSystem tested, AirportSystem reference) {
+        String source = "C" + random.nextInt(cities);
+        String destination = "C" + random.nextInt(cities);
+        int weight = random.nextInt(50);
+        switch (random.nextInt(3)) {
+            case 0:
+                assertEquals(reference.addEdge(source, destination, weight),
+                        tested.addEdge(source, destination, weight));
+                break;
+            case 1:
+                assertEquals(reference.removeEdge(source, destination), tested.removeEdge(source, destination));
+                break;
+            default:
+                assertEquals(reference.updateEdgeWeight(source, destination, weight),
+                        tested.updateEdgeWeight(source, destination, weight));
+                break;
+        }
+    }
+
+    /**
+     * Tests that queries from hot sources match a system without hot sources after every random edge
+     * change, and that none of them compiles the graph again.
+     */
+    @Test
+    public void testHotSourcesMatchDijkstra() {
+        for (int round = 0; round < 3; round++) {
+            int cities = 30 + 30 * round;
+            AirportSystem tested = TestGraphs.randomSystem(cities, 3 * cities, round);
+            AirportSystem reference = TestGraphs.randomSystem(cities, 3 * cities, round);
+            tested.trackSource("C0");
+            tested.trackSource("C1");
+            Random random = new Random(40 + round);
+            int compilations = tested.compilations();
+            for (int step = 0; step < 300; step++) {
+                mutate(random, cities, tested, reference);
+                String source = "C" + random.nextInt(2);
+                String target = "C" + random.nextInt(cities);
+                assertEquals("step " + step + " from " + source + " to " + target,
+                        reference.shortestDistance(source, target), tested.shortestDistance(source, target));
+            }
+            assertEquals(compilations, tested.compilations());
+        }
+    }
+
+    /**
+     * Tests that a query from a hot source right after an edge change does not compile the graph, while a
+     * query from any other city does.
+     */
+    @Test
+    public void testHotSourceQueryDoesNotCompile() {
+        AirportSystem airportSystem = TestGraphs.randomSystem(20, 60, 3);
+        airportSystem.trackSource("C0");
+        assertTrue(airportSystem.addEdge("C0", "C19", 0) || airportSystem.updateEdgeWeight("C0", "C19", 0));
+        int compilations = airportSystem.compilations();
+        assertEquals(0, airportSystem.shortestDistance("C0", "C19"));
+        assertEquals(Integer.MAX_VALUE, airportSystem.shortestDistance("C0", "Nowhere"));
+        assertEquals(compilations, airportSystem.compilations());
+        airportSystem.shortestDistance("C1", "C19");
+        assertEquals(compilations + 1, airportSystem.compilations());
+        airportSystem.shortestDistance("C0", "C19", RoutingMode.BIDIRECTIONAL);
+        assertEquals(compilations + 1, airportSystem.compilations());
+    }
+
+    /**
+     * Tests that appending a city that flights already lead to, before and after the source was tracked,
+     * makes it reachable from the hot source, and that removing a hot source stops tracking it.
+     */
+    @Test
+    public void testAppendedCityAndRemovedSource() {
+        AirportSystem airportSystem = new AirportSystem();
+        airportSystem.connections.add(new AirportSystem.Vertex("A"));
+        airportSystem.connections.add(new AirportSystem.Vertex("B"));
+        assertTrue(airportSystem.addEdge("A", "B", 2));
+        assertTrue(airportSystem.addEdge("B", "X", 3));
+        airportSystem.trackSource("A");
+        assertEquals(Integer.MAX_VALUE, airportSystem.shortestDistance("A", "X"));
+        airportSystem.connections.add(new AirportSystem.Vertex("X"));
+        assertEquals(5, airportSystem.shortestDistance("A", "X"));
+
+        assertTrue(airportSystem.addEdge("A", "Y", 1));
+        assertEquals(Integer.MAX_VALUE, airportSystem.shortestDistance("A", "Y"));
+        airportSystem.connections.add(new AirportSystem.Vertex("Y"));
+        assertEquals(1, airportSystem.shortestDistance("A", "Y"));
+
+        airportSystem.connections.remove(0);
+        assertEquals(Integer.MAX_VALUE, airportSystem.shortestDistance("A", "X"));
+        assertEquals(3, airportSystem.shortestDistance("B", "X"));
+    }
+
+    /**
+     * Tests that edges added and removed through Vertex.edges repair the tree of a hot source without
+     * compiling the graph, and that removing a city rebuilds the tree at the next query.
+     */
+    @Test
+    public void testChangesThroughConnections() {
+        AirportSystem airportSystem = new AirportSystem();
+        for (int i = 0; i < 4; i++) {
+            airportSystem.connections.add(new AirportSystem.Vertex("C" + i));
+        }
+        for (int i = 0; i + 1 < 4; i++) {
+            airportSystem.addEdge("C" + i, "C" + (i + 1), 1);
+        }
+        airportSystem.trackSource("C0");
+        assertEquals(3, airportSystem.shortestDistance("C0", "C3"));
+        int compilations = airportSystem.compilations();
+        AirportSystem.Vertex c0 = airportSystem.connections.get(0);
+        c0.edges.add(airportSystem.new Edge("C0", "C3", 1));
+        assertEquals(1, airportSystem.shortestDistance("C0", "C3"));
+        c0.edges.removeIf(edge -> edge.destination.equals("C3"));
+        assertEquals(3, airportSystem.shortestDistance("C0", "C3"));
+        airportSystem.connections.get(2).edges.clear();
+        assertEquals(Integer.MAX_VALUE, airportSystem.shortestDistance("C0", "C3"));
+        assertEquals(compilations, airportSystem.compilations());
+
+        airportSystem.connections.remove(1);
+        assertEquals(Integer.MAX_VALUE, airportSystem.shortestDistance("C0", "C2"));
+        assertTrue(airportSystem.addEdge("C0", "C2", 5));
+        assertEquals(5, airportSystem.shortestDistance("C0", "C2"));
+    }
+}
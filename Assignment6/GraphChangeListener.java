@@ -0,0 +1,27 @@
+/**
+ * Receives every change AirportSystem makes to its flights, so that data derived from the graph can be
+ * repaired instead of rebuilt.
+ *
+ * @author Ryan Cesar Irizarry
+ */
+public interface GraphChangeListener {
+
+    //The weight reported for a side of a change where the edge does not exist.
+    int NO_EDGE = -1;
+
+    /**
+     * Called after an edge is added, removed or given a new weight.
+     *
+     * @param source The source city of the edge.
+     * @param destination The destination city of the edge.
+     * @param oldWeight The weight before the change, or NO_EDGE if the edge was just added.
+     * @param newWeight The weight after the change, or NO_EDGE if the edge was removed.
+     */
+    void edgeChanged(String source, String destination, int oldWeight, int newWeight);
+
+    /**
+     * Called after a change that is not a single edge change, such as a city being replaced or removed
+     * from the connections list. Anything derived from the graph must be rebuilt.
+     */
+    void graphChanged();
+}
@@ -0,0 +1,172 @@
+import org.junit.Test;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for the GraphFile class.
+ *
+ * @author Ryan Cesar Irizarry
+ */
+public class GraphFileTest {
+
+    /**
+     * Writes a small graph to a temporary binary file.
+     *
+     * @return The file.
+     * @throws IOException If the file cannot be written.
+     */
+    private static Path writeSample() throws IOException {
+        Path csv = Files.createTempFile("flights", ".csv");
+        try {
+            Files.writeString(csv, "source,destination,distance\nA,B,5\nB,C,2\nA,B,9\n# comment\n\nC,A,1\nA,C,-4\n");
+            Path file = Files.createTempFile("flights", ".graph");
+            GraphFile.write(GraphFile.importCsv(csv), file);
+            return file;
+        } finally {
+            Files.delete(csv);
+        }
+    }
+
+    /**
+     * Checks that reading a file fails with an IOException.
+     *
+     * @param file The file.
+     */
+    private static void assertRejected(Path file) {
+        try {
+            GraphFile.read(file);
+            fail("A corrupt graph file was read");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("graph file"));
+        }
+    }
+
+    /**
+     * Tests that a graph imported from CSV reads back with the same cities and distances.
+     *
+     * @throws IOException If a file cannot be written or read.
+     */
+    @Test
+    public void testRoundTrip() throws IOException {
+        Path file = writeSample();
+        try {
+            AirportSystem airportSystem = AirportSystem.load(file);
+            assertEquals(3, airportSystem.compile().vertexCount());
+            assertEquals(3, airportSystem.compile().edgeCount());
+            assertEquals(5, airportSystem.shortestDistance("A", "B"));
+            assertEquals(7, airportSystem.shortestDistance("A", "C"));
+            assertEquals(6, airportSystem.shortestDistance("C", "B"));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * Tests that headers with negative counts or counts larger than the file are rejected before anything
+     * is allocated, and that a truncated name section is rejected.
+     *
+     * @throws IOException If a file cannot be written.
+     */
+    @Test
+    public void testCorruptHeaderRejected() throws IOException {
+        Path file = writeSample();
+        try {
+            byte[] bytes = Files.readAllBytes(file);
+            int[][] headers = {{-1, 3}, {3, -1}, {3, Integer.MAX_VALUE}, {Integer.MAX_VALUE, 3}, {1000, 3}};
+            for (int[] header : headers) {
+                byte[] corrupt = bytes.clone();
+                ByteBuffer.wrap(corrupt).putInt(8, header[0]).putInt(12, header[1]);
+                Files.write(file, corrupt);
+                assertRejected(file);
+            }
+            Files.write(file, Arrays.copyOf(bytes, bytes.length - 2));
+            assertRejected(file);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * Tests that offsets out of order and flight targets outside the graph are rejected.
+     *
+     * @throws IOException If a file cannot be written.
+     */
+    @Test
+    public void testCorruptSectionsRejected() throws IOException {
+        Path file = writeSample();
+        try {
+            byte[] bytes = Files.readAllBytes(file);
+            byte[] corrupt = bytes.clone();
+            ByteBuffer.wrap(corrupt).putInt(20, 3);
+            Files.write(file, corrupt);
+            assertRejected(file);
+            corrupt = bytes.clone();
+            ByteBuffer.wrap(corrupt).putInt(32, 3);
+            Files.write(file, corrupt);
+            assertRejected(file);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * Tests that a loaded system answers queries from the file without compiling, and that its cities and
+     * flights, once used through connections and changed, match the system that was saved.
+     *
+     * @throws IOException If a file cannot be written or read.
+     */
+    @Test
+    public void testLoadedSystemMatchesSaved() throws IOException {
+        Path file = Files.createTempFile("flights", ".graph");
+        try {
+            AirportSystem saved = TestGraphs.randomSystem(60, 180, 4);
+            saved.save(file);
+            AirportSystem loaded = AirportSystem.load(file);
+            for (int a = 0; a < 60; a += 7) {
+                for (int b = 0; b < 60; b += 3) {
+                    assertEquals(saved.shortestDistance("C" + a, "C" + b),
+                            loaded.shortestDistance("C" + a, "C" + b));
+                }
+            }
+            assertEquals(0, loaded.compilations());
+
+            assertEquals(saved.connections.size(), loaded.connections.size());
+            for (int i = 0; i < saved.connections.size(); i++) {
+                AirportSystem.Vertex expected = saved.connections.get(i);
+                AirportSystem.Vertex actual = loaded.connections.get(i);
+                assertEquals(expected.id, actual.id);
+                assertEquals(expected.edges.size(), actual.edges.size());
+                for (int j = 0; j < expected.edges.size(); j++) {
+                    assertEquals(expected.edges.get(j).destination, actual.edges.get(j).destination);
+                    assertEquals(expected.edges.get(j).distance, actual.edges.get(j).distance);
+                }
+            }
+            for (int round = 0; round < 2; round++) {
+                for (int i = 0; i < 60; i += 4) {
+                    AirportSystem.Vertex vertex = saved.connections.get(i);
+                    if (!vertex.edges.isEmpty()) {
+                        String destination = vertex.edges.get(0).destination;
+                        assertTrue(round == 0 ? saved.removeEdge(vertex.id, destination)
+                                : saved.updateEdgeWeight(vertex.id, destination, 0));
+                        assertTrue(round == 0 ? loaded.removeEdge(vertex.id, destination)
+                                : loaded.updateEdgeWeight(vertex.id, destination, 0));
+                    }
+                }
+                for (int a = 0; a < 60; a += 5) {
+                    for (int b = 0; b < 60; b += 2) {
+                        assertEquals(saved.shortestDistance("C" + a, "C" + b),
+                                loaded.shortestDistance("C" + a, "C" + b));
+                    }
+                }
+                saved.connections.remove(10);
+                loaded.connections.remove(10);
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,410 @@
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Splits the cities of a graph into k regions of about equal size while cutting as few flights as possible,
+ * with a multilevel scheme in the style of METIS. Flight directions are ignored for partitioning, and two
+ * cities joined in both directions count as joined twice.
+ *
+ * The graph is first coarsened by heavy-edge matching: each city is merged with the unmatched neighbor it
+ * shares the most flights with, and this repeats until the graph is small. The small graph is split by
+ * growing k regions outward from seed cities. The split is then carried back up level by level, and at
+ * each level cities on a region border are moved to the neighboring region that most reduces the cut,
+ * as long as no region grows past the balance limit.
+ *
+ * @author Ryan Cesar Irizarry
+ */
+public class GraphPartitioner {
+
+    //How far a region may grow past an equal share of the cities, as a fraction.
+    static final double IMBALANCE = 0.05;
+
+    //Coarsening stops once the graph has at most this many cities per region.
+    private static final int COARSEST_PER_REGION = 30;
+
+    //The number of refinement passes at each level.
+    private static final int REFINE_PASSES = 4;
+
+    /**
+     * An undirected graph with weighted cities and weighted edges, one level of the multilevel scheme.
+     */
+    private static class Level {
+
+        //The edges of city v are stored at positions offsets[v] to offsets[v + 1] - 1.
+        final int[] offsets;
+
+        //The neighbor at the end of each edge.
+        final int[] neighbors;
+
+        //The number of flights each edge stands for.
+        final int[] edgeWeights;
+
+        //The number of original cities each city stands for.
+        final int[] cityWeights;
+
+        //The city of the next coarser level each city was merged into, or null on the coarsest level.
+        int[] coarser;
+
+        /**
+         * Constructs a level from packed arrays.
+         *
+         * @param offsets The CSR offsets.
+         * @param neighbors The neighbor of each edge.
+         * @param edgeWeights The weight of each edge.
+         * @param cityWeights The weight of each city.
+         */
+        Level(int[] offsets, int[] neighbors, int[] edgeWeights, int[] cityWeights) {
+            this.offsets = offsets;
+            this.neighbors = neighbors;
+            this.edgeWeights = edgeWeights;
+            this.cityWeights = cityWeights;
+        }
+
+        /**
+         * Returns the number of cities on this level.
+         *
+         * @return The number of cities.
+         */
+        int size() {
+            return cityWeights.length;
+        }
+    }
+
+    /**
+     * Splits the cities of a graph into k regions.
+     *
+     * @param graph The graph to split.
+     * @param k The number of regions.
+     * @param seed The seed for the random visiting order used while coarsening.
+     * @return The region of each city, from 0 to k - 1, indexed by city id.
+     * @throws IllegalArgumentException If k is less than 1.
+     */
+    public static int[] partition(CompiledGraph graph, int k, long seed) {
+        if (k < 1) {
+            throw new IllegalArgumentException("k must be at least 1");
+        }
+        int n = graph.vertexCount();
+        if (k == 1 || n <= k) {
+            int[] part = new int[n];
+            for (int v = 0; v < n; v++) {
+                part[v] = v % k;
+            }
+            return part;
+        }
+
+        Random random = new Random(seed);
+        Level[] levels = new Level[64];
+        levels[0] = undirected(graph);
+        int depth = 0;
+        while (levels[depth].size() > COARSEST_PER_REGION * k && depth + 1 < levels.length) {
+            Level next = coarsen(levels[depth], random);
+            if (next.size() > levels[depth].size() * 9 / 10) {
+                levels[depth].coarser = null;
+                break;
+            }
+            levels[++depth] = next;
+        }
+
+        int totalWeight = n;
+        int maxWeight = (int) Math.ceil(totalWeight / (double) k * (1 + IMBALANCE));
+        int[] part = grow(levels[depth], k, totalWeight);
+        refine(levels[depth], part, k, maxWeight);
+        for (int d = depth - 1; d >= 0; d--) {
+            int[] coarser = levels[d].coarser;
+            int[] finer = new int[levels[d].size()];
+            for (int v = 0; v < finer.length; v++) {
+                finer[v] = part[coarser[v]];
+            }
+            part = finer;
+            refine(levels[d], part, k, maxWeight);
+        }
+        return part;
+    }
+
+    /**
+     * Counts the flights whose two cities are in different regions.
+     *
+     * @param graph The graph.
+     * @param part The region of each city.
+     * @return The number of cut flights.
+     */
+    public static int cutSize(CompiledGraph graph, int[] part) {
+        int cut = 0;
+        for (int u = 0; u < graph.vertexCount(); u++) {
+            for (int j = graph.offsets[u]; j < graph.offsets[u + 1]; j++) {
+                if (part[u] != part[graph.targets[j]]) {
+                    cut++;
+                }
+            }
+        }
+        return cut;
+    }
+
+    /**
+     * Builds the finest level: the graph with directions dropped, self loops removed and the flights
+     * between each pair of cities merged into one weighted edge.
+     *
+     * @param graph The graph.
+     * @return The undirected level.
+     */
+    private static Level undirected(CompiledGraph graph) {
+        CompiledGraph reverse = graph.reverse();
+        int n = graph.vertexCount();
+        int[] weights = new int[n];
+        Arrays.fill(weights, 1);
+        return merge(n, weights, (v, sink) -> {
+            for (int j = graph.offsets[v]; j < graph.offsets[v + 1]; j++) {
+                sink.add(graph.targets[j], 1);
+            }
+            for (int j = reverse.offsets[v]; j < reverse.offsets[v + 1]; j++) {
+                sink.add(reverse.targets[j], 1);
+            }
+        });
+    }
+
+    /**
+     * Receives the edges of one city while a level is built.
+     */
+    private interface EdgeSink {
+
+        /**
+         * Adds weight to the edge to a neighbor.
+         *
+         * @param neighbor The neighbor.
+         * @param weight The weight to add.
+         */
+        void add(int neighbor, int weight);
+    }
+
+    /**
+     * Lists the edges of one city of a level being built.
+     */
+    private interface EdgeSource {
+
+        /**
+         * Sends every edge of a city to a sink, possibly several times for the same neighbor.
+         *
+         * @param city The city.
+         * @param sink The sink.
+         */
+        void edges(int city, EdgeSink sink);
+    }
+
+    /**
+     * Builds a level, merging repeated neighbors of each city and dropping self loops.
+     *
+     * @param n The number of cities.
+     * @param cityWeights The weight of each city.
+     * @param source Lists the edges of each city.
+     * @return The level.
+     */
+    private static Level merge(int n, int[] cityWeights, EdgeSource source) {
+        int[] offsets = new int[n + 1];
+        IntList neighbors = new IntList();
+        IntList edgeWeights = new IntList();
+        int[] position = new int[n];
+        Arrays.fill(position, -1);
+        for (int v = 0; v < n; v++) {
+            int start = neighbors.size;
+            int city = v;
+            source.edges(v, (neighbor, weight) -> {
+                if (neighbor == city) {
+                    return;
+                }
+                if (position[neighbor] >= start) {
+                    edgeWeights.items[position[neighbor]] += weight;
+                } else {
+                    position[neighbor] = neighbors.size;
+                    neighbors.add(neighbor);
+                    edgeWeights.add(weight);
+                }
+            });
+            offsets[v + 1] = neighbors.size;
+        }
+        return new Level(offsets, Arrays.copyOf(neighbors.items, neighbors.size),
+                Arrays.copyOf(edgeWeights.items, edgeWeights.size), cityWeights);
+    }
+
+    /**
+     * Builds the next coarser level by heavy-edge matching.
+     *
+     * @param level The level to coarsen. Its coarser map is set.
+     * @param random The source of the visiting order.
+     * @return The coarser level.
+     */
+    private static Level coarsen(Level level, Random random) {
+        int n = level.size();
+        int[] order = new int[n];
+        for (int v = 0; v < n; v++) {
+            order[v] = v;
+        }
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+        }
+
+        int[] coarser = new int[n];
+        Arrays.fill(coarser, -1);
+        int count = 0;
+        for (int v : order) {
+            if (coarser[v] >= 0) {
+                continue;
+            }
+            int best = -1;
+            for (int j = level.offsets[v]; j < level.offsets[v + 1]; j++) {
+                int u = level.neighbors[j];
+                if (coarser[u] < 0 && (best < 0 || level.edgeWeights[j] > level.edgeWeights[best]
+                        || (level.edgeWeights[j] == level.edgeWeights[best]
+                        && level.cityWeights[u] < level.cityWeights[level.neighbors[best]]))) {
+                    best = j;
+                }
+            }
+            coarser[v] = count;
+            if (best >= 0) {
+                coarser[level.neighbors[best]] = count;
+            }
+            count++;
+        }
+        level.coarser = coarser;
+
+        int[] weights = new int[count];
+        IntList[] members = new IntList[count];
+        for (int v = 0; v < n; v++) {
+            weights[coarser[v]] += level.cityWeights[v];
+            if (members[coarser[v]] == null) {
+                members[coarser[v]] = new IntList();
+            }
+            members[coarser[v]].add(v);
+        }
+        return merge(count, weights, (c, sink) -> {
+            IntList group = members[c];
+            for (int i = 0; i < group.size; i++) {
+                int v = group.get(i);
+                for (int j = level.offsets[v]; j < level.offsets[v + 1]; j++) {
+                    sink.add(coarser[level.neighbors[j]], level.edgeWeights[j]);
+                }
+            }
+        });
+    }
+
+    /**
+     * Splits the coarsest level by growing regions one at a time from unassigned seeds, always taking the
+     * frontier city most strongly tied to the region, until each has an equal share of the weight.
+     *
+     * @param level The coarsest level.
+     * @param k The number of regions.
+     * @param totalWeight The total city weight.
+     * @return The region of each city.
+     */
+    private static int[] grow(Level level, int k, int totalWeight) {
+        int n = level.size();
+        int[] part = new int[n];
+        Arrays.fill(part, -1);
+        int[] tie = new int[n];
+        int assignedWeight = 0;
+        int seed = 0;
+        for (int p = 0; p < k - 1; p++) {
+            int target = (int) ((long) totalWeight * (p + 1) / k) - assignedWeight;
+            int weight = 0;
+            IndexedMinHeap frontier = new IndexedMinHeap(n);
+            while (weight < target) {
+                int v;
+                if (frontier.isEmpty()) {
+                    while (seed < n && part[seed] >= 0) {
+                        seed++;
+                    }
+                    if (seed == n) {
+                        break;
+                    }
+                    v = seed;
+                } else {
+                    v = frontier.poll();
+                }
+                part[v] = p;
+                weight += level.cityWeights[v];
+                for (int j = level.offsets[v]; j < level.offsets[v + 1]; j++) {
+                    int u = level.neighbors[j];
+                    if (part[u] < 0) {
+                        tie[u] += level.edgeWeights[j];
+                        frontier.insertOrDecrease(u, -tie[u]);
+                    }
+                }
+            }
+            assignedWeight += weight;
+            while (!frontier.isEmpty()) {
+                tie[frontier.poll()] = 0;
+            }
+        }
+        for (int v = 0; v < n; v++) {
+            if (part[v] < 0) {
+                part[v] = k - 1;
+            }
+        }
+        return part;
+    }
+
+    /**
+     * Moves border cities to the neighboring region they are most tied to whenever that lowers the cut and
+     * keeps the regions within the balance limit.
+     *
+     * @param level The level.
+     * @param part The region of each city, updated in place.
+     * @param k The number of regions.
+     * @param maxWeight The largest weight a region may have.
+     */
+    private static void refine(Level level, int[] part, int k, int maxWeight) {
+        int n = level.size();
+        int[] regionWeight = new int[k];
+        for (int v = 0; v < n; v++) {
+            regionWeight[part[v]] += level.cityWeights[v];
+        }
+        int[] tie = new int[k];
+        int[] touched = new int[k];
+        for (int pass = 0; pass < REFINE_PASSES; pass++) {
+            int moves = 0;
+            for (int v = 0; v < n; v++) {
+                int home = part[v];
+                int touchedCount = 0;
+                boolean border = false;
+                for (int j = level.offsets[v]; j < level.offsets[v + 1]; j++) {
+                    int p = part[level.neighbors[j]];
+                    if (tie[p] == 0) {
+                        touched[touchedCount++] = p;
+                    }
+                    tie[p] += level.edgeWeights[j];
+                    border |= p != home;
+                }
+                if (border) {
+                    int best = home;
+                    int bestGain = 0;
+                    for (int i = 0; i < touchedCount; i++) {
+                        int p = touched[i];
+                        int gain = tie[p] - tie[home];
+                        if (p != home && regionWeight[p] + level.cityWeights[v] <= maxWeight
+                                && regionWeight[home] > level.cityWeights[v]
+                                && (gain > bestGain || (gain == 0 && bestGain == 0 && best == home
+                                && regionWeight[p] + level.cityWeights[v] < regionWeight[home]))) {
+                            best = p;
+                            bestGain = gain;
+                        }
+                    }
+                    if (best != home) {
+                        part[v] = best;
+                        regionWeight[home] -= level.cityWeights[v];
+                        regionWeight[best] += level.cityWeights[v];
+                        moves++;
+                    }
+                }
+                for (int i = 0; i < touchedCount; i++) {
+                    tie[touched[i]] = 0;
+                }
+                tie[home] = 0;
+            }
+            if (moves == 0) {
+                break;
+            }
+        }
+    }
+}
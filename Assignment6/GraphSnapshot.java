@@ -0,0 +1,431 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An immutable, versioned view of an airport graph that any number of threads can read without locking.
+ * Changes are collected in a Batch and turned into a new snapshot, leaving this one untouched.
+ *
+ * Cities are grouped into fixed-size chunks and each city's flights are stored in their own row, so a
+ * batch only copies the chunks it changes and shares every other chunk and row with the snapshot it was
+ * started from. A batch that adds cities also copies the name-to-id map.
+ *
+ * @author Ryan Cesar Irizarry
+ */
+public final class GraphSnapshot {
+
+    //The number of bits of a city id that select its slot inside a chunk.
+    static final int CHUNK_BITS = 8;
+
+    //The number of cities in each chunk.
+    static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+
+    //A row for a city with no flights.
+    private static final int[] NO_FLIGHTS = new int[0];
+
+    //The version of this snapshot. Each committed batch adds one.
+    private final long version;
+
+    //The number of cities.
+    private final int vertexCount;
+
+    //The number of flights.
+    private final int edgeCount;
+
+    //Maps a city name to its id. Never changed once the snapshot is published.
+    private final Map<String, Integer> ids;
+
+    //The city names, CHUNK_SIZE per chunk.
+    private final String[][] names;
+
+    //The flights of each city, CHUNK_SIZE rows per chunk. A row holds destination and distance pairs.
+    private final int[][][] rows;
+
+    /**
+     * Constructs a snapshot from its parts.
+     */
+    private GraphSnapshot(long version, int vertexCount, int edgeCount, Map<String, Integer> ids, String[][] names,
+                          int[][][] rows) {
+        this.version = version;
+        this.vertexCount = vertexCount;
+        this.edgeCount = edgeCount;
+        this.ids = ids;
+        this.names = names;
+        this.rows = rows;
+    }
+
+    /**
+     * Returns the snapshot of a graph with no cities.
+     *
+     * @return The empty snapshot, at version 0.
+     */
+    public static GraphSnapshot empty() {
+        return new GraphSnapshot(0, 0, 0, new HashMap<>(), new String[0][], new int[0][][]);
+    }
+
+    /**
+     * Builds a snapshot holding the same cities and flights as a compiled graph.
+     *
+     * @param graph The compiled graph.
+     * @return The snapshot, at version 0.
+     */
+    public static GraphSnapshot of(CompiledGraph graph) {
+        int n = graph.vertexCount();
+        int chunks = (n + CHUNK_SIZE - 1) >>> CHUNK_BITS;
+        String[][] names = new String[chunks][CHUNK_SIZE];
+        int[][][] rows = new int[chunks][CHUNK_SIZE][];
+        for (int v = 0; v < n; v++) {
+            names[v >>> CHUNK_BITS][v & (CHUNK_SIZE - 1)] = graph.nameOf(v);
+            int degree = graph.offsets[v + 1] - graph.offsets[v];
+            int[] row = degree == 0 ? NO_FLIGHTS : new int[2 * degree];
+            for (int i = 0; i < degree; i++) {
+                row[2 * i] = graph.targets[graph.offsets[v] + i];
+                row[2 * i + 1] = graph.weights[graph.offsets[v] + i];
+            }
+            rows[v >>> CHUNK_BITS][v & (CHUNK_SIZE - 1)] = row;
+        }
+        return new GraphSnapshot(0, n, graph.edgeCount(), new HashMap<>(graph.ids), names, rows);
+    }
+
+    /**
+     * Returns the version of this snapshot.
+     *
+     * @return The version.
+     */
+    public long version() {
+        return version;
+    }
+
+    /**
+     * Returns the number of cities in this snapshot.
+     *
+     * @return The number of cities.
+     */
+    public int vertexCount() {
+        return vertexCount;
+    }
+
+    /**
+     * Returns the number of flights in this snapshot.
+     *
+     * @return The number of flights.
+     */
+    public int edgeCount() {
+        return edgeCount;
+    }
+
+    /**
+     * Returns the id of a city.
+     *
+     * @param city The city name.
+     * @return The id of the city, or -1 if the city is not in this snapshot.
+     */
+    public int idOf(String city) {
+        Integer id = ids.get(city);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Returns the name of the city with the given id.
+     *
+     * @param id The id of the city.
+     * @return The city name.
+     */
+    public String nameOf(int id) {
+        return names[id >>> CHUNK_BITS][id & (CHUNK_SIZE - 1)];
+    }
+
+    /**
+     * Returns the flights leaving a city as destination and distance pairs. The array must not be changed.
+     *
+     * @param id The id of the city.
+     * @return The row of the city.
+     */
+    int[] row(int id) {
+        return rows[id >>> CHUNK_BITS][id & (CHUNK_SIZE - 1)];
+    }
+
+    /**
+     * Returns a chunk of rows, so tests can check which chunks are shared between snapshots.
+     *
+     * @param chunk The chunk index.
+     * @return The chunk.
+     */
+    int[][] chunk(int chunk) {
+        return rows[chunk];
+    }
+
+    /**
+     * Returns the distance of the flight between two cities.
+     *
+     * @param source The source city.
+     * @param destination The destination city.
+     * @return The distance, or -1 if there is no such flight.
+     */
+    public int edgeWeight(String source, String destination) {
+        int u = idOf(source);
+        int v = idOf(destination);
+        if (u < 0 || v < 0) {
+            return -1;
+        }
+        int[] row = row(u);
+        for (int i = 0; i < row.length; i += 2) {
+            if (row[i] == v) {
+                return row[i + 1];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the shortest distance between two cities in this snapshot, using Dijkstra with early exit.
+     *
+     * @param cityA The starting city.
+     * @param cityB The destination city.
+     * @return The shortest distance, or Integer.MAX_VALUE if either city is unknown or cannot be reached.
+     */
+    public int shortestDistance(String cityA, String cityB) {
+        int source = idOf(cityA);
+        int target = idOf(cityB);
+        if (source < 0 || target < 0) {
+            return Integer.MAX_VALUE;
+        }
+        SearchScratch scratch = SearchScratch.current(vertexCount);
+        IndexedMinHeap heap = scratch.heap;
+
+        scratch.relax(source, 0);
+        while (!heap.isEmpty()) {
+            int curVertex = heap.poll();
+            scratch.settle(curVertex);
+            int curDistance = scratch.dist[curVertex];
+            if (curVertex == target) {
+                return curDistance;
+            }
+            int[] row = row(curVertex);
+            for (int i = 0; i < row.length; i += 2) {
+                int destination = row[i];
+                if (!scratch.isSettled(destination)) {
+                    scratch.relax(destination, curDistance + row[i + 1]);
+                }
+            }
+        }
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * Starts a batch of changes based on this snapshot.
+     *
+     * @return The new batch.
+     */
+    public Batch edit() {
+        return new Batch(this);
+    }
+
+    /**
+     * A set of changes to a snapshot. Chunks are copied the first time the batch touches them, and commit
+     * turns the batch into a new snapshot. A batch is used by one thread and should not be used after commit.
+     */
+    public static final class Batch {
+
+        //The snapshot this batch started from.
+        private final GraphSnapshot base;
+
+        //The number of cities so far.
+        private int vertexCount;
+
+        //The number of flights so far.
+        private int edgeCount;
+
+        //The name-to-id map, still shared with the base until a city is added.
+        private Map<String, Integer> ids;
+
+        //The name chunks. The outer array is always a private copy.
+        private String[][] names;
+
+        //The row chunks. The outer array is always a private copy.
+        private int[][][] rows;
+
+        //Marks the row chunks this batch has already copied.
+        private boolean[] ownedRows;
+
+        //Marks the name chunks this batch has already copied.
+        private boolean[] ownedNames;
+
+        /**
+         * Constructs a batch on top of a snapshot.
+         *
+         * @param base The snapshot to change.
+         */
+        private Batch(GraphSnapshot base) {
+            this.base = base;
+            this.vertexCount = base.vertexCount;
+            this.edgeCount = base.edgeCount;
+            this.ids = base.ids;
+            this.names = base.names.clone();
+            this.rows = base.rows.clone();
+            this.ownedRows = new boolean[rows.length];
+            this.ownedNames = new boolean[names.length];
+        }
+
+        /**
+         * Returns the snapshot this batch started from.
+         *
+         * @return The base snapshot.
+         */
+        public GraphSnapshot base() {
+            return base;
+        }
+
+        /**
+         * Adds a city with no flights.
+         *
+         * @param city The city name.
+         * @return True if the city was added, false if it already exists.
+         */
+        public boolean addCity(String city) {
+            if (ids.containsKey(city)) {
+                return false;
+            }
+            if (ids == base.ids) {
+                ids = new HashMap<>(base.ids);
+            }
+            int id = vertexCount++;
+            int chunk = id >>> CHUNK_BITS;
+            if (chunk == rows.length) {
+                rows = Arrays.copyOf(rows, chunk + 1);
+                names = Arrays.copyOf(names, chunk + 1);
+                ownedRows = Arrays.copyOf(ownedRows, chunk + 1);
+                ownedNames = Arrays.copyOf(ownedNames, chunk + 1);
+                rows[chunk] = new int[CHUNK_SIZE][];
+                names[chunk] = new String[CHUNK_SIZE];
+                ownedRows[chunk] = true;
+                ownedNames[chunk] = true;
+            }
+            if (!ownedNames[chunk]) {
+                names[chunk] = names[chunk].clone();
+                ownedNames[chunk] = true;
+            }
+            names[chunk][id & (CHUNK_SIZE - 1)] = city;
+            writableChunk(chunk)[id & (CHUNK_SIZE - 1)] = NO_FLIGHTS;
+            ids.put(city, id);
+            return true;
+        }
+
+        /**
+         * Adds a flight between two cities that are already in the graph. As with AirportSystem.addEdge,
+         * negative distances and flights that already exist are rejected.
+         *
+         * @param source The source city.
+         * @param destination The destination city.
+         * @param weight The distance of the flight.
+         * @return True if the flight was added, false otherwise.
+         */
+        public boolean addEdge(String source, String destination, int weight) {
+            Integer u = ids.get(source);
+            Integer v = ids.get(destination);
+            if (weight < 0 || u == null || v == null || find(u, v) >= 0) {
+                return false;
+            }
+            int[] row = row(u);
+            int[] grown = Arrays.copyOf(row, row.length + 2);
+            grown[row.length] = v;
+            grown[row.length + 1] = weight;
+            setRow(u, grown);
+            edgeCount++;
+            return true;
+        }
+
+        /**
+         * Removes the flight between two cities.
+         *
+         * @param source The source city.
+         * @param destination The destination city.
+         * @return True if the flight was removed, false if it does not exist.
+         */
+        public boolean removeEdge(String source, String destination) {
+            Integer u = ids.get(source);
+            Integer v = ids.get(destination);
+            int i = u == null || v == null ? -1 : find(u, v);
+            if (i < 0) {
+                return false;
+            }
+            int[] row = row(u);
+            int[] shrunk = new int[row.length - 2];
+            System.arraycopy(row, 0, shrunk, 0, i);
+            System.arraycopy(row, i + 2, shrunk, i, row.length - i - 2);
+            setRow(u, shrunk.length == 0 ? NO_FLIGHTS : shrunk);
+            edgeCount--;
+            return true;
+        }
+
+        /**
+         * Changes the distance of the flight between two cities.
+         *
+         * @param source The source city.
+         * @param destination The destination city.
+         * @param weight The new distance.
+         * @return True if the distance was changed, false if the flight does not exist or weight is negative.
+         */
+        public boolean updateEdgeWeight(String source, String destination, int weight) {
+            Integer u = ids.get(source);
+            Integer v = ids.get(destination);
+            int i = weight < 0 || u == null || v == null ? -1 : find(u, v);
+            if (i < 0) {
+                return false;
+            }
+            int[] row = row(u).clone();
+            row[i + 1] = weight;
+            setRow(u, row);
+            return true;
+        }
+
+        /**
+         * Builds the new snapshot, one version after the base.
+         *
+         * @return The new snapshot.
+         */
+        public GraphSnapshot commit() {
+            return new GraphSnapshot(base.version + 1, vertexCount, edgeCount, ids, names, rows);
+        }
+
+        /**
+         * Returns the position of the flight from u to v in the row of u.
+         *
+         * @return The index of the destination in the row, or -1 if there is no such flight.
+         */
+        private int find(int u, int v) {
+            int[] row = row(u);
+            for (int i = 0; i < row.length; i += 2) {
+                if (row[i] == v) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Returns the current row of a city.
+         */
+        private int[] row(int id) {
+            return rows[id >>> CHUNK_BITS][id & (CHUNK_SIZE - 1)];
+        }
+
+        /**
+         * Replaces the row of a city, copying its chunk first if the base still owns it.
+         */
+        private void setRow(int id, int[] row) {
+            writableChunk(id >>> CHUNK_BITS)[id & (CHUNK_SIZE - 1)] = row;
+        }
+
+        /**
+         * Returns a chunk of rows that this batch may change.
+         */
+        private int[][] writableChunk(int chunk) {
+            if (!ownedRows[chunk]) {
+                rows[chunk] = rows[chunk].clone();
+                ownedRows[chunk] = true;
+            }
+            return rows[chunk];
+        }
+    }
+}
@@ -0,0 +1,163 @@
+import org.junit.Test;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for the GraphSnapshot and ConcurrentAirportSystem classes.
+ *
+ * @author Ryan Cesar Irizarry
+ */
+public class GraphSnapshotTest {
+
+    /**
+     * Builds a system with a chain of cities C0 to C(n-1), each flight of distance 1.
+     *
+     * @param n The number of cities.
+     * @return The system.
+     */
+    private static ConcurrentAirportSystem chain(int n) {
+        ConcurrentAirportSystem system = new ConcurrentAirportSystem();
+        system.update(batch -> {
+            for (int i = 0; i < n; i++) {
+                batch.addCity("C" + i);
+            }
+            for (int i = 0; i + 1 < n; i++) {
+                batch.addEdge("C" + i, "C" + (i + 1), 1);
+            }
+        });
+        return system;
+    }
+
+    /**
+     * Tests that an old snapshot does not see changes committed after it was taken.
+     */
+    @Test
+    public void testSnapshotIsolation() {
+        ConcurrentAirportSystem system = chain(5);
+        GraphSnapshot before = system.snapshot();
+        system.addEdge("C0", "C4", 2);
+        assertEquals(4, before.shortestDistance("C0", "C4"));
+        assertEquals(2, system.shortestDistance("C0", "C4"));
+        assertEquals(before.version() + 1, system.snapshot().version());
+        assertEquals(-1, before.edgeWeight("C0", "C4"));
+    }
+
+    /**
+     * Tests the batch operations and their rejections, which follow AirportSystem.
+     */
+    @Test
+    public void testBatchOperations() {
+        ConcurrentAirportSystem system = chain(3);
+        assertFalse(system.addCity("C0"));
+        assertFalse(system.addEdge("C0", "C1", 5));
+        assertFalse(system.addEdge("C0", "Nowhere", 5));
+        assertFalse(system.addEdge("C0", "C2", -1));
+        GraphSnapshot next = system.update(batch -> {
+            assertTrue(batch.updateEdgeWeight("C0", "C1", 7));
+            assertTrue(batch.removeEdge("C1", "C2"));
+            assertFalse(batch.removeEdge("C1", "C2"));
+        });
+        assertEquals(7, next.edgeWeight("C0", "C1"));
+        assertEquals(1, next.edgeCount());
+        assertEquals(Integer.MAX_VALUE, next.shortestDistance("C0", "C2"));
+        assertEquals(Integer.MAX_VALUE, next.shortestDistance("C0", "Nowhere"));
+    }
+
+    /**
+     * Tests that a batch copies only the chunks it changes.
+     */
+    @Test
+    public void testStructuralSharing() {
+        ConcurrentAirportSystem system = chain(4 * GraphSnapshot.CHUNK_SIZE);
+        GraphSnapshot before = system.snapshot();
+        GraphSnapshot after = system.update(batch -> batch.updateEdgeWeight("C0", "C1", 3));
+        assertNotSame(before.chunk(0), after.chunk(0));
+        for (int chunk = 1; chunk < 4; chunk++) {
+            assertSame(before.chunk(chunk), after.chunk(chunk));
+        }
+        assertSame(before.row(1), after.row(1));
+    }
+
+    /**
+     * Tests that a snapshot of an AirportSystem matches its routes.
+     */
+    @Test
+    public void testFromAirportSystem() {
+        AirportSystem airportSystem = new AirportSystem();
+        airportSystem.connections.add(new AirportSystem.Vertex("A"));
+        airportSystem.connections.add(new AirportSystem.Vertex("B"));
+        airportSystem.connections.add(new AirportSystem.Vertex("C"));
+        airportSystem.addEdge("A", "B", 4);
+        airportSystem.addEdge("B", "C", 5);
+        airportSystem.addEdge("A", "C", 12);
+        ConcurrentAirportSystem system = new ConcurrentAirportSystem(airportSystem);
+        assertEquals(airportSystem.shortestDistance("A", "C"), system.shortestDistance("A", "C"));
+    }
+
+    /**
+     * Stress test: writers keep moving distance between the two legs of a route while readers query it.
+     * Each batch keeps the route length at 100, so a reader that saw half a batch would get another answer.
+     * Readers also check that the versions they see never go backwards.
+     *
+     * @throws InterruptedException If the test is interrupted.
+     */
+    @Test
+    public void testConcurrentReadersAndWriters() throws InterruptedException {
+        ConcurrentAirportSystem system = chain(3);
+        system.update(batch -> {
+            batch.updateEdgeWeight("C0", "C1", 50);
+            batch.updateEdgeWeight("C1", "C2", 50);
+            batch.addCity("Spare");
+        });
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicReference<String> failure = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>();
+
+        for (int w = 0; w < 2; w++) {
+            int seed = w;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 2000; i++) {
+                    int first = (i * 7 + seed) % 101;
+                    system.update(batch -> {
+                        batch.updateEdgeWeight("C0", "C1", first);
+                        batch.updateEdgeWeight("C1", "C2", 100 - first);
+                        batch.addCity("W" + seed + "-" + first);
+                    });
+                }
+            }));
+        }
+        for (int r = 0; r < 4; r++) {
+            threads.add(new Thread(() -> {
+                long lastVersion = -1;
+                while (running.get() && failure.get() == null) {
+                    GraphSnapshot snapshot = system.snapshot();
+                    if (snapshot.version() < lastVersion) {
+                        failure.compareAndSet(null, "version went backwards");
+                    }
+                    lastVersion = snapshot.version();
+                    int distance = snapshot.shortestDistance("C0", "C2");
+                    int legs = snapshot.edgeWeight("C0", "C1") + snapshot.edgeWeight("C1", "C2");
+                    if (distance != 100 || legs != 100) {
+                        failure.compareAndSet(null, "torn read: " + distance + ", " + legs);
+                    }
+                }
+            }));
+        }
+
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (int i = 0; i < 2; i++) {
+            threads.get(i).join();
+        }
+        running.set(false);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertNull(failure.get());
+        assertEquals(4002, system.snapshot().version());
+    }
+}
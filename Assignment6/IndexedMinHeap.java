@@ -0,0 +1,179 @@
+import java.util.Arrays;
+
+/**
+ * A binary min-heap over int vertex ids with int keys. The position of every id is tracked so that
+ * the key of a queued id can be decreased in place instead of adding a second entry.
+ *
+ * @author Ryan Cesar Irizarry
+ */
+public class IndexedMinHeap {
+
+    //The ids in the heap, in heap order.
+    private int[] heap;
+
+    //The key of each id, indexed by id.
+    private int[] keys;
+
+    //The position of each id in the heap array, or -1 if the id is not queued.
+    private int[] pos;
+
+    //The number of ids in the heap.
+    private int size;
+
+    /**
+     * Constructs an empty heap that can hold the ids 0 to capacity - 1.
+     *
+     * @param capacity The number of distinct ids.
+     */
+    public IndexedMinHeap(int capacity) {
+        this.heap = new int[capacity];
+        this.keys = new int[capacity];
+        this.pos = new int[capacity];
+        Arrays.fill(pos, -1);
+    }
+
+    /**
+     * Returns the number of distinct ids this heap can hold.
+     *
+     * @return The capacity of the heap.
+     */
+    public int capacity() {
+        return pos.length;
+    }
+
+    /**
+     * Returns the number of ids in the heap.
+     *
+     * @return The size of the heap.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks if the heap has no ids in it.
+     *
+     * @return True if the heap is empty, false otherwise.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Checks if an id is in the heap.
+     *
+     * @param id The id to check.
+     * @return True if the id is queued, false otherwise.
+     */
+    public boolean contains(int id) {
+        return pos[id] >= 0;
+    }
+
+    /**
+     * Returns the smallest key in the heap. The heap must not be empty.
+     *
+     * @return The smallest key.
+     */
+    public int minKey() {
+        return keys[heap[0]];
+    }
+
+    /**
+     * Adds an id with the given key, or lowers its key if it is already queued with a larger one.
+     *
+     * @param id The id to add.
+     * @param key The key of the id.
+     * @return True if the heap changed, false if the id was already queued with a key that is not larger.
+     */
+    public boolean insertOrDecrease(int id, int key) {
+        int p = pos[id];
+        if (p < 0) {
+            p = size++;
+            heap[p] = id;
+            pos[id] = p;
+        } else if (key >= keys[id]) {
+            return false;
+        }
+        keys[id] = key;
+        siftUp(p);
+        return true;
+    }
+
+    /**
+     * Removes and returns the id with the smallest key. The heap must not be empty.
+     *
+     * @return The id with the smallest key.
+     */
+    public int poll() {
+        int min = heap[0];
+        pos[min] = -1;
+        size--;
+        if (size > 0) {
+            int last = heap[size];
+            heap[0] = last;
+            pos[last] = 0;
+            siftDown(0);
+        }
+        return min;
+    }
+
+    /**
+     * Removes every id from the heap. This only touches the ids still queued, so it is cheap after a search
+     * that stopped early.
+     */
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            pos[heap[i]] = -1;
+        }
+        size = 0;
+    }
+
+    /**
+     * Moves the id at the given position up until its parent has a smaller key.
+     *
+     * @param p The position to start from.
+     */
+    private void siftUp(int p) {
+        int id = heap[p];
+        int key = keys[id];
+        while (p > 0) {
+            int parent = (p - 1) >>> 1;
+            int parentId = heap[parent];
+            if (keys[parentId] <= key) {
+                break;
+            }
+            heap[p] = parentId;
+            pos[parentId] = p;
+            p = parent;
+        }
+        heap[p] = id;
+        pos[id] = p;
+    }
+
+    /**
+     * Moves the id at the given position down until both of its children have larger keys.
+     *
+     * @param p The position to start from.
+     */
+    private void siftDown(int p) {
+        int id = heap[p];
+        int key = keys[id];
+        int half = size >>> 1;
+        while (p < half) {
+            int child = 2 * p + 1;
+            int right = child + 1;
+            if (right < size && keys[heap[right]] < keys[heap[child]]) {
+                child = right;
+            }
+            int childId = heap[child];
+            if (key <= keys[childId]) {
+                break;
+            }
+            heap[p] = childId;
+            pos[childId] = p;
+            p = child;
+        }
+        heap[p] = id;
+        pos[id] = p;
+    }
+}
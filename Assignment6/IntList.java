@@ -0,0 +1,60 @@
+import java.util.Arrays;
+
+/**
+ * A growable list of ints stored in a plain array, used where a List of Integer would box every element.
+ *
+ * @author Ryan Cesar Irizarry
+ */
+class IntList {
+
+    //The elements of the list, followed by unused capacity.
+    int[] items;
+
+    //The number of elements in the list.
+    int size;
+
+    /**
+     * Constructs an empty list.
+     */
+    IntList() {
+        this.items = new int[8];
+    }
+
+    /**
+     * Adds an element to the end of the list.
+     *
+     * @param value The element to add.
+     */
+    void add(int value) {
+        if (size == items.length) {
+            items = Arrays.copyOf(items, size * 2);
+        }
+        items[size++] = value;
+    }
+
+    /**
+     * Returns the element at the given position.
+     *
+     * @param index The position of the element.
+     * @return The element.
+     */
+    int get(int index) {
+        return items[index];
+    }
+
+    /**
+     * Removes every element, keeping the capacity.
+     */
+    void clear() {
+        size = 0;
+    }
+
+    /**
+     * Checks if the list has no elements.
+     *
+     * @return True if the list is empty, false otherwise.
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+}
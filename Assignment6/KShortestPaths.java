@@ -0,0 +1,335 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Yen's algorithm for the k shortest loopless routes between two cities, as an iterator that finds each
+ * route only when it is asked for. A caller that stops after two routes pays for two.
+ *
+ * One backward Dijkstra from the destination is run up front. Its distances are exact lower bounds in
+ * every graph a spur search sees, since a spur search only removes cities and flights, so they serve as
+ * the A* heuristic that aims each spur search at the destination. Its tree also gives the best route out
+ * of every city, and when that route avoids everything the spur has to avoid it is used without a search.
+ *
+ * @author Ryan Cesar Irizarry
+ */
+public class KShortestPaths implements Iterator<Route> {
+
+    //The graph to search.
+    private final CompiledGraph graph;
+
+    //The id of the starting city.
+    private final int source;
+
+    //The id of the destination city.
+    private final int target;
+
+    //The distance from each city to the destination in the full graph.
+    private final int[] toTarget;
+
+    //The next city on a shortest route from each city to the destination, or -1.
+    private final int[] nextHop;
+
+    //Marks the cities a spur search may not visit, with the number of the spur that set it.
+    private final int[] blocked;
+
+    //The number of the current spur search.
+    private int spurNumber;
+
+    //The routes returned so far, as city ids.
+    private final List<int[]> accepted = new ArrayList<>();
+
+    //Routes found by spur searches that have not been returned yet.
+    private final PriorityQueue<Candidate> candidates = new PriorityQueue<>();
+
+    //Every route ever queued, so that no route is queued twice.
+    private final Set<Candidate> seen = new HashSet<>();
+
+    //The next route to return, found by hasNext, or null.
+    private Candidate upcoming;
+
+    //True once no more routes can be found.
+    private boolean exhausted;
+
+    /**
+     * A route waiting to be returned.
+     */
+    private static class Candidate implements Comparable<Candidate> {
+
+        //The city ids on the route.
+        final int[] path;
+
+        //The total distance of the route.
+        final int distance;
+
+        /**
+         * Constructs a candidate route.
+         *
+         * @param path The city ids on the route.
+         * @param distance The total distance.
+         */
+        Candidate(int[] path, int distance) {
+            this.path = path;
+            this.distance = distance;
+        }
+
+        /**
+         * Orders routes by distance, then by number of flights, then by city ids.
+         *
+         * @param other The route to compare to.
+         * @return A negative number, zero or a positive number as this route comes first, ties or comes later.
+         */
+        @Override
+        public int compareTo(Candidate other) {
+            if (distance != other.distance) {
+                return Integer.compare(distance, other.distance);
+            }
+            if (path.length != other.path.length) {
+                return Integer.compare(path.length, other.path.length);
+            }
+            return Arrays.compare(path, other.path);
+        }
+
+        /**
+         * Checks if another object is a candidate with the same cities.
+         *
+         * @param other The object to compare to.
+         * @return True if the cities are the same, false otherwise.
+         */
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Candidate && Arrays.equals(path, ((Candidate) other).path);
+        }
+
+        /**
+         * Returns a hash code of the cities.
+         *
+         * @return The hash code.
+         */
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(path);
+        }
+    }
+
+    /**
+     * Prepares to list the routes between two cities, shortest first.
+     *
+     * @param graph The graph to search.
+     * @param source The id of the starting city.
+     * @param target The id of the destination city.
+     */
+    public KShortestPaths(CompiledGraph graph, int source, int target) {
+        this.graph = graph;
+        this.source = source;
+        this.target = target;
+        int n = graph.vertexCount();
+        this.toTarget = new int[n];
+        this.nextHop = new int[n];
+        this.blocked = new int[n];
+
+        CompiledGraph reverse = graph.reverse();
+        SearchScratch scratch = SearchScratch.current(n);
+        IndexedMinHeap heap = scratch.heap;
+        Arrays.fill(toTarget, Integer.MAX_VALUE);
+        Arrays.fill(nextHop, -1);
+        scratch.relax(target, 0);
+        while (!heap.isEmpty()) {
+            int curVertex = heap.poll();
+            scratch.settle(curVertex);
+            int curDistance = scratch.dist[curVertex];
+            toTarget[curVertex] = curDistance;
+            for (int j = reverse.offsets[curVertex]; j < reverse.offsets[curVertex + 1]; j++) {
+                int from = reverse.targets[j];
+                if (!scratch.isSettled(from) && scratch.relax(from, curDistance + reverse.weights[j])) {
+                    nextHop[from] = curVertex;
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks if there is another route.
+     *
+     * @return True if next will return a route, false otherwise.
+     */
+    @Override
+    public boolean hasNext() {
+        if (upcoming == null && !exhausted) {
+            upcoming = advance();
+            exhausted = upcoming == null;
+        }
+        return upcoming != null;
+    }
+
+    /**
+     * Returns the next shortest route. Routes come in order of distance and never visit a city twice.
+     *
+     * @return The next route.
+     * @throws NoSuchElementException If there are no more routes.
+     */
+    @Override
+    public Route next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Candidate route = upcoming;
+        upcoming = null;
+        return Route.of(graph, route.path, route.distance);
+    }
+
+    /**
+     * Finds the next route, running the spur searches off the last route returned.
+     *
+     * @return The next route, or null if there are none left.
+     */
+    private Candidate advance() {
+        if (accepted.isEmpty()) {
+            if (toTarget[source] == Integer.MAX_VALUE) {
+                return null;
+            }
+            int[] first = treePath(source);
+            accepted.add(first);
+            Candidate candidate = new Candidate(first, toTarget[source]);
+            seen.add(candidate);
+            return candidate;
+        }
+
+        int[] last = accepted.get(accepted.size() - 1);
+        int rootDistance = 0;
+        for (int i = 0; i + 1 < last.length; i++) {
+            int spur = last[i];
+            int[] root = Arrays.copyOf(last, i);
+            spurNumber++;
+            for (int v : root) {
+                blocked[v] = spurNumber;
+            }
+            int[] spurPath = spurPath(spur, i, root);
+            if (spurPath != null) {
+                int[] path = new int[i + spurPath.length];
+                System.arraycopy(root, 0, path, 0, i);
+                System.arraycopy(spurPath, 0, path, i, spurPath.length);
+                Candidate candidate = new Candidate(path, rootDistance + pathDistance(spurPath));
+                if (seen.add(candidate)) {
+                    candidates.add(candidate);
+                }
+            }
+            rootDistance += graph.weight(spur, last[i + 1]);
+        }
+
+        Candidate best = candidates.poll();
+        if (best != null) {
+            accepted.add(best.path);
+        }
+        return best;
+    }
+
+    /**
+     * Finds the shortest route from a spur city to the destination that avoids the root cities and the
+     * next flight of every returned route that shares the root.
+     *
+     * @param spur The spur city.
+     * @param index The position of the spur city on that route.
+     * @param root The cities before the spur city, which are blocked.
+     * @return The city ids from the spur city to the destination, or null if there is no such route.
+     */
+    private int[] spurPath(int spur, int index, int[] root) {
+        IntList removed = new IntList();
+        for (int[] path : accepted) {
+            if (path.length > index + 1 && path[index] == spur && Arrays.equals(path, 0, index, root, 0, index)) {
+                removed.add(path[index + 1]);
+            }
+        }
+
+        int hop = nextHop[spur];
+        if (hop >= 0 && !contains(removed, hop)) {
+            boolean clear = true;
+            for (int v = hop; v >= 0 && clear; v = nextHop[v]) {
+                clear = blocked[v] != spurNumber;
+            }
+            if (clear) {
+                return treePath(spur);
+            }
+        }
+
+        SearchScratch scratch = SearchScratch.current(graph.vertexCount());
+        IndexedMinHeap heap = scratch.heap;
+        scratch.relax(spur, 0, toTarget[spur]);
+        scratch.parent[spur] = -1;
+        while (!heap.isEmpty()) {
+            int curVertex = heap.poll();
+            scratch.settle(curVertex);
+            if (curVertex == target) {
+                return DijkstraEngine.tracePath(scratch.parent, target);
+            }
+            int curDistance = scratch.dist[curVertex];
+            for (int j = graph.offsets[curVertex]; j < graph.offsets[curVertex + 1]; j++) {
+                int destination = graph.targets[j];
+                if (blocked[destination] == spurNumber || toTarget[destination] == Integer.MAX_VALUE
+                        || scratch.isSettled(destination)
+                        || (curVertex == spur && contains(removed, destination))) {
+                    continue;
+                }
+                int d = curDistance + graph.weights[j];
+                if (scratch.relax(destination, d, d + toTarget[destination])) {
+                    scratch.parent[destination] = curVertex;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Follows the backward search tree from a city to the destination.
+     *
+     * @param from The city to start at.
+     * @return The city ids from the city to the destination.
+     */
+    private int[] treePath(int from) {
+        int length = 0;
+        for (int v = from; v >= 0; v = nextHop[v]) {
+            length++;
+        }
+        int[] path = new int[length];
+        int i = 0;
+        for (int v = from; v >= 0; v = nextHop[v]) {
+            path[i++] = v;
+        }
+        return path;
+    }
+
+    /**
+     * Returns the total distance along a path.
+     *
+     * @param path The city ids.
+     * @return The distance.
+     */
+    private int pathDistance(int[] path) {
+        int total = 0;
+        for (int i = 0; i + 1 < path.length; i++) {
+            total += graph.weight(path[i], path[i + 1]);
+        }
+        return total;
+    }
+
+    /**
+     * Checks if a list holds a value.
+     *
+     * @param list The list.
+     * @param value The value.
+     * @return True if the value is in the list, false otherwise.
+     */
+    private static boolean contains(IntList list, int value) {
+        for (int i = 0; i < list.size; i++) {
+            if (list.get(i) == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
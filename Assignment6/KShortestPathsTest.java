@@ -0,0 +1,139 @@
+import org.junit.Test;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.Set;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for the KShortestPaths class.
+ *
+ * @author Ryan Cesar Irizarry
+ */
+public class KShortestPathsTest {
+
+    /**
+     * Finds every route from source to target that visits no city twice, by depth-first search.
+     *
+     * @param graph The graph.
+     * @param city The city the route has reached.
+     * @param target The destination.
+     * @param route The cities of the route so far.
+     * @param distance The distance of the route so far.
+     * @param found Receives each complete route mapped to its distance.
+     */
+    private static void enumerate(CompiledGraph graph, int city, int target, List<String> route, int distance,
+                                  Map<List<String>, Integer> found) {
+        route.add(graph.nameOf(city));
+        if (city == target) {
+            found.put(new ArrayList<>(route), distance);
+        } else {
+            for (int j = graph.offsets[city]; j < graph.offsets[city + 1]; j++) {
+                if (!route.contains(graph.nameOf(graph.targets[j]))) {
+                    enumerate(graph, graph.targets[j], target, route, distance + graph.weights[j], found);
+                }
+            }
+        }
+        route.remove(route.size() - 1);
+    }
+
+    /**
+     * Returns the weight of the flight between two cities.
+     *
+     * @param graph The graph.
+     * @param from The source city.
+     * @param to The destination city.
+     * @return The weight.
+     */
+    private static int weight(CompiledGraph graph, String from, String to) {
+        int u = graph.idOf(from);
+        for (int j = graph.offsets[u]; j < graph.offsets[u + 1]; j++) {
+            if (graph.targets[j] == graph.idOf(to)) {
+                return graph.weights[j];
+            }
+        }
+        fail("No flight from " + from + " to " + to);
+        return -1;
+    }
+
+    /**
+     * Tests that the iterator returns exactly the loopless routes found by brute force, shortest first,
+     * each once, with no city repeated and with the distance of its flights.
+     */
+    @Test
+    public void testMatchesBruteForce() {
+        for (int round = 0; round < 60; round++) {
+            int cities = 2 + round % 7;
+            AirportSystem airportSystem = TestGraphs.randomSystem(cities, cities, 3 * cities, 6, round);
+            CompiledGraph graph = airportSystem.compile();
+            for (int query = 0; query < 4; query++) {
+                Random random = new Random(round * 10 + query);
+                int source = random.nextInt(cities);
+                int target = random.nextInt(cities);
+                Map<List<String>, Integer> expected = new HashMap<>();
+                enumerate(graph, source, target, new ArrayList<>(), 0, expected);
+                List<Integer> expectedDistances = new ArrayList<>(expected.values());
+                expectedDistances.sort(null);
+
+                Iterator<Route> routes = airportSystem.shortestRoutes(graph.nameOf(source), graph.nameOf(target));
+                Set<List<String>> returned = new HashSet<>();
+                List<Integer> distances = new ArrayList<>();
+                while (routes.hasNext()) {
+                    Route route = routes.next();
+                    List<String> path = route.cities();
+                    assertEquals(graph.nameOf(source), path.get(0));
+                    assertEquals(graph.nameOf(target), path.get(path.size() - 1));
+                    assertEquals("repeated city in " + path, path.size(), new HashSet<>(path).size());
+                    assertTrue("duplicate route " + path, returned.add(path));
+                    int sum = 0;
+                    for (int i = 0; i + 1 < path.size(); i++) {
+                        sum += weight(graph, path.get(i), path.get(i + 1));
+                    }
+                    assertEquals(sum, route.distance());
+                    assertEquals(path.size() - 1, route.flights());
+                    assertEquals("not a loopless route: " + path, expected.get(path), Integer.valueOf(sum));
+                    distances.add(route.distance());
+                }
+                assertEquals(expectedDistances, distances);
+                assertEquals(expected.keySet(), returned);
+                try {
+                    routes.next();
+                    fail("next returned a route after hasNext was false");
+                } catch (NoSuchElementException e) {
+                    assertFalse(routes.hasNext());
+                }
+            }
+        }
+    }
+
+    /**
+     * Tests that the first k routes are the k shortest, and that the first is the shortest route.
+     */
+    @Test
+    public void testFirstRoutes() {
+        AirportSystem airportSystem = TestGraphs.randomSystem(9, 9, 30, 6, 13);
+        CompiledGraph graph = airportSystem.compile();
+        Map<List<String>, Integer> expected = new HashMap<>();
+        enumerate(graph, 0, 8, new ArrayList<>(), 0, expected);
+        List<Integer> expectedDistances = new ArrayList<>(expected.values());
+        expectedDistances.sort(null);
+        for (int k = 0; k <= expectedDistances.size() + 1; k++) {
+            List<Route> routes = airportSystem.shortestRoutes("C0", "C8", k);
+            assertEquals(Math.min(k, expectedDistances.size()), routes.size());
+            for (int i = 0; i < routes.size(); i++) {
+                assertEquals(expectedDistances.get(i), Integer.valueOf(routes.get(i).distance()));
+            }
+        }
+        if (!expectedDistances.isEmpty()) {
+            assertEquals(airportSystem.shortestDistance("C0", "C8"), airportSystem.shortestRoute("C0", "C8").distance());
+        }
+        assertFalse(airportSystem.shortestRoutes("C0", "Nowhere").hasNext());
+        assertEquals(Arrays.asList(), airportSystem.shortestRoutes("Nowhere", "C0", 3));
+    }
+}
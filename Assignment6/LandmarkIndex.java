@@ -0,0 +1,227 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Precomputed distances from and to a set of landmark cities. By the triangle inequality these give
+ * lower bounds on the distance between any two cities, which the ALT search uses to steer A* toward
+ * the target.
+ *
+ * @author Ryan Cesar Irizarry
+ */
+public class LandmarkIndex {
+
+    //Marks the start of a landmark file.
+    private static final int MAGIC = 0x414C5431;
+
+    //The graph the tables were computed for.
+    private final CompiledGraph graph;
+
+    //The ids of the landmark cities.
+    private final int[] landmarks;
+
+    //fromLandmark[i][v] is the distance from landmark i to v.
+    private final int[][] fromLandmark;
+
+    //toLandmark[i][v] is the distance from v to landmark i.
+    private final int[][] toLandmark;
+
+    /**
+     * Constructs an index from already computed tables.
+     *
+     * @param graph The graph the tables belong to.
+     * @param landmarks The ids of the landmark cities.
+     * @param fromLandmark The distances from each landmark.
+     * @param toLandmark The distances to each landmark.
+     */
+    private LandmarkIndex(CompiledGraph graph, int[] landmarks, int[][] fromLandmark, int[][] toLandmark) {
+        this.graph = graph;
+        this.landmarks = landmarks;
+        this.fromLandmark = fromLandmark;
+        this.toLandmark = toLandmark;
+    }
+
+    /**
+     * Computes the landmark tables for the given landmark cities.
+     *
+     * @param graph The graph to index.
+     * @param landmarks The ids of the landmark cities.
+     * @return The landmark index.
+     */
+    public static LandmarkIndex build(CompiledGraph graph, int[] landmarks) {
+        DijkstraEngine forward = new DijkstraEngine(graph);
+        DijkstraEngine backward = new DijkstraEngine(graph.reverse());
+        int[][] fromLandmark = new int[landmarks.length][];
+        int[][] toLandmark = new int[landmarks.length][];
+        for (int i = 0; i < landmarks.length; i++) {
+            fromLandmark[i] = forward.distancesFrom(landmarks[i]);
+            toLandmark[i] = backward.distancesFrom(landmarks[i]);
+        }
+        return new LandmarkIndex(graph, landmarks.clone(), fromLandmark, toLandmark);
+    }
+
+    /**
+     * Picks k landmarks that are spread out over the graph. The first is the vertex farthest from vertex 0,
+     * and each next one is the vertex whose distance to the closest chosen landmark is largest.
+     *
+     * @param graph The graph to pick landmarks in.
+     * @param k The number of landmarks.
+     * @return The ids of the chosen landmarks.
+     */
+    public static int[] selectFarthest(CompiledGraph graph, int k) {
+        int n = graph.vertexCount();
+        k = Math.min(k, n);
+        int[] chosen = new int[k];
+        if (k == 0) {
+            return chosen;
+        }
+        DijkstraEngine engine = new DijkstraEngine(graph);
+        long[] closest = new long[n];
+        int[] first = engine.distancesFrom(0);
+        int next = farthest(first, null);
+        Arrays.fill(closest, Long.MAX_VALUE);
+        for (int i = 0; i < k; i++) {
+            chosen[i] = next;
+            int[] dist = engine.distancesFrom(next);
+            for (int v = 0; v < n; v++) {
+                //unreachable vertices count as far away so other components still get a landmark
+                closest[v] = Math.min(closest[v], dist[v] == Integer.MAX_VALUE ? Integer.MAX_VALUE : dist[v]);
+            }
+            next = farthest(null, closest);
+        }
+        return chosen;
+    }
+
+    /**
+     * Returns the vertex with the largest value in one of the given arrays, ignoring unreachable vertices
+     * in the int array.
+     *
+     * @param dist An array of distances, or null.
+     * @param closest An array of distances to the closest landmark, or null.
+     * @return The id of the farthest vertex.
+     */
+    private static int farthest(int[] dist, long[] closest) {
+        int best = 0;
+        long bestValue = -1;
+        int n = dist != null ? dist.length : closest.length;
+        for (int v = 0; v < n; v++) {
+            long value = dist != null ? (dist[v] == Integer.MAX_VALUE ? -1 : dist[v]) : closest[v];
+            if (value > bestValue) {
+                bestValue = value;
+                best = v;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Returns the graph these tables were computed for.
+     *
+     * @return The compiled graph.
+     */
+    public CompiledGraph graph() {
+        return graph;
+    }
+
+    /**
+     * Returns the ids of the landmark cities.
+     *
+     * @return The landmark ids.
+     */
+    public int[] landmarks() {
+        return landmarks.clone();
+    }
+
+    /**
+     * Returns a lower bound on the distance from v to target.
+     *
+     * @param v The id of the vertex.
+     * @param target The id of the target.
+     * @return The lower bound, which is 0 if no landmark gives one.
+     */
+    public int lowerBound(int v, int target) {
+        int bound = 0;
+        for (int i = 0; i < landmarks.length; i++) {
+            int[] from = fromLandmark[i];
+            int[] to = toLandmark[i];
+            //d(L, t) <= d(L, v) + d(v, t)
+            if (from[target] != Integer.MAX_VALUE && from[v] != Integer.MAX_VALUE) {
+                bound = Math.max(bound, from[target] - from[v]);
+            }
+            //d(v, L) <= d(v, t) + d(t, L)
+            if (to[v] != Integer.MAX_VALUE && to[target] != Integer.MAX_VALUE) {
+                bound = Math.max(bound, to[v] - to[target]);
+            }
+        }
+        return bound;
+    }
+
+    /**
+     * Writes the landmark tables to a file. The file records a fingerprint of the graph so that it is not
+     * loaded for a graph it does not belong to.
+     *
+     * @param file The file to write.
+     * @throws IOException If the file cannot be written.
+     */
+    public void save(File file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeLong(graph.fingerprint());
+            out.writeInt(graph.vertexCount());
+            out.writeInt(landmarks.length);
+            for (int i = 0; i < landmarks.length; i++) {
+                out.writeInt(landmarks[i]);
+            }
+            for (int i = 0; i < landmarks.length; i++) {
+                for (int v = 0; v < graph.vertexCount(); v++) {
+                    out.writeInt(fromLandmark[i][v]);
+                }
+                for (int v = 0; v < graph.vertexCount(); v++) {
+                    out.writeInt(toLandmark[i][v]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads landmark tables written by save.
+     *
+     * @param file The file to read.
+     * @param graph The graph the tables are for.
+     * @return The landmark index.
+     * @throws IOException If the file cannot be read or was saved for a different graph.
+     */
+    public static LandmarkIndex load(File file, CompiledGraph graph) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a landmark file: " + file);
+            }
+            if (in.readLong() != graph.fingerprint() || in.readInt() != graph.vertexCount()) {
+                throw new IOException("Landmark file " + file + " was saved for a different graph");
+            }
+            int k = in.readInt();
+            int[] landmarks = new int[k];
+            for (int i = 0; i < k; i++) {
+                landmarks[i] = in.readInt();
+            }
+            int n = graph.vertexCount();
+            int[][] fromLandmark = new int[k][n];
+            int[][] toLandmark = new int[k][n];
+            for (int i = 0; i < k; i++) {
+                for (int v = 0; v < n; v++) {
+                    fromLandmark[i][v] = in.readInt();
+                }
+                for (int v = 0; v < n; v++) {
+                    toLandmark[i][v] = in.readInt();
+                }
+            }
+            return new LandmarkIndex(graph, landmarks, fromLandmark, toLandmark);
+        }
+    }
+}
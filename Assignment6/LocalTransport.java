@@ -0,0 +1,71 @@
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A ShardTransport that delivers requests to shards running in the same process. Requests and replies
+ * still travel as bytes, so the router and shards are exercised exactly as they would be across hosts.
+ *
+ * @author Ryan Cesar Irizarry
+ */
+public class LocalTransport implements ShardTransport {
+
+    //The shards, indexed by shard number.
+    private final RoutingShard[] shards;
+
+    //The number of requests sent.
+    private final AtomicLong messages = new AtomicLong();
+
+    //The number of request and reply bytes carried.
+    private final AtomicLong bytes = new AtomicLong();
+
+    /**
+     * Constructs a transport to the given shards.
+     *
+     * @param shards The shards, indexed by shard number.
+     */
+    public LocalTransport(RoutingShard... shards) {
+        this.shards = shards.clone();
+    }
+
+    /**
+     * Hands a request to a shard and returns its reply.
+     *
+     * @param shard The number of the shard.
+     * @param request The encoded request.
+     * @return The encoded reply.
+     */
+    @Override
+    public byte[] send(int shard, byte[] request) {
+        byte[] reply = shards[shard].handle(request);
+        messages.incrementAndGet();
+        bytes.addAndGet(request.length + reply.length);
+        return reply;
+    }
+
+    /**
+     * Returns the number of shards.
+     *
+     * @return The number of shards.
+     */
+    @Override
+    public int shardCount() {
+        return shards.length;
+    }
+
+    /**
+     * Returns the number of requests sent so far.
+     *
+     * @return The message count.
+     */
+    public long messages() {
+        return messages.get();
+    }
+
+    /**
+     * Returns the number of request and reply bytes carried so far.
+     *
+     * @return The byte count.
+     */
+    public long bytes() {
+        return bytes.get();
+    }
+}
@@ -0,0 +1,18 @@
+/**
+ * The algorithms AirportSystem can use to build a minimum spanning forest.
+ *
+ * @author Ryan Cesar Irizarry
+ */
+public enum MstAlgorithm {
+
+    //Prim's algorithm with an indexed heap, growing a tree from each unvisited city and treating each flight
+    //as a two-way link.
+    PRIM,
+
+    //Kruskal's algorithm over the flights sorted by distance, treating each flight as a two-way link.
+    KRUSKAL,
+
+    //Boruvka's algorithm with each round's cheapest-edge scan spread over threads, treating each flight as
+    //a two-way link.
+    BORUVKA
+}
@@ -0,0 +1,106 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A route through the airport system: the cities visited in order and the total distance flown.
+ *
+ * @author Ryan Cesar Irizarry
+ */
+public final class Route {
+
+    //The cities on the route, from the start to the destination.
+    private final List<String> cities;
+
+    //The total distance of the route.
+    private final int distance;
+
+    /**
+     * Constructs a route.
+     *
+     * @param cities The cities on the route, in order.
+     * @param distance The total distance of the route.
+     */
+    public Route(List<String> cities, int distance) {
+        this.cities = Collections.unmodifiableList(new ArrayList<>(cities));
+        this.distance = distance;
+    }
+
+    /**
+     * Builds a route from the ids of the cities on it.
+     *
+     * @param graph The graph the ids belong to.
+     * @param path The city ids, in order.
+     * @param distance The total distance of the route.
+     * @return The route.
+     */
+    static Route of(CompiledGraph graph, int[] path, int distance) {
+        List<String> cities = new ArrayList<>(path.length);
+        for (int v : path) {
+            cities.add(graph.nameOf(v));
+        }
+        return new Route(cities, distance);
+    }
+
+    /**
+     * Returns the cities on the route.
+     *
+     * @return The cities, from the start to the destination.
+     */
+    public List<String> cities() {
+        return cities;
+    }
+
+    /**
+     * Returns the total distance of the route.
+     *
+     * @return The distance.
+     */
+    public int distance() {
+        return distance;
+    }
+
+    /**
+     * Returns the number of flights on the route.
+     *
+     * @return The number of flights.
+     */
+    public int flights() {
+        return cities.size() - 1;
+    }
+
+    /**
+     * Checks if another object is a route through the same cities with the same distance.
+     *
+     * @param other The object to compare to.
+     * @return True if the routes are equal, false otherwise.
+     */
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof Route)) {
+            return false;
+        }
+        Route route = (Route) other;
+        return distance == route.distance && cities.equals(route.cities);
+    }
+
+    /**
+     * Returns a hash code for the route.
+     *
+     * @return The hash code.
+     */
+    @Override
+    public int hashCode() {
+        return 31 * cities.hashCode() + distance;
+    }
+
+    /**
+     * Returns a string representation of the route.
+     *
+     * @return The cities followed by the distance.
+     */
+    @Override
+    public String toString() {
+        return cities + " (" + distance + ")";
+    }
+}
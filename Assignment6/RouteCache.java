@@ -0,0 +1,608 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A bounded cache of shortest distances, keyed on pairs of city ids packed into a long. The ids are the
+ * cache's own, and it keeps its own copy of the flights up to date from the change events, so a lookup
+ * needs neither the compiled graph nor its reverse and a hit does not make anyone compile. Eviction is
+ * segmented LRU: new entries go into a probation segment, and an entry that is hit again moves to a
+ * protected segment that holds most of the capacity, so a burst of one-off queries cannot push out the
+ * pairs that are asked for all the time. Entries live in flat arrays linked by index and are found through
+ * an open addressing table, so lookups and inserts do not allocate.
+ *
+ * As a GraphChangeListener the cache drops only the entries an edge change can affect. For a changed
+ * edge (u, v) whose lighter weight is w, the entry for (a, b) is dropped when
+ * dist(a, u) + w + dist(v, b) is at most the cached distance. Changes are queued and checked on the next
+ * lookup, with one bounded search backward from u and one forward from v per change. The searches use the
+ * lighter weight of every queued edge, which keeps the test safe when several changes touch one route.
+ *
+ * @author Ryan Cesar Irizarry
+ */
+public class RouteCache implements GraphChangeListener {
+
+    //Returned by get when the pair is not cached.
+    public static final int MISS = -1;
+
+    //Above this many queued changes, clearing the cache is cheaper than checking them.
+    private static final int MAX_PENDING = 16;
+
+    //The number of entries the cache can hold.
+    private final int capacity;
+
+    //The number of entries the protected segment can hold.
+    private final int protectedCapacity;
+
+    //The key of each entry, source id in the high half and target id in the low half.
+    private final long[] keys;
+
+    //The cached distance of each entry.
+    private final int[] values;
+
+    //The previous entry in the entry's segment list. Index capacity heads probation, capacity + 1 protected.
+    private final int[] prev;
+
+    //The next entry in the entry's segment list, or the next free entry.
+    private final int[] next;
+
+    //True for entries in the protected segment.
+    private final boolean[] isProtected;
+
+    //Open addressing table of entry index plus one, with 0 for an empty slot.
+    private final int[] table;
+
+    //The first unused entry, or -1 if every entry is in use.
+    private int free;
+
+    //The number of entries in use.
+    private int size;
+
+    //The number of entries in the protected segment.
+    private int protectedSize;
+
+    //Edge changes that have not been checked against the cache yet.
+    private final List<Change> pending = new ArrayList<>();
+
+    //Maps a city name to its id in this cache. Empty until the first put copies the graph.
+    private final Map<String, Integer> ids = new HashMap<>();
+
+    //The city name for each id.
+    private final List<String> names = new ArrayList<>();
+
+    //The outgoing flights of each city as parallel target and weight lists.
+    private final List<IntList> outTo = new ArrayList<>();
+    private final List<IntList> outWeight = new ArrayList<>();
+
+    //The incoming flights of each city as parallel source and weight lists.
+    private final List<IntList> inFrom = new ArrayList<>();
+    private final List<IntList> inWeight = new ArrayList<>();
+
+    //The number of lookups answered from the cache.
+    private long hits;
+
+    //The number of lookups that were not.
+    private long misses;
+
+    //The number of entries removed to make room.
+    private long evictions;
+
+    //The number of entries removed because an edge change could affect them.
+    private long invalidations;
+
+    /**
+     * An edge change waiting to be checked.
+     */
+    private static class Change {
+
+        //The id of the source city of the edge.
+        final int source;
+
+        //The id of the destination city of the edge.
+        final int destination;
+
+        //The lighter of the weights before and after the change.
+        final int weight;
+
+        /**
+         * Constructs a queued change.
+         *
+         * @param source The id of the source city.
+         * @param destination The id of the destination city.
+         * @param weight The lighter of the two weights.
+         */
+        Change(int source, int destination, int weight) {
+            this.source = source;
+            this.destination = destination;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * Constructs a cache that holds up to the given number of entries, with four fifths of them protected.
+     *
+     * @param capacity The maximum number of entries.
+     * @throws IllegalArgumentException If capacity is less than 1.
+     */
+    public RouteCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1");
+        }
+        this.capacity = capacity;
+        this.protectedCapacity = capacity * 4 / 5;
+        this.keys = new long[capacity];
+        this.values = new int[capacity];
+        this.prev = new int[capacity + 2];
+        this.next = new int[capacity + 2];
+        this.isProtected = new boolean[capacity];
+        this.table = new int[Integer.highestOneBit(capacity * 2 - 1) << 1];
+        clear();
+    }
+
+    /**
+     * Removes every entry. The counters are kept.
+     */
+    public void clear() {
+        Arrays.fill(table, 0);
+        for (int i = 0; i < capacity; i++) {
+            prev[i] = -1;
+            next[i] = i + 1 < capacity ? i + 1 : -1;
+        }
+        free = 0;
+        for (int head = capacity; head < capacity + 2; head++) {
+            prev[head] = head;
+            next[head] = head;
+        }
+        size = 0;
+        protectedSize = 0;
+        pending.clear();
+    }
+
+    /**
+     * Looks up the distance between two cities. Queued edge changes are checked first.
+     *
+     * @param source The starting city.
+     * @param target The destination city.
+     * @return The cached distance, or MISS.
+     */
+    public int get(String source, String target) {
+        sync();
+        Integer sourceId = ids.get(source);
+        Integer targetId = ids.get(target);
+        int entry = sourceId == null || targetId == null ? -1 : find(key(sourceId, targetId));
+        if (entry < 0) {
+            misses++;
+            return MISS;
+        }
+        hits++;
+        unlink(entry);
+        if (!isProtected[entry]) {
+            if (protectedSize == protectedCapacity) {
+                if (protectedCapacity == 0) {
+                    linkFirst(capacity, entry);
+                    return values[entry];
+                }
+                int demoted = prev[capacity + 1];
+                unlink(demoted);
+                isProtected[demoted] = false;
+                protectedSize--;
+                linkFirst(capacity, demoted);
+            }
+            isProtected[entry] = true;
+            protectedSize++;
+        }
+        linkFirst(capacity + 1, entry);
+        return values[entry];
+    }
+
+    /**
+     * Stores the distance between two cities, evicting the least recently used probation entry if the
+     * cache is full. The first put after the cache was created or cleared by a graph change copies the
+     * flights of the graph.
+     *
+     * @param graph The current graph, which the distance was computed on.
+     * @param source The starting city.
+     * @param target The destination city.
+     * @param distance The shortest distance.
+     */
+    public void put(CompiledGraph graph, String source, String target, int distance) {
+        if (names.isEmpty()) {
+            copy(graph);
+        }
+        long key = key(intern(source), intern(target));
+        int entry = find(key);
+        if (entry >= 0) {
+            values[entry] = distance;
+            return;
+        }
+        if (free < 0) {
+            int victim = prev[capacity] != capacity ? prev[capacity] : prev[capacity + 1];
+            remove(victim);
+            evictions++;
+        }
+        entry = free;
+        free = next[entry];
+        keys[entry] = key;
+        values[entry] = distance;
+        isProtected[entry] = false;
+        linkFirst(capacity, entry);
+        insertIndex(entry);
+        size++;
+    }
+
+    /**
+     * Applies an edge change to the cache's copy of the flights, and queues it to be checked against the
+     * cache on the next lookup.
+     *
+     * @param source The source city of the edge.
+     * @param destination The destination city of the edge.
+     * @param oldWeight The weight before the change, or NO_EDGE if the edge was just added.
+     * @param newWeight The weight after the change, or NO_EDGE if the edge was removed.
+     */
+    @Override
+    public void edgeChanged(String source, String destination, int oldWeight, int newWeight) {
+        if (names.isEmpty() || oldWeight == newWeight) {
+            return;
+        }
+        int u = intern(source);
+        int v = intern(destination);
+        setEntry(outTo.get(u), outWeight.get(u), v, newWeight);
+        setEntry(inFrom.get(v), inWeight.get(v), u, newWeight);
+        if (size > 0) {
+            int weight = oldWeight == NO_EDGE ? newWeight
+                    : newWeight == NO_EDGE ? oldWeight : Math.min(oldWeight, newWeight);
+            pending.add(new Change(u, v, weight));
+        }
+    }
+
+    /**
+     * Drops every entry and the copy of the flights, since a change to the cities can affect any route
+     * and any city name.
+     */
+    @Override
+    public void graphChanged() {
+        invalidations += size;
+        clear();
+        ids.clear();
+        names.clear();
+        outTo.clear();
+        outWeight.clear();
+        inFrom.clear();
+        inWeight.clear();
+    }
+
+    /**
+     * Returns the number of entries in the cache.
+     *
+     * @return The number of entries.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the maximum number of entries.
+     *
+     * @return The capacity.
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the number of lookups answered from the cache.
+     *
+     * @return The hit count.
+     */
+    public long hits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of lookups that were not in the cache.
+     *
+     * @return The miss count.
+     */
+    public long misses() {
+        return misses;
+    }
+
+    /**
+     * Returns the number of entries removed to make room for new ones.
+     *
+     * @return The eviction count.
+     */
+    public long evictions() {
+        return evictions;
+    }
+
+    /**
+     * Returns the number of entries removed because an edge change could affect them.
+     *
+     * @return The invalidation count.
+     */
+    public long invalidations() {
+        return invalidations;
+    }
+
+    /**
+     * Returns a summary of the counters.
+     *
+     * @return A string with the size and counters.
+     */
+    @Override
+    public String toString() {
+        return "RouteCache[size=" + size + "/" + capacity + ", hits=" + hits + ", misses=" + misses
+                + ", evictions=" + evictions + ", invalidations=" + invalidations + "]";
+    }
+
+    /**
+     * Brings the cache up to date with the flights by checking the queued changes.
+     */
+    private void sync() {
+        if (pending.size() > MAX_PENDING) {
+            invalidations += size;
+            clear();
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+        if (size == 0) {
+            pending.clear();
+            return;
+        }
+
+        int bound = 0;
+        for (int entry = 0; entry < capacity; entry++) {
+            if (isLive(entry)) {
+                bound = Math.max(bound, values[entry]);
+            }
+        }
+
+        int count = pending.size();
+        int[] changes = new int[3 * count];
+        for (int c = 0; c < count; c++) {
+            Change change = pending.get(c);
+            changes[3 * c] = change.source;
+            changes[3 * c + 1] = change.destination;
+            changes[3 * c + 2] = change.weight;
+        }
+        pending.clear();
+
+        for (int c = 0; c < count && size > 0; c++) {
+            int u = changes[3 * c];
+            int v = changes[3 * c + 1];
+            int weight = changes[3 * c + 2];
+            int limit = bound == Integer.MAX_VALUE ? Integer.MAX_VALUE : bound - weight;
+            SearchScratch toU = SearchScratch.current(0, names.size());
+            search(inFrom, inWeight, toU, u, limit, changes, count, true);
+            SearchScratch fromV = SearchScratch.current(1, names.size());
+            search(outTo, outWeight, fromV, v, limit, changes, count, false);
+
+            for (int entry = 0; entry < capacity; entry++) {
+                if (isLive(entry)) {
+                    long key = keys[entry];
+                    int toSource = toU.distance((int) (key >>> 32));
+                    int fromTarget = fromV.distance((int) key);
+                    if (toSource != Integer.MAX_VALUE && fromTarget != Integer.MAX_VALUE
+                            && (long) toSource + weight + fromTarget <= values[entry]) {
+                        remove(entry);
+                        invalidations++;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs Dijkstra from a city over the cache's copy of the flights, giving up on cities farther than the
+     * limit. Queued edges are also followed, at their lighter weight.
+     *
+     * @param neighbors The target of each flight, or the source for a backward search, by city.
+     * @param weights The weight of each flight, in the same order.
+     * @param scratch The scratch space that receives the distances.
+     * @param start The starting city.
+     * @param limit The largest distance worth settling.
+     * @param changes The queued edges as source, destination and weight triples.
+     * @param count The number of queued edges.
+     * @param backward True if the queued edges should be followed backward.
+     */
+    private static void search(List<IntList> neighbors, List<IntList> weights, SearchScratch scratch, int start,
+                               int limit, int[] changes, int count, boolean backward) {
+        IndexedMinHeap heap = scratch.heap;
+        scratch.relax(start, 0);
+        while (!heap.isEmpty()) {
+            if (heap.minKey() > limit) {
+                break;
+            }
+            int curVertex = heap.poll();
+            scratch.settle(curVertex);
+            int curDistance = scratch.dist[curVertex];
+            IntList targets = neighbors.get(curVertex);
+            IntList targetWeights = weights.get(curVertex);
+            for (int j = 0; j < targets.size; j++) {
+                int destination = targets.get(j);
+                if (!scratch.isSettled(destination)) {
+                    scratch.relax(destination, curDistance + targetWeights.get(j));
+                }
+            }
+            for (int c = 0; c < count; c++) {
+                int from = changes[3 * c + (backward ? 1 : 0)];
+                int to = changes[3 * c + (backward ? 0 : 1)];
+                if (from == curVertex && !scratch.isSettled(to)) {
+                    scratch.relax(to, curDistance + changes[3 * c + 2]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Copies the cities and flights of a graph, giving each city the same id it has there.
+     *
+     * @param graph The graph.
+     */
+    private void copy(CompiledGraph graph) {
+        for (int v = 0; v < graph.vertexCount(); v++) {
+            intern(graph.nameOf(v));
+        }
+        for (int u = 0; u < graph.vertexCount(); u++) {
+            for (int j = graph.offsets[u]; j < graph.offsets[u + 1]; j++) {
+                outTo.get(u).add(graph.targets[j]);
+                outWeight.get(u).add(graph.weights[j]);
+                inFrom.get(graph.targets[j]).add(u);
+                inWeight.get(graph.targets[j]).add(graph.weights[j]);
+            }
+        }
+    }
+
+    /**
+     * Returns the id of a city, giving it a new one with no flights if it has none yet.
+     *
+     * @param city The city name.
+     * @return The id.
+     */
+    private int intern(String city) {
+        Integer id = ids.get(city);
+        if (id != null) {
+            return id;
+        }
+        int newId = names.size();
+        ids.put(city, newId);
+        names.add(city);
+        outTo.add(new IntList());
+        outWeight.add(new IntList());
+        inFrom.add(new IntList());
+        inWeight.add(new IntList());
+        return newId;
+    }
+
+    /**
+     * Sets, adds or removes one entry of a neighbor list.
+     *
+     * @param neighbors The neighbor ids.
+     * @param weights The weights, parallel to the neighbors.
+     * @param neighbor The neighbor to change.
+     * @param weight The new weight, or NO_EDGE to remove the entry.
+     */
+    private static void setEntry(IntList neighbors, IntList weights, int neighbor, int weight) {
+        for (int i = 0; i < neighbors.size; i++) {
+            if (neighbors.get(i) == neighbor) {
+                if (weight == NO_EDGE) {
+                    int last = neighbors.size - 1;
+                    neighbors.items[i] = neighbors.items[last];
+                    weights.items[i] = weights.items[last];
+                    neighbors.size--;
+                    weights.size--;
+                } else {
+                    weights.items[i] = weight;
+                }
+                return;
+            }
+        }
+        if (weight != NO_EDGE) {
+            neighbors.add(neighbor);
+            weights.add(weight);
+        }
+    }
+
+    /**
+     * Packs a pair of city ids into a key.
+     */
+    private static long key(int source, int target) {
+        return ((long) source << 32) | (target & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Spreads the bits of a key across the table.
+     */
+    private int slot(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & (table.length - 1);
+    }
+
+    /**
+     * Returns the entry holding a key, or -1 if there is none.
+     */
+    private int find(long key) {
+        int mask = table.length - 1;
+        for (int pos = slot(key); table[pos] != 0; pos = (pos + 1) & mask) {
+            if (keys[table[pos] - 1] == key) {
+                return table[pos] - 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Adds an entry to the lookup table.
+     */
+    private void insertIndex(int entry) {
+        int mask = table.length - 1;
+        int pos = slot(keys[entry]);
+        while (table[pos] != 0) {
+            pos = (pos + 1) & mask;
+        }
+        table[pos] = entry + 1;
+    }
+
+    /**
+     * Removes an entry from the lookup table, shifting later entries of the probe run back so that no
+     * tombstones are needed.
+     */
+    private void removeIndex(int entry) {
+        int mask = table.length - 1;
+        int hole = slot(keys[entry]);
+        while (table[hole] != entry + 1) {
+            hole = (hole + 1) & mask;
+        }
+        for (int pos = (hole + 1) & mask; table[pos] != 0; pos = (pos + 1) & mask) {
+            int home = slot(keys[table[pos] - 1]);
+            if (((pos - home) & mask) >= ((pos - hole) & mask)) {
+                table[hole] = table[pos];
+                hole = pos;
+            }
+        }
+        table[hole] = 0;
+    }
+
+    /**
+     * Checks if an entry is in use. Free entries have no previous entry.
+     */
+    private boolean isLive(int entry) {
+        return prev[entry] >= 0;
+    }
+
+    /**
+     * Removes an entry from the cache and returns it to the free list.
+     */
+    private void remove(int entry) {
+        unlink(entry);
+        if (isProtected[entry]) {
+            protectedSize--;
+        }
+        removeIndex(entry);
+        prev[entry] = -1;
+        next[entry] = free;
+        free = entry;
+        size--;
+    }
+
+    /**
+     * Takes an entry out of its segment list.
+     */
+    private void unlink(int entry) {
+        next[prev[entry]] = next[entry];
+        prev[next[entry]] = prev[entry];
+    }
+
+    /**
+     * Puts an entry at the most recently used end of a segment list.
+     */
+    private void linkFirst(int head, int entry) {
+        prev[entry] = head;
+        next[entry] = next[head];
+        prev[next[head]] = entry;
+        next[head] = entry;
+    }
+}
@@ -0,0 +1,177 @@
+import org.junit.Test;
+import java.util.Random;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for the RouteCache class and the cached shortestDistance of AirportSystem.
+ *
+ * @author Ryan Cesar Irizarry
+ */
+public class RouteCacheTest {
+
+    /**
+     * Tests cached queries against an uncached system while edges are added, removed, made shorter and
+     * made longer between them, one at a time and in bursts longer than the queue of pending changes.
+     */
+    @Test
+    public void testCachedQueriesMatchUncached() {
+        for (int round = 0; round < 4; round++) {
+            int cities = 20 + 20 * round;
+            AirportSystem cached = TestGraphs.randomSystem(cities, 3 * cities, round);
+            AirportSystem uncached = TestGraphs.randomSystem(cities, 3 * cities, round);
+            RouteCache cache = cached.enableRouteCache(8 + 8 * round);
+            Random random = new Random(50 + round);
+            int hot = Math.max(4, cities / 4);
+            for (int step = 0; step < 2000; step++) {
+                int action = random.nextInt(10);
+                if (action < 7) {
+                    //most queries are between a few cities, so the cache gets hits
+                    int bound = random.nextBoolean() ? hot : cities;
+                    String a = "C" + random.nextInt(bound);
+                    String b = "C" + random.nextInt(bound);
+                    assertEquals("step " + step + " from " + a + " to " + b, uncached.shortestDistance(a, b),
+                            cached.shortestDistance(a, b));
+                } else {
+                    int changes = action == 9 ? 20 : 1;
+                    for (int c = 0; c < changes; c++) {
+                        String source = "C" + random.nextInt(hot);
+                        String destination = "C" + random.nextInt(cities);
+                        int weight = random.nextInt(50);
+                        int kind = random.nextInt(3);
+                        assertEquals(kind == 0 ? uncached.addEdge(source, destination, weight)
+                                        : kind == 1 ? uncached.removeEdge(source, destination)
+                                        : uncached.updateEdgeWeight(source, destination, weight),
+                                kind == 0 ? cached.addEdge(source, destination, weight)
+                                        : kind == 1 ? cached.removeEdge(source, destination)
+                                        : cached.updateEdgeWeight(source, destination, weight));
+                    }
+                }
+            }
+            assertTrue(cache.hits() > 0);
+            assertTrue(cache.invalidations() > 0);
+            assertTrue(cache.evictions() > 0);
+            assertTrue(cache.size() <= cache.capacity());
+        }
+    }
+
+    /**
+     * Tests that cached answers stay right when cities are added to and removed from connections.
+     */
+    @Test
+    public void testCityChanges() {
+        AirportSystem cached = TestGraphs.randomSystem(15, 40, 9);
+        AirportSystem uncached = TestGraphs.randomSystem(15, 40, 9);
+        RouteCache cache = cached.enableRouteCache(64);
+        for (int i = 0; i < 15; i++) {
+            assertEquals(uncached.shortestDistance("C0", "C" + i), cached.shortestDistance("C0", "C" + i));
+        }
+        assertTrue(cache.size() > 0);
+        for (AirportSystem airportSystem : new AirportSystem[] {cached, uncached}) {
+            AirportSystem.Vertex hub = new AirportSystem.Vertex("Hub");
+            airportSystem.connections.add(hub);
+            airportSystem.addEdge("C0", "Hub", 0);
+            for (int i = 1; i < 15; i++) {
+                airportSystem.addEdge("Hub", "C" + i, 1);
+            }
+        }
+        for (int i = 0; i < 15; i++) {
+            assertEquals(uncached.shortestDistance("C0", "C" + i), cached.shortestDistance("C0", "C" + i));
+        }
+        cached.connections.remove(0);
+        uncached.connections.remove(0);
+        assertEquals(0, cache.size());
+        for (int i = 1; i < 15; i++) {
+            assertEquals(uncached.shortestDistance("Hub", "C" + i), cached.shortestDistance("Hub", "C" + i));
+            assertEquals(uncached.shortestDistance("C" + i, "Hub"), cached.shortestDistance("C" + i, "Hub"));
+        }
+    }
+
+    /**
+     * Tests that edges added and removed through Vertex.edges, and a city replaced in connections, reach
+     * the cached answers.
+     */
+    @Test
+    public void testChangesThroughConnections() {
+        AirportSystem airportSystem = new AirportSystem();
+        for (int i = 0; i < 4; i++) {
+            airportSystem.connections.add(new AirportSystem.Vertex("C" + i));
+        }
+        for (int i = 0; i + 1 < 4; i++) {
+            airportSystem.addEdge("C" + i, "C" + (i + 1), 1);
+        }
+        RouteCache cache = airportSystem.enableRouteCache(16);
+        assertEquals(3, airportSystem.shortestDistance("C0", "C3"));
+        assertEquals(2, airportSystem.shortestDistance("C0", "C2"));
+        assertEquals(2, airportSystem.shortestDistance("C0", "C2"));
+        assertEquals(1, cache.hits());
+
+        AirportSystem.Vertex c0 = airportSystem.connections.get(0);
+        c0.edges.add(airportSystem.new Edge("C0", "C3", 1));
+        assertEquals(1, airportSystem.shortestDistance("C0", "C3"));
+        c0.edges.removeIf(edge -> edge.destination.equals("C3"));
+        assertEquals(3, airportSystem.shortestDistance("C0", "C3"));
+
+        AirportSystem.Vertex replacement = new AirportSystem.Vertex("C1");
+        replacement.edges.add(airportSystem.new Edge("C1", "C2", 10));
+        airportSystem.connections.set(1, replacement);
+        assertEquals(0, cache.size());
+        assertEquals(11, airportSystem.shortestDistance("C0", "C2"));
+        assertEquals(12, airportSystem.shortestDistance("C0", "C3"));
+    }
+
+    /**
+     * Tests that a cached answer that an edge change cannot affect is returned after the change without
+     * compiling the graph, and that the next miss does compile it.
+     */
+    @Test
+    public void testHitDoesNotCompile() {
+        AirportSystem airportSystem = new AirportSystem();
+        for (int i = 0; i < 10; i++) {
+            airportSystem.connections.add(new AirportSystem.Vertex("C" + i));
+        }
+        for (int i = 0; i + 1 < 10; i++) {
+            airportSystem.addEdge("C" + i, "C" + (i + 1), 1);
+        }
+        RouteCache cache = airportSystem.enableRouteCache(16);
+        assertEquals(3, airportSystem.shortestDistance("C0", "C3"));
+        assertTrue(airportSystem.updateEdgeWeight("C5", "C6", 7));
+        int compilations = airportSystem.compilations();
+        long hits = cache.hits();
+        assertEquals(3, airportSystem.shortestDistance("C0", "C3"));
+        assertEquals(hits + 1, cache.hits());
+        assertEquals(compilations, airportSystem.compilations());
+        assertEquals(12, airportSystem.shortestDistance("C0", "C6"));
+        assertEquals(compilations + 1, airportSystem.compilations());
+        assertTrue(airportSystem.updateEdgeWeight("C1", "C2", 5));
+        assertEquals(7, airportSystem.shortestDistance("C0", "C3"));
+    }
+
+    /**
+     * Tests that pairs asked for again survive a burst of one-off pairs, and that a capacity below 1 is
+     * rejected.
+     */
+    @Test
+    public void testProtectedSegment() {
+        CompiledGraph graph = TestGraphs.randomSystem(100, 0, 1).compile();
+        RouteCache cache = new RouteCache(10);
+        for (int i = 0; i < 5; i++) {
+            assertEquals(RouteCache.MISS, cache.get("C" + i, "C" + (i + 1)));
+            cache.put(graph, "C" + i, "C" + (i + 1), i);
+            assertEquals(i, cache.get("C" + i, "C" + (i + 1)));
+        }
+        for (int i = 10; i < 60; i++) {
+            cache.put(graph, "C" + i, "C" + (i + 1), i);
+        }
+        for (int i = 0; i < 5; i++) {
+            assertEquals(i, cache.get("C" + i, "C" + (i + 1)));
+        }
+        assertEquals(RouteCache.MISS, cache.get("C0", "Nowhere"));
+        assertEquals(10, cache.size());
+        try {
+            new RouteCache(0);
+            fail("A cache of capacity 0 was made");
+        } catch (IllegalArgumentException e) {
+            assertNotNull(e.getMessage());
+        }
+    }
+}
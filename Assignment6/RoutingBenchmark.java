@@ -0,0 +1,141 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Compares the point-to-point routing modes of AirportSystem on a generated grid-shaped route network.
+ * Reports the average number of settled cities and the average and p99 time per query of each mode,
+ * and checks that every mode returns the same distance as plain Dijkstra.
+ *
+ * Usage: java RoutingBenchmark [gridSide] [queries] [landmarks]
+ *
+ * @author Ryan Cesar Irizarry
+ */
+public class RoutingBenchmark {
+
+    /**
+     * Builds an airport system whose cities form a side x side grid, with flights in both directions
+     * between neighboring cities.
+     *
+     * @param side The number of cities along each side of the grid.
+     * @param random The source of flight distances.
+     * @return The airport system.
+     */
+    static AirportSystem buildGrid(int side, Random random) {
+        AirportSystem airportSystem = new AirportSystem();
+        for (int i = 0; i < side * side; i++) {
+            airportSystem.connections.add(new AirportSystem.Vertex("C" + i));
+        }
+        for (int row = 0; row < side; row++) {
+            for (int col = 0; col < side; col++) {
+                int city = row * side + col;
+                if (col + 1 < side) {
+                    int weight = 10 + random.nextInt(90);
+                    airportSystem.addEdge("C" + city, "C" + (city + 1), weight);
+                    airportSystem.addEdge("C" + (city + 1), "C" + city, weight);
+                }
+                if (row + 1 < side) {
+                    int weight = 10 + random.nextInt(90);
+                    airportSystem.addEdge("C" + city, "C" + (city + side), weight);
+                    airportSystem.addEdge("C" + (city + side), "C" + city, weight);
+                }
+            }
+        }
+        return airportSystem;
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args Command-line arguments: grid side, number of queries and number of landmarks.
+     */
+    public static void main(String[] args) {
+        int side = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int queries = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        int landmarkCount = args.length > 2 ? Integer.parseInt(args[2]) : 16;
+
+        Random random = new Random(42);
+        CompiledGraph graph = buildGrid(side, random).compile();
+        System.out.println("Cities: " + graph.vertexCount() + ", flights: " + graph.edgeCount());
+
+        long start = System.nanoTime();
+        LandmarkIndex landmarks = LandmarkIndex.build(graph, LandmarkIndex.selectFarthest(graph, landmarkCount));
+        System.out.printf("Landmark preprocessing (%d landmarks): %.1f ms%n", landmarkCount,
+                (System.nanoTime() - start) / 1e6);
+
+        start = System.nanoTime();
+        ContractionHierarchy hierarchy = ContractionHierarchy.build(graph);
+        System.out.printf("Contraction hierarchy preprocessing: %.1f ms, %d edges with shortcuts%n",
+                (System.nanoTime() - start) / 1e6, hierarchy.edgeCount());
+        try {
+            File file = File.createTempFile("routing", ".ch");
+            file.deleteOnExit();
+            hierarchy.save(file);
+            start = System.nanoTime();
+            hierarchy = ContractionHierarchy.load(file);
+            System.out.printf("Contraction hierarchy load: %.1f ms from %d bytes%n",
+                    (System.nanoTime() - start) / 1e6, file.length());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        DijkstraEngine dijkstra = new DijkstraEngine(graph);
+        BidirectionalDijkstra bidirectional = new BidirectionalDijkstra(graph);
+        AltEngine alt = new AltEngine(landmarks);
+
+        int[] sources = new int[queries];
+        int[] targets = new int[queries];
+        for (int i = 0; i < queries; i++) {
+            sources[i] = random.nextInt(graph.vertexCount());
+            targets[i] = random.nextInt(graph.vertexCount());
+        }
+
+        String[] names = {"Dijkstra", "Bidirectional", "ALT", "CH"};
+        long[] settled = new long[names.length];
+        long[][] nanos = new long[names.length][queries];
+        for (int round = 0; round < 2; round++) {
+            //the first round warms up the JIT and is not reported
+            Arrays.fill(settled, 0);
+            for (int i = 0; i < queries; i++) {
+                int[] distances = new int[names.length];
+                for (int m = 0; m < names.length; m++) {
+                    long t0 = System.nanoTime();
+                    switch (m) {
+                        case 0:
+                            distances[m] = dijkstra.distance(sources[i], targets[i]);
+                            break;
+                        case 1:
+                            distances[m] = bidirectional.distance(sources[i], targets[i]);
+                            break;
+                        case 2:
+                            distances[m] = alt.distance(sources[i], targets[i]);
+                            break;
+                        default:
+                            distances[m] = hierarchy.distance(sources[i], targets[i]);
+                            break;
+                    }
+                    nanos[m][i] = System.nanoTime() - t0;
+                    settled[m] += SearchScratch.lastSettledCount();
+                    if (distances[m] != distances[0]) {
+                        throw new IllegalStateException("Mismatch for query " + sources[i] + " -> " + targets[i]
+                                + ": " + names[0] + " " + distances[0] + ", " + names[m] + " " + distances[m]);
+                    }
+                }
+            }
+        }
+
+        System.out.printf("%-14s %16s %14s %14s%n", "Mode", "avg settled", "avg us/query", "p99 us/query");
+        for (int m = 0; m < names.length; m++) {
+            long total = 0;
+            for (long t : nanos[m]) {
+                total += t;
+            }
+            long[] sorted = nanos[m].clone();
+            Arrays.sort(sorted);
+            System.out.printf("%-14s %16.1f %14.1f %14.1f%n", names[m], (double) settled[m] / queries,
+                    total / 1e3 / queries, sorted[(int) (queries * 0.99)] / 1e3);
+        }
+    }
+}
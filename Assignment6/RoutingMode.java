@@ -0,0 +1,19 @@
+/**
+ * The search algorithms AirportSystem can use to answer a shortestDistance query.
+ *
+ * @author Ryan Cesar Irizarry
+ */
+public enum RoutingMode {
+
+    //Dijkstra's algorithm from the starting city, stopping when the destination is settled.
+    DIJKSTRA,
+
+    //Dijkstra's algorithm from both cities at once, meeting in the middle.
+    BIDIRECTIONAL,
+
+    //A* search guided by landmark lower bounds. The landmarks must be set up first.
+    ALT,
+
+    //An upward bidirectional search over a Contraction Hierarchy, built or loaded ahead of time.
+    CONTRACTION_HIERARCHY
+}
@@ -0,0 +1,157 @@
+import org.junit.Test;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for the routing modes of AirportSystem: bidirectional search, ALT, the contraction hierarchy
+ * and hot sources kept by DynamicShortestPaths, each checked against plain Dijkstra.
+ *
+ * @author Ryan Cesar Irizarry
+ */
+public class RoutingModesTest {
+
+    /**
+     * Applies the same random edge change to two systems through addEdge, removeEdge or updateEdgeWeight.
+     *
+     * @param random The source of the change.
+     * @param cities The number of cities.
+     * @param systems The systems to change.
+     */
+    private static void mutate(Random random, int cities, AirportSystem... systems) {
+        String source = "C" + random.nextInt(cities);
+        String destination = "C" + random.nextInt(cities);
+        int weight = random.nextInt(50);
+        int kind = random.nextInt(3);
+        for (AirportSystem airportSystem : systems) {
+            if (kind == 0) {
+                airportSystem.addEdge(source, destination, weight);
+            } else if (kind == 1) {
+                airportSystem.removeEdge(source, destination);
+            } else {
+                airportSystem.updateEdgeWeight(source, destination, weight);
+            }
+        }
+    }
+
+    /**
+     * Checks random queries of every routing mode against Dijkstra on a reference system.
+     *
+     * @param tested The system whose modes are checked.
+     * @param reference A system with the same graph and no hot sources.
+     * @param random The source of the queries.
+     * @param cities The number of cities.
+     * @param queries The number of queries.
+     */
+    private static void checkQueries(AirportSystem tested, AirportSystem reference, Random random, int cities,
+                                     int queries) {
+        for (int query = 0; query < queries; query++) {
+            String a = "C" + random.nextInt(cities);
+            String b = "C" + random.nextInt(cities);
+            int expected = reference.shortestDistance(a, b);
+            for (RoutingMode mode : RoutingMode.values()) {
+                assertEquals(mode + " from " + a + " to " + b, expected, tested.shortestDistance(a, b, mode));
+            }
+        }
+    }
+
+    /**
+     * Tests every mode against Dijkstra on random graphs while edges are added, removed and reweighted,
+     * with some of the queries leaving from hot sources.
+     */
+    @Test
+    public void testModesMatchDijkstraUnderMutation() {
+        for (int round = 0; round < 6; round++) {
+            int cities = 10 + 15 * round;
+            AirportSystem tested = TestGraphs.randomSystem(cities, 3 * cities, round);
+            AirportSystem reference = TestGraphs.randomSystem(cities, 3 * cities, round);
+            Random random = new Random(100 + round);
+            tested.selectLandmarks(1 + round % 4);
+            for (int i = 0; i < 3; i++) {
+                tested.trackSource("C" + random.nextInt(cities));
+            }
+            checkQueries(tested, reference, random, cities, 30);
+            for (int step = 0; step < 40; step++) {
+                mutate(random, cities, tested, reference);
+                checkQueries(tested, reference, random, cities, 5);
+            }
+        }
+    }
+
+    /**
+     * Tests that landmarks and a hierarchy saved for one system answer the same as Dijkstra when loaded
+     * into another system with the same graph, keep answering correctly after edge changes, and are
+     * rejected for a different graph.
+     *
+     * @throws IOException If a file cannot be written or read.
+     */
+    @Test
+    public void testSavedLandmarksAndHierarchy() throws IOException {
+        int cities = 80;
+        AirportSystem builder = TestGraphs.randomSystem(cities, 250, 7);
+        File landmarks = File.createTempFile("landmarks", ".bin");
+        File hierarchy = File.createTempFile("hierarchy", ".bin");
+        try {
+            List<String> chosen = builder.selectLandmarks(4);
+            assertEquals(4, chosen.size());
+            builder.saveLandmarks(landmarks);
+            builder.saveHierarchy(hierarchy);
+
+            AirportSystem loaded = TestGraphs.randomSystem(cities, 250, 7);
+            AirportSystem reference = TestGraphs.randomSystem(cities, 250, 7);
+            loaded.loadLandmarks(landmarks);
+            loaded.loadHierarchy(hierarchy);
+            Random random = new Random(8);
+            checkQueries(loaded, reference, random, cities, 200);
+            for (int step = 0; step < 20; step++) {
+                mutate(random, cities, loaded, reference);
+                checkQueries(loaded, reference, random, cities, 10);
+            }
+
+            try {
+                loaded.loadHierarchy(hierarchy);
+                fail("A hierarchy for a different graph was loaded");
+            } catch (IOException e) {
+                assertTrue(e.getMessage().contains("different graph"));
+            }
+            try {
+                loaded.loadLandmarks(landmarks);
+                fail("Landmarks for a different graph were loaded");
+            } catch (IOException e) {
+                assertNotNull(e.getMessage());
+            }
+        } finally {
+            assertTrue(landmarks.delete());
+            assertTrue(hierarchy.delete());
+        }
+    }
+
+    /**
+     * Tests that a hot source stays correct when the graph changes through connections instead of the
+     * edge methods, and that untracked sources fall back to a search.
+     */
+    @Test
+    public void testHotSourcesAcrossVertexChanges() {
+        int cities = 30;
+        AirportSystem tested = TestGraphs.randomSystem(cities, 90, 3);
+        AirportSystem reference = TestGraphs.randomSystem(cities, 90, 3);
+        Random random = new Random(4);
+        tested.selectLandmarks(3);
+        for (int i = 0; i < cities; i += 3) {
+            tested.trackSource("C" + i);
+        }
+        checkQueries(tested, reference, random, cities, 50);
+        for (AirportSystem airportSystem : Arrays.asList(tested, reference)) {
+            AirportSystem.Vertex replacement = new AirportSystem.Vertex("C0");
+            replacement.edges.add(airportSystem.new Edge("C0", "C1", 0));
+            airportSystem.connections.set(0, replacement);
+        }
+        checkQueries(tested, reference, random, cities, 50);
+        tested.untrackSource("C0");
+        mutate(random, cities, tested, reference);
+        checkQueries(tested, reference, random, cities, 50);
+    }
+}
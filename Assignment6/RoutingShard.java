@@ -0,0 +1,242 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Holds one region of a partitioned graph and answers routing requests about it. A shard only knows its
+ * own cities, the flights between them, and the flights that leave the region.
+ *
+ * Cities with a flight out of the region are exits and cities with a flight into it are entries. On
+ * request the shard reports its boundary: its cities, the distance inside the region from every entry to
+ * every exit, and its outgoing cut flights. The router joins these reports into an overlay graph and asks
+ * shards only for distances inside their own regions.
+ *
+ * @author Ryan Cesar Irizarry
+ */
+public class RoutingShard {
+
+    //Asks for the cities, boundary table and cut flights of the region.
+    static final int DESCRIBE = 0;
+
+    //Asks for the distance between two cities of the region without leaving it.
+    static final int LOCAL_DISTANCE = 1;
+
+    //Asks for the distance from a city of the region to each exit.
+    static final int TO_EXITS = 2;
+
+    //Asks for the distance from each entry to a city of the region.
+    static final int FROM_ENTRIES = 3;
+
+    //The region's part of the graph, with local ids.
+    private final CompiledGraph region;
+
+    //The local ids of the exit cities.
+    private final int[] exits;
+
+    //The local ids of the entry cities.
+    private final int[] entries;
+
+    //The position in exits of the city each cut flight leaves from.
+    private final IntList cutExits = new IntList();
+
+    //The destination of each cut flight, in another region.
+    private final List<String> cutTargets = new ArrayList<>();
+
+    //The distance of each cut flight.
+    private final IntList cutWeights = new IntList();
+
+    /**
+     * Builds the shard for one region of a partitioned graph.
+     *
+     * @param graph The whole graph.
+     * @param part The region of each city of the graph.
+     * @param shard The region this shard holds.
+     */
+    public RoutingShard(CompiledGraph graph, int[] part, int shard) {
+        int n = graph.vertexCount();
+        int[] local = new int[n];
+        List<String> names = new ArrayList<>();
+        Map<String, Integer> ids = new HashMap<>();
+        for (int v = 0; v < n; v++) {
+            if (part[v] == shard) {
+                local[v] = names.size();
+                ids.put(graph.nameOf(v), names.size());
+                names.add(graph.nameOf(v));
+            } else {
+                local[v] = -1;
+            }
+        }
+
+        int size = names.size();
+        int[] offsets = new int[size + 1];
+        IntList targets = new IntList();
+        IntList weights = new IntList();
+        boolean[] isEntry = new boolean[size];
+        IntList exitList = new IntList();
+        for (int v = 0; v < n; v++) {
+            if (local[v] < 0) {
+                for (int j = graph.offsets[v]; j < graph.offsets[v + 1]; j++) {
+                    if (local[graph.targets[j]] >= 0) {
+                        isEntry[local[graph.targets[j]]] = true;
+                    }
+                }
+                continue;
+            }
+            boolean exit = false;
+            for (int j = graph.offsets[v]; j < graph.offsets[v + 1]; j++) {
+                int target = graph.targets[j];
+                if (local[target] >= 0) {
+                    targets.add(local[target]);
+                    weights.add(graph.weights[j]);
+                } else {
+                    if (!exit) {
+                        exitList.add(local[v]);
+                        exit = true;
+                    }
+                    cutExits.add(exitList.size - 1);
+                    cutTargets.add(graph.nameOf(target));
+                    cutWeights.add(graph.weights[j]);
+                }
+            }
+            offsets[local[v] + 1] = targets.size;
+        }
+
+        this.region = new CompiledGraph(names.toArray(new String[0]), ids, offsets,
+                Arrays.copyOf(targets.items, targets.size), Arrays.copyOf(weights.items, weights.size), size);
+        this.exits = Arrays.copyOf(exitList.items, exitList.size);
+        IntList entryList = new IntList();
+        for (int v = 0; v < size; v++) {
+            if (isEntry[v]) {
+                entryList.add(v);
+            }
+        }
+        this.entries = Arrays.copyOf(entryList.items, entryList.size);
+    }
+
+    /**
+     * Answers an encoded request.
+     *
+     * @param request The request: an operation code followed by its city names.
+     * @return The encoded reply.
+     * @throws IllegalArgumentException If the operation is unknown.
+     */
+    public byte[] handle(byte[] request) {
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(request));
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(buffer);
+            int operation = in.readInt();
+            switch (operation) {
+                case DESCRIBE:
+                    describe(out);
+                    break;
+                case LOCAL_DISTANCE:
+                    out.writeInt(localDistance(in.readUTF(), in.readUTF()));
+                    break;
+                case TO_EXITS:
+                    writeDistances(out, region, region.idOf(in.readUTF()), exits);
+                    break;
+                case FROM_ENTRIES:
+                    writeDistances(out, region.reverse(), region.idOf(in.readUTF()), entries);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown shard operation " + operation);
+            }
+            out.flush();
+            return buffer.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes the region's cities, entries, exits, entry-to-exit distances and cut flights.
+     *
+     * @param out The reply stream.
+     * @throws IOException If the stream fails.
+     */
+    private void describe(DataOutputStream out) throws IOException {
+        out.writeInt(region.vertexCount());
+        for (int v = 0; v < region.vertexCount(); v++) {
+            out.writeUTF(region.nameOf(v));
+        }
+        writeIds(out, entries);
+        writeIds(out, exits);
+        DijkstraEngine dijkstra = new DijkstraEngine(region);
+        int[] row = new int[region.vertexCount()];
+        for (int entry : entries) {
+            dijkstra.distancesFrom(entry, row);
+            for (int exit : exits) {
+                out.writeInt(row[exit]);
+            }
+        }
+        out.writeInt(cutExits.size);
+        for (int i = 0; i < cutExits.size; i++) {
+            out.writeInt(cutExits.get(i));
+            out.writeUTF(cutTargets.get(i));
+            out.writeInt(cutWeights.get(i));
+        }
+    }
+
+    /**
+     * Returns the shortest distance between two cities of the region without leaving it.
+     *
+     * @param cityA The starting city.
+     * @param cityB The destination city.
+     * @return The distance, or Integer.MAX_VALUE if either city is not here or B cannot be reached.
+     */
+    int localDistance(String cityA, String cityB) {
+        int source = region.idOf(cityA);
+        int target = region.idOf(cityB);
+        if (source < 0 || target < 0) {
+            return Integer.MAX_VALUE;
+        }
+        return new DijkstraEngine(region).distance(source, target);
+    }
+
+    /**
+     * Writes the distances from a city to a list of cities, searching forward or backward.
+     *
+     * @param out The reply stream.
+     * @param graph The region graph, reversed for distances into the city.
+     * @param city The local id of the city, or -1 if it is not here.
+     * @param cities The local ids to report.
+     * @throws IOException If the stream fails.
+     */
+    private static void writeDistances(DataOutputStream out, CompiledGraph graph, int city, int[] cities)
+            throws IOException {
+        out.writeInt(cities.length);
+        if (city < 0) {
+            for (int i = 0; i < cities.length; i++) {
+                out.writeInt(Integer.MAX_VALUE);
+            }
+            return;
+        }
+        int[] row = new DijkstraEngine(graph).distancesFrom(city);
+        for (int v : cities) {
+            out.writeInt(row[v]);
+        }
+    }
+
+    /**
+     * Writes a list of local ids as city names.
+     *
+     * @param out The reply stream.
+     * @param cities The local ids.
+     * @throws IOException If the stream fails.
+     */
+    private void writeIds(DataOutputStream out, int[] cities) throws IOException {
+        out.writeInt(cities.length);
+        for (int v : cities) {
+            out.writeUTF(region.nameOf(v));
+        }
+    }
+}
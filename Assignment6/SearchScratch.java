@@ -0,0 +1,179 @@
+import java.util.Arrays;
+
+/**
+ * Reusable per-thread working memory for shortest path searches. Distances and settled flags are tagged
+ * with the number of the search that wrote them, so starting a new search does not need to clear the arrays.
+ *
+ * @author Ryan Cesar Irizarry
+ */
+class SearchScratch {
+
+    //The number of independent scratch spaces each thread has, one per search direction.
+    static final int SLOTS = 2;
+
+    //The scratch spaces of each thread.
+    private static final ThreadLocal<SearchScratch[]> CURRENT = ThreadLocal.withInitial(() -> {
+        SearchScratch[] slots = new SearchScratch[SLOTS];
+        for (int i = 0; i < SLOTS; i++) {
+            slots[i] = new SearchScratch(0);
+        }
+        return slots;
+    });
+
+    //The tentative distance of each vertex. Only valid if reached[v] equals epoch.
+    int[] dist;
+
+    //The search number that last set dist[v].
+    int[] reached;
+
+    //The search number that last settled v.
+    int[] settled;
+
+    //The vertex each vertex was last reached from, for searches that rebuild paths. Only valid if
+    //reached[v] equals epoch.
+    int[] parent;
+
+    //The priority queue of the search.
+    IndexedMinHeap heap;
+
+    //The number of the current search.
+    int epoch;
+
+    //The number of vertices settled by the last search.
+    int settledCount;
+
+    /**
+     * Constructs scratch space for graphs with up to n vertices.
+     *
+     * @param n The number of vertices.
+     */
+    SearchScratch(int n) {
+        this.dist = new int[n];
+        this.reached = new int[n];
+        this.settled = new int[n];
+        this.parent = new int[n];
+        this.heap = new IndexedMinHeap(n);
+    }
+
+    /**
+     * Returns the calling thread's scratch space, ready for a new search over n vertices.
+     *
+     * @param n The number of vertices in the graph to search.
+     * @return The scratch space.
+     */
+    static SearchScratch current(int n) {
+        return current(0, n);
+    }
+
+    /**
+     * Returns one of the calling thread's scratch spaces, ready for a new search over n vertices.
+     * Searches that run two directions at once use a different slot for each.
+     *
+     * @param slot The scratch slot, from 0 to SLOTS - 1.
+     * @param n The number of vertices in the graph to search.
+     * @return The scratch space.
+     */
+    static SearchScratch current(int slot, int n) {
+        SearchScratch[] slots = CURRENT.get();
+        if (slot == 0) {
+            //a search always takes slot 0 first, so this is where the last search's counts are dropped
+            for (SearchScratch other : slots) {
+                other.settledCount = 0;
+            }
+        }
+        SearchScratch scratch = slots[slot];
+        if (scratch.dist.length < n) {
+            scratch = new SearchScratch(n);
+            slots[slot] = scratch;
+        }
+        scratch.begin();
+        return scratch;
+    }
+
+    /**
+     * Returns the number of vertices settled by the calling thread's last search, over all slots it used.
+     *
+     * @return The settled vertex count.
+     */
+    static int lastSettledCount() {
+        int total = 0;
+        for (SearchScratch scratch : CURRENT.get()) {
+            total += scratch.settledCount;
+        }
+        return total;
+    }
+
+    /**
+     * Starts a new search. The arrays are only cleared when the search counter wraps around.
+     */
+    void begin() {
+        heap.clear();
+        settledCount = 0;
+        epoch++;
+        if (epoch == Integer.MAX_VALUE) {
+            Arrays.fill(reached, 0);
+            Arrays.fill(settled, 0);
+            epoch = 1;
+        }
+    }
+
+    /**
+     * Returns the tentative distance of a vertex in the current search.
+     *
+     * @param v The vertex id.
+     * @return The distance, or Integer.MAX_VALUE if the vertex has not been reached.
+     */
+    int distance(int v) {
+        return reached[v] == epoch ? dist[v] : Integer.MAX_VALUE;
+    }
+
+    /**
+     * Lowers the tentative distance of a vertex and queues it if the new distance is better.
+     *
+     * @param v The vertex id.
+     * @param d The new distance.
+     * @return True if the distance improved, false otherwise.
+     */
+    boolean relax(int v, int d) {
+        return relax(v, d, d);
+    }
+
+    /**
+     * Lowers the tentative distance of a vertex and queues it under a separate key, as A* does with
+     * the distance plus a lower bound on the rest of the route.
+     *
+     * @param v The vertex id.
+     * @param d The new distance.
+     * @param key The queue key of the vertex.
+     * @return True if the distance improved, false otherwise.
+     */
+    boolean relax(int v, int d, int key) {
+        if (reached[v] == epoch && dist[v] <= d) {
+            return false;
+        }
+        reached[v] = epoch;
+        dist[v] = d;
+        heap.insertOrDecrease(v, key);
+        return true;
+    }
+
+    /**
+     * Checks if a vertex has been settled in the current search.
+     *
+     * @param v The vertex id.
+     * @return True if the vertex is settled, false otherwise.
+     */
+    boolean isSettled(int v) {
+        return settled[v] == epoch;
+    }
+
+    /**
+     * Marks a vertex as settled in the current search.
+     *
+     * @param v The vertex id.
+     */
+    void settle(int v) {
+        settled[v] = epoch;
+        settledCount++;
+    }
+}
@@ -0,0 +1,24 @@
+/**
+ * Carries requests from a ShardedRouter to the RoutingShards that own the regions of the graph. A real
+ * deployment sends the bytes over the network; LocalTransport hands them to shards in the same process.
+ *
+ * @author Ryan Cesar Irizarry
+ */
+public interface ShardTransport {
+
+    /**
+     * Sends a request to a shard and waits for its reply.
+     *
+     * @param shard The number of the shard.
+     * @param request The encoded request.
+     * @return The encoded reply.
+     */
+    byte[] send(int shard, byte[] request);
+
+    /**
+     * Returns the number of shards that can be reached.
+     *
+     * @return The number of shards.
+     */
+    int shardCount();
+}
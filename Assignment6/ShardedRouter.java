@@ -0,0 +1,282 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Answers shortest distance queries over a graph whose regions are held by separate RoutingShards.
+ *
+ * The router keeps a directory of which shard owns each city, and an overlay graph over the boundary
+ * cities of all regions. The overlay has the cut flights between regions, plus one shortcut from every
+ * entry of a region to every exit of the same region, weighted with the distance inside the region.
+ *
+ * A query between two cities asks the first city's shard for the distances to its exits and the second
+ * city's shard for the distances from its entries. It then runs Dijkstra over the overlay between them.
+ * Cities in the same region also get the purely local distance, and the answer is the smaller of the two.
+ * Every route either stays in one region or crosses cut flights, so the answer is exact.
+ *
+ * @author Ryan Cesar Irizarry
+ */
+public class ShardedRouter {
+
+    //The transport to the shards.
+    private final ShardTransport transport;
+
+    //Maps each city to the shard that owns it.
+    private final Map<String, Integer> directory = new HashMap<>();
+
+    //The overlay node of each boundary city in each shard's entry list.
+    private final int[][] entryNodes;
+
+    //The overlay node of each boundary city in each shard's exit list.
+    private final int[][] exitNodes;
+
+    //For each overlay node, its position in its shard's entry list, or -1 if it is not an entry.
+    private final int[] entryPosition;
+
+    //The shard of each overlay node.
+    private final int[] nodeShard;
+
+    //The overlay graph: cut flights and entry-to-exit shortcuts over the boundary cities.
+    private final CompiledGraph overlay;
+
+    /**
+     * Builds the directory and overlay by asking every shard to describe its region.
+     *
+     * @param transport The transport to the shards.
+     */
+    public ShardedRouter(ShardTransport transport) {
+        this.transport = transport;
+        int shards = transport.shardCount();
+        this.entryNodes = new int[shards][];
+        this.exitNodes = new int[shards][];
+        Map<String, Integer> nodes = new HashMap<>();
+        List<String> nodeNames = new ArrayList<>();
+        IntList shardOf = new IntList();
+        IntList sources = new IntList();
+        IntList targets = new IntList();
+        IntList weights = new IntList();
+        List<String> pendingCutTargets = new ArrayList<>();
+
+        for (int shard = 0; shard < shards; shard++) {
+            DataInputStream in = call(shard, RoutingShard.DESCRIBE);
+            try {
+                int cities = in.readInt();
+                for (int i = 0; i < cities; i++) {
+                    directory.put(in.readUTF(), shard);
+                }
+                entryNodes[shard] = readNodes(in, shard, nodes, nodeNames, shardOf);
+                exitNodes[shard] = readNodes(in, shard, nodes, nodeNames, shardOf);
+                for (int entry : entryNodes[shard]) {
+                    for (int exit : exitNodes[shard]) {
+                        int distance = in.readInt();
+                        if (distance != Integer.MAX_VALUE && entry != exit) {
+                            sources.add(entry);
+                            targets.add(exit);
+                            weights.add(distance);
+                        }
+                    }
+                }
+                int cutFlights = in.readInt();
+                for (int i = 0; i < cutFlights; i++) {
+                    sources.add(exitNodes[shard][in.readInt()]);
+                    targets.add(-1 - pendingCutTargets.size());
+                    pendingCutTargets.add(in.readUTF());
+                    weights.add(in.readInt());
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        for (int i = 0; i < targets.size; i++) {
+            if (targets.items[i] < 0) {
+                targets.items[i] = nodes.get(pendingCutTargets.get(-1 - targets.items[i]));
+            }
+        }
+
+        int n = nodeNames.size();
+        this.nodeShard = Arrays.copyOf(shardOf.items, n);
+        this.entryPosition = new int[n];
+        Arrays.fill(entryPosition, -1);
+        for (int[] shardEntries : entryNodes) {
+            for (int i = 0; i < shardEntries.length; i++) {
+                entryPosition[shardEntries[i]] = i;
+            }
+        }
+        int[] offsets = new int[n + 1];
+        for (int i = 0; i < sources.size; i++) {
+            offsets[sources.get(i) + 1]++;
+        }
+        for (int v = 0; v < n; v++) {
+            offsets[v + 1] += offsets[v];
+        }
+        int[] next = Arrays.copyOf(offsets, n);
+        int[] packedTargets = new int[sources.size];
+        int[] packedWeights = new int[sources.size];
+        for (int i = 0; i < sources.size; i++) {
+            int p = next[sources.get(i)]++;
+            packedTargets[p] = targets.get(i);
+            packedWeights[p] = weights.get(i);
+        }
+        this.overlay = new CompiledGraph(nodeNames.toArray(new String[0]), nodes, offsets, packedTargets,
+                packedWeights, n);
+    }
+
+    /**
+     * Returns the shard that owns a city.
+     *
+     * @param city The city name.
+     * @return The shard number, or -1 if no shard owns the city.
+     */
+    public int shardOf(String city) {
+        Integer shard = directory.get(city);
+        return shard == null ? -1 : shard;
+    }
+
+    /**
+     * Returns the number of boundary cities in the overlay graph.
+     *
+     * @return The number of overlay cities.
+     */
+    public int overlaySize() {
+        return overlay.vertexCount();
+    }
+
+    /**
+     * Returns the shortest distance between two cities anywhere in the graph.
+     *
+     * @param cityA The starting city.
+     * @param cityB The destination city.
+     * @return The shortest distance, or Integer.MAX_VALUE if either city is unknown or B cannot be reached.
+     */
+    public int shortestDistance(String cityA, String cityB) {
+        int shardA = shardOf(cityA);
+        int shardB = shardOf(cityB);
+        if (shardA < 0 || shardB < 0) {
+            return Integer.MAX_VALUE;
+        }
+        int best = Integer.MAX_VALUE;
+        try {
+            if (shardA == shardB) {
+                best = call(shardA, RoutingShard.LOCAL_DISTANCE, cityA, cityB).readInt();
+            }
+            int[] toExits = readDistances(call(shardA, RoutingShard.TO_EXITS, cityA));
+            int[] fromEntries = readDistances(call(shardB, RoutingShard.FROM_ENTRIES, cityB));
+            return Math.min(best, overlayDistance(shardA, toExits, shardB, fromEntries, best));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Runs Dijkstra over the overlay from the exits of one shard to the entries of another.
+     *
+     * @param shardA The shard of the starting city.
+     * @param toExits The distance from the starting city to each exit of its shard.
+     * @param shardB The shard of the destination city.
+     * @param fromEntries The distance from each entry of the destination's shard to the destination.
+     * @param bound A distance already known, so the search can stop once it cannot do better.
+     * @return The shortest distance through the overlay, or Integer.MAX_VALUE if there is none.
+     */
+    private int overlayDistance(int shardA, int[] toExits, int shardB, int[] fromEntries, int bound) {
+        SearchScratch scratch = SearchScratch.current(overlay.vertexCount());
+        IndexedMinHeap heap = scratch.heap;
+        for (int i = 0; i < toExits.length; i++) {
+            if (toExits[i] != Integer.MAX_VALUE) {
+                scratch.relax(exitNodes[shardA][i], toExits[i]);
+            }
+        }
+        int best = Integer.MAX_VALUE;
+        while (!heap.isEmpty() && heap.minKey() < Math.min(best, bound)) {
+            int curVertex = heap.poll();
+            scratch.settle(curVertex);
+            int curDistance = scratch.dist[curVertex];
+            if (nodeShard[curVertex] == shardB && entryPosition[curVertex] >= 0) {
+                int rest = fromEntries[entryPosition[curVertex]];
+                if (rest != Integer.MAX_VALUE) {
+                    best = Math.min(best, curDistance + rest);
+                }
+            }
+            for (int j = overlay.offsets[curVertex]; j < overlay.offsets[curVertex + 1]; j++) {
+                int destination = overlay.targets[j];
+                if (!scratch.isSettled(destination)) {
+                    scratch.relax(destination, curDistance + overlay.weights[j]);
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Sends a request to a shard and opens its reply.
+     *
+     * @param shard The shard number.
+     * @param operation The operation code.
+     * @param cities The city names the operation takes.
+     * @return A stream over the reply.
+     */
+    private DataInputStream call(int shard, int operation, String... cities) {
+        try {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(buffer);
+            out.writeInt(operation);
+            for (String city : cities) {
+                out.writeUTF(city);
+            }
+            out.flush();
+            return new DataInputStream(new ByteArrayInputStream(transport.send(shard, buffer.toByteArray())));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reads a list of boundary city names and gives each city an overlay node.
+     *
+     * @param in The reply stream.
+     * @param shard The shard the cities belong to.
+     * @param nodes The overlay node of each boundary city so far.
+     * @param nodeNames The name of each overlay node so far.
+     * @param shardOf The shard of each overlay node so far.
+     * @return The overlay nodes of the cities, in list order.
+     * @throws IOException If the reply is malformed.
+     */
+    private static int[] readNodes(DataInputStream in, int shard, Map<String, Integer> nodes, List<String> nodeNames,
+                                   IntList shardOf) throws IOException {
+        int[] result = new int[in.readInt()];
+        for (int i = 0; i < result.length; i++) {
+            String city = in.readUTF();
+            Integer node = nodes.get(city);
+            if (node == null) {
+                node = nodeNames.size();
+                nodes.put(city, node);
+                nodeNames.add(city);
+                shardOf.add(shard);
+            }
+            result[i] = node;
+        }
+        return result;
+    }
+
+    /**
+     * Reads a list of distances.
+     *
+     * @param in The reply stream.
+     * @return The distances.
+     * @throws IOException If the reply is malformed.
+     */
+    private static int[] readDistances(DataInputStream in) throws IOException {
+        int[] distances = new int[in.readInt()];
+        for (int i = 0; i < distances.length; i++) {
+            distances[i] = in.readInt();
+        }
+        return distances;
+    }
+}
@@ -0,0 +1,89 @@
+import org.junit.Test;
+import java.util.Random;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for the GraphPartitioner, RoutingShard and ShardedRouter classes.
+ *
+ * @author Ryan Cesar Irizarry
+ */
+public class ShardedRouterTest {
+
+    /**
+     * Tests that the partition covers every city with k balanced regions.
+     */
+    @Test
+    public void testPartitionBalance() {
+        AirportSystem airportSystem = RoutingBenchmark.buildGrid(40, new Random(1));
+        int k = 4;
+        int[] part = airportSystem.partition(k);
+        int[] sizes = new int[k];
+        for (int p : part) {
+            sizes[p]++;
+        }
+        int limit = (int) Math.ceil(part.length / (double) k * (1 + GraphPartitioner.IMBALANCE));
+        for (int size : sizes) {
+            assertTrue(size > 0 && size <= limit);
+        }
+    }
+
+    /**
+     * Tests that a grid is cut far less than a random split would cut it.
+     */
+    @Test
+    public void testPartitionCut() {
+        AirportSystem airportSystem = RoutingBenchmark.buildGrid(40, new Random(2));
+        CompiledGraph graph = airportSystem.compile();
+        int[] part = airportSystem.partition(4);
+        int[] striped = new int[graph.vertexCount()];
+        for (int v = 0; v < striped.length; v++) {
+            striped[v] = v % 4;
+        }
+        assertTrue(GraphPartitioner.cutSize(graph, part) * 5 < GraphPartitioner.cutSize(graph, striped));
+    }
+
+    /**
+     * Tests that in-process shards answer every query with the same distance as the whole graph.
+     */
+    @Test
+    public void testShardedDistances() {
+        for (int seed = 0; seed < 5; seed++) {
+            AirportSystem airportSystem = TestGraphs.randomSystem(120, 300, seed);
+            ShardedRouter router = airportSystem.shardedRouter(1 + seed);
+            for (int a = 0; a < 120; a += 7) {
+                for (int b = 0; b < 120; b += 3) {
+                    assertEquals(airportSystem.shortestDistance("C" + a, "C" + b),
+                            router.shortestDistance("C" + a, "C" + b));
+                }
+            }
+        }
+    }
+
+    /**
+     * Tests sharded routing on a grid, where most routes cross several regions.
+     */
+    @Test
+    public void testShardedGrid() {
+        AirportSystem airportSystem = RoutingBenchmark.buildGrid(30, new Random(3));
+        ShardedRouter router = airportSystem.shardedRouter(6);
+        assertTrue(router.overlaySize() < 900 / 2);
+        Random random = new Random(4);
+        CompiledGraph graph = airportSystem.compile();
+        for (int i = 0; i < 200; i++) {
+            String a = graph.nameOf(random.nextInt(graph.vertexCount()));
+            String b = graph.nameOf(random.nextInt(graph.vertexCount()));
+            assertEquals(airportSystem.shortestDistance(a, b), router.shortestDistance(a, b));
+        }
+    }
+
+    /**
+     * Tests queries with cities no shard owns.
+     */
+    @Test
+    public void testUnknownCity() {
+        AirportSystem airportSystem = TestGraphs.randomSystem(10, 20, 9);
+        ShardedRouter router = airportSystem.shardedRouter(2);
+        assertEquals(-1, router.shardOf("Nowhere"));
+        assertEquals(Integer.MAX_VALUE, router.shortestDistance("C0", "Nowhere"));
+    }
+}
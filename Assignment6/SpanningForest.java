@@ -0,0 +1,287 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Minimum spanning forest algorithms over a compiled graph. Each returns the positions of the chosen
+ * edges in the graph's CSR arrays, and every connected part of the graph gets its own tree. All of them
+ * except primDirected treat each flight as a two-way link, so they build forests of the same total
+ * distance.
+ *
+ * @author Ryan Cesar Irizarry
+ */
+public class SpanningForest {
+
+    //Gives atomic access to the elements of a long array.
+    private static final VarHandle LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    //Marks a component with no outgoing edge in a Boruvka round.
+    private static final long NONE = Long.MAX_VALUE;
+
+    //The number of edges each parallel Boruvka task scans.
+    private static final int BLOCK = 1 << 14;
+
+    //The graph to span.
+    private final CompiledGraph graph;
+
+    /**
+     * Constructs the algorithms for the given graph.
+     *
+     * @param graph The graph to span.
+     */
+    public SpanningForest(CompiledGraph graph) {
+        this.graph = graph;
+    }
+
+    /**
+     * Returns the graph these algorithms run on.
+     *
+     * @return The compiled graph.
+     */
+    public CompiledGraph graph() {
+        return graph;
+    }
+
+    /**
+     * Runs Prim's algorithm from city 0, and again from the first city not yet reached until every city is
+     * in a tree. Each flight is treated as a two-way link, so the forest has the same total distance as the
+     * ones Kruskal and Boruvka build.
+     *
+     * @return The positions of the forest edges, in the order they were added.
+     */
+    public int[] prim() {
+        int n = graph.vertexCount();
+        int m = graph.edgeCount();
+        int[] sources = sources();
+        //the positions of the edges entering each city, grouped by city like the outgoing edges
+        int[] inOffsets = new int[n + 1];
+        for (int j = 0; j < m; j++) {
+            inOffsets[graph.targets[j] + 1]++;
+        }
+        for (int v = 0; v < n; v++) {
+            inOffsets[v + 1] += inOffsets[v];
+        }
+        int[] inEdges = new int[m];
+        int[] next = Arrays.copyOf(inOffsets, n);
+        for (int j = 0; j < m; j++) {
+            inEdges[next[graph.targets[j]]++] = j;
+        }
+
+        IndexedMinHeap heap = new IndexedMinHeap(n);
+        boolean[] visited = new boolean[n];
+        //the cheapest known edge between the visited cities and each city, or -1
+        int[] bestEdge = new int[n];
+        Arrays.fill(bestEdge, -1);
+        IntList treeEdges = new IntList();
+
+        for (int root = 0; root < n; root++) {
+            if (visited[root]) {
+                continue;
+            }
+            int v = root;
+            while (true) {
+                visited[v] = true;
+                for (int j = graph.offsets[v]; j < graph.offsets[v + 1]; j++) {
+                    offer(graph.targets[j], j, visited, bestEdge, heap);
+                }
+                for (int i = inOffsets[v]; i < inOffsets[v + 1]; i++) {
+                    offer(sources[inEdges[i]], inEdges[i], visited, bestEdge, heap);
+                }
+                if (heap.isEmpty()) {
+                    break;
+                }
+                v = heap.poll();
+                treeEdges.add(bestEdge[v]);
+            }
+        }
+        return Arrays.copyOf(treeEdges.items, treeEdges.size);
+    }
+
+    /**
+     * Runs Prim's algorithm like prim, but follows flights only in their own direction, like the original
+     * list-based version. A city only reachable against the direction of flights starts a tree of its own,
+     * so the forest can weigh more than the one prim builds.
+     *
+     * @return The positions of the forest edges, in the order they were added.
+     */
+    public int[] primDirected() {
+        int n = graph.vertexCount();
+        IndexedMinHeap heap = new IndexedMinHeap(n);
+        boolean[] visited = new boolean[n];
+        //the cheapest known edge from the visited cities into each city, or -1
+        int[] bestEdge = new int[n];
+        Arrays.fill(bestEdge, -1);
+        IntList treeEdges = new IntList();
+
+        for (int root = 0; root < n; root++) {
+            if (visited[root]) {
+                continue;
+            }
+            visit(root, visited, bestEdge, heap);
+            while (!heap.isEmpty()) {
+                int v = heap.poll();
+                treeEdges.add(bestEdge[v]);
+                visit(v, visited, bestEdge, heap);
+            }
+        }
+        return Arrays.copyOf(treeEdges.items, treeEdges.size);
+    }
+
+    /**
+     * Offers an edge to the city at its other end if that city is not in a tree yet.
+     *
+     * @param x The city at the other end of the edge.
+     * @param j The position of the edge.
+     * @param visited Which cities are in a tree.
+     * @param bestEdge The cheapest known edge to each city.
+     * @param heap The unvisited cities keyed by the weight of their cheapest edge.
+     */
+    private void offer(int x, int j, boolean[] visited, int[] bestEdge, IndexedMinHeap heap) {
+        if (!visited[x] && heap.insertOrDecrease(x, graph.weights[j])) {
+            bestEdge[x] = j;
+        }
+    }
+
+    /**
+     * Marks a city visited and offers its edges to the unvisited cities they lead to.
+     *
+     * @param v The city.
+     * @param visited Which cities are in a tree.
+     * @param bestEdge The cheapest known edge into each city.
+     * @param heap The unvisited cities keyed by the weight of their cheapest edge.
+     */
+    private void visit(int v, boolean[] visited, int[] bestEdge, IndexedMinHeap heap) {
+        visited[v] = true;
+        for (int j = graph.offsets[v]; j < graph.offsets[v + 1]; j++) {
+            offer(graph.targets[j], j, visited, bestEdge, heap);
+        }
+    }
+
+    /**
+     * Runs Kruskal's algorithm, treating each flight as a two-way link.
+     *
+     * @return The positions of the forest edges, in order of weight.
+     */
+    public int[] kruskal() {
+        int n = graph.vertexCount();
+        int m = graph.edgeCount();
+        //sort weight and edge position together, so ties keep a fixed order
+        long[] order = new long[m];
+        for (int j = 0; j < m; j++) {
+            order[j] = ((long) graph.weights[j] << 32) | j;
+        }
+        Arrays.parallelSort(order);
+
+        int[] sources = sources();
+        UnionFind sets = new UnionFind(n);
+        IntList treeEdges = new IntList();
+        for (int i = 0; i < m && treeEdges.size < n - 1; i++) {
+            int j = (int) order[i];
+            if (sets.union(sources[j], graph.targets[j])) {
+                treeEdges.add(j);
+            }
+        }
+        return Arrays.copyOf(treeEdges.items, treeEdges.size);
+    }
+
+    /**
+     * Runs Boruvka's algorithm on the given pool, treating each flight as a two-way link. Every round, each
+     * component picks its cheapest edge to another component, with the edge scan split over the threads,
+     * and all picked edges are merged at once. Ties are broken by edge position so no cycle can form.
+     *
+     * @param pool The pool to run the scans on.
+     * @return The positions of the forest edges.
+     */
+    public int[] boruvka(ForkJoinPool pool) {
+        int n = graph.vertexCount();
+        int m = graph.edgeCount();
+        int[] sources = sources();
+        int[] component = new int[n];
+        for (int v = 0; v < n; v++) {
+            component[v] = v;
+        }
+        long[] cheapest = new long[n];
+        UnionFind sets = new UnionFind(n);
+        IntList treeEdges = new IntList();
+
+        boolean merged = true;
+        while (merged && treeEdges.size < n - 1) {
+            Arrays.fill(cheapest, NONE);
+            int blocks = (m + BLOCK - 1) / BLOCK;
+            run(pool, () -> IntStream.range(0, blocks).parallel().forEach(b -> {
+                int end = Math.min(m, (b + 1) * BLOCK);
+                for (int j = b * BLOCK; j < end; j++) {
+                    int cu = component[sources[j]];
+                    int cv = component[graph.targets[j]];
+                    if (cu != cv) {
+                        long key = ((long) graph.weights[j] << 32) | j;
+                        offer(cheapest, cu, key);
+                        offer(cheapest, cv, key);
+                    }
+                }
+            }));
+
+            merged = false;
+            for (int c = 0; c < n; c++) {
+                if (cheapest[c] != NONE) {
+                    int j = (int) cheapest[c];
+                    if (sets.union(sources[j], graph.targets[j])) {
+                        treeEdges.add(j);
+                        merged = true;
+                    }
+                }
+            }
+            for (int v = 0; v < n; v++) {
+                component[v] = sets.find(v);
+            }
+        }
+        return Arrays.copyOf(treeEdges.items, treeEdges.size);
+    }
+
+    /**
+     * Lowers the cheapest edge of a component to the given key if it is smaller.
+     *
+     * @param cheapest The cheapest edge key of each component.
+     * @param c The component.
+     * @param key The weight and position of the edge.
+     */
+    private static void offer(long[] cheapest, int c, long key) {
+        long current = (long) LONGS.getVolatile(cheapest, c);
+        while (key < current && !LONGS.compareAndSet(cheapest, c, current, key)) {
+            current = (long) LONGS.getVolatile(cheapest, c);
+        }
+    }
+
+    /**
+     * Runs a task on the pool and waits for it.
+     *
+     * @param pool The pool.
+     * @param task The task.
+     */
+    private static void run(ForkJoinPool pool, Runnable task) {
+        try {
+            pool.submit(task).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while building the spanning forest", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Returns the source city of every edge.
+     *
+     * @return The source id of each edge position.
+     */
+    private int[] sources() {
+        int[] sources = new int[graph.edgeCount()];
+        for (int v = 0; v < graph.vertexCount(); v++) {
+            Arrays.fill(sources, graph.offsets[v], graph.offsets[v + 1], v);
+        }
+        return sources;
+    }
+}
@@ -0,0 +1,234 @@
+import org.junit.Test;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for the SpanningForest and UnionFind classes and the minimumSpanningTree methods of
+ * AirportSystem.
+ *
+ * @author Ryan Cesar Irizarry
+ */
+public class SpanningForestTest {
+
+    /**
+     * Counts the connected parts of a graph when each flight is a two-way link, with a search that does
+     * not use UnionFind.
+     *
+     * @param graph The graph.
+     * @return The number of connected parts.
+     */
+    private static int components(CompiledGraph graph) {
+        int n = graph.vertexCount();
+        CompiledGraph reverse = graph.reverse();
+        boolean[] seen = new boolean[n];
+        int[] stack = new int[n];
+        int components = 0;
+        for (int root = 0; root < n; root++) {
+            if (seen[root]) {
+                continue;
+            }
+            components++;
+            seen[root] = true;
+            int top = 0;
+            stack[top++] = root;
+            while (top > 0) {
+                int v = stack[--top];
+                for (CompiledGraph g : new CompiledGraph[] {graph, reverse}) {
+                    for (int j = g.offsets[v]; j < g.offsets[v + 1]; j++) {
+                        if (!seen[g.targets[j]]) {
+                            seen[g.targets[j]] = true;
+                            stack[top++] = g.targets[j];
+                        }
+                    }
+                }
+            }
+        }
+        return components;
+    }
+
+    /**
+     * Checks that a forest has one edge fewer than cities in each connected part and no cycle, and returns
+     * its total distance.
+     *
+     * @param graph The graph.
+     * @param forest The positions of the forest edges.
+     * @return The total distance of the forest.
+     */
+    private static long checkForest(CompiledGraph graph, int[] forest) {
+        assertEquals(graph.vertexCount() - components(graph), forest.length);
+        boolean[] used = new boolean[graph.edgeCount()];
+        int[] parent = new int[graph.vertexCount()];
+        for (int v = 0; v < parent.length; v++) {
+            parent[v] = v;
+        }
+        long total = 0;
+        for (int j : forest) {
+            assertFalse("edge " + j + " used twice", used[j]);
+            used[j] = true;
+            int a = root(parent, graph.sourceOf(j));
+            int b = root(parent, graph.targets[j]);
+            assertTrue("edge " + j + " closes a cycle", a != b);
+            parent[a] = b;
+            total += graph.weights[j];
+        }
+        return total;
+    }
+
+    /**
+     * Finds the root of a city in a plain parent array.
+     *
+     * @param parent The parent of each city.
+     * @param v The city.
+     * @return The root.
+     */
+    private static int root(int[] parent, int v) {
+        while (parent[v] != v) {
+            v = parent[v];
+        }
+        return v;
+    }
+
+    /**
+     * Finds the smallest total distance of a spanning forest by trying every set of edges.
+     *
+     * @param graph A graph with few edges.
+     * @return The smallest total distance.
+     */
+    private static long bruteForce(CompiledGraph graph) {
+        int m = graph.edgeCount();
+        int needed = graph.vertexCount() - components(graph);
+        long best = Long.MAX_VALUE;
+        for (int mask = 0; mask < 1 << m; mask++) {
+            if (Integer.bitCount(mask) != needed) {
+                continue;
+            }
+            int[] parent = new int[graph.vertexCount()];
+            for (int v = 0; v < parent.length; v++) {
+                parent[v] = v;
+            }
+            long total = 0;
+            boolean acyclic = true;
+            for (int j = 0; j < m && acyclic; j++) {
+                if ((mask & 1 << j) != 0) {
+                    int a = root(parent, graph.sourceOf(j));
+                    int b = root(parent, graph.targets[j]);
+                    acyclic = a != b;
+                    parent[a] = b;
+                    total += graph.weights[j];
+                }
+            }
+            if (acyclic) {
+                best = Math.min(best, total);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Tests that Prim, Kruskal and Boruvka build valid forests of the same total distance on random
+     * graphs with many connected parts, one-way flights, self loops and tied distances.
+     */
+    @Test
+    public void testAlgorithmsAgree() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int round = 0; round < 8; round++) {
+                int cities = 50 + 150 * round;
+                int maxWeight = round % 2 == 0 ? 50 : 3;
+                int flights = cities * (round % 4 + 1) / 2;
+                CompiledGraph graph = TestGraphs.randomSystem(cities, cities - cities / 8, flights, maxWeight,
+                        round).compile();
+                assertTrue(components(graph) > 1);
+                SpanningForest forest = new SpanningForest(graph);
+                long prim = checkForest(graph, forest.prim());
+                assertEquals("round " + round, prim, checkForest(graph, forest.kruskal()));
+                assertEquals("round " + round, prim, checkForest(graph, forest.boruvka(pool)));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Tests each algorithm against every possible forest on small random graphs.
+     */
+    @Test
+    public void testMinimalOnSmallGraphs() {
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            for (int round = 0; round < 40; round++) {
+                CompiledGraph graph = TestGraphs.randomSystem(7, 7, 12, 10, round).compile();
+                long best = bruteForce(graph);
+                SpanningForest forest = new SpanningForest(graph);
+                assertEquals("round " + round, best, checkForest(graph, forest.prim()));
+                assertEquals("round " + round, best, checkForest(graph, forest.kruskal()));
+                assertEquals("round " + round, best, checkForest(graph, forest.boruvka(pool)));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Tests that every minimumSpanningTree algorithm uses the cheaper flight into a city against its
+     * direction, while the no-argument version keeps following flights in their own direction.
+     */
+    @Test
+    public void testMinimumSpanningTree() {
+        AirportSystem airportSystem = new AirportSystem();
+        for (String city : new String[] {"A", "B", "C", "D"}) {
+            airportSystem.connections.add(new AirportSystem.Vertex(city));
+        }
+        airportSystem.addEdge("A", "B", 1);
+        airportSystem.addEdge("C", "B", 2);
+        airportSystem.addEdge("A", "C", 5);
+        for (MstAlgorithm algorithm : MstAlgorithm.values()) {
+            List<AirportSystem.Edge> edges = airportSystem.minimumSpanningTree(algorithm);
+            assertEquals(algorithm.name(), 2, edges.size());
+            assertEquals(algorithm.name(), 3, edges.get(0).distance + edges.get(1).distance);
+        }
+        List<AirportSystem.Edge> directed = airportSystem.minimumSpanningTree();
+        assertEquals(2, directed.size());
+        assertEquals(6, directed.get(0).distance + directed.get(1).distance);
+    }
+
+    /**
+     * Tests that UnionFind merges sets only once, that find agrees on merged ids, and that long chains of
+     * unions keep working.
+     */
+    @Test
+    public void testUnionFind() {
+        UnionFind sets = new UnionFind(6);
+        assertTrue(sets.union(0, 1));
+        assertTrue(sets.union(2, 3));
+        assertFalse(sets.union(1, 0));
+        assertEquals(sets.find(0), sets.find(1));
+        assertTrue(sets.find(0) != sets.find(2));
+        assertTrue(sets.union(1, 3));
+        assertFalse(sets.union(0, 2));
+        assertEquals(sets.find(0), sets.find(3));
+        assertEquals(4, sets.find(4));
+        assertEquals(5, sets.find(5));
+
+        int n = 10000;
+        UnionFind chain = new UnionFind(n);
+        Random random = new Random(8);
+        int[] parent = new int[n];
+        for (int v = 0; v < n; v++) {
+            parent[v] = v;
+        }
+        for (int i = 0; i < 3 * n; i++) {
+            int a = random.nextInt(n);
+            int b = random.nextInt(n);
+            int ra = root(parent, a);
+            int rb = root(parent, b);
+            assertEquals(ra != rb, chain.union(a, b));
+            if (ra != rb) {
+                parent[ra] = rb;
+            }
+            assertTrue(chain.find(a) == chain.find(b));
+        }
+    }
+}
@@ -0,0 +1,51 @@
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Compares one-to-all delta-stepping with sequential Dijkstra on the generated grid network, at several
+ * thread counts, and checks that both give the same distances.
+ *
+ * Usage: java SsspBenchmark [gridSide] [delta]
+ *
+ * @author Ryan Cesar Irizarry
+ */
+public class SsspBenchmark {
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args Command-line arguments: grid side and bucket width.
+     */
+    public static void main(String[] args) {
+        int side = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        Random random = new Random(42);
+        CompiledGraph graph = RoutingBenchmark.buildGrid(side, random).compile();
+        int delta = args.length > 1 ? Integer.parseInt(args[1]) : DeltaStepping.defaultDelta(graph);
+        System.out.println("Cities: " + graph.vertexCount() + ", flights: " + graph.edgeCount() + ", delta: " + delta);
+
+        DijkstraEngine dijkstra = new DijkstraEngine(graph);
+        int source = random.nextInt(graph.vertexCount());
+        dijkstra.distancesFrom(source);
+        long start = System.nanoTime();
+        int[] expected = dijkstra.distancesFrom(source);
+        double baseline = (System.nanoTime() - start) / 1e6;
+        System.out.printf("Dijkstra:              %8.1f ms%n", baseline);
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int threads = 1; threads <= cores; threads *= 2) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            DeltaStepping deltaStepping = new DeltaStepping(graph, delta, pool, 0);
+            deltaStepping.distancesFrom(source);
+            start = System.nanoTime();
+            int[] distances = deltaStepping.distancesFrom(source);
+            double millis = (System.nanoTime() - start) / 1e6;
+            pool.shutdown();
+            if (!Arrays.equals(expected, distances)) {
+                throw new IllegalStateException("Delta-stepping distances differ from Dijkstra");
+            }
+            System.out.printf("Delta-stepping, %3d threads: %8.1f ms, speedup %.2fx%n", threads, millis,
+                    baseline / millis);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+import java.util.Random;
+
+/**
+ * Builds the random airport systems shared by the test classes. The same arguments always give the same
+ * graph.
+ *
+ * @author Ryan Cesar Irizarry
+ */
+class TestGraphs {
+
+    /**
+     * Builds a random system with flights of weight 0 to 49 between any two cities.
+     *
+     * @param cities The number of cities.
+     * @param flights The number of flights to try to add.
+     * @param seed The random seed.
+     * @return The system.
+     */
+    static AirportSystem randomSystem(int cities, int flights, long seed) {
+        return randomSystem(cities, cities, flights, 50, seed);
+    }
+
+    /**
+     * Builds a random system whose flights land only on the first cities, so that the others can never
+     * be reached.
+     *
+     * @param cities The number of cities.
+     * @param destinations The number of cities flights may land on.
+     * @param flights The number of flights to try to add.
+     * @param maxWeight One more than the largest flight weight.
+     * @param seed The random seed.
+     * @return The system.
+     */
+    static AirportSystem randomSystem(int cities, int destinations, int flights, int maxWeight, long seed) {
+        Random random = new Random(seed);
+        AirportSystem airportSystem = new AirportSystem();
+        for (int i = 0; i < cities; i++) {
+            airportSystem.connections.add(new AirportSystem.Vertex("C" + i));
+        }
+        for (int i = 0; i < flights && destinations > 0; i++) {
+            airportSystem.addEdge("C" + random.nextInt(cities), "C" + random.nextInt(destinations),
+                    random.nextInt(maxWeight));
+        }
+        return airportSystem;
+    }
+}
@@ -0,0 +1,64 @@
+import java.util.Random;
+
+/**
+ * Measures earliest-arrival query throughput of the connection scan on the generated grid network, with
+ * every flight route served several times a day for a week.
+ *
+ * Usage: java TimetableBenchmark [gridSide] [flightsPerDay] [queries]
+ *
+ * @author Ryan Cesar Irizarry
+ */
+public class TimetableBenchmark {
+
+    //The number of minutes in a day.
+    private static final int DAY = 24 * 60;
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args Command-line arguments: grid side, flights per route per day and query count.
+     */
+    public static void main(String[] args) {
+        int side = args.length > 0 ? Integer.parseInt(args[0]) : 60;
+        int perDay = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int queries = args.length > 2 ? Integer.parseInt(args[2]) : 20000;
+        Random random = new Random(42);
+        AirportSystem airportSystem = RoutingBenchmark.buildGrid(side, random);
+        CompiledGraph graph = airportSystem.compile();
+        for (int u = 0; u < graph.vertexCount(); u++) {
+            for (int j = graph.offsets[u]; j < graph.offsets[u + 1]; j++) {
+                for (int day = 0; day < 7; day++) {
+                    for (int f = 0; f < perDay; f++) {
+                        int departure = day * DAY + random.nextInt(DAY);
+                        airportSystem.addFlight(graph.nameOf(u), graph.nameOf(graph.targets[j]), departure,
+                                departure + graph.weights[j]);
+                    }
+                }
+            }
+        }
+        airportSystem.setMinimumConnectionTime(30);
+        System.out.println("Cities: " + graph.vertexCount() + ", scheduled flights: "
+                + graph.edgeCount() * 7 * perDay);
+
+        String[] from = new String[queries];
+        String[] to = new String[queries];
+        int[] start = new int[queries];
+        for (int i = 0; i < queries; i++) {
+            from[i] = graph.nameOf(random.nextInt(graph.vertexCount()));
+            to[i] = graph.nameOf(random.nextInt(graph.vertexCount()));
+            start[i] = random.nextInt(3 * DAY);
+        }
+        for (int round = 0; round < 3; round++) {
+            long reachable = 0;
+            long begin = System.nanoTime();
+            for (int i = 0; i < queries; i++) {
+                if (airportSystem.earliestArrival(from[i], to[i], start[i]) != Integer.MAX_VALUE) {
+                    reachable++;
+                }
+            }
+            double seconds = (System.nanoTime() - begin) / 1e9;
+            System.out.printf("Round %d: %.0f queries/s, %d of %d reachable%n", round + 1, queries / seconds,
+                    reachable, queries);
+        }
+    }
+}
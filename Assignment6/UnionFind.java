@@ -0,0 +1,64 @@
+/**
+ * A disjoint-set forest over int ids with path halving and union by size.
+ *
+ * @author Ryan Cesar Irizarry
+ */
+public class UnionFind {
+
+    //The parent of each id. A root is its own parent.
+    private final int[] parent;
+
+    //The number of ids in the set of each root.
+    private final int[] size;
+
+    /**
+     * Constructs n singleton sets, one per id from 0 to n - 1.
+     *
+     * @param n The number of ids.
+     */
+    public UnionFind(int n) {
+        this.parent = new int[n];
+        this.size = new int[n];
+        for (int i = 0; i < n; i++) {
+            parent[i] = i;
+            size[i] = 1;
+        }
+    }
+
+    /**
+     * Returns the root of the set containing an id, shortening the path to it along the way.
+     *
+     * @param x The id.
+     * @return The root of its set.
+     */
+    public int find(int x) {
+        while (parent[x] != x) {
+            parent[x] = parent[parent[x]];
+            x = parent[x];
+        }
+        return x;
+    }
+
+    /**
+     * Merges the sets containing two ids.
+     *
+     * @param a The first id.
+     * @param b The second id.
+     * @return True if the ids were in different sets, false if they were already together.
+     */
+    public boolean union(int a, int b) {
+        int rootA = find(a);
+        int rootB = find(b);
+        if (rootA == rootB) {
+            return false;
+        }
+        if (size[rootA] < size[rootB]) {
+            int swap = rootA;
+            rootA = rootB;
+            rootB = swap;
+        }
+        parent[rootB] = rootA;
+        size[rootA] += size[rootB];
+        return true;
+    }
+}